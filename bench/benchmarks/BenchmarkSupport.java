@@ -0,0 +1,99 @@
+package benchmarks;
+
+import java.awt.Point;
+import java.util.Random;
+
+import controller.BattleshipController;
+import utilities.Constants;
+import utilities.GameConfig;
+import utilities.IllegalPlacementException;
+
+/**
+ * This class holds the setup that the benchmarks share. Every benchmark is
+ * parameterized by a board size and a fleet, which are turned into a GameConfig
+ * here, and the fleet is always placed the same way so that runs can be compared.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+final class BenchmarkSupport {
+
+	// Board sizes and fleets that every benchmark runs with.
+	static final String STANDARD_FLEET = "5,4,3,2,2,1,1";
+	static final String LARGE_FLEET = "5,5,4,4,4,3,3,3,2,2,2,1,1,1";
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * This method turns the parameters of a benchmark into a config.
+	 *
+	 * @param size An integer that represents the number of positions on each side
+	 * of the board.
+	 * @param fleet A string that holds the ship sizes separated by commas.
+	 * @return A new config for the board and fleet.
+	 */
+	static GameConfig config(int size, String fleet) {
+		String[] parts = fleet.split(",");
+		int[] shipSizes = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			shipSizes[i] = Integer.parseInt(parts[i].trim());
+		}
+		return new GameConfig(size, shipSizes);
+	}
+
+	/**
+	 * This method places every ship of the fleet horizontally, spread out over
+	 * the rows of the board. Ships share a row, one after another, when there are
+	 * more ships than rows.
+	 *
+	 * @param controller An object that the ships are placed with.
+	 * @param config An object that describes the board and fleet.
+	 * @throws IllegalPlacementException when the fleet doesn't fit this way.
+	 */
+	static void placeFleet(BattleshipController controller, GameConfig config) throws IllegalPlacementException {
+		int rowGap = Math.max(1, config.getSize() / config.getShipCount());
+		int row = 0;
+		int col = 0;
+		for (int i = 0; i < config.getShipCount(); i++) {
+			int shipSize = config.getShipSize(i);
+			if (col + shipSize > config.getSize()) {
+				row += rowGap;
+				col = 0;
+			}
+			controller.addShip(new Point(col, row), shipSize, Constants.HORIZONTAL);
+			col += shipSize + 1;
+			if (rowGap > 1) {
+				row += rowGap;
+				col = 0;
+			}
+		}
+	}
+
+	/**
+	 * This method returns every position of the board in an order that is spread
+	 * out over the board but is the same on every run.
+	 *
+	 * @param size An integer that represents the number of positions on each side
+	 * of the board.
+	 * @param seed A long that decides the order.
+	 * @return An array that holds every position of the board.
+	 */
+	static Point[] shuffledPositions(int size, long seed) {
+		Point[] positions = new Point[size * size];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = new Point(i % size, i / size);
+		}
+		Random random = new Random(seed);
+		for (int i = positions.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Point temp = positions[i];
+			positions[i] = positions[j];
+			positions[j] = temp;
+		}
+		return positions;
+	}
+
+}
@@ -0,0 +1,129 @@
+package benchmarks;
+
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.BattleshipController;
+import model.BattleshipModel;
+import utilities.BattleshipCodec;
+import utilities.BattleshipMessage;
+import utilities.GameConfig;
+import utilities.IllegalPlacementException;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class measures sending a BattleshipMessage and reading it back, both with
+ * the BattleshipCodec the players use and with Java serialization through an
+ * ObjectOutputStream, which is what the players used before the codec. Each kind
+ * of message is measured on its own, since a move and an updated grid are very
+ * different in size.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int size;
+
+	@Param({BenchmarkSupport.STANDARD_FLEET, BenchmarkSupport.LARGE_FLEET})
+	public String fleet;
+
+	@Param({"move", "shotResult", "updatedGrid", "fleet"})
+	public String kind;
+
+	private BattleshipMessage message;
+
+	private ByteArrayOutputStream buffer;
+
+	/**
+	 * This method builds the message that is sent.
+	 *
+	 * @throws IllegalPlacementException when the fleet doesn't fit on the board.
+	 */
+	@Setup
+	public void setUp() throws IllegalPlacementException {
+		GameConfig config = BenchmarkSupport.config(size, fleet);
+		BattleshipModel model = new BattleshipModel(config);
+		BattleshipController controller = new BattleshipController(model);
+		BenchmarkSupport.placeFleet(controller, config);
+
+		// Half of the board is attacked so the progress grid is realistic.
+		Point[] moves = BenchmarkSupport.shuffledPositions(size, 7);
+		for (int i = 0; i < moves.length / 2; i++) {
+			controller.moveResult(moves[i]);
+		}
+
+		message = new BattleshipMessage();
+		if (kind.equals("move")) {
+			message.setMove(new Point(size - 1, size - 1));
+		} else if (kind.equals("shotResult")) {
+			message.setShotResult(new Point(size - 1, size - 1), POSITION_RESULT.HIT);
+		} else if (kind.equals("updatedGrid")) {
+			message.setUpdatedGrid(model.getPlayerProgressGrid());
+		} else {
+			controller.describeFleet(message);
+		}
+		buffer = new ByteArrayOutputStream();
+	}
+
+	/**
+	 * This method writes the message with the codec and reads it back.
+	 *
+	 * @return the message that was read.
+	 * @throws IOException when the message could not be written or read.
+	 */
+	@Benchmark
+	public BattleshipMessage codecRoundTrip() throws IOException {
+		buffer.reset();
+		DataOutputStream out = new DataOutputStream(buffer);
+		BattleshipCodec.write(out, message);
+		out.flush();
+		return BattleshipCodec.read(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+	}
+
+	/**
+	 * This method writes the message with Java serialization and reads it back.
+	 *
+	 * @return the message that was read.
+	 * @throws IOException when the message could not be written or read.
+	 * @throws ClassNotFoundException when the message class could not be found.
+	 */
+	@Benchmark
+	public BattleshipMessage serializationRoundTrip() throws IOException, ClassNotFoundException {
+		buffer.reset();
+		ObjectOutputStream out = new ObjectOutputStream(buffer);
+		out.writeObject(message);
+		out.flush();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+		return (BattleshipMessage) in.readObject();
+	}
+
+}
@@ -0,0 +1,107 @@
+package benchmarks;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import controller.BattleshipController;
+import model.BattleshipModel;
+import utilities.Constants;
+import utilities.GameConfig;
+import utilities.IllegalPlacementException;
+
+/**
+ * This class measures how long BattleshipController.addShip takes to check a
+ * placement. Placing a whole fleet covers the path where every check passes, and
+ * the rejected placements cover the two checks that throw.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int size;
+
+	@Param({BenchmarkSupport.STANDARD_FLEET, BenchmarkSupport.LARGE_FLEET})
+	public String fleet;
+
+	private GameConfig config;
+
+	// A controller whose fleet is already placed.
+	private BattleshipController placed;
+
+	/**
+	 * This method builds the config and a controller with its fleet placed.
+	 *
+	 * @throws IllegalPlacementException when the fleet doesn't fit on the board.
+	 */
+	@Setup
+	public void setUp() throws IllegalPlacementException {
+		config = BenchmarkSupport.config(size, fleet);
+		placed = new BattleshipController(new BattleshipModel(config));
+		BenchmarkSupport.placeFleet(placed, config);
+	}
+
+	/**
+	 * This method places a whole fleet on a new model.
+	 *
+	 * @return the controller, so the work isn't thrown away.
+	 * @throws IllegalPlacementException when the fleet doesn't fit on the board.
+	 */
+	@Benchmark
+	public BattleshipController placeFleet() throws IllegalPlacementException {
+		BattleshipController controller = new BattleshipController(new BattleshipModel(config));
+		BenchmarkSupport.placeFleet(controller, config);
+		return controller;
+	}
+
+	/**
+	 * This method tries to place a ship on top of one that was already placed.
+	 *
+	 * @param blackhole An object that keeps the result from being optimized away.
+	 */
+	@Benchmark
+	public void rejectOverlap(Blackhole blackhole) {
+		try {
+			placed.addShip(new Point(0, 0), config.getShipSize(0), Constants.VERTICAL);
+		} catch (IllegalPlacementException e) {
+			blackhole.consume(e);
+		}
+	}
+
+	/**
+	 * This method tries to place a ship that goes over the edge of the board.
+	 *
+	 * @param blackhole An object that keeps the result from being optimized away.
+	 */
+	@Benchmark
+	public void rejectOutOfBounds(Blackhole blackhole) {
+		try {
+			placed.addShip(new Point(size - 1, size - 1), 2, Constants.HORIZONTAL);
+		} catch (IllegalPlacementException e) {
+			blackhole.consume(e);
+		}
+	}
+
+}
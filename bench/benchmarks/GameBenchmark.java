@@ -0,0 +1,103 @@
+package benchmarks;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.BattleshipController;
+import model.BattleshipModel;
+import utilities.GameConfig;
+import utilities.IllegalPlacementException;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class measures how many whole games can be played per second without a
+ * network or a view. Both players place their fleets, then take turns attacking
+ * positions in a fixed order, and each result is given back to the attacker the
+ * same way the network would, until one of the fleets is destroyed.
+ *
+ * Games on a 1000x1000 board take about a million moves each, so only the
+ * smaller boards are measured here.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+	@Param({"10", "30", "100"})
+	public int size;
+
+	@Param({BenchmarkSupport.STANDARD_FLEET, BenchmarkSupport.LARGE_FLEET})
+	public String fleet;
+
+	private GameConfig config;
+
+	// The order each player attacks the positions of the other player.
+	private Point[][] moves;
+
+	/**
+	 * This method builds the config and the order of the moves.
+	 *
+	 */
+	@Setup
+	public void setUp() {
+		config = BenchmarkSupport.config(size, fleet);
+		moves = new Point[][] {
+			BenchmarkSupport.shuffledPositions(size, 1),
+			BenchmarkSupport.shuffledPositions(size, 2)
+		};
+	}
+
+	/**
+	 * This method plays one whole game.
+	 *
+	 * @return the number of moves that were made.
+	 * @throws IllegalPlacementException when the fleet doesn't fit on the board.
+	 */
+	@Benchmark
+	public int playGame() throws IllegalPlacementException {
+		BattleshipModel[] models = new BattleshipModel[2];
+		BattleshipController[] controllers = new BattleshipController[2];
+		for (int i = 0; i < 2; i++) {
+			models[i] = new BattleshipModel(config);
+			controllers[i] = new BattleshipController(models[i]);
+			BenchmarkSupport.placeFleet(controllers[i], config);
+		}
+
+		int turn = 0;
+		int[] made = new int[2];
+		int total = 0;
+		while (true) {
+			int other = 1 - turn;
+			Point move = moves[turn][made[turn]++];
+			controllers[other].moveResult(move);
+			total++;
+			if (controllers[other].isGameOver()) {
+				return total;
+			}
+			POSITION_RESULT result = models[other].getLastResult();
+			controllers[turn].applyShotResult(move, result);
+			turn = other;
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+package benchmarks;
+
+import java.awt.Point;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import controller.BattleshipController;
+import model.BattleshipModel;
+import model.ModelSnapshot;
+import utilities.GameConfig;
+import utilities.IllegalPlacementException;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class measures the methods of BattleshipModel that run on every move:
+ * moveResult for the opponent's moves, applyShotResult and updateOpponentGrid for
+ * the results of the player's own moves, and getSnapshot for the view.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int size;
+
+	@Param({BenchmarkSupport.STANDARD_FLEET, BenchmarkSupport.LARGE_FLEET})
+	public String fleet;
+
+	private BattleshipModel model;
+
+	// Moves are taken from this array in turn so every position gets attacked.
+	private Point[] moves;
+
+	private int nextMove;
+
+	// A grid of the opponent where every position was attacked.
+	private POSITION_RESULT[][] opponentGrid;
+
+	/**
+	 * This method builds a model with its fleet placed and the moves it is given.
+	 *
+	 * @throws IllegalPlacementException when the fleet doesn't fit on the board.
+	 */
+	@Setup
+	public void setUp() throws IllegalPlacementException {
+		GameConfig config = BenchmarkSupport.config(size, fleet);
+		model = new BattleshipModel(config);
+		BenchmarkSupport.placeFleet(new BattleshipController(model), config);
+		moves = BenchmarkSupport.shuffledPositions(size, 42);
+		nextMove = 0;
+
+		opponentGrid = new POSITION_RESULT[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				opponentGrid[i][j] = (i + j) % 7 == 0 ? POSITION_RESULT.HIT : POSITION_RESULT.MISS;
+			}
+		}
+	}
+
+	/**
+	 * This method gives the model the next move of the opponent.
+	 *
+	 * @return the total hits, so the work isn't thrown away.
+	 */
+	@Benchmark
+	public int moveResult() {
+		model.moveResult(next());
+		return model.getTotalHits();
+	}
+
+	/**
+	 * This method gives the model the result of one of the player's moves.
+	 *
+	 */
+	@Benchmark
+	public void applyShotResult() {
+		model.applyShotResult(next(), POSITION_RESULT.MISS);
+	}
+
+	/**
+	 * This method gives the model a whole grid of the opponent.
+	 *
+	 */
+	@Benchmark
+	public void updateOpponentGrid() {
+		model.updateOpponentGrid(opponentGrid, false);
+	}
+
+	/**
+	 * This method reads a snapshot and builds the player's grid from it, which is
+	 * what the view used to do on every change.
+	 *
+	 * @return the grid, so the work isn't thrown away.
+	 */
+	@Benchmark
+	public POSITION_RESULT[][] snapshotGrid() {
+		ModelSnapshot snapshot = model.getSnapshot();
+		return snapshot.getPlayerProgressGrid();
+	}
+
+	/**
+	 * This private method returns the next move, starting over once every
+	 * position was used.
+	 *
+	 * @return A Point object that holds the x and y position of the move.
+	 */
+	private Point next() {
+		Point move = moves[nextMove];
+		nextMove = (nextMove + 1) % moves.length;
+		return move;
+	}
+
+}
@@ -0,0 +1,213 @@
+package archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import utilities.GameConfig;
+
+/**
+ * This class describes the files of a game archive, which the ArchiveWriter
+ * writes and the ArchiveReader maps. An archive is two files:
+ *
+ * 1. The data file, which starts with a header of DATA_HEADER bytes that holds the
+ * board and fleet of every game, followed by one record per game. A record has the
+ * fleet of each player as a packed layer of bits, one long per 64 positions, then
+ * the number of shots, the player that won and every shot as the index of its
+ * position, row * size + col. The players take turns, so shot i was made by player
+ * i % 2, and player 0 is the one that moved first. Records start at a multiple of
+ * eight bytes and never cross a segment boundary, so each one can be read from a
+ * single mapped segment.
+ *
+ * 2. The index file, which holds the position of each record in the data file as a
+ * long after a small header, so a game is found by its id with a single lookup.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+final class ArchiveFormat {
+
+	// First bytes of the data file, which are "BSGA", and of the index file, "BSGI".
+	static final int DATA_MAGIC = 0x42534741;
+	static final int INDEX_MAGIC = 0x42534749;
+	static final int VERSION = 1;
+
+	// Bytes before the first record of the data file and the first offset of the index.
+	static final int DATA_HEADER = 4096;
+	static final int INDEX_HEADER = 16;
+
+	// Bytes of the largest part of the data file that is mapped at once.
+	static final int DEFAULT_SEGMENT_BITS = 30;
+
+	// Bytes of a record before the shots, after the fleets.
+	static final int TURNS_BYTES = 4;
+	static final int WINNER_BYTES = 1;
+
+	private static final int WORD_BITS = 64;
+
+	private GameConfig config;
+
+	private int segmentBits;
+
+	private int wordsPerFleet;
+
+	private int cellBytes;
+
+	/**
+	 * ArchiveFormat constructor.
+	 *
+	 * @param config An object that describes the board and fleet of every game.
+	 * @param segmentBits An integer that represents the size of a segment as a power of two.
+	 */
+	ArchiveFormat(GameConfig config, int segmentBits) {
+		this.config = config;
+		this.segmentBits = segmentBits;
+		int cells = config.getSize() * config.getSize();
+		this.wordsPerFleet = (cells + WORD_BITS - 1) / WORD_BITS;
+		if (cells <= 1 << 8) {
+			this.cellBytes = 1;
+		} else if (cells <= 1 << 16) {
+			this.cellBytes = 2;
+		} else {
+			this.cellBytes = 3;
+		}
+	}
+
+	/**
+	 * Returns the board and fleet of every game.
+	 *
+	 * @return the config of the games.
+	 */
+	GameConfig getConfig() {
+		return this.config;
+	}
+
+	/**
+	 * Returns the size of a segment of the data file.
+	 *
+	 * @return the number of bytes in a segment.
+	 */
+	long getSegmentSize() {
+		return 1L << segmentBits;
+	}
+
+	/**
+	 * Returns the number of longs that hold the fleet of one player.
+	 *
+	 * @return the number of longs in a fleet.
+	 */
+	int getWordsPerFleet() {
+		return this.wordsPerFleet;
+	}
+
+	/**
+	 * Returns the number of bytes that hold one shot.
+	 *
+	 * @return the number of bytes in a shot.
+	 */
+	int getCellBytes() {
+		return this.cellBytes;
+	}
+
+	/**
+	 * Returns where the number of shots is in a record.
+	 *
+	 * @return the number of bytes before the number of shots.
+	 */
+	int getTurnsOffset() {
+		return 2 * wordsPerFleet * Long.BYTES;
+	}
+
+	/**
+	 * Returns where the shots start in a record.
+	 *
+	 * @return the number of bytes before the first shot.
+	 */
+	int getShotsOffset() {
+		return getTurnsOffset() + TURNS_BYTES + WINNER_BYTES;
+	}
+
+	/**
+	 * Returns the size of a record with a number of shots, padded to a multiple of eight.
+	 *
+	 * @param turns An integer that represents the number of shots of the game.
+	 * @return the number of bytes of the record.
+	 */
+	int getRecordSize(int turns) {
+		int size = getShotsOffset() + turns * cellBytes;
+		return (size + Long.BYTES - 1) & ~(Long.BYTES - 1);
+	}
+
+	/**
+	 * Returns the most shots a game can have, which is when both players attack
+	 * every position of the board.
+	 *
+	 * @return the most shots of a game.
+	 */
+	int getMaxTurns() {
+		return 2 * config.getSize() * config.getSize();
+	}
+
+	/**
+	 * This method writes the header of the data file.
+	 *
+	 * @param buffer An object with room for DATA_HEADER bytes.
+	 */
+	void writeDataHeader(ByteBuffer buffer) {
+		buffer.putInt(DATA_MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(segmentBits);
+		buffer.putInt(config.getSize());
+		buffer.putInt(config.getShipCount());
+		for (int i = 0; i < config.getShipCount(); i++) {
+			buffer.putInt(config.getShipSize(i));
+		}
+	}
+
+	/**
+	 * This method reads the header of the data file.
+	 *
+	 * @param buffer An object that holds the first DATA_HEADER bytes of the file.
+	 * @param file An object that represents the path of the data file, for errors.
+	 * @return the format the file was written with.
+	 * @throws IOException when the file is not a game archive.
+	 */
+	static ArchiveFormat readDataHeader(ByteBuffer buffer, Path file) throws IOException {
+		if (buffer.getInt() != DATA_MAGIC) {
+			throw new IOException(file + " is not a game archive.");
+		}
+		int version = buffer.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported archive version " + version + ".");
+		}
+		int segmentBits = buffer.getInt();
+		int size = buffer.getInt();
+		int ships = buffer.getInt();
+		if (segmentBits < 12 || segmentBits > DEFAULT_SEGMENT_BITS || ships < 0
+				|| ships > (buffer.remaining() / Integer.BYTES)) {
+			throw new IOException(file + " has a header that is not valid.");
+		}
+		int[] shipSizes = new int[ships];
+		for (int i = 0; i < ships; i++) {
+			shipSizes[i] = buffer.getInt();
+		}
+		try {
+			return new ArchiveFormat(new GameConfig(size, shipSizes), segmentBits);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + " has a board and fleet that are not valid.", e);
+		}
+	}
+
+	/**
+	 * This method returns the path of the index file that goes with a data file.
+	 *
+	 * @param file An object that represents the path of the data file.
+	 * @return the path of the index file.
+	 */
+	static Path indexFile(Path file) {
+		return file.resolveSibling(file.getFileName() + ".index");
+	}
+
+}
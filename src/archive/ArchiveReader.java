@@ -0,0 +1,192 @@
+package archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import utilities.GameConfig;
+
+/**
+ * This class reads a game archive, which is described in ArchiveFormat, by mapping
+ * its files into memory. The data file is mapped one segment at a time and the
+ * games are read straight from the mapped memory, so nothing is copied and the
+ * operating system only loads the pages that are looked at. A game is found by
+ * its id with one lookup in the mapped index.
+ *
+ * The reader sees the games that were in the index when it was opened. Games that
+ * are added after that are seen by opening the archive again.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class ArchiveReader implements Closeable {
+
+	private ArchiveFormat format;
+
+	private FileChannel data;
+	private FileChannel index;
+
+	private MappedByteBuffer[] segments;
+	private MappedByteBuffer[] indexSegments;
+
+	private int segmentBits;
+
+	private long gameCount;
+
+	/**
+	 * ArchiveReader constructor.
+	 *
+	 * @param file An object that represents the path of the data file.
+	 * @throws IOException when the archive could not be read.
+	 */
+	public ArchiveReader(Path file) throws IOException {
+		this.data = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			this.index = FileChannel.open(ArchiveFormat.indexFile(file), StandardOpenOption.READ);
+			ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.DATA_HEADER);
+			data.read(header, 0);
+			header.flip();
+			this.format = ArchiveFormat.readDataHeader(header, file);
+			this.segmentBits = Long.numberOfTrailingZeros(format.getSegmentSize());
+
+			ByteBuffer indexHeader = ByteBuffer.allocate(ArchiveFormat.INDEX_HEADER);
+			index.read(indexHeader, 0);
+			indexHeader.flip();
+			if (indexHeader.remaining() < Integer.BYTES || indexHeader.getInt() != ArchiveFormat.INDEX_MAGIC) {
+				throw new IOException(ArchiveFormat.indexFile(file) + " is not the index of a game archive.");
+			}
+			this.gameCount = Math.max(0, (index.size() - ArchiveFormat.INDEX_HEADER) / Long.BYTES);
+			this.segments = map(data, data.size());
+			this.indexSegments = map(index, ArchiveFormat.INDEX_HEADER + gameCount * Long.BYTES);
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the board and fleet of every game in the archive.
+	 *
+	 * @return the config of the games.
+	 */
+	public GameConfig getConfig() {
+		return format.getConfig();
+	}
+
+	/**
+	 * Returns the number of games in the archive.
+	 *
+	 * @return the number of games.
+	 */
+	public long getGameCount() {
+		return this.gameCount;
+	}
+
+	/**
+	 * This method returns a game by its id in a new view.
+	 *
+	 * @param id A long that represents the id of the game.
+	 * @return A view of the game.
+	 * @throws IndexOutOfBoundsException when there is no game with the id.
+	 */
+	public ArchivedGame get(long id) {
+		return read(id, new ArchivedGame(format));
+	}
+
+	/**
+	 * This method points a view at a game by its id, so that many games can be
+	 * read without making a view for each.
+	 *
+	 * @param id A long that represents the id of the game.
+	 * @param game A view that was made by this reader.
+	 * @return the view, which now shows the game.
+	 * @throws IndexOutOfBoundsException when there is no game with the id.
+	 */
+	public ArchivedGame read(long id, ArchivedGame game) {
+		if (id < 0 || id >= gameCount) {
+			throw new IndexOutOfBoundsException("There is no game " + id + " in the archive.");
+		}
+		long entry = ArchiveFormat.INDEX_HEADER + id * Long.BYTES;
+		long offset = indexSegments[segmentOf(entry)].getLong(positionOf(entry));
+		game.set(id, segments[segmentOf(offset)], positionOf(offset));
+		return game;
+	}
+
+	/**
+	 * This method shows every game of the archive to an action in order of id. The
+	 * same view is used for every game, so the action must not keep it.
+	 *
+	 * @param action An object that is given each game.
+	 */
+	public void scan(Consumer<ArchivedGame> action) {
+		ArchivedGame game = new ArchivedGame(format);
+		for (long id = 0; id < gameCount; id++) {
+			action.accept(read(id, game));
+		}
+	}
+
+	/**
+	 * This method closes the files. The mapped memory is released once the reader
+	 * and the views made by it are no longer used.
+	 *
+	 * @throws IOException when a file could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			if (data != null) {
+				data.close();
+			}
+		} finally {
+			if (index != null) {
+				index.close();
+			}
+		}
+	}
+
+	/**
+	 * This private method maps a file into memory in segments.
+	 *
+	 * @param channel An object that represents the open file.
+	 * @param length A long that represents how many bytes of the file are mapped.
+	 * @return the mapped segments, in order.
+	 * @throws IOException when the file could not be mapped.
+	 */
+	private MappedByteBuffer[] map(FileChannel channel, long length) throws IOException {
+		long segment = format.getSegmentSize();
+		MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((length + segment - 1) >>> segmentBits)];
+		for (int i = 0; i < mapped.length; i++) {
+			long start = (long) i << segmentBits;
+			mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segment, length - start));
+		}
+		return mapped;
+	}
+
+	/**
+	 * This private method returns the segment that a position of a file is in.
+	 *
+	 * @param offset A long that represents the position in the file.
+	 * @return the number of the segment.
+	 */
+	private int segmentOf(long offset) {
+		return (int) (offset >>> segmentBits);
+	}
+
+	/**
+	 * This private method returns where a position of a file is in its segment.
+	 *
+	 * @param offset A long that represents the position in the file.
+	 * @return the position in the segment.
+	 */
+	private int positionOf(long offset) {
+		return (int) (offset & (format.getSegmentSize() - 1));
+	}
+
+}
@@ -0,0 +1,315 @@
+package archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import utilities.GameConfig;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class adds finished games to a game archive, which is described in
+ * ArchiveFormat. Each game gets the next id, starting at 0. Records are gathered
+ * in a buffer and written in large blocks, and the data of a block is always
+ * written before the index entries that point to it, so a reader never finds an
+ * id whose record isn't there yet.
+ *
+ * An archive that already exists is added to, as long as it was written for the
+ * same board and fleet. The writer is shared by every thread that finishes games.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class ArchiveWriter implements Closeable {
+
+	// Bytes that are gathered before they are written to the data file, unless the
+	// longest game of the board needs more.
+	private static final int BUFFER_BYTES = 1 << 20;
+
+	private ArchiveFormat format;
+
+	private FileChannel data;
+	private FileChannel index;
+
+	private ByteBuffer records;
+	private ByteBuffer offsets;
+
+	// Where the next record goes in the data file, counting the records in the buffer.
+	private long end;
+
+	private long gameCount;
+
+	// Ids of the games in the index file.
+	private long writtenCount;
+
+	private long[] fleet;
+
+	/**
+	 * This method opens an archive to add games to, and creates it if it doesn't
+	 * exist. The data file is mapped in segments of a gigabyte.
+	 *
+	 * @param file An object that represents the path of the data file.
+	 * @param config An object that describes the board and fleet of every game.
+	 * @return the writer of the archive.
+	 * @throws IOException when the archive could not be opened or was written for
+	 * another board and fleet.
+	 */
+	public static ArchiveWriter open(Path file, GameConfig config) throws IOException {
+		return open(file, config, ArchiveFormat.DEFAULT_SEGMENT_BITS);
+	}
+
+	/**
+	 * This method opens an archive to add games to, and creates it if it doesn't exist.
+	 *
+	 * @param file An object that represents the path of the data file.
+	 * @param config An object that describes the board and fleet of every game.
+	 * @param segmentBits An integer that represents the size of a segment of the data
+	 * file as a power of two, from 12 to 30. It is only used when the archive is created.
+	 * @return the writer of the archive.
+	 * @throws IOException when the archive could not be opened or was written for
+	 * another board and fleet.
+	 */
+	public static ArchiveWriter open(Path file, GameConfig config, int segmentBits) throws IOException {
+		if (segmentBits < 12 || segmentBits > ArchiveFormat.DEFAULT_SEGMENT_BITS) {
+			throw new IllegalArgumentException("Segments must be from 2^12 to 2^30 bytes.");
+		}
+		FileChannel data = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		FileChannel index = null;
+		try {
+			index = FileChannel.open(ArchiveFormat.indexFile(file), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			ArchiveFormat format;
+			if (data.size() == 0) {
+				format = new ArchiveFormat(config, segmentBits);
+				ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.DATA_HEADER);
+				format.writeDataHeader(header);
+				header.clear();
+				writeFully(data, header, 0);
+				index.truncate(0);
+			} else {
+				ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.DATA_HEADER);
+				data.read(header, 0);
+				header.flip();
+				format = ArchiveFormat.readDataHeader(header, file);
+				if (!format.getConfig().equals(config)) {
+					throw new IOException(file + " holds games of " + format.getConfig()
+							+ ", not " + config + ".");
+				}
+			}
+			return new ArchiveWriter(format, data, index);
+		} catch (IOException | RuntimeException e) {
+			data.close();
+			if (index != null) {
+				index.close();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * ArchiveWriter constructor. The games already in the index are kept, and a
+	 * torn entry at the end of the index is dropped.
+	 *
+	 * @param format An object that describes the files of the archive.
+	 * @param data An object that represents the open data file.
+	 * @param index An object that represents the open index file.
+	 * @throws IOException when the files could not be read.
+	 */
+	private ArchiveWriter(ArchiveFormat format, FileChannel data, FileChannel index) throws IOException {
+		this.format = format;
+		this.data = data;
+		this.index = index;
+		if (format.getRecordSize(format.getMaxTurns()) > format.getSegmentSize()) {
+			throw new IllegalArgumentException("A game of " + format.getConfig()
+					+ " doesn't fit in a segment of " + format.getSegmentSize() + " bytes.");
+		}
+		if (index.size() < ArchiveFormat.INDEX_HEADER) {
+			ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.INDEX_HEADER);
+			header.putInt(ArchiveFormat.INDEX_MAGIC);
+			header.putInt(ArchiveFormat.VERSION);
+			header.clear();
+			writeFully(index, header, 0);
+		}
+		this.gameCount = (index.size() - ArchiveFormat.INDEX_HEADER) / Long.BYTES;
+		this.writtenCount = gameCount;
+		index.truncate(ArchiveFormat.INDEX_HEADER + gameCount * Long.BYTES);
+
+		// Records past the last id were written before the writer stopped and are skipped.
+		this.end = Math.max(data.size(), ArchiveFormat.DATA_HEADER);
+		this.records = ByteBuffer.allocateDirect(Math.max(BUFFER_BYTES, format.getRecordSize(format.getMaxTurns())));
+		this.offsets = ByteBuffer.allocateDirect(BUFFER_BYTES / Long.BYTES);
+		this.fleet = new long[format.getWordsPerFleet()];
+	}
+
+	/**
+	 * Returns the board and fleet of every game in the archive.
+	 *
+	 * @return the config of the games.
+	 */
+	public GameConfig getConfig() {
+		return format.getConfig();
+	}
+
+	/**
+	 * Returns the number of games in the archive, counting the ones that haven't
+	 * been written yet.
+	 *
+	 * @return the number of games.
+	 */
+	public synchronized long getGameCount() {
+		return this.gameCount;
+	}
+
+	/**
+	 * This method adds a finished game to the archive. A position of a fleet holds
+	 * a ship if its grid shows a ship or a hit there, so the answer grid of a player
+	 * and the revealed grid of the opponent can both be given.
+	 *
+	 * @param firstFleet A grid that holds the fleet of the player that moved first.
+	 * @param secondFleet A grid that holds the fleet of the other player.
+	 * @param shots An array that holds every shot of the game in order, as the index
+	 * of its position, row * size + col.
+	 * @param turns An integer that represents the number of shots of the game.
+	 * @param winner An integer that is 0 if the player that moved first won and 1 if the other did.
+	 * @return the id of the game.
+	 * @throws IOException when the archive could not be written.
+	 */
+	public synchronized long append(POSITION_RESULT[][] firstFleet, POSITION_RESULT[][] secondFleet,
+			int[] shots, int turns, int winner) throws IOException {
+		if (turns < 0 || turns > format.getMaxTurns()) {
+			throw new IllegalArgumentException("A game can't have " + turns + " shots.");
+		}
+		int cells = format.getConfig().getSize() * format.getConfig().getSize();
+		for (int i = 0; i < turns; i++) {
+			if (shots[i] < 0 || shots[i] >= cells) {
+				throw new IllegalArgumentException("Shot " + shots[i] + " is not on the board.");
+			}
+		}
+		int size = format.getRecordSize(turns);
+		if (records.remaining() < size || !offsets.hasRemaining()) {
+			flush();
+		}
+
+		// A record that would cross into the next segment starts at the next segment instead.
+		long segment = format.getSegmentSize();
+		if ((end & (segment - 1)) + size > segment) {
+			long padding = segment - (end & (segment - 1));
+			flush();
+			end += padding;
+		}
+
+		int start = records.position();
+		putFleet(firstFleet);
+		putFleet(secondFleet);
+		records.putInt(turns);
+		records.put((byte) winner);
+		for (int i = 0; i < turns; i++) {
+			putCell(shots[i]);
+		}
+		while (records.position() - start < size) {
+			records.put((byte) 0);
+		}
+
+		offsets.putLong(end);
+		end += size;
+		return gameCount++;
+	}
+
+	/**
+	 * This method writes every game that was added so far to the files, the data
+	 * before the index.
+	 *
+	 * @throws IOException when the archive could not be written.
+	 */
+	public synchronized void flush() throws IOException {
+		records.flip();
+		writeFully(data, records, end - records.limit());
+		records.clear();
+		offsets.flip();
+		writeFully(index, offsets, ArchiveFormat.INDEX_HEADER + writtenCount * Long.BYTES);
+		writtenCount = gameCount;
+		offsets.clear();
+	}
+
+	/**
+	 * This method writes every game that was added, forces the files to the disk and
+	 * closes them.
+	 *
+	 * @throws IOException when the archive could not be written.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (!data.isOpen()) {
+			return;
+		}
+		try {
+			flush();
+			data.force(true);
+			index.force(true);
+		} finally {
+			data.close();
+			index.close();
+		}
+	}
+
+	/**
+	 * This private method packs the ships of a grid into bits and adds them to the record.
+	 *
+	 * @param grid A grid that holds a fleet.
+	 */
+	private void putFleet(POSITION_RESULT[][] grid) {
+		int size = format.getConfig().getSize();
+		for (int i = 0; i < fleet.length; i++) {
+			fleet[i] = 0;
+		}
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				if (grid[row][col] == POSITION_RESULT.SHIP || grid[row][col] == POSITION_RESULT.HIT) {
+					int cell = row * size + col;
+					fleet[cell >>> 6] |= 1L << cell;
+				}
+			}
+		}
+		for (int i = 0; i < fleet.length; i++) {
+			records.putLong(fleet[i]);
+		}
+	}
+
+	/**
+	 * This private method adds the index of a position to the record, in as few
+	 * bytes as the board needs.
+	 *
+	 * @param cell An integer that represents the index of the position.
+	 */
+	private void putCell(int cell) {
+		if (format.getCellBytes() == 1) {
+			records.put((byte) cell);
+		} else if (format.getCellBytes() == 2) {
+			records.putShort((short) cell);
+		} else {
+			records.put((byte) (cell >>> 16));
+			records.putShort((short) cell);
+		}
+	}
+
+	/**
+	 * This private method writes the rest of a buffer to a file.
+	 *
+	 * @param channel An object that represents the open file.
+	 * @param buffer An object that holds the bytes to write.
+	 * @param position A long that represents where in the file the bytes go.
+	 * @throws IOException when the file could not be written.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+}
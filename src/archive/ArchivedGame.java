@@ -0,0 +1,153 @@
+package archive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class is a view of one game of a game archive. It doesn't hold a copy of
+ * the game, only where its record is in the mapped memory, so every method reads
+ * the archive directly. A view can be pointed at another game by the reader,
+ * which is how a scan reads millions of games without making an object for each.
+ *
+ * Player 0 is the player that moved first, so shot i was made by player i % 2 at
+ * the fleet of the other player.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class ArchivedGame {
+
+	private ArchiveFormat format;
+
+	private long id;
+
+	// The segment the record is in and where it starts.
+	private ByteBuffer segment;
+	private int start;
+
+	/**
+	 * ArchivedGame constructor. The view doesn't show a game until a reader points it at one.
+	 *
+	 * @param format An object that describes the files of the archive.
+	 */
+	ArchivedGame(ArchiveFormat format) {
+		this.format = format;
+		this.id = -1;
+	}
+
+	/**
+	 * This method points the view at a record.
+	 *
+	 * @param id A long that represents the id of the game.
+	 * @param segment An object that holds the mapped segment of the record.
+	 * @param start An integer that represents where the record starts in the segment.
+	 */
+	void set(long id, ByteBuffer segment, int start) {
+		this.id = id;
+		this.segment = segment;
+		this.start = start;
+	}
+
+	/**
+	 * Returns the id of the game.
+	 *
+	 * @return the id of the game.
+	 */
+	public long getId() {
+		return this.id;
+	}
+
+	/**
+	 * Returns the number of shots of the game, by both players.
+	 *
+	 * @return the number of shots.
+	 */
+	public int getTurns() {
+		return segment.getInt(start + format.getTurnsOffset());
+	}
+
+	/**
+	 * Returns the player that won the game.
+	 *
+	 * @return 0 if the player that moved first won and 1 if the other did.
+	 */
+	public int getWinner() {
+		return segment.get(start + format.getTurnsOffset() + ArchiveFormat.TURNS_BYTES);
+	}
+
+	/**
+	 * Returns whether a player had a ship on a position.
+	 *
+	 * @param player An integer that is 0 for the player that moved first and 1 for the other.
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A boolean value that determines if the player had a ship there.
+	 */
+	public boolean isShip(int player, int row, int col) {
+		int cell = row * format.getConfig().getSize() + col;
+		return (getFleetWord(player, cell >>> 6) & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Returns 64 positions of a player's fleet as bits, where bit i of word w is the
+	 * position with index 64 * w + i. Analytics can combine whole fleets this way.
+	 *
+	 * @param player An integer that is 0 for the player that moved first and 1 for the other.
+	 * @param word An integer that represents which 64 positions are returned.
+	 * @return the bits of the positions that hold a ship.
+	 */
+	public long getFleetWord(int player, int word) {
+		return segment.getLong(start + (player * format.getWordsPerFleet() + word) * Long.BYTES);
+	}
+
+	/**
+	 * Returns the number of longs that hold the fleet of one player.
+	 *
+	 * @return the number of words of a fleet.
+	 */
+	public int getFleetWords() {
+		return format.getWordsPerFleet();
+	}
+
+	/**
+	 * Returns a shot of the game as the index of its position, row * size + col.
+	 *
+	 * @param turn An integer that represents the order of the shot, starting at 0.
+	 * @return the index of the position of the shot.
+	 * @throws IndexOutOfBoundsException when the game doesn't have the shot.
+	 */
+	public int getShot(int turn) {
+		if (turn < 0 || turn >= getTurns()) {
+			throw new IndexOutOfBoundsException("Game " + id + " has no shot " + turn + ".");
+		}
+		int position = start + format.getShotsOffset() + turn * format.getCellBytes();
+		if (format.getCellBytes() == 1) {
+			return segment.get(position) & 0xFF;
+		} else if (format.getCellBytes() == 2) {
+			return segment.getShort(position) & 0xFFFF;
+		}
+		return (segment.get(position) & 0xFF) << 16 | (segment.getShort(position + 1) & 0xFFFF);
+	}
+
+	/**
+	 * Returns the row of a shot of the game.
+	 *
+	 * @param turn An integer that represents the order of the shot, starting at 0.
+	 * @return the row of the shot.
+	 */
+	public int getShotRow(int turn) {
+		return getShot(turn) / format.getConfig().getSize();
+	}
+
+	/**
+	 * Returns the column of a shot of the game.
+	 *
+	 * @param turn An integer that represents the order of the shot, starting at 0.
+	 * @return the column of the shot.
+	 */
+	public int getShotCol(int turn) {
+		return getShot(turn) % format.getConfig().getSize();
+	}
+
+}
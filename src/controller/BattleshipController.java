@@ -1,10 +1,13 @@
 package controller;
 
 import java.awt.Point;
+import utilities.BattleshipMessage;
 import utilities.POSITION_RESULT;
-import utilities.Constants;
 
 import model.BattleshipModel;
+import model.FleetGenerator;
+import model.ModelListener;
+import utilities.GameConfig;
 import utilities.IllegalPlacementException;
 
 /**
@@ -36,17 +39,22 @@ public class BattleshipController {
 	
 	/**
 	 * This method is used to determine if the game is over. Checks how many
-	 * hits the current player has. If the current player's fleet withstood the 
-	 * max number of hits they can, then the game is over and notifies the other player.
+	 * ships of the current player were sunk. If every ship of the fleet was 
+	 * sunk, then the game is over and notifies the other player.
 	 * 
 	 * @return A boolean whether the game has ended or not.
 	 */
 	public boolean isGameOver() {
-		int totalHits = model.getTotalHits();
-		if (totalHits == Constants.MAX_HITS) {
-			return true;
-		}
-		return false;
+		return model.isFleetDestroyed();
+	}
+	
+	/**
+	 * Returns the board and fleet of the current match.
+	 * 
+	 * @return the config of the current match.
+	 */
+	public GameConfig getConfig() {
+		return model.getConfig();
 	}
 	
 	/**
@@ -62,9 +70,29 @@ public class BattleshipController {
 	}
 	
 	/**
-	 * This method takes in an updated grid from the opposing player that 
-	 * resulted from the current player's move and updates its current information 
-	 * of the opponent's grid. 
+	 * This method takes in the result of the move the current player made and
+	 * gives it to the model to update the opponent's grid.
+	 * 
+	 * @param coord A Point object that holds the x and y position of the move.
+	 * @param result A constant that determines if the move was a hit or a miss.
+	 */
+	public void applyShotResult(Point coord, POSITION_RESULT result) {
+		model.applyShotResult(coord, result);
+	}
+	
+	/**
+	 * This method takes in the ship the current player's move sank and gives 
+	 * it to the model.
+	 * 
+	 * @param ship An integer that represents the order the opponent placed the ship in.
+	 */
+	public void applyShipSunk(int ship) {
+		model.applyShipSunk(ship);
+	}
+	
+	/**
+	 * This method takes in a whole grid from the opposing player and updates its 
+	 * current information of the opponent's grid. 
 	 * 
 	 * @param updatedGrid A grid of constants that represents the opponent's updated grid 
 	 * after the current player made a move.
@@ -76,6 +104,15 @@ public class BattleshipController {
 		model.updateOpponentGrid(updatedGrid, gameEnded);
 	}
 	
+	/**
+	 * This method shows the ships of the opposing player once the game is over.
+	 * 
+	 * @param message An object that holds the fleet of the opposing player.
+	 */
+	public void revealOpponentFleet(BattleshipMessage message) {
+		model.revealOpponentFleet(message.getFleetOrigins(), message.getFleetDirections());
+	}
+	
 	/**
 	 * This method checks for any potential exceptions that can occur when the 
 	 * user places a ship, then passes the necessary values to the model.
@@ -100,6 +137,59 @@ public class BattleshipController {
 		}
 	}
 	
+	/**
+	 * This method places the whole fleet at random with a layout from the
+	 * generator. The board must not have any ships on it yet.
+	 *
+	 * @param generator An object that makes random layouts for the fleet of the game.
+	 * @throws IllegalPlacementException An exception that occurs when a ship of the
+	 * layout lands on a ship that was already placed.
+	 */
+	public void placeRandomFleet(FleetGenerator generator) throws IllegalPlacementException {
+		generator.generate();
+		for (int i = 0; i < model.getConfig().getShipCount(); i++) {
+			addShip(generator.getOrigin(i), model.getConfig().getShipSize(i), generator.getDirection(i));
+		}
+	}
+
+	/**
+	 * This method fills in a message with the position and direction of every 
+	 * ship of the current player, once the whole fleet is placed, so the game 
+	 * server can decide the result of the other player's moves.
+	 * 
+	 * @param message An object that will hold the fleet.
+	 * @return A boolean value that is false if the fleet isn't placed yet.
+	 */
+	public boolean describeFleet(BattleshipMessage message) {
+		if (model.getShipsPlaced() < model.getConfig().getShipCount()) {
+			return false;
+		}
+		message.setFleet(model.getShipOrigins(), model.getShipDirections());
+		return true;
+	}
+	
+	/**
+	 * This method adds a listener that is given the changes to the model right
+	 * away, on the thread that made them. Listeners are called in the order they
+	 * were added.
+	 * 
+	 * @param listener An object that will be given the events of the model.
+	 */
+	public void addListener(ModelListener listener) {
+		model.addListener(listener);
+	}
+	
+	/**
+	 * This method tells the model that the game server paired the current 
+	 * player with an opponent.
+	 * 
+	 * @param firstTurn A boolean value that determines if the current player
+	 * makes the first move.
+	 */
+	public void startMatch(boolean firstTurn) {
+		model.startMatch(firstTurn);
+	}
+	
 	/**
 	 * This method passes the move the other player made to the model to
 	 * update the data within the model.
@@ -111,9 +201,25 @@ public class BattleshipController {
 		model.moveResult(coord);
 	}
 	
+	/**
+	 * This method checks if a ship would stay on the board, without checking 
+	 * the other ships. The view uses it to show where a ship would go.
+	 * 
+	 * @param coord A Point object that holds the x and y position on the ship
+	 * will be placed.
+	 * @param size An integer that holds the size of the ship.
+	 * @param dir An integer that determines which direction the user is going
+	 * to place their ship. 
+	 * @return A boolean value that determines if the whole ship is on the board.
+	 */
+	public boolean fitsOnBoard(Point coord, int size, int dir) {
+		return model.getPlacementIndex().fits(coord.y, coord.x, size, dir);
+	}
+	
 	/**
 	 * This private method checks if the current player already placed 
-	 * a ship in any of the positions where the next ship will be.
+	 * a ship in any of the positions where the next ship will be. The 
+	 * placement index checks every position of the ship at once.
 	 * 
 	 * @param coord A Point object that holds the x and y position on the ship
 	 * will be placed.
@@ -124,30 +230,7 @@ public class BattleshipController {
 	 * already placed a ship in any of the positions where the next ship will be. 
 	 */
 	private boolean filledSpaceFound(Point coord, int size, int dir) {
-		int xPos = (int) coord.getX();
-		int yPos = (int) coord.getY();
-		POSITION_RESULT[][] grid = model.getPlayerProgressGrid();
-		
-		// Iterates over certain positions to see if there is already a ship there.
-		for (int i = 0; i < size; i++) {
-			if (dir == Constants.HORIZONTAL) {
-				if (grid[yPos][xPos+i] != null) {
-					String position = grid[yPos][xPos+i].getDescription();
-					if (position.equals("A Ship is here")) {
-						return true;
-					}
-				}
-			} else {
-				if (grid[yPos+i][xPos] != null) {
-					String position = grid[yPos+i][xPos].getDescription();
-					if (position.equals("A Ship is here")) {
-						return true;
-					}
-				}
-			}
-		}
-		
-		return false;
+		return !model.getPlacementIndex().isFree(coord.y, coord.x, size, dir);
 	}
 	
 	/**
@@ -163,21 +246,8 @@ public class BattleshipController {
 	 * current player's ship placement goes out of bound.
 	 */
 	private boolean checkShipPlacement(Point coord, int size, int dir) {
-		int xPos = (int) coord.getX();
-		int yPos = (int) coord.getY();
-		
-		int max_val = 0;
-		if (dir == Constants.VERTICAL) {
-			max_val = yPos + size-1;
-		} else {
-			max_val = xPos + size-1;
-		}
-		
-		if (max_val >= Constants.GRID_SIZE) {
-			return true;
-		}
-		return false;
+		return !fitsOnBoard(coord, size, dir);
 	}
 
 	
-}
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts how often values such as latencies in nanoseconds or sizes
+ * in bytes happen, in the same way as HdrHistogram. Values below 64 have a bucket
+ * each, and every power of two above that is split into 32 buckets, so a value is
+ * known to within about 3% whatever its size, and the whole range of a long fits
+ * in under 2000 buckets that are made once. Recording a value only finds its
+ * bucket with a few shifts and adds one to it, so it can be done on every message
+ * from any number of threads without a lock. Like a LongAdder, the buckets are
+ * kept in several stripes and each thread counts in the stripe its id picks, so
+ * threads that record at the same time don't fight over the same cache line. The
+ * stripes are added up when the histogram is read.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class LatencyHistogram {
+
+	// Number of bits of a value that are kept exactly.
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// Values below this have a bucket each.
+	private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	// Number of stripes, a power of two no larger than needed for the cores.
+	private static final int STRIPES = Math.min(8, Integer.highestOneBit(
+			Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1));
+
+	// The buckets of every stripe, one stripe after the other.
+	private AtomicLongArray counts;
+
+	private LongAdder sum;
+
+	private AtomicLong max;
+
+	/**
+	 * LatencyHistogram constructor.
+	 */
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(STRIPES * BUCKETS);
+		this.sum = new LongAdder();
+		this.max = new AtomicLong();
+	}
+
+	/**
+	 * This method counts a value. A negative value is counted as 0.
+	 *
+	 * @param value A long that represents the value that happened.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		int stripe = (int) Thread.currentThread().threadId() & (STRIPES - 1);
+		counts.getAndIncrement(stripe * BUCKETS + bucketOf(value));
+		sum.add(value);
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * This method counts the nanoseconds since a time that was read with System.nanoTime.
+	 *
+	 * @param startNanos A long that represents when the measured work started.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Returns the number of values that were counted.
+	 *
+	 * @return the number of values counted.
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the average of the values that were counted.
+	 *
+	 * @return the average value, or 0 if no value was counted.
+	 */
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * Returns the largest value that was counted.
+	 *
+	 * @return the largest value, or 0 if no value was counted.
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * This method finds the value that the given percentage of the values are at
+	 * or below. The value is the highest one of its bucket, but never more than
+	 * the largest value that was counted.
+	 *
+	 * @param percentile A double from 0 to 100 that represents the percentage of values.
+	 * @return the value at the percentile, or 0 if no value was counted.
+	 */
+	public long getPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			long bucketCount = counts.get(i);
+			snapshot[i % BUCKETS] += bucketCount;
+			count += bucketCount;
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(highestValueOf(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * This private method finds the bucket of a value. Above the linear range,
+	 * the bucket is chosen by the position of the highest bit of the value and
+	 * the bits right after it.
+	 *
+	 * @param value A long that is 0 or more.
+	 * @return the index of the bucket.
+	 */
+	private static int bucketOf(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * This private method finds the highest value that is counted in a bucket.
+	 *
+	 * @param bucket An integer that represents the index of the bucket.
+	 * @return the highest value of the bucket.
+	 */
+	private static long highestValueOf(int bucket) {
+		if (bucket < LINEAR_LIMIT) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		long next = (sub + 1) << shift;
+		return next <= 0 ? Long.MAX_VALUE : next - 1;
+	}
+
+}
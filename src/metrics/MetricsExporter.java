@@ -0,0 +1,142 @@
+package metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class makes the metrics of a MetricsRegistry available outside of the
+ * process while the game runs, in one or both of two ways:
+ *
+ * 1. A small HTTP endpoint that only listens on the loopback address, which
+ * gives the metrics as text at /metrics and as JSON at /metrics.json.
+ *
+ * 2. A dump of the metrics as text that is printed every few seconds.
+ *
+ * The main methods make an exporter and call start, which reads the port of
+ * the endpoint from the "battleship.metrics.port" property and the seconds between
+ * dumps from the "battleship.metrics.interval" property. Neither is started if its
+ * property isn't set. The exporter is closed once the game is over, so the process
+ * can end.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class MetricsExporter implements Closeable {
+
+	public static final String PORT_PROPERTY = "battleship.metrics.port";
+
+	public static final String INTERVAL_PROPERTY = "battleship.metrics.interval";
+
+	private MetricsRegistry registry;
+
+	// Endpoint that serves the metrics, or null.
+	private HttpServer server;
+
+	// Thread that prints the metrics, or null.
+	private ScheduledExecutorService dumps;
+
+	/**
+	 * MetricsExporter constructor. Nothing is started until serve or dumpEvery is called.
+	 *
+	 * @param registry An object that holds the metrics being exported.
+	 */
+	public MetricsExporter(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * This method starts the endpoint and the dumps that the properties ask for.
+	 *
+	 * @throws IOException when the endpoint could not be started.
+	 */
+	public synchronized void start() throws IOException {
+		Integer port = Integer.getInteger(PORT_PROPERTY);
+		if (port != null) {
+			serve(port);
+		}
+		Long interval = Long.getLong(INTERVAL_PROPERTY);
+		if (interval != null && interval > 0) {
+			dumpEvery(interval, System.out);
+		}
+	}
+
+	/**
+	 * This method starts the endpoint on the loopback address.
+	 *
+	 * @param port An integer that represents the port of the endpoint, or 0 for any free port.
+	 * @return the port the endpoint listens on.
+	 * @throws IOException when the endpoint could not be started.
+	 */
+	public synchronized int serve(int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/metrics.json", (HttpExchange exchange) ->
+				respond(exchange, "application/json", registry::toJson));
+		server.createContext("/metrics", (HttpExchange exchange) ->
+				respond(exchange, "text/plain", registry::toText));
+		server.start();
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * This method prints the metrics as text on a thread of its own every few seconds.
+	 *
+	 * @param seconds A long that represents the seconds between dumps.
+	 * @param out An object that the metrics are printed to.
+	 */
+	public synchronized void dumpEvery(long seconds, PrintStream out) {
+		dumps = Executors.newSingleThreadScheduledExecutor((Runnable task) -> {
+			Thread thread = new Thread(task, "battleship-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		dumps.scheduleAtFixedRate(() -> out.print(registry.toText()), seconds, seconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * This method stops the endpoint and the dumps.
+	 *
+	 */
+	@Override
+	public synchronized void close() {
+		if (server != null) {
+			server.stop(0);
+			server = null;
+		}
+		if (dumps != null) {
+			dumps.shutdownNow();
+			dumps = null;
+		}
+	}
+
+	/**
+	 * This private method answers a request to the endpoint with the metrics.
+	 *
+	 * @param exchange An object that represents the request and its response.
+	 * @param type A string that represents the content type of the response.
+	 * @param body An object that writes the metrics.
+	 * @throws IOException when the response could not be sent.
+	 */
+	private static void respond(HttpExchange exchange, String type, Supplier<String> body) throws IOException {
+		byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+}
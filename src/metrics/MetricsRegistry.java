@@ -0,0 +1,170 @@
+package metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * This class holds the metrics of the game by name, so they can be written out
+ * together. There are three kinds of metrics:
+ *
+ * 1. Counters, which only go up, such as the number of messages sent. A counter
+ * is a LongAdder, so threads that count at the same time don't slow each other down.
+ *
+ * 2. Gauges, which are read when the metrics are written out, such as the number
+ * of matches the game server is hosting.
+ *
+ * 3. Histograms of values that happen over and over, such as the nanoseconds it
+ * takes to write a message.
+ *
+ * The code that measures something looks its metric up once and keeps it in a
+ * field, so finding a metric by name never happens on a hot path. Every part of
+ * the game uses the registry returned by getDefault.
+ *
+ * Names are made of words separated by dots, starting with the part of the game
+ * they measure, and histograms of times end with "nanos".
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class MetricsRegistry {
+
+	private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+	private ConcurrentHashMap<String, LongAdder> counters;
+
+	private ConcurrentHashMap<String, LongSupplier> gauges;
+
+	private ConcurrentHashMap<String, LatencyHistogram> histograms;
+
+	/**
+	 * MetricsRegistry constructor.
+	 */
+	public MetricsRegistry() {
+		this.counters = new ConcurrentHashMap<String, LongAdder>();
+		this.gauges = new ConcurrentHashMap<String, LongSupplier>();
+		this.histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+	}
+
+	/**
+	 * Returns the registry that every part of the game uses.
+	 *
+	 * @return the registry of the game.
+	 */
+	public static MetricsRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * This method returns the counter with the given name, making it the first
+	 * time the name is used.
+	 *
+	 * @param name A string that represents the name of the counter.
+	 * @return An object that counts.
+	 */
+	public LongAdder counter(String name) {
+		return counters.computeIfAbsent(name, (String key) -> new LongAdder());
+	}
+
+	/**
+	 * This method sets how a gauge is read. A gauge that already has the name
+	 * is replaced, so the newest object that is measured is the one written out.
+	 *
+	 * @param name A string that represents the name of the gauge.
+	 * @param gauge An object that reads the current value.
+	 */
+	public void gauge(String name, LongSupplier gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * This method returns the histogram with the given name, making it the first
+	 * time the name is used.
+	 *
+	 * @param name A string that represents the name of the histogram.
+	 * @return An object that counts how often each value happens.
+	 */
+	public LatencyHistogram histogram(String name) {
+		return histograms.computeIfAbsent(name, (String key) -> new LatencyHistogram());
+	}
+
+	/**
+	 * This method writes every metric as text, one line per metric in the order
+	 * of their names. A histogram is written as its count, mean, percentiles and
+	 * largest value.
+	 *
+	 * @return A string that holds the metrics.
+	 */
+	public String toText() {
+		StringBuilder text = new StringBuilder();
+		for (Map.Entry<String, Long> entry : readValues().entrySet()) {
+			text.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+		}
+		for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<String, LatencyHistogram>(histograms).entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			text.append(entry.getKey())
+				.append(" count=").append(histogram.getCount())
+				.append(" mean=").append(Math.round(histogram.getMean()))
+				.append(" p50=").append(histogram.getPercentile(50))
+				.append(" p90=").append(histogram.getPercentile(90))
+				.append(" p99=").append(histogram.getPercentile(99))
+				.append(" p999=").append(histogram.getPercentile(99.9))
+				.append(" max=").append(histogram.getMax())
+				.append('\n');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * This method writes every metric as a JSON object with the counters and
+	 * gauges in one object and the histograms in another.
+	 *
+	 * @return A string that holds the metrics.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{\"values\":{");
+		String separator = "";
+		for (Map.Entry<String, Long> entry : readValues().entrySet()) {
+			json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+			separator = ",";
+		}
+		json.append("},\"histograms\":{");
+		separator = "";
+		for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<String, LatencyHistogram>(histograms).entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			json.append(separator).append('"').append(entry.getKey()).append("\":{")
+				.append("\"count\":").append(histogram.getCount())
+				.append(",\"mean\":").append(Math.round(histogram.getMean()))
+				.append(",\"p50\":").append(histogram.getPercentile(50))
+				.append(",\"p90\":").append(histogram.getPercentile(90))
+				.append(",\"p99\":").append(histogram.getPercentile(99))
+				.append(",\"p999\":").append(histogram.getPercentile(99.9))
+				.append(",\"max\":").append(histogram.getMax())
+				.append('}');
+			separator = ",";
+		}
+		json.append("}}");
+		return json.toString();
+	}
+
+	/**
+	 * This private method reads every counter and gauge, sorted by name.
+	 *
+	 * @return A map from the name of each counter and gauge to its value.
+	 */
+	private TreeMap<String, Long> readValues() {
+		TreeMap<String, Long> values = new TreeMap<String, Long>();
+		for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+			values.put(entry.getKey(), entry.getValue().sum());
+		}
+		for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+			values.put(entry.getKey(), entry.getValue().getAsLong());
+		}
+		return values;
+	}
+
+}
@@ -2,10 +2,17 @@ package model;
 
 
 import utilities.Constants;
+import utilities.GameConfig;
 import java.awt.Point;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
 import utilities.POSITION_RESULT;
 
 /**
@@ -15,48 +22,188 @@ import utilities.POSITION_RESULT;
  * current grid and what ships the player placed and which spot was a hit or a 
  * miss. This model also stores a grid that has what information the current player
  * has from the opposing player's grid. Finally, the model also stores an answer the 
- * it shows to the other player once the game is over. The model follows the 
- * Observer/Observable design in that the model is the Observable and notifies the 
- * observer(the view) that it has updated.
+ * it shows to the other player once the game is over. The model tells its 
+ * listeners (the view) what changed by publishing typed events on a ModelEventBus, 
+ * which delivers them in batches on whichever thread each listener asked for.
+ * 
+ * The model is changed by the network thread and read by the view's thread, so 
+ * it never uses locks for its state. Moves are applied to a ConcurrentBitboard 
+ * with compare-and-set, and a thread that needs several grids or counts that 
+ * agree with each other reads them from a ModelSnapshot.
+ * 
+ * Every position of a ship also remembers which ship it belongs to, and each ship 
+ * counts its own hits, so a hit tells right away whether it sank its ship and 
+ * whether that was the last ship of the fleet, without looking at the grid.
+ * 
+ * A model can be given a MatchJournal, which records every change so that the 
+ * match can be rebuilt if the process crashes.
+ * 
+ * The time it takes to apply a move or a grid to the model is measured for a
+ * sample of the changes. It stops before the events are published, since the
+ * listeners are measured by the bus.
  * 
  * 
  * @author Luke Genova
  * @author Amimul Ehsan Zoha
  *
  */
-public class BattleshipModel extends Observable {
+public class BattleshipModel {
+	
+	// Layers of the bitboard that describe the player's own grid.
+	static final int SHIPS = 0;
+	static final int HITS = 1;
+	static final int MISSES = 2;
+	
+	// Layers of the bitboard that describe what is known about the opponent's grid.
+	static final int OPPONENT_SHIPS = 3;
+	static final int OPPONENT_HITS = 4;
+	static final int OPPONENT_MISSES = 5;
+	
+	private static final int LAYERS = 6;
+	
+	// Time each move takes to change the model, before the listeners are told.
+	private static final LatencyHistogram UPDATE_TIME = MetricsRegistry.getDefault().histogram("model.update.nanos");
+	
+	// Timing a change costs about as much as the change, so only one in 16 is timed.
+	private static final int TIMED_UPDATE_MASK = 15;
+	
+	// The board and fleet of the match this model is used for.
+	private GameConfig config;
+	
+	// Packed grids of both players. The grids that the view uses are built from
+	// these layers when they are asked for.
+	private ConcurrentBitboard grids;
+	
+	private AtomicInteger totalHits;
 	
-	// Grid that will be used during the game.
-	private POSITION_RESULT[][] playerProgressGrid;
+	// Number of changes made to the model, which picks the ones that are timed.
+	private int updates;
 	
-	// Grid that will be used after the game.
-	private POSITION_RESULT[][] playerAnswerGrid;
+	// The last move the opponent made on this player's grid and its result.
+	private volatile Point lastMove;
+	private volatile POSITION_RESULT lastResult;
 	
-	// Grid that shows the position
-	private POSITION_RESULT[][] opponentGrid;
+	// The positions the player's ships take, used to check a ship before it is placed.
+	private PlacementIndex placements;
 	
-	private int totalHits;
+	// The size and the hits of each ship, by the order it was placed in. Ships are
+	// placed before the first move, so only the hits change during the game.
+	private int[] shipSizes;
+	private AtomicIntegerArray shipHits;
+	private int shipCount;
+	
+	// The position of the front and the direction of each ship, by the order it was placed in.
+	// A hit finds its ship from these, so nothing the size of the board is kept per ship.
+	private Point[] shipOrigins;
+	private int[] shipDirections;
+	
+	private AtomicInteger shipsSunk;
+	
+	// Ships of the opponent that the current player sank.
+	private AtomicInteger opponentShipsSunk;
+	
+	// Determines if this player makes the first move of a match from the game server.
+	private volatile boolean firstTurn;
+	
+	// Delivers the events of the model to its listeners.
+	private ModelEventBus events;
+	
+	// Records every change so the match can be rebuilt, or null if it isn't recorded.
+	private volatile MatchJournal journal;
 	
 	/**
-	 * BattleshipModel constructor.
+	 * BattleshipModel constructor for the standard board and fleet.
 	 */
 	public BattleshipModel() {
-		playerProgressGrid = new POSITION_RESULT[Constants.GRID_SIZE][Constants.GRID_SIZE];
-		playerAnswerGrid = new POSITION_RESULT[Constants.GRID_SIZE][Constants.GRID_SIZE];
-		opponentGrid = new POSITION_RESULT[Constants.GRID_SIZE][Constants.GRID_SIZE];
-		totalHits = 0;
+		this(GameConfig.STANDARD);
+	}
+	
+	/**
+	 * BattleshipModel constructor.
+	 * 
+	 * @param config An object that describes the board and fleet of the match.
+	 */
+	public BattleshipModel(GameConfig config) {
+		this.config = config;
+		grids = new ConcurrentBitboard(config.getSize(), LAYERS);
+		placements = new PlacementIndex(config.getSize());
+		totalHits = new AtomicInteger();
+		shipSizes = new int[config.getShipCount()];
+		shipHits = new AtomicIntegerArray(config.getShipCount());
+		shipOrigins = new Point[config.getShipCount()];
+		shipDirections = new int[config.getShipCount()];
+		shipsSunk = new AtomicInteger();
+		opponentShipsSunk = new AtomicInteger();
+		events = new ModelEventBus();
 		
 	}
 	
 	/**
-	 * Adds an observer to the set of observers for this object, 
-	 * provided that it is not the same as some observer already in 
-	 * the set.
+	 * Returns the index of the positions the player's ships take. Ships are 
+	 * placed by one thread, so it is only read by the thread placing them.
+	 * 
+	 * @return the placement index of the player's grid.
+	 */
+	public PlacementIndex getPlacementIndex() {
+		return this.placements;
+	}
+	
+	/**
+	 * This method sets the journal that every later change is recorded in. It 
+	 * is called by MatchJournal when it is opened and closed.
+	 * 
+	 * @param journal An object that records the changes, or null to stop recording.
+	 */
+	void setJournal(MatchJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * Returns the board and fleet of the match this model is used for.
+	 * 
+	 * @return the config of the match.
+	 */
+	public GameConfig getConfig() {
+		return this.config;
+	}
+	
+	/**
+	 * Adds a listener that is given the events of the model on an executor, 
+	 * for example the thread of the view.
+	 * 
+	 * @param listener an object that will be given the events.
+	 * @param executor an object that runs the deliveries to the listener.
+	 */
+	public void addListener(ModelListener listener, Executor executor) {
+		events.subscribe(listener, executor);
+	}
+	
+	/**
+	 * Adds a listener that is given the events of the model right away by the 
+	 * thread that changed the model.
+	 * 
+	 * @param listener an object that will be given the events.
+	 */
+	public void addListener(ModelListener listener) {
+		events.subscribe(listener);
+	}
+	
+	/**
+	 * This method is used when the player joined a game server and was paired 
+	 * with an opponent. Notifies the view that the match has started.
 	 * 
-	 * @param o an observer to be added.
+	 * @param firstTurn A boolean value that determines if the player makes the 
+	 * first move.
 	 */
-	public void addObserver(Observer o) {
-		super.addObserver(o);
+	public void startMatch(boolean firstTurn) {
+		this.firstTurn = firstTurn;
+		
+		MatchJournal recorder = journal;
+		if (recorder != null) {
+			recorder.matchStarted(firstTurn);
+		}
+		events.publish(new ModelEvent.MatchStarted(firstTurn));
+		return;
 	}
 	
 	/**
@@ -75,19 +222,34 @@ public class BattleshipModel extends Observable {
 		int xPos = (int) coord.getX();
 		int yPos = (int) coord.getY();
 		
-		for (int i = 0; i < size; i++) {
-			if (dir == Constants.HORIZONTAL) {
-				playerProgressGrid[yPos][xPos+i] = POSITION_RESULT.SHIP;
-				playerAnswerGrid[yPos][xPos+i] = POSITION_RESULT.SHIP;
-			} else {
-				playerProgressGrid[yPos+i][xPos] = POSITION_RESULT.SHIP;
-				playerAnswerGrid[yPos+i][xPos] = POSITION_RESULT.SHIP;
+		List<Point> cells = new ArrayList<Point>(size);
+		placements.take(yPos, xPos, size, dir);
+		int ship = addShipSize(size);
+		shipOrigins[ship] = new Point(xPos, yPos);
+		shipDirections[ship] = dir;
+		grids.beginWrite();
+		try {
+			for (int i = 0; i < size; i++) {
+				
+				// The ship is recorded before its bit is set, so a thread that sees the
+				// bit also sees which ship it belongs to.
+				if (dir == Constants.HORIZONTAL) {
+					grids.set(SHIPS, yPos, xPos+i);
+					cells.add(new Point(xPos+i, yPos));
+				} else {
+					grids.set(SHIPS, yPos+i, xPos);
+					cells.add(new Point(xPos, yPos+i));
+				}
 			}
+		} finally {
+			grids.endWrite();
 		}
 		
-		super.setChanged();
-		super.notifyObservers("Ship Added.");
-		super.clearChanged();
+		MatchJournal recorder = journal;
+		if (recorder != null) {
+			recorder.shipPlaced(yPos, xPos, size, dir);
+		}
+		events.publish(new ModelEvent.ShipPlaced(cells));
 		return;
 		
 		
@@ -95,33 +257,116 @@ public class BattleshipModel extends Observable {
 	
 	/**
 	 * This method takes in a grid that holds the position on where the other 
-	 * player attacked and determines if the attack hit a ship or missed. 
+	 * player attacked and determines if the attack hit a ship or missed. A hit 
+	 * is only counted by the thread whose compare-and-set marked the position, 
+	 * which also counts it for the ship at the position. The hit that sinks 
+	 * the last ship of the fleet ends the game.
 	 * 
 	 * @param coord A Point object that holds the x and y position on the ship
 	 * will be placed.
 	 */
 	public void moveResult(Point coord) {
+		long start = startTiming();
 		int xPos = (int) coord.getX();
 		int yPos = (int) coord.getY();
 		
-		if (playerProgressGrid[yPos][xPos] == null) {
-			playerProgressGrid[yPos][xPos] = POSITION_RESULT.MISS;
-		} else {
-			playerProgressGrid[yPos][xPos] = POSITION_RESULT.HIT;
-			totalHits++;
+		Point move = new Point(xPos, yPos);
+		POSITION_RESULT result;
+		int hits;
+		int sunkShip = -1;
+		boolean fleetDestroyed = false;
+		grids.beginWrite();
+		try {
+			if (!grids.get(SHIPS, yPos, xPos)) {
+				grids.set(MISSES, yPos, xPos);
+				result = POSITION_RESULT.MISS;
+				hits = totalHits.get();
+			} else if (grids.set(HITS, yPos, xPos)) {
+				result = POSITION_RESULT.HIT;
+				hits = totalHits.incrementAndGet();
+				int ship = getShipAt(yPos, xPos);
+				if (ship >= 0 && shipHits.incrementAndGet(ship) == shipSizes[ship]) {
+					sunkShip = ship;
+					fleetDestroyed = shipsSunk.incrementAndGet() == config.getShipCount();
+				}
+			} else {
+				result = POSITION_RESULT.HIT;
+				hits = totalHits.get();
+			}
+			lastResult = result;
+			lastMove = move;
+		} finally {
+			grids.endWrite();
 		}
 		
-		super.setChanged();
-		super.notifyObservers("Move Made.");
-		super.clearChanged();
+		MatchJournal recorder = journal;
+		if (recorder != null) {
+			recorder.moveMade(yPos, xPos);
+		}
+		stopTiming(start);
+		events.publish(new ModelEvent.ShotResolved(move, result, hits, sunkShip));
+		if (fleetDestroyed) {
+			events.publish(new ModelEvent.GameEnded(false));
+		}
 		return;
 		
 	}
 	
 	/**
-	 * This method takes in an updated grid from the opposing player that 
-	 * resulted from the current player's move and updates its current information 
-	 * of the opponent's grid. 
+	 * This method takes in the result of the move the current player made on 
+	 * the opposing player's grid and updates that single position of its 
+	 * information of the opponent's grid.
+	 * 
+	 * @param coord A Point object that holds the x and y position of the move.
+	 * @param result A constant that determines if the move was a hit or a miss.
+	 */
+	public void applyShotResult(Point coord, POSITION_RESULT result) {
+		long start = startTiming();
+		int xPos = (int) coord.getX();
+		int yPos = (int) coord.getY();
+		
+		grids.beginWrite();
+		try {
+			if (result == POSITION_RESULT.HIT) {
+				grids.set(OPPONENT_HITS, yPos, xPos);
+			} else {
+				grids.set(OPPONENT_MISSES, yPos, xPos);
+			}
+		} finally {
+			grids.endWrite();
+		}
+		
+		MatchJournal recorder = journal;
+		if (recorder != null) {
+			recorder.shotResolved(yPos, xPos, result);
+		}
+		stopTiming(start);
+		events.publish(new ModelEvent.OpponentGridChanged(List.of(new Point(xPos, yPos))));
+		return;
+	}
+	
+	/**
+	 * This method records that the move the current player made sank one 
+	 * of the opposing player's ships.
+	 * 
+	 * @param ship An integer that represents the order the ship was placed in.
+	 */
+	public void applyShipSunk(int ship) {
+		opponentShipsSunk.incrementAndGet();
+		MatchJournal recorder = journal;
+		if (recorder != null) {
+			recorder.shipSunk(ship);
+		}
+		events.publish(new ModelEvent.OpponentShipSunk(ship));
+	}
+	
+	/**
+	 * This method takes in a whole grid from the opposing player and updates its 
+	 * current information of the opponent's grid. Moves are normally given to the 
+	 * model one at a time through applyShotResult, so this is only used when the 
+	 * whole grid has to be sent again or to show the opponent's ships at the end 
+	 * of the game. Only the positions that changed are sent to the listeners, and 
+	 * showing the opponent's ships ends the game for a player whose fleet survived.
 	 * 
 	 * @param updatedGrid A grid of constants that represents the opponent's updated grid 
 	 * after the current player made a move.
@@ -129,42 +374,130 @@ public class BattleshipModel extends Observable {
 	 * ship locations after the game ends.
 	 */
 	public void updateOpponentGrid(POSITION_RESULT[][] updatedGrid, boolean gameEnded) {
-		for (int i = 0; i < Constants.GRID_SIZE; i++) {
-			for (int j = 0; j < Constants.GRID_SIZE; j++) {
-				
-				// If the position isn't null, then it could contain a ship, a hit, or a miss.
-				if (updatedGrid[i][j] != null) {
-					String position = updatedGrid[i][j].getDescription();
+		long start = startTiming();
+		List<Point> cells = new ArrayList<Point>();
+		grids.beginWrite();
+		try {
+			int size = Math.min(config.getSize(), updatedGrid.length);
+			for (int i = 0; i < size; i++) {
+				for (int j = 0; j < size; j++) {
 					
-					// This method is given only the ship locations when the game is over.
-					// Checks if the game is over, if so then it places ships in the opponent grid,
-					if (gameEnded) {
-						if (position.equals("A Ship is here"))
-						this.opponentGrid[i][j] = POSITION_RESULT.SHIP;
-					} else {
-						if (position.equals("A Ship has been hit")) {
-							this.opponentGrid[i][j] = POSITION_RESULT.HIT;
-						}
-						if (position.equals("A missile missed")) {
-							this.opponentGrid[i][j] = POSITION_RESULT.MISS;
-						}
+					// This method is given only the ship locations when the game is over,
+					// so then only ships are placed in the opponent grid.
+					int layer = CellTable.opponentLayer(updatedGrid[i][j], gameEnded);
+					if (layer >= 0 && grids.set(layer, i, j)) {
+						cells.add(new Point(j, i));
 					}
 				}
 			}
+		} finally {
+			grids.endWrite();
+		}
+		
+		MatchJournal recorder = journal;
+		if (recorder != null) {
+			recorder.opponentGridUpdated(updatedGrid, gameEnded);
+		}
+		stopTiming(start);
+		events.publish(new ModelEvent.OpponentGridChanged(cells));
+		if (gameEnded && !isFleetDestroyed()) {
+			events.publish(new ModelEvent.GameEnded(true));
 		}
-		super.setChanged();
-		super.notifyObservers("Opponent Grid Updated.");
-		super.clearChanged();
 		return;
 	}
 	
+	/**
+	 * This method shows the ships of the opposing player once the game is over,
+	 * from the position and direction of each ship. The size of each ship comes 
+	 * from the fleet of the match, so the positions of the ships are worked out 
+	 * here and set one at a time instead of being sent as a whole grid. A ship 
+	 * that doesn't fit on the board is left out. Like updateOpponentGrid, this 
+	 * ends the game for a player whose fleet survived.
+	 * 
+	 * @param origins Point objects that hold the x and y position of the front of 
+	 * each ship, in the order the ships were placed.
+	 * @param directions Integers that determine the direction of each ship.
+	 */
+	public void revealOpponentFleet(Point[] origins, int[] directions) {
+		long start = startTiming();
+		List<Point> cells = new ArrayList<Point>();
+		int layer = CellTable.opponentLayer(POSITION_RESULT.SHIP, true);
+		int ships = Math.min(config.getShipCount(), Math.min(origins.length, directions.length));
+		grids.beginWrite();
+		try {
+			for (int ship = 0; ship < ships; ship++) {
+				int row = origins[ship].y;
+				int col = origins[ship].x;
+				int size = config.getShipSize(ship);
+				if (!placements.fits(row, col, size, directions[ship])) {
+					continue;
+				}
+				boolean horizontal = directions[ship] == Constants.HORIZONTAL;
+				for (int i = 0; i < size; i++) {
+					int r = horizontal ? row : row + i;
+					int c = horizontal ? col + i : col;
+					if (grids.set(layer, r, c)) {
+						cells.add(new Point(c, r));
+					}
+				}
+			}
+		} finally {
+			grids.endWrite();
+		}
+		
+		MatchJournal recorder = journal;
+		if (recorder != null) {
+			recorder.opponentFleetRevealed(origins, directions);
+		}
+		stopTiming(start);
+		events.publish(new ModelEvent.OpponentGridChanged(cells));
+		if (!isFleetDestroyed()) {
+			events.publish(new ModelEvent.GameEnded(true));
+		}
+	}
+	
+	/**
+	 * Returns what is known about one position of the opposing player's grid
+	 * right now, without copying the whole model.
+	 * 
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A constant that describes the position, or null if it is empty.
+	 */
+	public POSITION_RESULT getOpponentPosition(int row, int col) {
+		return CellTable.opponent(grids.getLayers(OPPONENT_SHIPS, CellTable.LAYERS, row, col));
+	}
+	
+	/**
+	 * Returns a copy of everything the model holds right now. The reader 
+	 * never waits: if a change happens while the copy is being made, the 
+	 * copy is simply made again.
+	 * 
+	 * @return A snapshot of the model that never changes.
+	 */
+	public ModelSnapshot getSnapshot() {
+		while (true) {
+			long stamp = grids.tryReadStamp();
+			if (stamp >= 0) {
+				Bitboard copy = grids.copy();
+				int hits = totalHits.get();
+				Point move = lastMove;
+				POSITION_RESULT result = lastResult;
+				if (grids.validate(stamp)) {
+					return new ModelSnapshot(copy, hits, move, result);
+				}
+			}
+			Thread.onSpinWait();
+		}
+	}
+	
 	/**
 	 * Returns the current player's grid. 
 	 * 
 	 * @return the current player's grid.
 	 */
 	public POSITION_RESULT[][] getPlayerProgressGrid(){
-		return this.playerProgressGrid;
+		return getSnapshot().getPlayerProgressGrid();
 	}
 	
 	/**
@@ -175,7 +508,7 @@ public class BattleshipModel extends Observable {
 	 * @return a grid that contains the locations of all the ships.
 	 */
 	public POSITION_RESULT[][] getPlayerAnswerGrid(){
-		return this.playerAnswerGrid;
+		return getSnapshot().getPlayerAnswerGrid();
 	}
 	
 	/**
@@ -186,7 +519,36 @@ public class BattleshipModel extends Observable {
 	 * the current player had made to the opposing player's grid.
 	 */
 	public POSITION_RESULT[][] getOpponentGrid(){
-		return this.opponentGrid;
+		return getSnapshot().getOpponentGrid();
+	}
+	
+	/**
+	 * Returns the position of the last move the opposing player made on the 
+	 * current player's grid. Use getSnapshot to read it together with its result.
+	 * 
+	 * @return A Point object that holds the x and y position of the last move.
+	 */
+	public Point getLastMove() {
+		return this.lastMove;
+	}
+	
+	/**
+	 * Returns whether the last move the opposing player made was a hit or a miss.
+	 * 
+	 * @return A constant that represents the result of the last move.
+	 */
+	public POSITION_RESULT getLastResult() {
+		return this.lastResult;
+	}
+	
+	/**
+	 * Returns whether the player makes the first move of the match that the 
+	 * game server started.
+	 * 
+	 * @return A boolean value that determines if the player moves first.
+	 */
+	public boolean isFirstTurn() {
+		return this.firstTurn;
 	}
 	
 	/**
@@ -195,7 +557,138 @@ public class BattleshipModel extends Observable {
 	 * @return the total hits the current player's fleet has taken.
 	 */
 	public int getTotalHits() {
-		return this.totalHits;
+		return this.totalHits.get();
+	}
+	
+	/**
+	 * Returns which ship of the current player takes a position, found from the 
+	 * front and direction of each ship.
+	 * 
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return the order the ship was placed in, or -1 if no ship takes the position.
+	 */
+	public int getShipAt(int row, int col) {
+		for (int ship = 0; ship < shipCount; ship++) {
+			Point origin = shipOrigins[ship];
+			int along = shipDirections[ship] == Constants.HORIZONTAL
+					? (origin.y == row ? col - origin.x : -1)
+					: (origin.x == col ? row - origin.y : -1);
+			if (along >= 0 && along < shipSizes[ship]) {
+				return ship;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Determines if a ship of the current player was sunk.
+	 * 
+	 * @param ship An integer that represents the order the ship was placed in.
+	 * @return A boolean value that determines if every position of the ship was hit.
+	 */
+	public boolean isShipSunk(int ship) {
+		return shipHits.get(ship) == shipSizes[ship];
+	}
+	
+	/**
+	 * Returns how many of the current player's ships were sunk.
+	 * 
+	 * @return the number of ships that were sunk.
+	 */
+	public int getShipsSunk() {
+		return this.shipsSunk.get();
+	}
+	
+	/**
+	 * Determines if every ship of the current player's fleet was sunk.
+	 * 
+	 * @return A boolean value that determines if the fleet was destroyed.
+	 */
+	public boolean isFleetDestroyed() {
+		return this.shipsSunk.get() >= config.getShipCount();
+	}
+	
+	/**
+	 * Returns how many of the opposing player's ships the current player sank.
+	 * 
+	 * @return the number of the opponent's ships that were sunk.
+	 */
+	public int getOpponentShipsSunk() {
+		return this.opponentShipsSunk.get();
+	}
+	
+	/**
+	 * Returns the number of ships the player placed.
+	 * 
+	 * @return the number of ships placed.
+	 */
+	public int getShipsPlaced() {
+		return this.shipCount;
+	}
+	
+	/**
+	 * Returns the position of the front of each ship the player placed.
+	 * 
+	 * @return Point objects that hold the x and y position of each ship, in the 
+	 * order the ships were placed.
+	 */
+	public Point[] getShipOrigins() {
+		return Arrays.copyOf(shipOrigins, shipCount);
+	}
+	
+	/**
+	 * Returns the direction of each ship the player placed.
+	 * 
+	 * @return integers that determine the direction of each ship, in the order 
+	 * the ships were placed.
+	 */
+	public int[] getShipDirections() {
+		return Arrays.copyOf(shipDirections, shipCount);
+	}
+	
+	/**
+	 * This private method gives a ship that is being placed its number and 
+	 * records its size, making room for more ships than the fleet has if needed.
+	 * The hits of the ships that were already placed are kept.
+	 * 
+	 * @param size An integer that holds the size of the ship.
+	 * @return the order the ship is placed in.
+	 */
+	private int addShipSize(int size) {
+		if (shipCount == shipSizes.length) {
+			AtomicIntegerArray hits = new AtomicIntegerArray(2 * shipCount);
+			for (int ship = 0; ship < shipCount; ship++) {
+				hits.set(ship, shipHits.get(ship));
+			}
+			shipSizes = Arrays.copyOf(shipSizes, 2 * shipCount);
+			shipHits = hits;
+			shipOrigins = Arrays.copyOf(shipOrigins, 2 * shipCount);
+			shipDirections = Arrays.copyOf(shipDirections, 2 * shipCount);
+		}
+		shipSizes[shipCount] = size;
+		return shipCount++;
+	}
+	
+	/**
+	 * This private method starts timing a change to the model if it is one of
+	 * the changes that are timed.
+	 * 
+	 * @return the time the change started, or 0 if it isn't timed.
+	 */
+	private long startTiming() {
+		return (updates++ & TIMED_UPDATE_MASK) == 0 ? System.nanoTime() : 0;
+	}
+	
+	/**
+	 * This private method records how long a change to the model took.
+	 * 
+	 * @param start A long that represents when the change started, or 0 if it isn't timed.
+	 */
+	private void stopTiming(long start) {
+		if (start != 0) {
+			UPDATE_TIME.recordSince(start);
+		}
 	}
 	
 }
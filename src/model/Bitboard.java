@@ -0,0 +1,166 @@
+package model;
+
+/**
+ * This class is a packed bit representation of one or more square grids.
+ * Each grid (called a layer) stores a single yes/no fact about every position,
+ * for example "a ship is here" or "this position was hit". Every position of a
+ * layer is one bit, and all of the layers are stored one after another inside a
+ * single array of longs, so a 10x10 layer only takes up two longs.
+ *
+ * Positions are numbered row by row, meaning that the position (row, col) is
+ * the bit at index row * size + col of its layer.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class Bitboard {
+
+	private static final int WORD_BITS = 64;
+
+	// Number of positions on each side of the grid.
+	private final int size;
+
+	// Number of longs needed to hold one layer.
+	private final int wordsPerLayer;
+
+	// Every layer packed one after another.
+	private final long[] words;
+
+	/**
+	 * Bitboard constructor.
+	 *
+	 * @param size An integer that represents the number of positions on each side
+	 * of the grid.
+	 * @param layers An integer that represents how many layers the bitboard holds.
+	 */
+	public Bitboard(int size, int layers) {
+		this.size = size;
+		this.wordsPerLayer = (size * size + WORD_BITS - 1) / WORD_BITS;
+		this.words = new long[wordsPerLayer * layers];
+	}
+
+	/**
+	 * Bitboard constructor for bits that were already packed, which is how a
+	 * ConcurrentBitboard makes its copies.
+	 *
+	 * @param size An integer that represents the number of positions on each side
+	 * of the grid.
+	 * @param words An array of longs that holds every layer.
+	 */
+	Bitboard(int size, long[] words) {
+		this.size = size;
+		this.wordsPerLayer = (size * size + WORD_BITS - 1) / WORD_BITS;
+		this.words = words;
+	}
+
+	/**
+	 * Returns the number of positions on each side of the grid.
+	 *
+	 * @return the number of positions on each side of the grid.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Determines if the bit at a position of a layer is set.
+	 *
+	 * @param layer An integer that represents the layer being checked.
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A boolean value that determines if the bit is set.
+	 */
+	public boolean get(int layer, int row, int col) {
+		int index = row * size + col;
+		return (words[wordIndex(layer, index)] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Returns the bits at a position of layers that come one after another, 
+	 * with the bit of the first layer as the lowest bit. The position is only 
+	 * looked up once for all of the layers.
+	 *
+	 * @param firstLayer An integer that represents the first layer being checked.
+	 * @param layers An integer that represents how many layers are checked.
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return An integer with one bit for each layer.
+	 */
+	public int getLayers(int firstLayer, int layers, int row, int col) {
+		int index = row * size + col;
+		int word = wordIndex(firstLayer, index);
+		int bits = 0;
+		for (int k = 0; k < layers; k++) {
+			bits |= (int) ((words[word] >>> index) & 1L) << k;
+			word += wordsPerLayer;
+		}
+		return bits;
+	}
+
+	/**
+	 * Sets the bit at a position of a layer.
+	 *
+	 * @param layer An integer that represents the layer being changed.
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 */
+	public void set(int layer, int row, int col) {
+		int index = row * size + col;
+		words[wordIndex(layer, index)] |= 1L << index;
+	}
+
+	/**
+	 * Clears the bit at a position of a layer.
+	 *
+	 * @param layer An integer that represents the layer being changed.
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 */
+	public void clear(int layer, int row, int col) {
+		int index = row * size + col;
+		words[wordIndex(layer, index)] &= ~(1L << index);
+	}
+
+	/**
+	 * Clears every bit of a layer.
+	 *
+	 * @param layer An integer that represents the layer being cleared.
+	 */
+	public void clearLayer(int layer) {
+		int start = layer * wordsPerLayer;
+		for (int i = start; i < start + wordsPerLayer; i++) {
+			words[i] = 0L;
+		}
+	}
+
+	/**
+	 * Returns the number of bits that are set in a layer.
+	 *
+	 * @param layer An integer that represents the layer being counted.
+	 * @return the number of bits that are set in the layer.
+	 */
+	public int count(int layer) {
+		int total = 0;
+		int start = layer * wordsPerLayer;
+		for (int i = start; i < start + wordsPerLayer; i++) {
+			total += Long.bitCount(words[i]);
+		}
+		return total;
+	}
+
+	/**
+	 * This private method finds the long that holds a position of a layer.
+	 * Shifting a long only uses the lowest six bits of the shift amount, so the
+	 * index can be used directly as the shift once the long is found.
+	 *
+	 * @param layer An integer that represents the layer of the position.
+	 * @param index An integer that represents the position inside the layer.
+	 * @return the index of the long that holds the position.
+	 */
+	private int wordIndex(int layer, int index) {
+		return layer * wordsPerLayer + (index / WORD_BITS);
+	}
+
+}
@@ -0,0 +1,100 @@
+package model;
+
+import utilities.POSITION_RESULT;
+
+/**
+ * This class holds the tables the model uses to turn the layers of a position
+ * into a POSITION_RESULT and a POSITION_RESULT from the opponent into the layer
+ * it sets. A position's layers are read as a single number, with one bit each
+ * for the ship, hit and miss layers, and that number is the index into a table
+ * instead of a chain of checks.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+final class CellTable {
+
+	// Bits of a position's layers, in the order the layers of a grid are stored.
+	static final int SHIP_BIT = 1;
+	static final int HIT_BIT = 2;
+	static final int MISS_BIT = 4;
+
+	// Number of layers that describe one grid.
+	static final int LAYERS = 3;
+
+	// What a position of the player's grid shows, by its layers. A hit or a miss
+	// is shown over a ship, since that is what the position turned into.
+	private static final POSITION_RESULT[] PLAYER = new POSITION_RESULT[1 << LAYERS];
+
+	// What a position of the opponent's grid shows, by its layers. Ships are shown
+	// over hits and misses, which is how the opponent's fleet is revealed at the end.
+	private static final POSITION_RESULT[] OPPONENT = new POSITION_RESULT[1 << LAYERS];
+
+	// Layer of the opponent's grid that a position sent by the opponent sets, by its
+	// code, while the game goes on and once it is over. -1 means nothing is set.
+	private static final int[] PLAYING = new int[POSITION_RESULT.CODES];
+	private static final int[] REVEALING = new int[POSITION_RESULT.CODES];
+
+	static {
+		for (int bits = 0; bits < PLAYER.length; bits++) {
+			if ((bits & HIT_BIT) != 0) {
+				PLAYER[bits] = POSITION_RESULT.HIT;
+			} else if ((bits & MISS_BIT) != 0) {
+				PLAYER[bits] = POSITION_RESULT.MISS;
+			} else if ((bits & SHIP_BIT) != 0) {
+				PLAYER[bits] = POSITION_RESULT.SHIP;
+			}
+			OPPONENT[bits] = (bits & SHIP_BIT) != 0 ? POSITION_RESULT.SHIP : PLAYER[bits];
+		}
+
+		for (int code = 0; code < POSITION_RESULT.CODES; code++) {
+			PLAYING[code] = -1;
+			REVEALING[code] = -1;
+		}
+		PLAYING[POSITION_RESULT.HIT.getCode()] = BattleshipModel.OPPONENT_HITS;
+		PLAYING[POSITION_RESULT.MISS.getCode()] = BattleshipModel.OPPONENT_MISSES;
+		REVEALING[POSITION_RESULT.SHIP.getCode()] = BattleshipModel.OPPONENT_SHIPS;
+	}
+
+	/**
+	 * CellTable constructor. The class only has static tables.
+	 */
+	private CellTable() {
+	}
+
+	/**
+	 * Returns what a position of the player's grid shows.
+	 *
+	 * @param bits An integer that holds the ship, hit and miss bits of the position.
+	 * @return A constant that describes the position, or null if it is empty.
+	 */
+	static POSITION_RESULT player(int bits) {
+		return PLAYER[bits];
+	}
+
+	/**
+	 * Returns what a position of the opponent's grid shows.
+	 *
+	 * @param bits An integer that holds the ship, hit and miss bits of the position.
+	 * @return A constant that describes the position, or null if it is empty.
+	 */
+	static POSITION_RESULT opponent(int bits) {
+		return OPPONENT[bits];
+	}
+
+	/**
+	 * Returns the layer of the opponent's grid that a position sent by the
+	 * opponent sets.
+	 *
+	 * @param result A constant that the opponent sent for the position, or null.
+	 * @param gameEnded A boolean value that determines if the opponent is revealing its ships.
+	 * @return the layer to set, or -1 if nothing is set.
+	 */
+	static int opponentLayer(POSITION_RESULT result, boolean gameEnded) {
+		int code = POSITION_RESULT.codeOf(result);
+		return gameEnded ? REVEALING[code] : PLAYING[code];
+	}
+
+}
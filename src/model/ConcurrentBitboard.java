@@ -0,0 +1,193 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a version of the Bitboard that can be changed and read by
+ * several threads at once without any locks. Each bit is set with a
+ * compare-and-set on the long that holds it, so two threads setting bits at the
+ * same time never undo each other, and the thread that actually changed a bit
+ * is the only one told that it did.
+ *
+ * Changes that set several bits, like placing a ship, are wrapped in beginWrite
+ * and endWrite. A reader that needs every layer to agree takes a stamp, copies
+ * the bits, and checks that the stamp is still valid. If a write happened in
+ * between, the reader just tries again, so readers never wait on writers and
+ * writers never wait at all.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class ConcurrentBitboard {
+
+	private static final int WORD_BITS = 64;
+
+	// Number of positions on each side of the grid.
+	private final int size;
+
+	// Number of longs needed to hold one layer.
+	private final int wordsPerLayer;
+
+	// Every layer packed one after another.
+	private final AtomicLongArray words;
+
+	// Counts of the writes that were started and finished.
+	private final AtomicLong writesStarted;
+	private final AtomicLong writesFinished;
+
+	/**
+	 * ConcurrentBitboard constructor.
+	 *
+	 * @param size An integer that represents the number of positions on each side
+	 * of the grid.
+	 * @param layers An integer that represents how many layers the bitboard holds.
+	 */
+	public ConcurrentBitboard(int size, int layers) {
+		this.size = size;
+		this.wordsPerLayer = (size * size + WORD_BITS - 1) / WORD_BITS;
+		this.words = new AtomicLongArray(wordsPerLayer * layers);
+		this.writesStarted = new AtomicLong();
+		this.writesFinished = new AtomicLong();
+	}
+
+	/**
+	 * Returns the number of positions on each side of the grid.
+	 *
+	 * @return the number of positions on each side of the grid.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Determines if the bit at a position of a layer is set.
+	 *
+	 * @param layer An integer that represents the layer being checked.
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A boolean value that determines if the bit is set.
+	 */
+	public boolean get(int layer, int row, int col) {
+		int index = row * size + col;
+		return (words.get(wordIndex(layer, index)) & (1L << index)) != 0;
+	}
+
+	/**
+	 * Returns the bits at a position of layers that come one after another, 
+	 * with the bit of the first layer as the lowest bit. The position is only 
+	 * looked up once for all of the layers.
+	 *
+	 * @param firstLayer An integer that represents the first layer being checked.
+	 * @param layers An integer that represents how many layers are checked.
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return An integer with one bit for each layer.
+	 */
+	public int getLayers(int firstLayer, int layers, int row, int col) {
+		int index = row * size + col;
+		int word = wordIndex(firstLayer, index);
+		int bits = 0;
+		for (int k = 0; k < layers; k++) {
+			bits |= (int) ((words.get(word) >>> index) & 1L) << k;
+			word += wordsPerLayer;
+		}
+		return bits;
+	}
+
+	/**
+	 * Sets the bit at a position of a layer with a compare-and-set.
+	 *
+	 * @param layer An integer that represents the layer being changed.
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A boolean value that is true if this call set the bit, or false
+	 * if it was already set.
+	 */
+	public boolean set(int layer, int row, int col) {
+		int index = row * size + col;
+		int word = wordIndex(layer, index);
+		long mask = 1L << index;
+
+		long current = words.get(word);
+		while ((current & mask) == 0) {
+			if (words.compareAndSet(word, current, current | mask)) {
+				return true;
+			}
+			current = words.get(word);
+		}
+		return false;
+	}
+
+	/**
+	 * This method marks the start of a change. Every call must be followed by
+	 * a call to endWrite once the change is done.
+	 *
+	 */
+	public void beginWrite() {
+		writesStarted.incrementAndGet();
+	}
+
+	/**
+	 * This method marks the end of a change that was started by beginWrite.
+	 *
+	 */
+	public void endWrite() {
+		writesFinished.incrementAndGet();
+	}
+
+	/**
+	 * Returns a stamp that a reader uses to check that nothing changed while
+	 * it was reading. The finished count is read first, so a stamp is only
+	 * given when no change was happening.
+	 *
+	 * @return the stamp, or -1 if a change is happening and the reader should try again.
+	 */
+	public long tryReadStamp() {
+		long finished = writesFinished.get();
+		long started = writesStarted.get();
+		if (started != finished) {
+			return -1;
+		}
+		return started;
+	}
+
+	/**
+	 * Determines if no change started since the stamp was taken, meaning that
+	 * everything read after taking the stamp belongs together.
+	 *
+	 * @param stamp A long that represents the stamp taken before reading.
+	 * @return A boolean value that determines if the stamp is still valid.
+	 */
+	public boolean validate(long stamp) {
+		return writesStarted.get() == stamp;
+	}
+
+	/**
+	 * This method copies every layer into a plain Bitboard. The copy is only
+	 * consistent if it is checked with a stamp.
+	 *
+	 * @return A new bitboard that holds the same bits.
+	 */
+	public Bitboard copy() {
+		long[] copy = new long[words.length()];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = words.get(i);
+		}
+		return new Bitboard(size, copy);
+	}
+
+	/**
+	 * This private method finds the long that holds a position of a layer.
+	 *
+	 * @param layer An integer that represents the layer of the position.
+	 * @param index An integer that represents the position inside the layer.
+	 * @return the index of the long that holds the position.
+	 */
+	private int wordIndex(int layer, int index) {
+		return layer * wordsPerLayer + (index / WORD_BITS);
+	}
+
+}
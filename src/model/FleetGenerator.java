@@ -0,0 +1,221 @@
+package model;
+
+import java.awt.Point;
+
+import utilities.GameConfig;
+
+/**
+ * This class places a whole fleet at random, for players that don't want to
+ * place their ships by hand, the computer players and the simulator. Every legal
+ * layout of the fleet is equally likely: each ship is given one of the placements
+ * that fit on the board, picked evenly, and if any two ships overlap the whole
+ * layout is thrown away and drawn again. Checking a ship is a lookup in a
+ * PlacementIndex, so a layout takes well under a microsecond on a normal board.
+ *
+ * A fleet so crowded that almost every layout overlaps would take too many tries,
+ * so after MAX_LAYOUT_TRIES the ships are placed one at a time on the positions
+ * that are still free instead, which is still random but not exactly even.
+ *
+ * The generator has its own seeded random numbers and reuses its arrays, so making
+ * a layout doesn't create any objects. The same seed always makes the same layouts.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class FleetGenerator {
+
+	// Whole layouts that are drawn before the ships are placed one at a time.
+	private static final int MAX_LAYOUT_TRIES = 100000;
+
+	// Tries to place one ship on the free positions before the layout starts over.
+	private static final int MAX_SHIP_TRIES = 10000;
+
+	private GameConfig config;
+
+	private PlacementIndex index;
+
+	// The layout that was made last.
+	private int[] rows;
+	private int[] cols;
+	private int[] dirs;
+
+	// State of the random numbers.
+	private long seed;
+
+	/**
+	 * FleetGenerator constructor.
+	 *
+	 * @param config An object that describes the board and fleet.
+	 * @param seed A long that decides every layout the generator makes.
+	 */
+	public FleetGenerator(GameConfig config, long seed) {
+		this.config = config;
+		this.index = new PlacementIndex(config.getSize());
+		this.rows = new int[config.getShipCount()];
+		this.cols = new int[config.getShipCount()];
+		this.dirs = new int[config.getShipCount()];
+		this.seed = seed;
+	}
+
+	/**
+	 * This method starts the random numbers over from a new seed.
+	 *
+	 * @param seed A long that decides every layout the generator makes.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the board and fleet the layouts are made for.
+	 *
+	 * @return the config of the layouts.
+	 */
+	public GameConfig getConfig() {
+		return this.config;
+	}
+
+	/**
+	 * This method makes a new layout. The ships of the layout are read with
+	 * getOrigin and getDirection.
+	 *
+	 * @throws IllegalStateException when the fleet can't be placed on the board.
+	 */
+	public void generate() {
+		for (int tries = 0; tries < MAX_LAYOUT_TRIES; tries++) {
+			if (tryLayout()) {
+				return;
+			}
+		}
+		for (int tries = 0; tries < MAX_LAYOUT_TRIES; tries++) {
+			if (tryShipByShip()) {
+				return;
+			}
+		}
+		throw new IllegalStateException("The fleet " + config + " could not be placed.");
+	}
+
+	/**
+	 * Returns the row of the first position of a ship in the last layout.
+	 *
+	 * @param ship An integer that represents the order the ship is placed in.
+	 * @return the row of the first position of the ship.
+	 */
+	public int getRow(int ship) {
+		return this.rows[ship];
+	}
+
+	/**
+	 * Returns the column of the first position of a ship in the last layout.
+	 *
+	 * @param ship An integer that represents the order the ship is placed in.
+	 * @return the column of the first position of the ship.
+	 */
+	public int getCol(int ship) {
+		return this.cols[ship];
+	}
+
+	/**
+	 * Returns the first position of a ship in the last layout as a Point, the
+	 * way the controller takes it.
+	 *
+	 * @param ship An integer that represents the order the ship is placed in.
+	 * @return A Point object that holds the x and y position of the first position.
+	 */
+	public Point getOrigin(int ship) {
+		return new Point(cols[ship], rows[ship]);
+	}
+
+	/**
+	 * Returns the direction of a ship in the last layout.
+	 *
+	 * @param ship An integer that represents the order the ship is placed in.
+	 * @return Constants.HORIZONTAL or Constants.VERTICAL.
+	 */
+	public int getDirection(int ship) {
+		return this.dirs[ship];
+	}
+
+	/**
+	 * This private method draws a placement for every ship and checks that none
+	 * of them overlap.
+	 *
+	 * @return A boolean value that determines if the layout is legal.
+	 */
+	private boolean tryLayout() {
+		index.clear();
+		for (int ship = 0; ship < rows.length; ship++) {
+			int length = config.getShipSize(ship);
+			pick(ship, length, nextInt(index.getPlacementCount(length)));
+			if (!index.isFree(rows[ship], cols[ship], length, dirs[ship])) {
+				return false;
+			}
+			index.take(rows[ship], cols[ship], length, dirs[ship]);
+		}
+		return true;
+	}
+
+	/**
+	 * This private method places the ships one at a time, drawing each one again
+	 * until it lands on free positions.
+	 *
+	 * @return A boolean value that determines if every ship was placed.
+	 */
+	private boolean tryShipByShip() {
+		index.clear();
+		for (int ship = 0; ship < rows.length; ship++) {
+			int length = config.getShipSize(ship);
+			boolean placed = false;
+			for (int tries = 0; tries < MAX_SHIP_TRIES && !placed; tries++) {
+				pick(ship, length, nextInt(index.getPlacementCount(length)));
+				placed = index.isFree(rows[ship], cols[ship], length, dirs[ship]);
+			}
+			if (!placed) {
+				return false;
+			}
+			index.take(rows[ship], cols[ship], length, dirs[ship]);
+		}
+		return true;
+	}
+
+	/**
+	 * This private method stores a numbered placement as the position of a ship.
+	 *
+	 * @param ship An integer that represents the order the ship is placed in.
+	 * @param length An integer that represents the size of the ship.
+	 * @param number An integer that represents the number of the placement.
+	 */
+	private void pick(int ship, int length, int number) {
+		int size = config.getSize();
+		int starts = size - length + 1;
+		int perDirection = size * starts;
+		dirs[ship] = index.getPlacementDirection(length, number);
+		if (number < perDirection) {
+			rows[ship] = number / starts;
+			cols[ship] = number % starts;
+		} else {
+			number -= perDirection;
+			rows[ship] = number % starts;
+			cols[ship] = number / starts;
+		}
+	}
+
+	/**
+	 * This private method returns a random integer from 0 up to but not including
+	 * the bound, using the SplitMix64 generator.
+	 *
+	 * @param bound An integer that represents how many values can be returned.
+	 * @return the random integer.
+	 */
+	private int nextInt(int bound) {
+		seed += 0x9E3779B97F4A7C15L;
+		long z = seed;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (int) (((z >>> 32) * bound) >>> 32);
+	}
+
+}
@@ -0,0 +1,622 @@
+package model;
+
+import java.awt.Point;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import utilities.BattleshipCodec;
+import utilities.GameConfig;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class writes every change made to a BattleshipModel to a file, so that a
+ * match can be rebuilt after the process crashed. Each change is a small record:
+ * a tag byte followed by its values as varints, so a shot takes three or four
+ * bytes. The file only ever grows at the end.
+ *
+ * Forcing the file to the disk after every record would make every turn wait on
+ * the disk, so the records are collected in memory and a committer thread writes
+ * them all as one batch and forces the file once, at most DEFAULT_COMMIT_MILLIS
+ * after the first of them. A thread that needs its records on the disk before it
+ * goes on calls sync, and every thread that calls sync while a batch is waiting is
+ * released by the same force. Each batch starts with its length and a checksum, so
+ * a batch that was only half written when the process died is found and dropped.
+ *
+ * A file starts with the board and fleet of the match. Opening a file that already
+ * holds a match replays its records into the model and keeps appending after them.
+ * The players keep a journal when the "battleship.journal" property names its file,
+ * and their network calls sync before it sends a move or a result.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class MatchJournal implements Closeable {
+
+	// The system property that names the journal file of the players.
+	public static final String FILE_PROPERTY = "battleship.journal";
+
+	// Longest time a record waits before it is written and forced to the disk.
+	public static final long DEFAULT_COMMIT_MILLIS = 20;
+
+	// Bytes of records that start a commit without waiting any longer.
+	private static final int COMMIT_BYTES = 64 * 1024;
+
+	// First bytes of a journal, which are "BSJL", and the version of the format.
+	private static final int MAGIC = 0x42534A4C;
+	private static final int VERSION = 1;
+
+	// Bytes before the records of a batch, which are its length and its checksum.
+	private static final int BATCH_HEADER = 8;
+
+	// Tags that start each record.
+	private static final int MATCH_START = 1;
+	private static final int SHIP = 2;
+	private static final int MOVE = 3;
+	private static final int SHOT_RESULT = 4;
+	private static final int SHIP_SUNK = 5;
+	private static final int OPPONENT_GRID = 6;
+	private static final int OPPONENT_FLEET = 7;
+
+	private BattleshipModel model;
+
+	private FileChannel channel;
+
+	private long commitNanos;
+
+	// Records that were added but not written yet.
+	private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private DataOutputStream pendingOutput = new DataOutputStream(pending);
+
+	// Records added since the journal was opened, and how many of them are on the disk.
+	private long appended;
+	private long durable;
+
+	// Determines if a thread is waiting in sync, so the batch is written right away.
+	private boolean syncRequested;
+
+	private boolean closed;
+
+	// The error that stopped the committer, given to every later call to sync.
+	private IOException failure;
+
+	private Thread committer;
+
+	/**
+	 * This method opens the journal of a match and attaches it to a model, so
+	 * that every later change to the model is written to it. If the file already
+	 * holds a match, the match is replayed into the model first, which must be
+	 * new and have no listeners yet, since replaying sends the same events again.
+	 *
+	 * @param file An object that represents the path of the journal.
+	 * @param model An object that represents the model of the match.
+	 * @return A new journal that is attached to the model.
+	 * @throws IOException when the file could not be used or holds a different match.
+	 */
+	public static MatchJournal open(Path file, BattleshipModel model) throws IOException {
+		return open(file, model, DEFAULT_COMMIT_MILLIS);
+	}
+
+	/**
+	 * This method opens the journal of a match the same way as open(file, model),
+	 * with a chosen time that records wait before they are forced to the disk.
+	 *
+	 * @param file An object that represents the path of the journal.
+	 * @param model An object that represents the model of the match.
+	 * @param commitMillis A long that represents the longest time a record waits.
+	 * @return A new journal that is attached to the model.
+	 * @throws IOException when the file could not be used or holds a different match.
+	 */
+	public static MatchJournal open(Path file, BattleshipModel model, long commitMillis) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if (channel.size() == 0) {
+				writeHeader(channel, model.getConfig());
+			} else {
+				long end = replay(channel, model);
+				channel.truncate(end);
+			}
+			channel.position(channel.size());
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+
+		MatchJournal journal = new MatchJournal(model, channel, commitMillis);
+		model.setJournal(journal);
+		return journal;
+	}
+
+	/**
+	 * Returns the journal file named by the "battleship.journal" property.
+	 *
+	 * @return An object that represents the path of the journal, or null if the property isn't set.
+	 */
+	public static Path fileFromProperty() {
+		String name = System.getProperty(FILE_PROPERTY);
+		return name == null ? null : Paths.get(name);
+	}
+
+	/**
+	 * This method returns the board and fleet a player starts with: the ones of
+	 * the match its journal holds, or the ones chosen by the properties when there
+	 * is no journal or it doesn't hold a match yet.
+	 *
+	 * @param file An object that represents the path of the journal, or null.
+	 * @return the config of the match.
+	 * @throws IOException when the file could not be read or is not a journal.
+	 */
+	public static GameConfig configOf(Path file) throws IOException {
+		if (file == null || !Files.exists(file) || Files.size(file) == 0) {
+			return GameConfig.fromProperties();
+		}
+		return readConfig(file);
+	}
+
+	/**
+	 * This method reads the board and fleet of the match a journal holds, so
+	 * that a model for it can be made before the journal is opened.
+	 *
+	 * @param file An object that represents the path of the journal.
+	 * @return the config of the match.
+	 * @throws IOException when the file could not be read or is not a journal.
+	 */
+	public static GameConfig readConfig(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return readHeader(new DataInputStream(Channels.newInputStream(channel)));
+		}
+	}
+
+	/**
+	 * MatchJournal constructor. The committer thread is started right away.
+	 *
+	 * @param model An object that represents the model the journal is attached to.
+	 * @param channel An object that represents the file, positioned at its end.
+	 * @param commitMillis A long that represents the longest time a record waits.
+	 */
+	private MatchJournal(BattleshipModel model, FileChannel channel, long commitMillis) {
+		this.model = model;
+		this.channel = channel;
+		this.commitNanos = commitMillis * 1000000L;
+		committer = new Thread(this::commitLoop, "journal-committer");
+		committer.setDaemon(true);
+		committer.start();
+	}
+
+	/**
+	 * This method waits until every record that was added before it was called
+	 * is on the disk.
+	 *
+	 * @throws IOException when the journal could not be written.
+	 */
+	public synchronized void sync() throws IOException {
+		long target = appended;
+		if (durable < target) {
+			syncRequested = true;
+			notifyAll();
+		}
+		try {
+			while (durable < target && failure == null) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the journal.", e);
+		}
+		if (failure != null) {
+			throw new IOException("The journal could not be written.", failure);
+		}
+	}
+
+	/**
+	 * This method detaches the journal from the model, writes the records that
+	 * are left and closes the file.
+	 *
+	 * @throws IOException when the journal could not be written or closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		model.setJournal(null);
+		try {
+			sync();
+		} finally {
+			synchronized (this) {
+				closed = true;
+				notifyAll();
+			}
+			try {
+				committer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			channel.close();
+		}
+	}
+
+	/**
+	 * This method records that the game server paired the player with an opponent.
+	 *
+	 * @param firstTurn A boolean value that determines if the player makes the first move.
+	 */
+	synchronized void matchStarted(boolean firstTurn) {
+		record(MATCH_START, firstTurn ? 1 : 0);
+	}
+
+	/**
+	 * This method records a ship that was placed on the player's grid.
+	 *
+	 * @param row An integer that represents the row of the first position of the ship.
+	 * @param col An integer that represents the column of the first position of the ship.
+	 * @param size An integer that holds the size of the ship.
+	 * @param dir An integer that is Constants.HORIZONTAL or Constants.VERTICAL.
+	 */
+	synchronized void shipPlaced(int row, int col, int size, int dir) {
+		record(SHIP, row, col, size, dir);
+	}
+
+	/**
+	 * This method records a move the opponent made on the player's grid.
+	 *
+	 * @param row An integer that represents the row of the move.
+	 * @param col An integer that represents the column of the move.
+	 */
+	synchronized void moveMade(int row, int col) {
+		record(MOVE, row, col);
+	}
+
+	/**
+	 * This method records the result of a move the player made.
+	 *
+	 * @param row An integer that represents the row of the move.
+	 * @param col An integer that represents the column of the move.
+	 * @param result A constant that determines if the move was a hit or a miss.
+	 */
+	synchronized void shotResolved(int row, int col, POSITION_RESULT result) {
+		record(SHOT_RESULT, row, col, result.getCode());
+	}
+
+	/**
+	 * This method records that a move the player made sank a ship.
+	 *
+	 * @param ship An integer that represents the order the opponent placed the ship in.
+	 */
+	synchronized void shipSunk(int ship) {
+		record(SHIP_SUNK, ship);
+	}
+
+	/**
+	 * This method records a whole grid the opponent sent.
+	 *
+	 * @param grid A grid of constants that the opponent sent.
+	 * @param gameEnded A boolean value that determines if the grid reveals the opponent's ships.
+	 */
+	synchronized void opponentGridUpdated(POSITION_RESULT[][] grid, boolean gameEnded) {
+		record(OPPONENT_GRID, gameEnded ? 1 : 0);
+		try {
+			BattleshipCodec.writeGrid(pendingOutput, grid);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * This method records the fleet the opponent showed at the end of the game.
+	 *
+	 * @param origins Point objects that hold the x and y position of the front of each ship.
+	 * @param directions Integers that determine the direction of each ship.
+	 */
+	synchronized void opponentFleetRevealed(Point[] origins, int[] directions) {
+		int ships = Math.min(origins.length, directions.length);
+		int[] values = new int[1 + 3 * ships];
+		values[0] = ships;
+		for (int ship = 0; ship < ships; ship++) {
+			values[1 + 3 * ship] = origins[ship].y;
+			values[2 + 3 * ship] = origins[ship].x;
+			values[3 + 3 * ship] = directions[ship];
+		}
+		record(OPPONENT_FLEET, values);
+	}
+
+	/**
+	 * This private method adds a record to the batch that is waiting to be
+	 * written and wakes the committer. The caller holds the lock.
+	 *
+	 * @param tag An integer that represents the kind of record.
+	 * @param values The values of the record.
+	 */
+	private void record(int tag, int... values) {
+		if (closed) {
+			return;
+		}
+		pending.write(tag);
+		for (int value : values) {
+			while ((value & ~0x7F) != 0) {
+				pending.write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			pending.write(value);
+		}
+		appended++;
+		notifyAll();
+	}
+
+	/**
+	 * This private method is run by the committer thread. It waits for records,
+	 * gives more records a moment to join them unless a thread is waiting in
+	 * sync, then writes them as one batch and forces the file to the disk once.
+	 *
+	 */
+	private void commitLoop() {
+		while (true) {
+			byte[] batch;
+			long target;
+			synchronized (this) {
+				try {
+					while (appended == durable && !closed) {
+						wait();
+					}
+					long deadline = System.nanoTime() + commitNanos;
+					long left = commitNanos;
+					while (!syncRequested && !closed && pending.size() < COMMIT_BYTES && left > 0) {
+						wait(left / 1000000L, (int) (left % 1000000L));
+						left = deadline - System.nanoTime();
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (appended == durable) {
+					return;
+				}
+				batch = pending.toByteArray();
+				pending.reset();
+				target = appended;
+				syncRequested = false;
+			}
+
+			try {
+				writeBatch(batch);
+			} catch (IOException e) {
+				synchronized (this) {
+					failure = e;
+					notifyAll();
+				}
+				return;
+			}
+
+			synchronized (this) {
+				durable = target;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * This private method writes a batch of records after its length and
+	 * checksum, and forces it to the disk.
+	 *
+	 * @param batch An array of bytes that holds the records.
+	 * @throws IOException when the file could not be written.
+	 */
+	private void writeBatch(byte[] batch) throws IOException {
+		CRC32 checksum = new CRC32();
+		checksum.update(batch);
+		ByteBuffer buffer = ByteBuffer.allocate(BATCH_HEADER + batch.length);
+		buffer.putInt(batch.length);
+		buffer.putInt((int) checksum.getValue());
+		buffer.put(batch);
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.force(false);
+	}
+
+	/**
+	 * This private method writes the start of a new journal, which holds the
+	 * board and fleet of the match, and forces it to the disk.
+	 *
+	 * @param channel An object that represents the empty file.
+	 * @param config An object that describes the board and fleet of the match.
+	 * @throws IOException when the file could not be written.
+	 */
+	private static void writeHeader(FileChannel channel, GameConfig config) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(header(config));
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.force(false);
+	}
+
+	/**
+	 * This private method returns the bytes at the start of a journal.
+	 *
+	 * @param config An object that describes the board and fleet of the match.
+	 * @return An array of bytes that holds the start of the journal.
+	 * @throws IOException when the bytes could not be written.
+	 */
+	private static byte[] header(GameConfig config) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		BattleshipCodec.writeVarint(out, config.getSize());
+		BattleshipCodec.writeVarint(out, config.getShipCount());
+		for (int i = 0; i < config.getShipCount(); i++) {
+			BattleshipCodec.writeVarint(out, config.getShipSize(i));
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * This private method reads the start of a journal.
+	 *
+	 * @param in An object that the journal is read from.
+	 * @return the config of the match.
+	 * @throws IOException when the input could not be read or is not a journal.
+	 */
+	private static GameConfig readHeader(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("The file is not a match journal.");
+		}
+		int version = in.readUnsignedByte();
+		if (version != VERSION) {
+			throw new IOException("Unsupported journal version " + version + ".");
+		}
+		int size = BattleshipCodec.readVarint(in);
+		int ships = BattleshipCodec.readVarint(in);
+		if (size > GameConfig.MAX_SIZE || ships > size * size) {
+			throw new IOException("The journal's fleet is not valid.");
+		}
+		int[] shipSizes = new int[ships];
+		for (int i = 0; i < ships; i++) {
+			shipSizes[i] = BattleshipCodec.readVarint(in);
+		}
+		try {
+			return new GameConfig(size, shipSizes);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("The journal's board and fleet are not valid.", e);
+		}
+	}
+
+	/**
+	 * This private method applies every whole batch of a journal to a model.
+	 * Reading stops at the first batch that is cut off or whose checksum is
+	 * wrong, which is where a crash stopped the last write.
+	 *
+	 * @param channel An object that represents the file, positioned at its start.
+	 * @param model An object that represents the new model of the match.
+	 * @return the position in the file right after the last whole batch.
+	 * @throws IOException when the file could not be read or holds a different match.
+	 */
+	private static long replay(FileChannel channel, BattleshipModel model) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		GameConfig config = readHeader(in);
+		if (!config.equals(model.getConfig())) {
+			throw new IOException("The journal is for " + config + ", not " + model.getConfig() + ".");
+		}
+
+		long end = header(config).length;
+		CRC32 checksum = new CRC32();
+		while (true) {
+			byte[] batch;
+			try {
+				int length = in.readInt();
+				int expected = in.readInt();
+				if (length < 0 || length > channel.size() - end - BATCH_HEADER) {
+					break;
+				}
+				batch = new byte[length];
+				in.readFully(batch);
+				checksum.reset();
+				checksum.update(batch);
+				if ((int) checksum.getValue() != expected) {
+					break;
+				}
+			} catch (EOFException e) {
+				break;
+			}
+			applyBatch(batch, model);
+			end += BATCH_HEADER + batch.length;
+		}
+		return end;
+	}
+
+	/**
+	 * This private method applies the records of one batch to a model, the same
+	 * way the network would have.
+	 *
+	 * @param batch An array of bytes that holds the records.
+	 * @param model An object that represents the model of the match.
+	 * @throws IOException when a record is not valid.
+	 */
+	private static void applyBatch(byte[] batch, BattleshipModel model) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(batch));
+		while (in.available() > 0) {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+			case MATCH_START:
+				model.startMatch(BattleshipCodec.readVarint(in) != 0);
+				break;
+			case SHIP:
+				int row = BattleshipCodec.readVarint(in);
+				int col = BattleshipCodec.readVarint(in);
+				int size = BattleshipCodec.readVarint(in);
+				int dir = BattleshipCodec.readVarint(in);
+				if (!model.getPlacementIndex().fits(row, col, size, dir)) {
+					throw new IOException("A ship of the journal is off the board.");
+				}
+				model.addShip(new Point(col, row), size, dir);
+				break;
+			case MOVE:
+				model.moveResult(readPosition(in, model));
+				break;
+			case SHOT_RESULT:
+				Point coord = readPosition(in, model);
+				int code = BattleshipCodec.readVarint(in);
+				if (code == POSITION_RESULT.EMPTY_CODE || code >= POSITION_RESULT.CODES) {
+					throw new IOException("Position code " + code + " is not valid.");
+				}
+				model.applyShotResult(coord, POSITION_RESULT.fromCode(code));
+				break;
+			case SHIP_SUNK:
+				model.applyShipSunk(BattleshipCodec.readVarint(in));
+				break;
+			case OPPONENT_GRID:
+				boolean gameEnded = BattleshipCodec.readVarint(in) != 0;
+				model.updateOpponentGrid(BattleshipCodec.readGrid(in), gameEnded);
+				break;
+			case OPPONENT_FLEET:
+				int ships = BattleshipCodec.readVarint(in);
+				if (ships > model.getConfig().getShipCount()) {
+					throw new IOException("The opponent's fleet of the journal has too many ships.");
+				}
+				Point[] origins = new Point[ships];
+				int[] directions = new int[ships];
+				for (int ship = 0; ship < ships; ship++) {
+					int originRow = BattleshipCodec.readVarint(in);
+					origins[ship] = new Point(BattleshipCodec.readVarint(in), originRow);
+					directions[ship] = BattleshipCodec.readVarint(in);
+				}
+				model.revealOpponentFleet(origins, directions);
+				break;
+			default:
+				throw new IOException("Unknown journal record " + tag + ".");
+			}
+		}
+	}
+
+	/**
+	 * This private method reads a position and checks that it is on the board.
+	 *
+	 * @param in An object that the position is read from.
+	 * @param model An object that represents the model of the match.
+	 * @return A Point object that holds the x and y position.
+	 * @throws IOException when the input could not be read or the position is off the board.
+	 */
+	private static Point readPosition(DataInputStream in, BattleshipModel model) throws IOException {
+		int row = BattleshipCodec.readVarint(in);
+		int col = BattleshipCodec.readVarint(in);
+		if (!model.getConfig().contains(row, col)) {
+			throw new IOException("A position of the journal is off the board.");
+		}
+		return new Point(col, row);
+	}
+
+}
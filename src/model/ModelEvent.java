@@ -0,0 +1,74 @@
+package model;
+
+import java.awt.Point;
+import java.util.List;
+
+import utilities.POSITION_RESULT;
+
+/**
+ * This interface is the type of every event the BattleshipModel sends to its
+ * listeners. Each kind of change has its own record that only carries what
+ * changed, so a listener never has to compare the whole grid to find out what
+ * happened.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public sealed interface ModelEvent {
+
+	/**
+	 * Sent when the game server paired the player with an opponent.
+	 *
+	 * @param firstTurn A boolean value that determines if the player makes the first move.
+	 */
+	record MatchStarted(boolean firstTurn) implements ModelEvent {
+	}
+
+	/**
+	 * Sent when ships were placed on the player's grid.
+	 *
+	 * @param cells The positions that now hold a ship.
+	 */
+	record ShipPlaced(List<Point> cells) implements ModelEvent {
+	}
+
+	/**
+	 * Sent when the opponent's move on the player's grid was resolved.
+	 *
+	 * @param cell The position of the move.
+	 * @param result A constant that determines if the move was a hit or a miss.
+	 * @param totalHits The hits the player's fleet has taken after the move.
+	 * @param sunkShip The order the ship the move sank was placed in, or -1 if no ship was sunk.
+	 */
+	record ShotResolved(Point cell, POSITION_RESULT result, int totalHits, int sunkShip) implements ModelEvent {
+	}
+
+	/**
+	 * Sent when positions of the opponent's grid changed, either because a result
+	 * came back or because the opponent's fleet was revealed.
+	 *
+	 * @param cells The positions of the opponent's grid that changed.
+	 */
+	record OpponentGridChanged(List<Point> cells) implements ModelEvent {
+	}
+
+	/**
+	 * Sent when the opponent said that the player's move sank one of its ships.
+	 *
+	 * @param ship The order the ship was placed in by the opponent.
+	 */
+	record OpponentShipSunk(int ship) implements ModelEvent {
+	}
+
+	/**
+	 * Sent once when the game is over for the player.
+	 *
+	 * @param won A boolean value that is true if the opponent's fleet was destroyed and
+	 * false if the player's fleet was.
+	 */
+	record GameEnded(boolean won) implements ModelEvent {
+	}
+
+}
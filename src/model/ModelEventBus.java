@@ -0,0 +1,208 @@
+package model;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+/**
+ * This class delivers the events of a BattleshipModel to its listeners. Each
+ * listener is added with the executor it wants to be called on, for example the
+ * JavaFX thread, and has its own queue of events. Publishing an event never
+ * waits for a listener: the event is queued, and a delivery is only handed to
+ * the executor if one isn't already waiting. Every event that was queued by the
+ * time the delivery runs is given to the listener as one batch, and events that
+ * only add positions are merged with the same kind of event right before them, so
+ * several changes in one tick cause one call without changing the order of events.
+ * A listener that is added without an executor isn't queued at all: it is called
+ * right away on the thread that published the event, which the network relies on
+ * to answer a move before anything else happens. The time each call takes and the
+ * number of events that were waiting for it are measured.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class ModelEventBus {
+
+	private static final LatencyHistogram DISPATCH_TIME = MetricsRegistry.getDefault().histogram("model.dispatch.nanos");
+	private static final LatencyHistogram DISPATCH_BATCH = MetricsRegistry.getDefault().histogram("model.dispatch.batch");
+
+	private CopyOnWriteArrayList<Subscription> subscriptions;
+
+	/**
+	 * ModelEventBus constructor.
+	 */
+	public ModelEventBus() {
+		subscriptions = new CopyOnWriteArrayList<Subscription>();
+	}
+
+	/**
+	 * This method adds a listener that is called on the given executor.
+	 *
+	 * @param listener An object that will be given the events.
+	 * @param executor An object that runs the deliveries to the listener.
+	 */
+	public void subscribe(ModelListener listener, Executor executor) {
+		subscriptions.add(new Subscription(listener, executor));
+	}
+
+	/**
+	 * This method adds a listener that is called right away by the thread
+	 * that changed the model.
+	 *
+	 * @param listener An object that will be given the events.
+	 */
+	public void subscribe(ModelListener listener) {
+		subscriptions.add(new Subscription(listener, null));
+	}
+
+	/**
+	 * This method removes a listener. Events that were already queued for it
+	 * may still be delivered.
+	 *
+	 * @param listener An object that was given the events.
+	 */
+	public void unsubscribe(ModelListener listener) {
+		subscriptions.removeIf((Subscription s) -> s.listener == listener);
+	}
+
+	/**
+	 * This method queues an event for every listener.
+	 *
+	 * @param event An object that represents the change to the model.
+	 */
+	public void publish(ModelEvent event) {
+		for (Subscription subscription : subscriptions) {
+			subscription.offer(event);
+		}
+	}
+
+	/**
+	 * This private method merges the events of a batch that only add positions
+	 * with the event of the same kind right before them, so a run of them becomes
+	 * one event and every event keeps its place in the order.
+	 *
+	 * @param batch A list of events in the order they happened.
+	 * @return A list of events where each run of events that add positions was merged.
+	 */
+	private static List<ModelEvent> coalesce(List<ModelEvent> batch) {
+		if (batch.size() == 1) {
+			return batch;
+		}
+		List<ModelEvent> merged = new ArrayList<ModelEvent>(batch.size());
+
+		// The positions of the last event that was added, if it adds positions.
+		List<Point> cells = null;
+		for (ModelEvent event : batch) {
+			ModelEvent previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+			if (event instanceof ModelEvent.ShipPlaced placed) {
+				if (!(previous instanceof ModelEvent.ShipPlaced)) {
+					cells = new ArrayList<Point>();
+					merged.add(new ModelEvent.ShipPlaced(cells));
+				}
+				cells.addAll(placed.cells());
+			} else if (event instanceof ModelEvent.OpponentGridChanged changed) {
+				if (!(previous instanceof ModelEvent.OpponentGridChanged)) {
+					cells = new ArrayList<Point>();
+					merged.add(new ModelEvent.OpponentGridChanged(cells));
+				}
+				cells.addAll(changed.cells());
+			} else {
+				merged.add(event);
+			}
+		}
+		return merged;
+	}
+
+	/**
+	 * This private class holds a listener, its executor and the events that
+	 * were not delivered to it yet. A subscription without an executor gives
+	 * each event to its listener right away instead.
+	 *
+	 */
+	private static class Subscription {
+
+		private ModelListener listener;
+
+		private Executor executor;
+
+		private ConcurrentLinkedQueue<ModelEvent> queue;
+
+		// Determines if a delivery was handed to the executor and hasn't finished.
+		private AtomicBoolean scheduled;
+
+		/**
+		 * Subscription constructor.
+		 *
+		 * @param listener An object that will be given the events.
+		 * @param executor An object that runs the deliveries to the listener, or null
+		 * to call the listener on the thread that published the event.
+		 */
+		Subscription(ModelListener listener, Executor executor) {
+			this.listener = listener;
+			this.executor = executor;
+			this.queue = new ConcurrentLinkedQueue<ModelEvent>();
+			this.scheduled = new AtomicBoolean(false);
+		}
+
+		/**
+		 * This method queues an event and schedules a delivery if one isn't
+		 * already waiting, or calls the listener right away if the subscription
+		 * has no executor.
+		 *
+		 * @param event An object that represents the change to the model.
+		 */
+		void offer(ModelEvent event) {
+			if (executor == null) {
+				DISPATCH_BATCH.record(1);
+				long start = System.nanoTime();
+				listener.onEvents(List.of(event));
+				DISPATCH_TIME.recordSince(start);
+				return;
+			}
+			queue.add(event);
+			if (scheduled.compareAndSet(false, true)) {
+				executor.execute(this::deliver);
+			}
+		}
+
+		/**
+		 * This method gives every queued event to the listener as one batch.
+		 * Only one delivery runs at a time, so the listener sees the events in
+		 * order. An event that was queued while the listener ran gets a new
+		 * delivery.
+		 *
+		 */
+		private void deliver() {
+			List<ModelEvent> batch = new ArrayList<ModelEvent>();
+			ModelEvent event = queue.poll();
+			while (event != null) {
+				batch.add(event);
+				event = queue.poll();
+			}
+			try {
+				if (!batch.isEmpty()) {
+					DISPATCH_BATCH.record(batch.size());
+					long start = System.nanoTime();
+					listener.onEvents(coalesce(batch));
+					DISPATCH_TIME.recordSince(start);
+				}
+			} finally {
+				scheduled.set(false);
+				if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+					executor.execute(this::deliver);
+				}
+			}
+		}
+
+	}
+
+}
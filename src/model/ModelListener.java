@@ -0,0 +1,26 @@
+package model;
+
+import java.util.List;
+
+/**
+ * This interface is implemented by anything that wants to be told when the
+ * BattleshipModel changes. Events are given to the listener in batches, so
+ * several changes that happen close together only cause a single call.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public interface ModelListener {
+
+	/**
+	 * This method is called with every event that happened since the last
+	 * call, in the order they happened. It is called on the executor that the
+	 * listener was added with.
+	 *
+	 * @param events A list of the events in the batch.
+	 */
+	void onEvents(List<ModelEvent> events);
+
+}
@@ -0,0 +1,172 @@
+package model;
+
+import java.awt.Point;
+
+import utilities.POSITION_RESULT;
+
+/**
+ * This class is a copy of everything a BattleshipModel held at one moment. A
+ * snapshot never changes after it is made, so a thread can read all of its
+ * grids and counts and know that they belong together, even while another
+ * thread keeps changing the model. The grids are built from the copied bits
+ * when they are asked for.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class ModelSnapshot {
+
+	private Bitboard grids;
+
+	private int totalHits;
+
+	private Point lastMove;
+
+	private POSITION_RESULT lastResult;
+
+	/**
+	 * ModelSnapshot constructor.
+	 *
+	 * @param grids A bitboard holding a copy of the model's layers.
+	 * @param totalHits An integer that represents the hits the player's fleet has taken.
+	 * @param lastMove A Point object that holds the last move made on the player's grid.
+	 * @param lastResult A constant that represents the result of the last move.
+	 */
+	ModelSnapshot(Bitboard grids, int totalHits, Point lastMove, POSITION_RESULT lastResult) {
+		this.grids = grids;
+		this.totalHits = totalHits;
+		this.lastMove = lastMove;
+		this.lastResult = lastResult;
+	}
+
+	/**
+	 * Returns the current player's grid.
+	 *
+	 * @return the current player's grid.
+	 */
+	public POSITION_RESULT[][] getPlayerProgressGrid() {
+		return toGrid(BattleshipModel.SHIPS, false);
+	}
+
+	/**
+	 * Returns a grid that contains the locations of all the ships
+	 * before there was any attacks.
+	 *
+	 * @return a grid that contains the locations of all the ships.
+	 */
+	public POSITION_RESULT[][] getPlayerAnswerGrid() {
+		int size = grids.getSize();
+		POSITION_RESULT[][] grid = new POSITION_RESULT[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (grids.get(BattleshipModel.SHIPS, i, j)) {
+					grid[i][j] = POSITION_RESULT.SHIP;
+				}
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * Returns a grid that contains the locations of all the attacks
+	 * the current player had made to the opposing player's grid.
+	 *
+	 * @return a grid that contains the locations of all the attacks
+	 * the current player had made to the opposing player's grid.
+	 */
+	public POSITION_RESULT[][] getOpponentGrid() {
+		return toGrid(BattleshipModel.OPPONENT_SHIPS, true);
+	}
+
+	/**
+	 * Returns what is at one position of the current player's grid, without 
+	 * building the whole grid.
+	 *
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A constant that describes the position, or null if it is empty.
+	 */
+	public POSITION_RESULT getPlayerPosition(int row, int col) {
+		return position(BattleshipModel.SHIPS, false, row, col);
+	}
+
+	/**
+	 * Returns what is at one position of the opposing player's grid, without 
+	 * building the whole grid.
+	 *
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A constant that describes the position, or null if it is empty.
+	 */
+	public POSITION_RESULT getOpponentPosition(int row, int col) {
+		return position(BattleshipModel.OPPONENT_SHIPS, true, row, col);
+	}
+
+	/**
+	 * Returns the total amount of hits the current user's fleet has taken.
+	 *
+	 * @return the total hits the current player's fleet has taken.
+	 */
+	public int getTotalHits() {
+		return this.totalHits;
+	}
+
+	/**
+	 * Returns the position of the last move the opposing player made on the
+	 * current player's grid.
+	 *
+	 * @return A Point object that holds the x and y position of the last move.
+	 */
+	public Point getLastMove() {
+		return this.lastMove;
+	}
+
+	/**
+	 * Returns whether the last move the opposing player made was a hit or a miss.
+	 *
+	 * @return A constant that represents the result of the last move.
+	 */
+	public POSITION_RESULT getLastResult() {
+		return this.lastResult;
+	}
+
+	/**
+	 * This private method builds a grid of constants from the three layers of
+	 * one player's grid.
+	 *
+	 * @param firstLayer An integer that represents the layer holding the ships, which
+	 * is followed by the layers holding the hits and the misses.
+	 * @param opponent A boolean value that determines if the grid is the opponent's,
+	 * where ships are shown over hits and misses.
+	 * @return A new grid of constants that describes the three layers.
+	 */
+	private POSITION_RESULT[][] toGrid(int firstLayer, boolean opponent) {
+		int size = grids.getSize();
+		POSITION_RESULT[][] grid = new POSITION_RESULT[size][size];
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				grid[i][j] = position(firstLayer, opponent, i, j);
+			}
+		}
+		return grid;
+	}
+
+	/**
+	 * This private method finds the constant for one position by reading its
+	 * three layers at once and looking them up in the CellTable.
+	 *
+	 * @param firstLayer An integer that represents the layer holding the ships, which
+	 * is followed by the layers holding the hits and the misses.
+	 * @param opponent A boolean value that determines if the grid is the opponent's.
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A constant that describes the position, or null if it is empty.
+	 */
+	private POSITION_RESULT position(int firstLayer, boolean opponent, int row, int col) {
+		int bits = grids.getLayers(firstLayer, CellTable.LAYERS, row, col);
+		return opponent ? CellTable.opponent(bits) : CellTable.player(bits);
+	}
+
+}
@@ -0,0 +1,279 @@
+package model;
+
+import java.awt.Point;
+
+import utilities.Constants;
+
+/**
+ * This class answers whether a ship can be placed somewhere with a couple of
+ * operations on longs instead of a loop over the positions of the ship. The
+ * positions that are taken are kept twice, once row after row and once column
+ * after column, so the positions of any ship are a run of bits next to each other,
+ * no matter which direction it points in. Checking a ship is then an AND of the
+ * words the run lands in with masks for the run, and those masks are worked out
+ * once for every ship size up to 64 and every place in a word the run can start at.
+ *
+ * Every placement of a ship size on the board is also numbered, so a placement can
+ * be picked at random or every placement can be visited without going through the
+ * positions that can't hold the ship.
+ *
+ * An index is changed by one thread at a time, like during ship placement.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class PlacementIndex {
+
+	private static final int WORD_BITS = 64;
+
+	// Masks of a run of bits, by the size of the run and the bit of the word it starts at.
+	// The second mask holds the part of the run that goes into the next word.
+	private static final long[][] FIRST_WORD = new long[WORD_BITS + 1][WORD_BITS];
+	private static final long[][] SECOND_WORD = new long[WORD_BITS + 1][WORD_BITS];
+
+	static {
+		for (int length = 1; length <= WORD_BITS; length++) {
+			long run = length == WORD_BITS ? -1L : (1L << length) - 1;
+			for (int offset = 0; offset < WORD_BITS; offset++) {
+				FIRST_WORD[length][offset] = run << offset;
+				SECOND_WORD[length][offset] = offset == 0 ? 0 : run >>> (WORD_BITS - offset);
+			}
+		}
+	}
+
+	private final int size;
+
+	// Taken positions, row after row and column after column. Each has one spare word
+	// so that a run at the end of the board can always read the word after it.
+	private final long[] byRow;
+	private final long[] byColumn;
+
+	/**
+	 * PlacementIndex constructor.
+	 *
+	 * @param size An integer that represents the number of positions on each side
+	 * of the board.
+	 */
+	public PlacementIndex(int size) {
+		this.size = size;
+		int words = (size * size + WORD_BITS - 1) / WORD_BITS + 1;
+		this.byRow = new long[words];
+		this.byColumn = new long[words];
+	}
+
+	/**
+	 * Returns the number of positions on each side of the board.
+	 *
+	 * @return the number of positions on each side of the board.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Determines if a ship placed at a position stays on the board.
+	 *
+	 * @param row An integer that represents the row of the first position of the ship.
+	 * @param col An integer that represents the column of the first position of the ship.
+	 * @param length An integer that represents the size of the ship.
+	 * @param dir An integer that is Constants.HORIZONTAL or Constants.VERTICAL.
+	 * @return A boolean value that determines if the whole ship is on the board.
+	 */
+	public boolean fits(int row, int col, int length, int dir) {
+		if (row < 0 || col < 0 || row >= size || col >= size || length < 1) {
+			return false;
+		}
+		if (dir == Constants.HORIZONTAL) {
+			return col + length <= size;
+		}
+		return row + length <= size;
+	}
+
+	/**
+	 * Determines if none of the positions a ship would cover are taken. The ship
+	 * must fit on the board.
+	 *
+	 * @param row An integer that represents the row of the first position of the ship.
+	 * @param col An integer that represents the column of the first position of the ship.
+	 * @param length An integer that represents the size of the ship.
+	 * @param dir An integer that is Constants.HORIZONTAL or Constants.VERTICAL.
+	 * @return A boolean value that determines if every position of the ship is free.
+	 */
+	public boolean isFree(int row, int col, int length, int dir) {
+		long[] bits = dir == Constants.HORIZONTAL ? byRow : byColumn;
+		int start = runStart(row, col, dir);
+		if (length <= WORD_BITS) {
+			int word = start / WORD_BITS;
+			int offset = start % WORD_BITS;
+			return ((bits[word] & FIRST_WORD[length][offset])
+					| (bits[word + 1] & SECOND_WORD[length][offset])) == 0;
+		}
+		return countRun(bits, start, length) == 0;
+	}
+
+	/**
+	 * Returns how many of the positions a ship would cover are taken. The ship
+	 * must fit on the board.
+	 *
+	 * @param row An integer that represents the row of the first position of the ship.
+	 * @param col An integer that represents the column of the first position of the ship.
+	 * @param length An integer that represents the size of the ship.
+	 * @param dir An integer that is Constants.HORIZONTAL or Constants.VERTICAL.
+	 * @return the number of taken positions under the ship.
+	 */
+	public int countTaken(int row, int col, int length, int dir) {
+		long[] bits = dir == Constants.HORIZONTAL ? byRow : byColumn;
+		int start = runStart(row, col, dir);
+		if (length <= WORD_BITS) {
+			int word = start / WORD_BITS;
+			int offset = start % WORD_BITS;
+			return Long.bitCount(bits[word] & FIRST_WORD[length][offset])
+					+ Long.bitCount(bits[word + 1] & SECOND_WORD[length][offset]);
+		}
+		return countRun(bits, start, length);
+	}
+
+	/**
+	 * Determines if a single position is taken.
+	 *
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A boolean value that determines if the position is taken.
+	 */
+	public boolean isTaken(int row, int col) {
+		int index = row * size + col;
+		return (byRow[index / WORD_BITS] & (1L << index)) != 0;
+	}
+
+	/**
+	 * This method marks every position of a ship as taken. The ship must fit on
+	 * the board.
+	 *
+	 * @param row An integer that represents the row of the first position of the ship.
+	 * @param col An integer that represents the column of the first position of the ship.
+	 * @param length An integer that represents the size of the ship.
+	 * @param dir An integer that is Constants.HORIZONTAL or Constants.VERTICAL.
+	 */
+	public void take(int row, int col, int length, int dir) {
+		for (int i = 0; i < length; i++) {
+			if (dir == Constants.HORIZONTAL) {
+				take(row, col + i);
+			} else {
+				take(row + i, col);
+			}
+		}
+	}
+
+	/**
+	 * This method marks a single position as taken.
+	 *
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 */
+	public void take(int row, int col) {
+		int index = row * size + col;
+		byRow[index / WORD_BITS] |= 1L << index;
+		index = col * size + row;
+		byColumn[index / WORD_BITS] |= 1L << index;
+	}
+
+	/**
+	 * This method marks every position as free.
+	 *
+	 */
+	public void clear() {
+		for (int i = 0; i < byRow.length; i++) {
+			byRow[i] = 0;
+			byColumn[i] = 0;
+		}
+	}
+
+	/**
+	 * Returns the number of placements of a ship size that fit on the board.
+	 * A ship of size one is only counted once, since both of its directions cover
+	 * the same position.
+	 *
+	 * @param length An integer that represents the size of the ship.
+	 * @return the number of placements.
+	 */
+	public int getPlacementCount(int length) {
+		if (length < 1 || length > size) {
+			return 0;
+		}
+		int perDirection = size * (size - length + 1);
+		return length == 1 ? perDirection : 2 * perDirection;
+	}
+
+	/**
+	 * Returns the first position of a numbered placement. Placements are numbered
+	 * from 0 to getPlacementCount(length) - 1, with the horizontal ones first.
+	 *
+	 * @param length An integer that represents the size of the ship.
+	 * @param number An integer that represents the number of the placement.
+	 * @return A Point object that holds the x and y position of the first position.
+	 */
+	public Point getPlacementOrigin(int length, int number) {
+		int starts = size - length + 1;
+		int perDirection = size * starts;
+		if (number < perDirection) {
+			return new Point(number % starts, number / starts);
+		}
+		number -= perDirection;
+		return new Point(number / starts, number % starts);
+	}
+
+	/**
+	 * Returns the direction of a numbered placement.
+	 *
+	 * @param length An integer that represents the size of the ship.
+	 * @param number An integer that represents the number of the placement.
+	 * @return Constants.HORIZONTAL or Constants.VERTICAL.
+	 */
+	public int getPlacementDirection(int length, int number) {
+		if (number < size * (size - length + 1)) {
+			return Constants.HORIZONTAL;
+		}
+		return Constants.VERTICAL;
+	}
+
+	/**
+	 * This private method returns the bit a ship's run starts at.
+	 *
+	 * @param row An integer that represents the row of the first position of the ship.
+	 * @param col An integer that represents the column of the first position of the ship.
+	 * @param dir An integer that is Constants.HORIZONTAL or Constants.VERTICAL.
+	 * @return the bit the run starts at.
+	 */
+	private int runStart(int row, int col, int dir) {
+		if (dir == Constants.HORIZONTAL) {
+			return row * size + col;
+		}
+		return col * size + row;
+	}
+
+	/**
+	 * This private method counts the taken positions of a run that is longer than
+	 * a word, one word at a time.
+	 *
+	 * @param bits An array that holds the taken positions in the direction of the run.
+	 * @param start An integer that represents the bit the run starts at.
+	 * @param length An integer that represents the number of bits in the run.
+	 * @return the number of taken positions in the run.
+	 */
+	private int countRun(long[] bits, int start, int length) {
+		int taken = 0;
+		int end = start + length;
+		int position = start;
+		while (position < end) {
+			int word = position / WORD_BITS;
+			int offset = position % WORD_BITS;
+			int run = Math.min(WORD_BITS - offset, end - position);
+			taken += Long.bitCount(bits[word] & FIRST_WORD[run][offset]);
+			position += run;
+		}
+		return taken;
+	}
+
+}
@@ -1,15 +1,22 @@
 package players;
 
 import java.awt.Point;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.net.ConnectException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
-import java.util.Observable;
-import java.util.Observer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
@@ -30,11 +37,20 @@ import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import model.BattleshipModel;
+import model.FleetGenerator;
+import model.MatchJournal;
+import model.ModelEvent;
+import model.ModelListener;
+import model.ModelSnapshot;
 import controller.BattleshipController;
+import metrics.MetricsExporter;
+import metrics.MetricsRegistry;
 import utilities.BattleshipMessage;
 import utilities.BattleshipNetwork;
 import utilities.Constants;
+import utilities.GameConfig;
 import utilities.IllegalPlacementException;
+import utilities.NetworkExecutor;
 import utilities.POSITION_RESULT;
 
 /**
@@ -59,21 +75,29 @@ import utilities.POSITION_RESULT;
  * 
  * Here is the command line argument structure when starting the program: (server or client) (port number).
  * 
+ * To play on a headless game server instead, use: join (host) (port number). The game server
+ * pairs the player with the next player that joins and decides who moves first.
+ * 
  * ** Note ** You need two process to play the game, so you must run the program twice. 
  * 
  * ** Note ** You must create the server(player 1) process first or else the game wouldn't start.
  * 
+ * With the "battleship.journal" property set to a file, the match is recorded in a 
+ * MatchJournal. If the file already holds a match, the board, fleet and every move 
+ * of it are read back before the window opens.
+ * 
  * @author Luke Genova
  * @author Amimul Ehsan Zoha
  *
  */
-public class Battleship extends Application implements Observer{
+public class Battleship extends Application implements ModelListener{
+	
+	// Counts the errors the view runs into while sending and connecting.
+	private static final LongAdder ERRORS = MetricsRegistry.getDefault().counter("view.errors");
 	
 	// Determines the gap space between the various nodes in the scene.
 	private static final int HBOX_GAP = 30;
 	
-	private static final int RECT_SIZE = 50;
-	
 	private static final int SCENE_WIDTH = 1100;
 	private static final int SCENE_HEIGHT = 800;
 	
@@ -104,14 +128,37 @@ public class Battleship extends Application implements Observer{
 	private static final Color UNIQUE_BLUE = Color.rgb(3, 26, 141);
 	
 	private static final Color UNIQUE_GREEN = Color.rgb(57, 255, 20);
+	
+	// Color of a position, by the code of what is there.
+	private static final Color[] POSITION_COLORS = new Color[POSITION_RESULT.CODES];
+	
+	static {
+		POSITION_COLORS[POSITION_RESULT.EMPTY_CODE] = UNIQUE_BLUE;
+		POSITION_COLORS[POSITION_RESULT.SHIP.getCode()] = UNIQUE_GRAY;
+		POSITION_COLORS[POSITION_RESULT.HIT.getCode()] = Color.RED;
+		POSITION_COLORS[POSITION_RESULT.MISS.getCode()] = Color.WHITE;
+	}
 		
+	// The board and fleet, chosen by the "battleship.size" and "battleship.fleet" properties
+	// or read from the journal.
+	private GameConfig config;
+	
 	// Controller and Model
-	private BattleshipModel model = new BattleshipModel();
-	private BattleshipController controller = new BattleshipController(model);
+	private BattleshipModel model;
+	private BattleshipController controller;
+	
+	// Journal the model is recorded in, or null.
+	private MatchJournal journal;
 		
 	// Reference to the grids.
-	private Rectangle[][] gridOne  = new Rectangle[Constants.GRID_SIZE][Constants.GRID_SIZE];
-	private Rectangle[][] gridTwo = new Rectangle[Constants.GRID_SIZE][Constants.GRID_SIZE];
+	private Rectangle[][] gridOne;
+	private Rectangle[][] gridTwo;
+	
+	// Size of a position on the screen, so that the whole board fits in the grid pane.
+	private int rectSize;
+		
+	// Positions of the player's grid that show where the next ship would be placed.
+	private List<Rectangle> previewCells = new ArrayList<Rectangle>();
 		
 		// Keeps track of how many ships were placed.
 	private int shipsPlaced = 0;
@@ -119,8 +166,11 @@ public class Battleship extends Application implements Observer{
 	// Keeps track of the direction of a specific ship.
 	private int shipDirection = Constants.VERTICAL;
 	
+	// Runs the network session, using the mode chosen by the "battleship.executor" property.
+	private NetworkExecutor executor = NetworkExecutor.fromProperty();
+	
 	// Used to send messages to the other player.
-	private ObjectOutputStream mainOutput;
+	private BattleshipNetwork network;
 	
 	// Keeps track of the current player's turn.
 	private boolean myTurn;
@@ -136,17 +186,27 @@ public class Battleship extends Application implements Observer{
 	 */
 	public static void main(String[] args) {
 		String computer = args[0].toLowerCase();
-		if (args.length == 2) {
-			int portNumber = Integer.valueOf(args[1]);
-			if (computer.equals("server")) {
-				launch(Battleship.class, Integer.toString(portNumber+1));
-			} else if (computer.equals(computer)){
-				launch(Battleship.class,Integer.toString(portNumber+2));
+		MetricsExporter metrics = new MetricsExporter(MetricsRegistry.getDefault());
+		try {
+			metrics.start();
+			if (args.length == 3 && computer.equals("join")) {
+				launch(Battleship.class, "join", args[1], args[2]);
+			} else if (args.length == 2) {
+				int portNumber = Integer.valueOf(args[1]);
+				if (computer.equals("server")) {
+					launch(Battleship.class, Integer.toString(portNumber+1));
+				} else if (computer.equals(computer)){
+					launch(Battleship.class,Integer.toString(portNumber+2));
+				} else {
+					System.out.println("Command line argument invalid.");
+				}
 			} else {
 				System.out.println("Command line argument invalid.");
 			}
-		} else {
-			System.out.println("Command line argument invalid.");
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			metrics.close();
 		}
 		
 	}
@@ -154,8 +214,9 @@ public class Battleship extends Application implements Observer{
 	/**
 	 * This private method creates the server(player 1) of the game and waits
 	 * for the client to establish a connection. Once connected, the game will
-	 * start between the server and the client. This method also creates the 
-	 * instance's own thread which takes in output from the other player.
+	 * start between the server and the client. This method also gives the 
+	 * executor the instance's own session which takes in output from the other player.
+	 * The server keeps listening so the client can come back if the connection drops.
 	 * 
 	 * @param portNumber An integer that represents the port number of the connection.
 	 */
@@ -164,13 +225,15 @@ public class Battleship extends Application implements Observer{
 		try {
 			server = new ServerSocket(portNumber);
 			Socket connection = server.accept();
-			mainOutput = new ObjectOutputStream(connection.getOutputStream());
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
 			myTurn = true;
-			BattleshipNetwork network = new BattleshipNetwork(connection,controller,mainOutput);
-			Thread thread = new Thread(network);
-			thread.start();
+			network = BattleshipNetwork.open(connection,controller,output);
+			network.setJournal(journal);
+			network.listen(server);
+			executor.execute(network);
 			
 		} catch (IOException e) {
+			ERRORS.increment();
 			e.printStackTrace();
 		}
 	}
@@ -178,78 +241,144 @@ public class Battleship extends Application implements Observer{
 	/**
 	 * This private method creates the client(player 2) of the game which is 
 	 * needed to start the game. Once connected, the game will
-	 * start between the server and the client. This method also creates the 
-	 * instance's own thread which takes in output from the other player.
+	 * start between the server and the client. This method also gives the 
+	 * executor the instance's own session which takes in output from the other player.
+	 * If the connection drops, the client connects to the server again.
 	 * 
 	 * @param portNumber An integer that represents the port number of the connection.
 	 */
 	private void makeClient(int portNumber) {
 		try {
 			Socket server = new Socket("localhost", portNumber);
-			mainOutput = new ObjectOutputStream(server.getOutputStream());
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(server.getOutputStream()));
 			myTurn = false;
-			BattleshipNetwork network = new BattleshipNetwork(server,controller,mainOutput);
-			Thread thread = new Thread(network);
-			thread.start();
+			network = BattleshipNetwork.open(server,controller,output);
+			network.setJournal(journal);
+			network.setReconnector(() -> new Socket("localhost", portNumber));
+			executor.execute(network);
 			
 		} catch (ConnectException e) {
 			System.out.println("Connection Failed. Need player 1 to start the game.");
 		} catch (IOException e) {
+			ERRORS.increment();
 			e.printStackTrace();
 		} 
 	}
 
 	/**
-	 * This method is called when the Observed object has changed and 
-	 * notifies the observer. This method also notifies the other player 
-	 * thats connected when there is a change to itself.  
+	 * This private method connects the player to a headless game server. The 
+	 * game server pairs the player with an opponent and sends a message that 
+	 * says which player moves first, so the player can't make a move until then.
+	 * This method also gives the executor the instance's own session which takes 
+	 * in output from the other player. If the connection drops, the player 
+	 * connects to the game server again and goes back to the same match.
 	 * 
-	 * @param o the observable object.
-	 * @param arg this argument contains the changed object.
+	 * @param host A string that represents the host name of the game server.
+	 * @param portNumber An integer that represents the port number of the game server.
+	 */
+	private void makeJoin(String host, int portNumber) {
+		try {
+			Socket server = new Socket(host, portNumber);
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(server.getOutputStream()));
+			myTurn = false;
+			network = BattleshipNetwork.open(server,controller,output);
+			network.setJournal(journal);
+			network.setReconnector(() -> new Socket(host, portNumber));
+			executor.execute(network);
+			
+		} catch (ConnectException e) {
+			System.out.println("Connection Failed. The game server is not running.");
+		} catch (IOException e) {
+			ERRORS.increment();
+			e.printStackTrace();
+		} 
+	}
+
+	/**
+	 * This method is called on the JavaFX thread with every event the model 
+	 * published since the last call. The grids are repainted at most once per 
+	 * batch. The network already answered the other player's moves, so this 
+	 * method only gives the turn back to the current player.  
+	 * 
+	 * @param events A list of the events in the order they happened.
 	 *
 	 */
 	@Override
-	public void update(Observable o, Object arg) {
-		BattleshipModel newModel = (BattleshipModel) o; 
-		String str = (String) arg;
-		updatePlayerGrid(newModel.getPlayerProgressGrid());
-		if (str.equals("Move Made.")) {
-			
-			BattleshipMessage message;
-			
-			// If the current player's fleet is destroyed, notify the user and 
-			//the other player and display text.
-			if (controller.isGameOver()) {
-				message = new BattleshipMessage();
-				message.setException("Game over");
-				firstText.setFill(Color.WHITE);
-				secondText.setText("YOU LOSE");
-				secondText.setFill(Color.WHITE);
+	public void onEvents(List<ModelEvent> events) {
+		
+		// Positions that changed in this batch. Only these are repainted.
+		Set<Point> playerCells = new LinkedHashSet<Point>();
+		Set<Point> opponentCells = new LinkedHashSet<Point>();
+		
+		for (ModelEvent event : events) {
+			if (event instanceof ModelEvent.ShipPlaced placed) {
+				playerCells.addAll(placed.cells());
+			} else if (event instanceof ModelEvent.ShotResolved shot) {
+				playerCells.add(shot.cell());
 				
-			} else {
+				// The network already answered the move, which makes it this player's turn.
+				myTurn = true;
+			} else if (event instanceof ModelEvent.MatchStarted started) {
+				myTurn = started.firstTurn();
+			} else if (event instanceof ModelEvent.OpponentGridChanged changed) {
+				opponentCells.addAll(changed.cells());
+			} else if (event instanceof ModelEvent.GameEnded ended) {
 				
-				// Send a message that includes the updated player grid.
-				message = new BattleshipMessage();
-				message.setUpdatedGrid(newModel.getPlayerProgressGrid());
+				// Displays white text saying if the player won or lost.
+				firstText.setFill(Color.WHITE);
+				secondText.setText(ended.won() ? "YOU WIN" : "YOU LOSE");
+				secondText.setFill(Color.WHITE);
 			}
-			
-			
+		}
+		
+		// Every position is read from the same snapshot so they agree with each other.
+		if (!playerCells.isEmpty() || !opponentCells.isEmpty()) {
+			ModelSnapshot snapshot = model.getSnapshot();
+			updatePlayerGrid(snapshot, playerCells);
+			updateOpponentGrid(snapshot, opponentCells);
+		}
+	}
+	
+	/**
+	 * This method is called by JavaFX before the window is made. It makes the 
+	 * model, and if the "battleship.journal" property is set, opens the journal,
+	 * which replays the match it holds into the model before anything listens to it.
+	 * 
+	 * @throws IOException when the journal could not be used.
+	 */
+	@Override
+	public void init() throws IOException {
+		Path file = MatchJournal.fileFromProperty();
+		config = MatchJournal.configOf(file);
+		model = new BattleshipModel(config);
+		if (file != null) {
+			journal = MatchJournal.open(file, model);
+		}
+		controller = new BattleshipController(model);
+		shipsPlaced = model.getShipsPlaced();
+		gridOne = new Rectangle[config.getSize()][config.getSize()];
+		gridTwo = new Rectangle[config.getSize()][config.getSize()];
+		rectSize = Math.max(1, GRID_MAX_SIZE / config.getSize());
+	}
+	
+	/**
+	 * This method is called by JavaFX once the window is closed. The executor
+	 * stops taking sessions, so its threads don't keep the program running, and
+	 * the journal writes the records that are left.
+	 */
+	@Override
+	public void stop() {
+		executor.shutdown();
+		if (journal != null) {
 			try {
-				mainOutput.reset();
-				mainOutput.writeObject(message);
-				myTurn = true;
-			} catch (SocketException e) {
-				e.printStackTrace();
+				journal.close();
 			} catch (IOException e) {
+				ERRORS.increment();
 				e.printStackTrace();
 			}
-		} 
-		if (str.equals("Opponent Grid Updated.")) {
-			updateOpponentGrid(newModel.getOpponentGrid());
-		} 
-		
+		}
 	}
-
+	
 	/**
 	 * The main entry point for all JavaFX applications. 
 	 * 
@@ -258,20 +387,26 @@ public class Battleship extends Application implements Observer{
 	 */
 	@Override
 	public void start(Stage stage) {
-		model.addObserver(this);
+		model.addListener(this, Platform::runLater);
 		
-		String str = this.getParameters().getRaw().get(0);
-		int player = Integer.valueOf(str.charAt(str.length()-1)) % 48;
-		int portNumber = Integer.valueOf(str) - player; 
-		
-		if (player == 1) {
-			makeServer(portNumber);
+		List<String> args = this.getParameters().getRaw();
+		String str = args.get(0);
+		if (str.equals("join")) {
+			makeJoin(args.get(1), Integer.valueOf(args.get(2)));
+			stage.setTitle("Battleship");
 		} else {
-			makeClient(portNumber);
+			int player = Integer.valueOf(str.charAt(str.length()-1)) % 48;
+			int portNumber = Integer.valueOf(str) - player; 
+			
+			if (player == 1) {
+				makeServer(portNumber);
+			} else {
+				makeClient(portNumber);
+			}
+			
+			stage.setTitle("Player " + player);
 		}
 		
-		stage.setTitle("Player " + player);
-		
 		VBox vbox = new VBox();
 		HBox hbox = new HBox(HBOX_GAP);
 		GridPane grid1 = new GridPane();
@@ -300,9 +435,18 @@ public class Battleship extends Application implements Observer{
 		hbox.getChildren().add(grid1);
 		hbox.getChildren().add(grid2);
 		
-		// Add rectangles to grid panes.
+		// Add rectangles to grid panes, showing the match that was read from the journal.
 		setUpGrid(grid1, 1);
 		setUpGrid(grid2, 2);
+		if (journal != null) {
+			ModelSnapshot snapshot = model.getSnapshot();
+			for (int i = 0; i < config.getSize(); i++) {
+				for (int j = 0; j < config.getSize(); j++) {
+					paintPosition(gridOne[i][j], snapshot.getPlayerPosition(i, j));
+					paintPosition(gridTwo[i][j], snapshot.getOpponentPosition(i, j));
+				}
+			}
+		}
 		
 		// Sets a group object as the root node to has text be displayed anywhere.
 		Group root = new Group(vbox);
@@ -368,11 +512,11 @@ public class Battleship extends Application implements Observer{
 	 */
 	private void setUpGrid(GridPane grid, int gridNum) {
 		
-		for (int i = 0; i < Constants.GRID_SIZE; i++) {
-			for (int j = 0; j < Constants.GRID_SIZE; j++) {
+		for (int i = 0; i < config.getSize(); i++) {
+			for (int j = 0; j < config.getSize(); j++) {
 				Rectangle rect = new Rectangle();
-				rect.setWidth(RECT_SIZE);
-				rect.setHeight(RECT_SIZE);
+				rect.setWidth(rectSize);
+				rect.setHeight(rectSize);
 				rect.setFill(UNIQUE_BLUE);
 				rect.setStroke(UNIQUE_GREEN);
 				grid.add(rect, j, i);
@@ -398,33 +542,19 @@ public class Battleship extends Application implements Observer{
 		int MouseY = (int) m.getY();
 		
 		// Stops showing the potential ship placement when all the ships are placed.
-		if (shipsPlaced == Constants.SHIP_SIZES.length) {
+		if (shipsPlaced == config.getShipCount()) {
 			return;
 		}
 		
 		if (MouseX >= GRID_MIN_SIZE && MouseX <= GRID_MAX_SIZE) {
 			if (MouseY >= GRID_MIN_SIZE && MouseY <= GRID_MAX_SIZE) {
-				int newX = Math.floorDiv((MouseX - GRID_MIN_SIZE), RECT_SIZE);
-				int newY = Math.floorDiv((MouseY - GRID_MIN_SIZE), RECT_SIZE);
+				int newX = Math.floorDiv((MouseX - GRID_MIN_SIZE), rectSize);
+				int newY = Math.floorDiv((MouseY - GRID_MIN_SIZE), rectSize);
 				
-				int currentShipSize = Constants.SHIP_SIZES[shipsPlaced];
+				int currentShipSize = config.getShipSize(shipsPlaced);
 				
-				// Makes sure that the current position isn't going out of bounds.
-				if (newX >= Constants.GRID_SIZE || newX < 0) {
-					return;
-				}
-				if (newY >= Constants.GRID_SIZE || newY < 0) {
-					return;
-				}
-				
-				// Handles index out of bound exception by checking if the current ship my go of the board.
-				int max_index = 0;
-				if (shipDirection == Constants.VERTICAL) {
-					max_index = newY + currentShipSize-1;
-				} else {
-					max_index = newX + currentShipSize-1;
-				}
-				if (max_index >= Constants.GRID_SIZE) {
+				// Makes sure that the current ship doesn't go off the board.
+				if (!controller.fitsOnBoard(new Point(newX, newY), currentShipSize, shipDirection)) {
 					return;
 				}
 				
@@ -441,7 +571,7 @@ public class Battleship extends Application implements Observer{
 					} else {
 						temp = newX+i;
 					}
-					if (temp < Constants.GRID_SIZE) {
+					if (temp < config.getSize()) {
 						Rectangle tempRect = null;
 						if (shipDirection == Constants.VERTICAL) {
 							tempRect = gridOne[temp][newX];
@@ -452,6 +582,7 @@ public class Battleship extends Application implements Observer{
 						// Ignores ships that were already placed.
 						if (tempRect.getFill() != UNIQUE_GRAY) {
 							tempRect.setFill(UNIQUE_YELLOW);
+							previewCells.add(tempRect);
 						}
 					}
 				}
@@ -462,22 +593,20 @@ public class Battleship extends Application implements Observer{
 	
 	/**
 	 * This private method is called by the mouseMoved event method that redraws the
-	 * entire grid after the user moved the ship to another spot on the grid. Ignores
-	 * grids that already have a ship placed.
+	 * positions of the previous ship preview after the user moved the ship to another 
+	 * spot on the grid. Ignores grids that already have a ship placed.
 	 * 
 	 */
 	private void restartGrid() {
 		
 		// Remove any changes made by the previous event except for titles that 
 		// shows the ship.
-		for (int i = 0; i < Constants.GRID_SIZE; i++) {
-			for (int j = 0; j < Constants.GRID_SIZE; j++) {
-				Rectangle tempRect = gridOne[i][j];
-				if (tempRect.getFill() != UNIQUE_GRAY) {
-					tempRect.setFill(UNIQUE_BLUE);
-				}
+		for (Rectangle tempRect : previewCells) {
+			if (tempRect.getFill() != UNIQUE_GRAY) {
+				tempRect.setFill(UNIQUE_BLUE);
 			}
 		}
+		previewCells.clear();
 	}
 	
 	/**
@@ -492,7 +621,7 @@ public class Battleship extends Application implements Observer{
 		int MouseY = (int) m.getY();
 		
 		// Stops the user from placing anymore ships on their board.
-		if (shipsPlaced == Constants.SHIP_SIZES.length) {
+		if (shipsPlaced == config.getShipCount()) {
 			return;
 		}
 		
@@ -501,11 +630,11 @@ public class Battleship extends Application implements Observer{
 			if (MouseY >= GRID_MIN_SIZE && MouseY <= GRID_MAX_SIZE) {
 				
 				// Change the coordinate positions into index values. 
-				int newX = Math.floorDiv((MouseX - GRID_MIN_SIZE), RECT_SIZE);
-				int newY = Math.floorDiv((MouseY - GRID_MIN_SIZE), RECT_SIZE);
+				int newX = Math.floorDiv((MouseX - GRID_MIN_SIZE), rectSize);
+				int newY = Math.floorDiv((MouseY - GRID_MIN_SIZE), rectSize);
 				try {
 					Point coord = new Point(newX, newY);
-					controller.addShip(coord, Constants.SHIP_SIZES[shipsPlaced], shipDirection);
+					controller.addShip(coord, config.getShipSize(shipsPlaced), shipDirection);
 					shipsPlaced++;
 				} catch (IllegalPlacementException e) {
 					String message = e.getMessage();
@@ -528,7 +657,7 @@ public class Battleship extends Application implements Observer{
 		int MouseY = (int) m.getY();
 		
 		// Checks that the user placed all of their ships.
-		if (shipsPlaced < Constants.SHIP_SIZES.length) {
+		if (shipsPlaced < config.getShipCount()) {
 			String message = "You must place all of your ships before making a move.";
 			showAlert(message);
 			return;
@@ -545,10 +674,15 @@ public class Battleship extends Application implements Observer{
 			if (MouseY >= GRID_MIN_SIZE && MouseY <= GRID_MAX_SIZE) {
 				
 				// Change the coordinate positions into index values. 
-				int newX = Math.floorDiv((MouseX - GRID_MIN_SIZE), RECT_SIZE);
-				int newY = Math.floorDiv((MouseY - GRID_MIN_SIZE), RECT_SIZE);
+				int newX = Math.floorDiv((MouseX - GRID_MIN_SIZE), rectSize);
+				int newY = Math.floorDiv((MouseY - GRID_MIN_SIZE), rectSize);
 				Point coord = new Point(newX, newY);
 				
+				// Ignores clicks on the edge of the grid pane that are past the last position.
+				if (!config.contains(newY, newX)) {
+					return;
+				}
+				
 				// If its not the player's turn, it doesn't make the move.
 				if (!myTurn) {
 					showAlert("It's not your turn.");
@@ -556,11 +690,8 @@ public class Battleship extends Application implements Observer{
 				}
 				
 				// If the user tries to attack a position the already attacked, an alert is created.
-				if (gridTwo[newY][newX].getFill() == Color.RED) {
-					showAlert("You already attacked this position.");
-					return;
-				}
-				if (gridTwo[newY][newX].getFill() == Color.WHITE) {
+				// The model is asked instead of the color, which may not be painted yet.
+				if (model.getOpponentPosition(newY, newX) != null) {
 					showAlert("You already attacked this position.");
 					return;
 				}
@@ -572,12 +703,13 @@ public class Battleship extends Application implements Observer{
 				
 				// Send a message to the other player that the current player made a move.
 				try {
-					mainOutput.reset();
-					mainOutput.writeObject(message);
+					sendMessage(message);
 					myTurn = false;
 				} catch (SocketException e) {
+					ERRORS.increment();
 					e.printStackTrace();
 				} catch (IOException e) {
+					ERRORS.increment();
 					e.printStackTrace();
 				}
 			}
@@ -588,6 +720,8 @@ public class Battleship extends Application implements Observer{
 	 * This private helper method is an event handler that determines 
 	 * what happens when the user presses the 'r' key. When the user presses the
 	 * 'r' key, the direction the ship that will be placed will be changed. 
+	 * When the user presses the 'f' key before placing any ships, the whole 
+	 * fleet is placed at random.
 	 * 
 	 * @param key A object that represents an key event that resulted from user input
 	 * from their keyboard.
@@ -603,79 +737,78 @@ public class Battleship extends Application implements Observer{
 				} else {
 					shipDirection = Constants.HORIZONTAL;
 				}
+			} else if (input.charAt(0) == 'f' || input.charAt(0) == 'F') {
+				placeRandomFleet();
 			}
 		}
 	}
 	
 	/**
-	 * This private helper method updates the current player's grid based on 
-	 * any changes made in the model.
-	 * 
-	 * @param playerGrid A grid of constant that describe the result of a specific 
-	 * position in the player's grid.
+	 * This private helper method places the whole fleet at random, as long as 
+	 * the user didn't place any ships by hand yet.
 	 */
-	private void updatePlayerGrid(POSITION_RESULT[][] playerGrid) {
-		
-		for (int i = 0; i < Constants.GRID_SIZE; i++) {
-			for (int j = 0; j < Constants.GRID_SIZE; j++) {
-				
-				// Changes the color of a position(rectangle object) based on what was updated.
-				Rectangle position = gridOne[i][j];
-				if (playerGrid[i][j] != null) {
-					String result = playerGrid[i][j].getDescription();
-					if (result.equals("A Ship is here")) {
-						position.setFill(UNIQUE_GRAY);
-					} else if (result.equals("A Ship has been hit")) {
-						position.setFill(Color.RED);
-					} else {
-						position.setFill(Color.WHITE);
-					}
-				} else {
-					position.setFill(UNIQUE_BLUE);
-				}
-			}
+	private void placeRandomFleet() {
+		if (shipsPlaced > 0) {
+			return;
+		}
+		try {
+			controller.placeRandomFleet(new FleetGenerator(config, System.nanoTime()));
+			shipsPlaced = config.getShipCount();
+			restartGrid();
+		} catch (IllegalPlacementException e) {
+			showAlert(e.getMessage());
 		}
-		
 	}
 	
 	/**
-	 * This private helper method updates the opponent's grid based on what the current 
-	 * player did.
+	 * This private helper method updates the positions of the current player's grid 
+	 * that changed in the model.
 	 * 
-	 * @param opponentGrid A grid of constant that describe the result of a specific 
-	 * position in the opposing player's grid.
+	 * @param snapshot An object that holds the grids of the model.
+	 * @param cells The positions that changed.
 	 */
-	private void updateOpponentGrid(POSITION_RESULT[][] opponentGrid) {
-		boolean playerWon = false;
-		for (int i = 0; i < Constants.GRID_SIZE; i++) {
-			for (int j = 0; j < Constants.GRID_SIZE; j++) {
-				
-				Rectangle position = gridTwo[i][j];
-				if (opponentGrid[i][j] != null) {
-					String result = opponentGrid[i][j].getDescription();
-					if (result.equals("A Ship is here")) {
-						position.setFill(UNIQUE_GRAY);
-						playerWon = true;
-					} else if (result.equals("A Ship has been hit")) {
-						position.setFill(Color.RED);
-					} else {
-						position.setFill(Color.WHITE);
-					}
-				} else {
-					position.setFill(UNIQUE_BLUE);
-				}
-				
-			}
+	private void updatePlayerGrid(ModelSnapshot snapshot, Collection<Point> cells) {
+		for (Point cell : cells) {
+			paintPosition(gridOne[cell.y][cell.x], snapshot.getPlayerPosition(cell.y, cell.x));
 		}
-		// This if statement checks if the current player has won the game. 
-		// If so then it displays white text saying that the player won.
-		if (playerWon && !controller.isGameOver()) {
-			firstText.setFill(Color.WHITE);
-			secondText.setText("YOU WIN");
-			secondText.setFill(Color.WHITE);
+	}
+	
+	/**
+	 * This private helper method updates the positions of the opponent's grid that 
+	 * changed because of what the current player did.
+	 * 
+	 * @param snapshot An object that holds the grids of the model.
+	 * @param cells The positions that changed.
+	 */
+	private void updateOpponentGrid(ModelSnapshot snapshot, Collection<Point> cells) {
+		for (Point cell : cells) {
+			paintPosition(gridTwo[cell.y][cell.x], snapshot.getOpponentPosition(cell.y, cell.x));
 		}
 	}
 	
+	/**
+	 * This private helper method changes the color of a position(rectangle object) 
+	 * based on what is there.
+	 * 
+	 * @param position A rectangle that represents the position.
+	 * @param result A constant that describes the position, or null if it is empty.
+	 */
+	private void paintPosition(Rectangle position, POSITION_RESULT result) {
+		position.setFill(POSITION_COLORS[POSITION_RESULT.codeOf(result)]);
+	}
+	
+	/**
+	 * This private helper method sends a message to the other player right away
+	 * through the network, which numbers it so it can be sent again if the 
+	 * connection drops.
+	 * 
+	 * @param message An object that represents the message being sent.
+	 * @throws IOException when the message could not be sent.
+	 */
+	private void sendMessage(BattleshipMessage message) throws IOException {
+		network.send(message);
+	}
+	
 	/**
 	 * This method creates an alert based on what the header 
 	 * states and shows it to the user.
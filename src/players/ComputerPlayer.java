@@ -0,0 +1,363 @@
+package players;
+
+import java.awt.Point;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import controller.BattleshipController;
+import metrics.MetricsExporter;
+import metrics.MetricsRegistry;
+import model.BattleshipModel;
+import model.MatchJournal;
+import model.ModelEvent;
+import model.ModelListener;
+import simulator.GameSimulator;
+import simulator.Strategy;
+import utilities.BattleshipEventLoop;
+import utilities.BattleshipMessage;
+import utilities.BattleshipNetwork;
+import utilities.GameConfig;
+import utilities.POSITION_RESULT;
+import utilities.Reconnector;
+
+/**
+ * This class is a computer opponent that plays against a person over the network.
+ * It doesn't have a GUI, but otherwise it is a player like Battleship: it has its
+ * own model and controller, uses the same BattleshipNetwork, and sends the same
+ * messages, so the other player can't tell that it isn't a person. The moves are
+ * picked by a Strategy from the simulator.
+ *
+ * Here is the command line argument structure when starting the computer player:
+ * (server or client) (port number), or join (host) (port number) to play on the game
+ * server. With host (host) (port number) (games), that many computer players join the
+ * game server at once and are all served by a single BattleshipEventLoop thread. The
+ * strategy is chosen with the "battleship.ai" property and is "probability" when it
+ * isn't set.
+ *
+ * Outside of host, a computer player keeps a MatchJournal when the "battleship.journal"
+ * property names a file. If the file already holds a match, the computer starts from
+ * it: its fleet comes from the journal, its strategy is told what its moves found,
+ * and positions the model already knows are never attacked again.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class ComputerPlayer implements ModelListener {
+
+	private BattleshipModel model;
+	private BattleshipController controller;
+
+	private Strategy strategy;
+
+	private BattleshipNetwork network;
+
+	// The move that is waiting for its result, and the last move that got one.
+	private Point lastMove;
+	private Point resolvedMove;
+
+	// How the connection is opened again, or null for the player that accepted it.
+	private Reconnector reconnector;
+
+	// Socket the other player comes back to, or null for the player that opened the connection.
+	private ServerSocket listener;
+
+	// Journal the model is recorded in, or null.
+	private MatchJournal journal;
+
+	/**
+	 * This is the main method that will run the computer player.
+	 *
+	 * @param args This array of strings represents the command line arguments.
+	 */
+	public static void main(String[] args) {
+		Supplier<Strategy> strategies = GameSimulator.strategy(System.getProperty("battleship.ai", "probability"));
+		MetricsExporter metrics = new MetricsExporter(MetricsRegistry.getDefault());
+		try {
+			metrics.start();
+			Path file = MatchJournal.fileFromProperty();
+			ComputerPlayer player = file == null || args[0].toLowerCase().equals("host")
+					? new ComputerPlayer(GameConfig.fromProperties(), strategies.get(), new Random())
+					: recover(file, strategies.get(), new Random());
+			if (args.length == 4 && args[0].toLowerCase().equals("host")) {
+				InetSocketAddress address = new InetSocketAddress(args[1], Integer.valueOf(args[2]));
+				int finished = host(address, Integer.valueOf(args[3]), strategies);
+				System.out.println(finished + " of " + args[3] + " games were played to the end.");
+			} else if (args.length == 3 && args[0].toLowerCase().equals("join")) {
+				player.setReconnector(() -> new Socket(args[1], Integer.valueOf(args[2])));
+				player.play(new Socket(args[1], Integer.valueOf(args[2])), false);
+			} else if (args.length == 2 && args[0].toLowerCase().equals("server")) {
+				ServerSocket server = new ServerSocket(Integer.valueOf(args[1]));
+				Socket connection = server.accept();
+				player.listen(server);
+				player.play(connection, true);
+			} else if (args.length == 2) {
+				player.setReconnector(() -> new Socket("localhost", Integer.valueOf(args[1])));
+				player.play(new Socket("localhost", Integer.valueOf(args[1])), false);
+			} else {
+				System.out.println("Command line argument invalid.");
+			}
+		} catch (ConnectException e) {
+			System.out.println("Connection Failed. The other player is not running.");
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			metrics.close();
+		}
+	}
+
+	/**
+	 * This method has a number of computer players join the game server at once,
+	 * all served by one event loop, and waits until every game is over.
+	 *
+	 * @param server An object that holds the address of the game server.
+	 * @param games An integer that represents how many computer players join.
+	 * @param strategies An object that makes the strategy of each computer player.
+	 * @return the number of games that were played to the end.
+	 * @throws IOException when a computer player could not connect.
+	 * @throws InterruptedException when the thread is interrupted while it waits.
+	 */
+	public static int host(InetSocketAddress server, int games, Supplier<Strategy> strategies)
+			throws IOException, InterruptedException {
+		BattleshipEventLoop loop = new BattleshipEventLoop();
+		Thread thread = new Thread(loop, "battleship-computers");
+		thread.setDaemon(true);
+		thread.start();
+		BattleshipNetwork[] networks = new BattleshipNetwork[games];
+		try {
+			for (int i = 0; i < games; i++) {
+				ComputerPlayer player = new ComputerPlayer(GameConfig.fromProperties(), strategies.get(), new Random());
+				networks[i] = player.join(SocketChannel.open(server), loop);
+			}
+			int finished = 0;
+			for (BattleshipNetwork network : networks) {
+				if (network.awaitClose(Long.MAX_VALUE)) {
+					finished++;
+				}
+			}
+			return finished;
+		} finally {
+			loop.stop();
+		}
+	}
+
+	/**
+	 * This method makes a computer player that records its match in a journal.
+	 * If the journal already holds a match, the computer goes on with it.
+	 *
+	 * @param file An object that represents the path of the journal.
+	 * @param strategy An object that places the ships and picks the moves.
+	 * @param random An object that the strategy uses for its random choices.
+	 * @return A new computer player whose model is recorded in the journal.
+	 * @throws IOException when the journal could not be used or holds another board.
+	 */
+	public static ComputerPlayer recover(Path file, Strategy strategy, Random random) throws IOException {
+		BattleshipModel model = new BattleshipModel(MatchJournal.configOf(file));
+		MatchJournal journal = MatchJournal.open(file, model);
+		ComputerPlayer player = new ComputerPlayer(model, strategy, random);
+		player.journal = journal;
+		return player;
+	}
+
+	/**
+	 * ComputerPlayer constructor. The fleet is placed right away.
+	 *
+	 * @param config An object that describes the board and fleet of the game.
+	 * @param strategy An object that places the ships and picks the moves.
+	 * @param random An object that the strategy uses for its random choices.
+	 */
+	public ComputerPlayer(GameConfig config, Strategy strategy, Random random) {
+		this(new BattleshipModel(config), strategy, random);
+	}
+
+	/**
+	 * ComputerPlayer constructor for a model that may have been replayed from a
+	 * journal. The fleet is placed right away, unless the model already has it,
+	 * in which case the strategy is told the result of every move the model knows.
+	 *
+	 * @param model An object that represents the model of the computer.
+	 * @param strategy An object that places the ships and picks the moves.
+	 * @param random An object that the strategy uses for its random choices.
+	 */
+	private ComputerPlayer(BattleshipModel model, Strategy strategy, Random random) {
+		this.model = model;
+		this.controller = new BattleshipController(model);
+		this.strategy = strategy;
+		GameConfig config = model.getConfig();
+		strategy.start(config, random);
+		if (model.getShipsPlaced() == 0) {
+			strategy.placeFleet(controller);
+			return;
+		}
+		for (int row = 0; row < config.getSize(); row++) {
+			for (int col = 0; col < config.getSize(); col++) {
+				POSITION_RESULT result = model.getOpponentPosition(row, col);
+				if (result == POSITION_RESULT.HIT || result == POSITION_RESULT.MISS) {
+					strategy.onResult(new Point(col, row), result);
+				}
+			}
+		}
+	}
+
+	/**
+	 * This method sets how the computer opens the connection again if it drops.
+	 * It must be called before the game is played.
+	 *
+	 * @param reconnector An object that opens a new connection to the other player.
+	 */
+	public void setReconnector(Reconnector reconnector) {
+		this.reconnector = reconnector;
+	}
+
+	/**
+	 * This method keeps the socket the other player connected to open during the
+	 * game, so the other player can come back if the connection drops. It must 
+	 * be called before the game is played.
+	 *
+	 * @param server An object that represents the socket the other player connected to.
+	 */
+	public void listen(ServerSocket server) {
+		this.listener = server;
+	}
+
+	/**
+	 * This method plays a game over a connection and returns once it is over.
+	 * The messages are read on the calling thread, and the journal of the
+	 * computer, if it has one, is closed at the end.
+	 *
+	 * @param connection An object that represents the connection to the other player.
+	 * @param firstTurn A boolean value that determines if the computer makes the first move.
+	 * @throws IOException when the connection could not be used.
+	 */
+	public void play(Socket connection, boolean firstTurn) throws IOException {
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+		network = BattleshipNetwork.open(connection, controller, output);
+		network.setJournal(journal);
+		
+		// Added after the network, so the result of a move is sent before the computer's next move.
+		model.addListener(this);
+		network.setReconnector(reconnector);
+		if (listener != null) {
+			network.listen(listener);
+		}
+		if (firstTurn) {
+			makeMove();
+		}
+		try {
+			network.run();
+		} finally {
+			if (journal != null) {
+				journal.close();
+			}
+		}
+	}
+
+	/**
+	 * This method plays a game on the game server over a channel that is served
+	 * by an event loop. It returns right away, and the messages are read by the
+	 * loop's thread, which also makes the computer's moves.
+	 *
+	 * @param connection An object that represents the connection to the game server.
+	 * @param loop An object that represents the loop serving the connection.
+	 * @return An object that represents the network, which can be waited on until the game is over.
+	 * @throws IOException when the connection could not be used.
+	 */
+	public BattleshipNetwork join(SocketChannel connection, BattleshipEventLoop loop) throws IOException {
+		connection.socket().setTcpNoDelay(true);
+		network = BattleshipNetwork.open(connection, controller);
+
+		// Added after the network, so the result of a move is sent before the computer's next move.
+		model.addListener(this);
+		network.register(loop);
+		return network;
+	}
+
+	/**
+	 * Returns the model of the computer player.
+	 *
+	 * @return the model of the computer player.
+	 */
+	public BattleshipModel getModel() {
+		return this.model;
+	}
+
+	/**
+	 * This method is called on the network thread with every change to the model.
+	 * It makes the computer's move once the network answered the move of the other
+	 * player, and tells the strategy the result of each of its moves and the ships
+	 * they sank.
+	 *
+	 * @param events A list of the events in the order they happened.
+	 */
+	@Override
+	public void onEvents(List<ModelEvent> events) {
+		for (ModelEvent event : events) {
+			if (event instanceof ModelEvent.ShotResolved) {
+				if (!controller.isGameOver()) {
+					makeMove();
+				}
+			} else if (event instanceof ModelEvent.MatchStarted started) {
+				if (started.firstTurn()) {
+					makeMove();
+				}
+			} else if (event instanceof ModelEvent.OpponentGridChanged changed) {
+				if (lastMove != null && changed.cells().contains(lastMove)) {
+					POSITION_RESULT result = model.getSnapshot().getOpponentPosition(lastMove.y, lastMove.x);
+					if (result == POSITION_RESULT.HIT || result == POSITION_RESULT.MISS) {
+						strategy.onResult(lastMove, result);
+					}
+					resolvedMove = lastMove;
+					lastMove = null;
+				}
+			} else if (event instanceof ModelEvent.OpponentShipSunk sunk) {
+				if (resolvedMove != null) {
+					strategy.onShipSunk(resolvedMove, sunk.ship());
+				}
+			} else if (event instanceof ModelEvent.GameEnded ended) {
+				System.out.println(ended.won() ? "The computer won." : "The computer lost.");
+			}
+		}
+	}
+
+	/**
+	 * This private method asks the strategy for a move and sends it. A move the
+	 * model already knows the result of, which only happens after the match was
+	 * replayed from the journal, is skipped.
+	 *
+	 */
+	private void makeMove() {
+		do {
+			lastMove = strategy.nextMove();
+		} while (model.getOpponentPosition(lastMove.y, lastMove.x) != null);
+		BattleshipMessage message = new BattleshipMessage();
+		message.setMove(lastMove);
+		send(message);
+	}
+
+	/**
+	 * This private method sends a message to the other player.
+	 *
+	 * @param message An object that represents the message being sent.
+	 */
+	private void send(BattleshipMessage message) {
+		try {
+			network.send(message);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
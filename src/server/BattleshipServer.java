@@ -0,0 +1,175 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+
+import archive.ArchiveWriter;
+import metrics.MetricsExporter;
+import metrics.MetricsRegistry;
+import utilities.BattleshipEventLoop;
+import utilities.GameConfig;
+
+/**
+ * This class is a headless game server that hosts many Battleship matches at
+ * once. Players connect to it with "join (host) (port number)" instead of
+ * connecting to each other, and the server puts them in the lobby to be paired
+ * with an opponent. A match is only a small object holding its state, and every
+ * connection is served by one of a few event loops, so the server doesn't need
+ * a thread or a process for each match or player.
+ *
+ * Here is the command line argument structure when starting the server: (port number)
+ * (number of event loops). The number of event loops is optional and defaults to the
+ * number of cores. The board and fleet of every match are chosen with the 
+ * "battleship.size" and "battleship.fleet" properties, and the players must use the same ones.
+ * When the "battleship.archive" property names a file, every match that is played to
+ * the end is added to that game archive.
+ *
+ * The number of matches being played and players waiting are kept as metrics, and
+ * the "battleship.metrics.port" and "battleship.metrics.interval" properties export
+ * every metric of the server while it runs.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class BattleshipServer {
+
+	private int portNumber;
+
+	private Lobby lobby;
+
+	// Loops that read and write the messages of every connected player.
+	private BattleshipEventLoop[] loops;
+
+	private ServerSocketChannel server;
+
+	/**
+	 * This is the main method that will run the game server.
+	 *
+	 * @param args This array of strings represents the command line arguments.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.out.println("Command line argument invalid.");
+			return;
+		}
+		int loopCount = Runtime.getRuntime().availableProcessors();
+		if (args.length == 2) {
+			loopCount = Integer.valueOf(args[1]);
+		}
+		GameConfig config = GameConfig.fromProperties();
+		String archiveFile = System.getProperty("battleship.archive");
+		MetricsExporter metrics = new MetricsExporter(MetricsRegistry.getDefault());
+		try (ArchiveWriter archive = archiveFile == null ? null
+				: ArchiveWriter.open(Paths.get(archiveFile), config)) {
+			metrics.start();
+			BattleshipServer server = new BattleshipServer(Integer.valueOf(args[0]), loopCount, config);
+			server.getLobby().setArchive(archive);
+			try {
+				server.run();
+			} finally {
+				server.getLobby().setArchive(null);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			metrics.close();
+		}
+	}
+
+	/**
+	 * BattleshipServer constructor.
+	 *
+	 * @param portNumber An integer that represents the port number players connect to.
+	 * @param loopCount An integer that represents how many event loops serve the players.
+	 * @throws IOException when an event loop could not be created.
+	 */
+	public BattleshipServer(int portNumber, int loopCount) throws IOException {
+		this(portNumber, loopCount, GameConfig.STANDARD);
+	}
+
+	/**
+	 * BattleshipServer constructor.
+	 *
+	 * @param portNumber An integer that represents the port number players connect to.
+	 * @param loopCount An integer that represents how many event loops serve the players.
+	 * @param config An object that describes the board and fleet of every match.
+	 * @throws IOException when an event loop could not be created.
+	 */
+	public BattleshipServer(int portNumber, int loopCount, GameConfig config) throws IOException {
+		this.portNumber = portNumber;
+		this.lobby = new Lobby(config);
+		MetricsRegistry.getDefault().gauge("server.matches.active", lobby::getActiveMatches);
+		MetricsRegistry.getDefault().gauge("server.players.waiting", lobby::getWaitingPlayers);
+		this.loops = new BattleshipEventLoop[loopCount];
+		for (int i = 0; i < loopCount; i++) {
+			loops[i] = new BattleshipEventLoop();
+		}
+	}
+
+	/**
+	 * This method starts the event loops and accepts players until the server
+	 * is stopped. Each player is given to the event loops in turn, so that every 
+	 * loop serves about the same number of players, and goes to the lobby or back
+	 * to its match once it sends its first message.
+	 *
+	 * @throws IOException when the server could not be started.
+	 */
+	public void run() throws IOException {
+		for (int i = 0; i < loops.length; i++) {
+			Thread thread = new Thread(loops[i], "battleship-loop-" + i);
+			thread.start();
+		}
+
+		server = ServerSocketChannel.open();
+		try {
+			server.bind(new InetSocketAddress(portNumber));
+			int next = 0;
+			while (server.isOpen()) {
+				SocketChannel connection = server.accept();
+				connection.socket().setTcpNoDelay(true);
+				try {
+					PlayerConnection player = new PlayerConnection(connection, lobby);
+					player.register(loops[next]);
+					next = (next + 1) % loops.length;
+				} catch (IOException e) {
+					connection.close();
+				}
+			}
+		} finally {
+			stop();
+		}
+	}
+
+	/**
+	 * This method stops accepting players and stops every event loop, which
+	 * disconnects every player.
+	 *
+	 */
+	public void stop() {
+		for (int i = 0; i < loops.length; i++) {
+			loops[i].stop();
+		}
+		try {
+			if (server != null) {
+				server.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns the lobby that pairs the players of the server.
+	 *
+	 * @return the lobby of the server.
+	 */
+	public Lobby getLobby() {
+		return this.lobby;
+	}
+
+}
@@ -0,0 +1,241 @@
+package server;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import archive.ArchiveWriter;
+import utilities.BattleshipMessage;
+import utilities.BattleshipNetwork;
+import utilities.GameConfig;
+
+/**
+ * This class is the matchmaker of the game server. Players wait in the lobby in
+ * the order they connected, and as soon as two players are waiting they are put
+ * into a new match. The lobby also keeps track of every match that is still
+ * being played. Every match the lobby starts uses the lobby's board and fleet.
+ * Matches that are played to the end are added to the game archive, if the lobby has one,
+ * by a MatchArchiver, so that no event loop waits for the archive's files.
+ *
+ * Every player of a match gets a session token. A player whose connection dropped
+ * can connect again and ask to resume with the token, and the lobby gives the new
+ * connection to the player's match instead of pairing it. A match waits for a
+ * player that dropped for as long as the "battleship.reconnect" property says.
+ *
+ * A connection can also ask the lobby to watch a match that is being played, either
+ * by its id or, with id 0, the match that started last.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class Lobby {
+
+	// Players that are waiting for an opponent.
+	private ArrayDeque<PlayerConnection> waiting;
+
+	// Matches that haven't finished yet.
+	private Set<MatchSession> matches;
+
+	private int nextMatchId;
+
+	private GameConfig config;
+
+	// Matches that haven't finished yet, by the session token of each player.
+	private ConcurrentHashMap<Long, MatchSession> sessions;
+
+	// Ends the matches whose players didn't come back in time.
+	private ScheduledExecutorService timer;
+
+	private long resumeMillis;
+
+	// Adds finished matches to the archive, or null.
+	private volatile MatchArchiver archiver;
+
+	/**
+	 * Lobby constructor for matches on the standard board.
+	 */
+	public Lobby() {
+		this(GameConfig.STANDARD);
+	}
+
+	/**
+	 * Lobby constructor.
+	 *
+	 * @param config An object that describes the board and fleet of every match.
+	 */
+	public Lobby(GameConfig config) {
+		this.config = config;
+		waiting = new ArrayDeque<PlayerConnection>();
+		matches = Collections.newSetFromMap(new ConcurrentHashMap<MatchSession, Boolean>());
+		nextMatchId = 1;
+		sessions = new ConcurrentHashMap<Long, MatchSession>();
+		timer = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "battleship-lobby-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		resumeMillis = Long.getLong(BattleshipNetwork.RECONNECT_PROPERTY,
+				BattleshipNetwork.DEFAULT_RECONNECT_MILLIS);
+	}
+
+	/**
+	 * This method adds a player to the lobby. If another player is already
+	 * waiting, the two players are paired and their match is started, with the
+	 * player that waited the longest making the first move.
+	 *
+	 * @param player An object that represents the player that joined.
+	 */
+	public void join(PlayerConnection player) {
+		MatchSession session = null;
+		synchronized (this) {
+			PlayerConnection opponent = waiting.poll();
+			if (opponent == null) {
+				waiting.add(player);
+			} else {
+				session = new MatchSession(nextMatchId++, opponent, player, this, config);
+				matches.add(session);
+				sessions.put(session.getToken(0), session);
+				sessions.put(session.getToken(1), session);
+			}
+		}
+
+		// The messages that start the match are sent without holding the lobby.
+		if (session != null) {
+			session.start();
+		}
+	}
+
+	/**
+	 * This method gives a player that connected again to the match of the
+	 * session token it sent. A player with a token that doesn't belong to a
+	 * match that is still being played is told so and disconnected.
+	 *
+	 * @param player An object that represents the new connection of the player.
+	 * @param hello An object that represents the request to resume the player sent.
+	 */
+	public void resume(PlayerConnection player, BattleshipMessage hello) {
+		MatchSession session = sessions.get(hello.getSessionToken());
+		if (session == null || !session.resume(player, hello)) {
+			BattleshipMessage warning = new BattleshipMessage();
+			warning.setException("There is no match to resume.");
+			try {
+				player.send(warning);
+			} catch (IOException e) {
+				// The player is disconnected either way.
+			}
+			player.close();
+		}
+	}
+
+	/**
+	 * This method gives a spectator to the match it asked to watch. A spectator
+	 * that asked for a match that isn't being played is told so and disconnected.
+	 *
+	 * @param spectator An object that represents the connection of the spectator.
+	 * @param matchId An integer that identifies the match, or 0 for the match that started last.
+	 */
+	public void spectate(PlayerConnection spectator, int matchId) {
+		MatchSession session = null;
+		for (MatchSession match : matches) {
+			if (matchId == 0 ? session == null || match.getId() > session.getId() : match.getId() == matchId) {
+				session = match;
+			}
+		}
+		if (session == null || !session.watch(spectator)) {
+			BattleshipMessage warning = new BattleshipMessage();
+			warning.setException("There is no match to watch.");
+			try {
+				spectator.send(warning);
+			} catch (IOException e) {
+				// The spectator is disconnected either way.
+			}
+			spectator.closeWhenFlushed();
+		}
+	}
+
+	/**
+	 * This method takes a player out of the lobby if they are still waiting
+	 * for an opponent.
+	 *
+	 * @param player An object that represents the player that left.
+	 */
+	public synchronized void leave(PlayerConnection player) {
+		waiting.remove(player);
+	}
+
+	/**
+	 * This method sets the archive that matches played to the end are added to.
+	 * The matches that are still waiting for the archive that was set before
+	 * are written to it first, so it can be closed once this method returns.
+	 *
+	 * @param archive An object that writes the matches, or null to not keep them.
+	 */
+	public synchronized void setArchive(ArchiveWriter archive) {
+		if (archiver != null) {
+			archiver.close();
+		}
+		archiver = archive == null ? null : new MatchArchiver(archive, MatchArchiver.DEFAULT_COMMIT_MILLIS);
+	}
+
+	/**
+	 * This method is called by a match once it is over so that it is no
+	 * longer tracked by the lobby. The match is handed to the archive thread,
+	 * which adds it to the archive if it was played to the end.
+	 *
+	 * @param session An object that represents the match that ended.
+	 */
+	public void matchFinished(MatchSession session) {
+		matches.remove(session);
+		sessions.remove(session.getToken(0));
+		sessions.remove(session.getToken(1));
+		MatchArchiver archiver = this.archiver;
+		if (archiver != null) {
+			archiver.add(session);
+		}
+	}
+
+	/**
+	 * This method runs a task of a match after a while on the lobby's timer.
+	 *
+	 * @param task An object that represents what to do.
+	 * @param millis A long that represents how many milliseconds to wait.
+	 */
+	void schedule(Runnable task, long millis) {
+		timer.schedule(task, millis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns how long a match waits for a player whose connection dropped.
+	 *
+	 * @return the time in milliseconds.
+	 */
+	long getResumeMillis() {
+		return this.resumeMillis;
+	}
+
+	/**
+	 * Returns the number of matches that are still being played.
+	 *
+	 * @return the number of matches that are still being played.
+	 */
+	public int getActiveMatches() {
+		return matches.size();
+	}
+
+	/**
+	 * Returns the number of players that are waiting for an opponent.
+	 *
+	 * @return the number of players that are waiting for an opponent.
+	 */
+	public synchronized int getWaitingPlayers() {
+		return waiting.size();
+	}
+
+}
@@ -0,0 +1,147 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import archive.ArchiveWriter;
+
+/**
+ * This class adds the matches the game server finished to the game archive on
+ * a thread of its own. A match ends on the event loop of its players while the
+ * match is locked, so writing it there would make every player of that loop wait
+ * on the disk. Instead the match is only queued, and the archive thread adds every
+ * match that is waiting and writes them to the files as one batch, at most
+ * DEFAULT_COMMIT_MILLIS after the first of them, the same way MatchJournal commits
+ * its records.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+class MatchArchiver implements Closeable {
+
+	// Longest time a finished match waits before it is written to the archive.
+	static final long DEFAULT_COMMIT_MILLIS = 20;
+
+	// Matches that start a batch without waiting any longer.
+	private static final int COMMIT_MATCHES = 256;
+
+	private ArchiveWriter archive;
+
+	private long commitNanos;
+
+	// Matches that finished and weren't added to the archive yet.
+	private ArrayDeque<MatchSession> queue;
+
+	private boolean closed;
+
+	private Thread writer;
+
+	/**
+	 * MatchArchiver constructor. The archive thread is started right away.
+	 *
+	 * @param archive An object that writes the matches.
+	 * @param commitMillis A long that represents the longest time a match waits.
+	 */
+	MatchArchiver(ArchiveWriter archive, long commitMillis) {
+		this.archive = archive;
+		this.commitNanos = commitMillis * 1000000L;
+		queue = new ArrayDeque<MatchSession>();
+		writer = new Thread(this::archiveLoop, "battleship-archive");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * This method queues a match that is over. It doesn't wait for the archive,
+	 * and a match that wasn't played to the end is left out when its batch is written.
+	 *
+	 * @param session An object that represents the match that ended.
+	 */
+	synchronized void add(MatchSession session) {
+		if (closed) {
+			return;
+		}
+		queue.add(session);
+		notifyAll();
+	}
+
+	/**
+	 * This method writes the matches that are still queued and stops the archive
+	 * thread. The archive itself is left open.
+	 *
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * This private method is run by the archive thread. It waits for matches,
+	 * gives more matches a moment to join them, then adds them all to the archive
+	 * and writes the files once.
+	 *
+	 */
+	private void archiveLoop() {
+		List<MatchSession> batch = new ArrayList<MatchSession>();
+		while (true) {
+			synchronized (this) {
+				try {
+					while (queue.isEmpty() && !closed) {
+						wait();
+					}
+					long deadline = System.nanoTime() + commitNanos;
+					long left = commitNanos;
+					while (!closed && queue.size() < COMMIT_MATCHES && left > 0) {
+						wait(left / 1000000L, (int) (left % 1000000L));
+						left = deadline - System.nanoTime();
+					}
+				} catch (InterruptedException e) {
+					closed = true;
+				}
+				if (queue.isEmpty()) {
+					return;
+				}
+				batch.addAll(queue);
+				queue.clear();
+			}
+
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * This private method adds a batch of matches to the archive, with the fleet
+	 * of each player taken from the grid the other player was shown at the end,
+	 * and writes the files.
+	 *
+	 * @param batch The matches that ended.
+	 */
+	private void write(List<MatchSession> batch) {
+		try {
+			for (MatchSession session : batch) {
+				if (session.isComplete()) {
+					archive.append(session.getModel(1).getOpponentGrid(), session.getModel(0).getOpponentGrid(),
+							session.getShots(), session.getTurns(), session.getWinner());
+				}
+			}
+			archive.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
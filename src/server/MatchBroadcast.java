@@ -0,0 +1,201 @@
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import metrics.MetricsRegistry;
+import utilities.BattleshipCodec;
+import utilities.BattleshipMessage;
+
+/**
+ * This class sends what happens in a match to the spectators that watch it. Every
+ * message is encoded once into a read-only buffer, and each spectator's channel is
+ * given a view of that same buffer, so a match with thousands of spectators still
+ * only encodes each move once.
+ *
+ * Sending to a spectator never waits for its socket. A spectator whose channel has
+ * more than MAX_PENDING_BYTES waiting is too far behind, so the messages are no
+ * longer sent to it. Once everything it was sent is written, it is sent a snapshot
+ * of the whole match instead of the messages it missed, and it gets the messages
+ * again from then on. A slow spectator costs the match nothing but the bytes that
+ * are waiting for it.
+ *
+ * A broadcast is only used by its match, while the match is locked.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+class MatchBroadcast {
+
+	// Bytes that may wait for a spectator before it stops getting messages.
+	static final int MAX_PENDING_BYTES = 64 * 1024;
+
+	private static final LongAdder FRAMES_SENT = MetricsRegistry.getDefault().counter("spectators.frames.sent");
+	private static final LongAdder FRAMES_DROPPED = MetricsRegistry.getDefault().counter("spectators.frames.dropped");
+	private static final LongAdder SNAPSHOTS = MetricsRegistry.getDefault().counter("spectators.snapshots");
+
+	private ArrayList<Spectator> spectators;
+
+	/**
+	 * This private class holds a spectator and whether it fell behind.
+	 *
+	 */
+	private static class Spectator {
+
+		private PlayerConnection connection;
+
+		// Determines if messages were dropped and the spectator needs a snapshot.
+		private boolean behind;
+
+		/**
+		 * Spectator constructor.
+		 *
+		 * @param connection An object that represents the spectator's connection.
+		 */
+		Spectator(PlayerConnection connection) {
+			this.connection = connection;
+		}
+
+	}
+
+	/**
+	 * MatchBroadcast constructor.
+	 */
+	MatchBroadcast() {
+		this.spectators = new ArrayList<Spectator>();
+	}
+
+	/**
+	 * This method adds a spectator and sends it a snapshot of the match so far.
+	 *
+	 * @param connection An object that represents the spectator's connection.
+	 * @param snapshot An object that holds the frames of the snapshot.
+	 */
+	void add(PlayerConnection connection, ByteBuffer snapshot) {
+		Spectator spectator = new Spectator(connection);
+		spectators.add(spectator);
+		try {
+			connection.sendShared(snapshot);
+			SNAPSHOTS.increment();
+		} catch (IOException e) {
+			spectators.remove(spectator);
+		}
+	}
+
+	/**
+	 * This method takes a spectator out of the broadcast.
+	 *
+	 * @param connection An object that represents the spectator's connection.
+	 */
+	void remove(PlayerConnection connection) {
+		spectators.removeIf((Spectator s) -> s.connection == connection);
+	}
+
+	/**
+	 * Returns the number of spectators.
+	 *
+	 * @return the number of spectators watching the match.
+	 */
+	int size() {
+		return spectators.size();
+	}
+
+	/**
+	 * This method sends a message to every spectator that keeps up. A spectator
+	 * that fell behind and has caught up is sent a snapshot instead, which is made
+	 * at most once, after the message already changed the match.
+	 *
+	 * @param message An object that represents what happened in the match.
+	 * @param snapshot An object that makes the frames of a snapshot of the match.
+	 */
+	void publish(BattleshipMessage message, Supplier<ByteBuffer> snapshot) {
+		if (spectators.isEmpty()) {
+			return;
+		}
+		ByteBuffer frame = encode(message);
+		ByteBuffer caughtUp = null;
+		Iterator<Spectator> iterator = spectators.iterator();
+		while (iterator.hasNext()) {
+			Spectator spectator = iterator.next();
+			long pending = spectator.connection.getPendingBytes();
+			try {
+				if (spectator.behind) {
+					if (pending > 0) {
+						FRAMES_DROPPED.increment();
+						continue;
+					}
+					if (caughtUp == null) {
+						caughtUp = snapshot.get();
+					}
+					spectator.connection.sendShared(caughtUp);
+					spectator.behind = false;
+					SNAPSHOTS.increment();
+				} else if (pending > MAX_PENDING_BYTES) {
+					spectator.behind = true;
+					FRAMES_DROPPED.increment();
+				} else {
+					spectator.connection.sendShared(frame);
+					FRAMES_SENT.increment();
+				}
+			} catch (IOException e) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * This method ends the broadcast once the match is over. Every spectator that
+	 * fell behind is sent the last snapshot of the match, and every spectator is
+	 * disconnected once what it was sent is written.
+	 *
+	 * @param snapshot An object that makes the frames of a snapshot of the match.
+	 */
+	void finish(Supplier<ByteBuffer> snapshot) {
+		ByteBuffer last = null;
+		for (Spectator spectator : spectators) {
+			try {
+				if (spectator.behind) {
+					if (last == null) {
+						last = snapshot.get();
+					}
+					spectator.connection.sendShared(last);
+					SNAPSHOTS.increment();
+				}
+			} catch (IOException e) {
+				// The spectator is already gone.
+			}
+			spectator.connection.closeWhenFlushed();
+		}
+		spectators.clear();
+	}
+
+	/**
+	 * This method encodes messages one after the other into a read-only buffer
+	 * that can be shared by every spectator.
+	 *
+	 * @param messages Objects that represent the messages, in order.
+	 * @return An object that holds the frames of the messages.
+	 */
+	static ByteBuffer encode(BattleshipMessage... messages) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			for (BattleshipMessage message : messages) {
+				BattleshipCodec.write(out, message);
+			}
+		} catch (IOException e) {
+			// Writing to memory can't fail.
+			throw new IllegalStateException(e);
+		}
+		return ByteBuffer.wrap(bytes.toByteArray()).asReadOnlyBuffer();
+	}
+
+}
@@ -0,0 +1,226 @@
+package server;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import model.Bitboard;
+import model.PlacementIndex;
+import utilities.BattleshipMessage;
+import utilities.Constants;
+import utilities.GameConfig;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class decides the result of every move of a match on the game server, so
+ * the match doesn't have to trust what the players say about their own grids.
+ * Each player sends its fleet to the game server once it is placed, as the position
+ * and direction of each ship, and the referee checks that the fleet is the one the
+ * match is played with and that its ships stay on the board without overlapping.
+ *
+ * After that, a move is resolved by looking up which ship is at the position, so
+ * the referee knows whether it hit, which ship it sank and whether the fleet was
+ * destroyed without asking the player that was attacked. It also knows every
+ * position that was already attacked, so a move can't be made twice.
+ *
+ * The positions of the ships and the attacked positions are kept in a Bitboard, so
+ * a miss takes one lookup and the referee takes a bit per position no matter how
+ * large the board is. Only a hit looks for its ship, among the origins and
+ * directions of the fleet. A referee is only used by its match, while the match is locked.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+class MatchReferee {
+
+	// The board and fleet both players use.
+	private GameConfig config;
+
+	// The fleet each player sent, kept to show it to the other player at the end.
+	private Point[][] origins;
+
+	private int[][] directions;
+
+	// Layers of the board that hold the positions of each player's board that were
+	// attacked and the positions its ships take.
+	private static final int SHOTS = 0;
+	private static final int SHIPS = 2;
+
+	private Bitboard board;
+
+	private int[][] shipHits;
+
+	private int[] shipsSunk;
+
+	// The position of the move that sank each ship, as row * size + col, or -1.
+	private int[][] sunkAt;
+
+	// The position of the move that sank the last ship that was sunk on each board.
+	private int[] lastSunk;
+
+	/**
+	 * MatchReferee constructor.
+	 *
+	 * @param config An object that describes the board and fleet of the match.
+	 */
+	MatchReferee(GameConfig config) {
+		this.config = config;
+		this.origins = new Point[2][];
+		this.directions = new int[2][];
+		this.board = new Bitboard(config.getSize(), 4);
+		this.shipHits = new int[2][config.getShipCount()];
+		this.shipsSunk = new int[2];
+		this.sunkAt = new int[2][config.getShipCount()];
+		Arrays.fill(sunkAt[0], -1);
+		Arrays.fill(sunkAt[1], -1);
+		this.lastSunk = new int[] {-1, -1};
+	}
+
+	/**
+	 * This method takes the fleet of a player if it is the fleet of the match and
+	 * every ship stays on the board without landing on another one.
+	 *
+	 * @param seat An integer that represents the player whose fleet it is.
+	 * @param origins Point objects that hold the x and y position of the front of each ship.
+	 * @param directions Integers that determine the direction of each ship.
+	 * @return A boolean value that is false if the fleet was turned down.
+	 */
+	boolean placeFleet(int seat, Point[] origins, int[] directions) {
+		if (this.origins[seat] != null || origins.length != config.getShipCount()
+				|| directions.length != origins.length) {
+			return false;
+		}
+		int size = config.getSize();
+		PlacementIndex placements = new PlacementIndex(size);
+		for (int ship = 0; ship < origins.length; ship++) {
+			int row = origins[ship].y;
+			int col = origins[ship].x;
+			int length = config.getShipSize(ship);
+			int dir = directions[ship];
+			if ((dir != Constants.HORIZONTAL && dir != Constants.VERTICAL)
+					|| !config.contains(row, col) || !placements.fits(row, col, length, dir)
+					|| !placements.isFree(row, col, length, dir)) {
+				return false;
+			}
+			placements.take(row, col, length, dir);
+		}
+		for (int ship = 0; ship < origins.length; ship++) {
+			boolean horizontal = directions[ship] == Constants.HORIZONTAL;
+			for (int i = 0; i < config.getShipSize(ship); i++) {
+				board.set(SHIPS + seat, horizontal ? origins[ship].y : origins[ship].y + i,
+						horizontal ? origins[ship].x + i : origins[ship].x);
+			}
+		}
+		this.origins[seat] = origins.clone();
+		this.directions[seat] = directions.clone();
+		return true;
+	}
+
+	/**
+	 * Returns whether a player's fleet was taken.
+	 *
+	 * @param seat An integer that represents the player.
+	 * @return A boolean value that determines if the player's fleet is known.
+	 */
+	boolean hasFleet(int seat) {
+		return origins[seat] != null;
+	}
+
+	/**
+	 * Returns whether a position of a player's board was already attacked.
+	 *
+	 * @param seat An integer that represents the player whose board it is.
+	 * @param coord A Point object that holds the x and y position.
+	 * @return A boolean value that determines if the position was attacked.
+	 */
+	boolean isShot(int seat, Point coord) {
+		return board.get(SHOTS + seat, coord.y, coord.x);
+	}
+
+	/**
+	 * This method attacks a position of a player's board that wasn't attacked
+	 * before. The player's fleet must be known.
+	 *
+	 * @param seat An integer that represents the player whose board it is.
+	 * @param coord A Point object that holds the x and y position.
+	 */
+	void resolve(int seat, Point coord) {
+		board.set(SHOTS + seat, coord.y, coord.x);
+		int cell = coord.y * config.getSize() + coord.x;
+		int ship = shipAt(seat, coord);
+		if (ship >= 0 && ++shipHits[seat][ship] == config.getShipSize(ship)) {
+			sunkAt[seat][ship] = cell;
+			lastSunk[seat] = cell;
+			shipsSunk[seat]++;
+		}
+	}
+
+	/**
+	 * This method fills in a message with what a move on a player's board did:
+	 * whether it hit, which ship it sank, and whether it destroyed the fleet.
+	 * A move that destroyed the fleet also carries the fleet.
+	 *
+	 * @param seat An integer that represents the player whose board it is.
+	 * @param coord A Point object that holds the x and y position of the move.
+	 * @param message An object that will hold the result of the move.
+	 */
+	void describe(int seat, Point coord, BattleshipMessage message) {
+		int cell = coord.y * config.getSize() + coord.x;
+		int ship = shipAt(seat, coord);
+		message.setShotResult(coord, ship >= 0 ? POSITION_RESULT.HIT : POSITION_RESULT.MISS);
+		if (ship >= 0 && sunkAt[seat][ship] == cell) {
+			message.setSunkShip(ship);
+			if (isFleetDestroyed(seat) && lastSunk[seat] == cell) {
+				message.setFleetDestroyed();
+				describeFleet(seat, message);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether every ship of a player was sunk.
+	 *
+	 * @param seat An integer that represents the player.
+	 * @return A boolean value that determines if the player's fleet was destroyed.
+	 */
+	boolean isFleetDestroyed(int seat) {
+		return shipsSunk[seat] == config.getShipCount();
+	}
+
+	/**
+	 * This method fills in a message with the fleet a player sent, which shows
+	 * its ships to the other player. The player's fleet must be known.
+	 *
+	 * @param seat An integer that represents the player.
+	 * @param message An object that will hold the fleet.
+	 */
+	void describeFleet(int seat, BattleshipMessage message) {
+		message.setFleet(origins[seat], directions[seat]);
+	}
+
+	/**
+	 * This private method finds the ship at a position of a player's board. The
+	 * ship bit is checked first, so only a hit goes through the fleet.
+	 *
+	 * @param seat An integer that represents the player whose board it is.
+	 * @param coord A Point object that holds the x and y position.
+	 * @return the order the ship was placed in, or -1 if there is no ship there.
+	 */
+	private int shipAt(int seat, Point coord) {
+		if (!board.get(SHIPS + seat, coord.y, coord.x)) {
+			return -1;
+		}
+		for (int ship = 0; ship < origins[seat].length; ship++) {
+			Point origin = origins[seat][ship];
+			int along = directions[seat][ship] == Constants.HORIZONTAL
+					? (origin.y == coord.y ? coord.x - origin.x : -1)
+					: (origin.x == coord.x ? coord.y - origin.y : -1);
+			if (along >= 0 && along < config.getShipSize(ship)) {
+				return ship;
+			}
+		}
+		return -1;
+	}
+
+}
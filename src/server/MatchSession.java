@@ -0,0 +1,594 @@
+package server;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import controller.BattleshipController;
+import model.BattleshipModel;
+import utilities.BattleshipMessage;
+import utilities.GameConfig;
+import utilities.MessageLog;
+
+/**
+ * This class represents a single match between two players on the game server.
+ * A match doesn't have its own thread, it only holds the state of the match and
+ * is given the messages of its players by whichever thread read them. The match
+ * makes sure that the players take turns, decides every move, and keeps a model
+ * for each player that holds what that player knows about the opponent's grid.
+ *
+ * The messages of a match go like this:
+ *
+ * 1. Once the match starts, each player sends its fleet, which only the match sees.
+ *
+ * 2. The player whose turn it is sends a move. A MatchReferee resolves it right
+ * away against the fleet the other player sent, and the player that moved is sent
+ * the result and the ship it sank. The other player is sent the move, which its own
+ * model resolves against the same fleet, and it becomes their turn. The player that
+ * was attacked doesn't answer, so a turn takes a single round trip to the server no
+ * matter how slow the other player is, and an answer a player sends anyway is dropped.
+ *
+ * 3. Once a fleet is destroyed, the result of the last move holds that fleet, and
+ * the player that won answers with its own fleet, which ends the match.
+ *
+ * The match never takes a player's word for what is on its own grid: the results,
+ * the ships that sank and the fleets shown at the end are all the referee's. A move
+ * that comes before the fleet of the player it attacks waits for that fleet.
+ *
+ * The match keeps the position of every move, so that a match that was played to
+ * the end can be added to the game archive with both fleets once they are revealed.
+ *
+ * The match numbers the messages it sends to each player and keeps them in a
+ * MessageLog until the player says it got them, the same way two players do with
+ * each other, and it handles each numbered message of a player once and in order.
+ * When a player's connection drops, the match waits for the player to come back with
+ * its session token instead of ending. The player is told the last message the match
+ * got from it, so it sends again what went missing, and the match sends again every
+ * message the player didn't get. Warnings are not numbered, since nothing waits for them.
+ *
+ * A match can also be watched by spectators, which are sent a snapshot of both
+ * boards when they start watching and the result of every move after that, along
+ * with both fleets at the end. This goes through a MatchBroadcast, which keeps a
+ * slow spectator from holding up the match.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class MatchSession {
+
+	private int id;
+
+	private Lobby lobby;
+
+	// The board and fleet both players use.
+	private GameConfig config;
+
+	private PlayerConnection[] players;
+
+	// What each player knows about the grid of the other player.
+	private BattleshipModel[] models;
+	private BattleshipController[] controllers;
+
+	// The index of the player that makes the next move.
+	private int turn;
+
+	// The move that waits for the fleet of the player it attacks, or null.
+	private Point pendingMove;
+
+	// Determines if each player's fleet was shown to the other player.
+	private boolean[] revealed;
+
+	// Decides the result of every move from the fleets the players sent.
+	private MatchReferee referee;
+
+	private boolean finished;
+
+	// Positions of the moves of both players in order, as row * size + col. The array
+	// starts with room for a short match and grows as it is needed.
+	private int[] shots;
+	private int turns;
+
+	// The player whose fleet survived, or -1 while no fleet was destroyed.
+	private int winner;
+
+	private static final SecureRandom TOKENS = new SecureRandom();
+
+	// Session token of each player, which the player uses to come back to the match.
+	private long[] tokens;
+
+	// The messages sent to each player that it didn't say it got, and the last one handled from it.
+	private MessageLog[] logs;
+
+	private MatchBroadcast broadcast;
+
+	/**
+	 * MatchSession constructor. The first player makes the first move.
+	 *
+	 * @param id An integer that identifies the match on the game server.
+	 * @param first An object that represents the player that moves first.
+	 * @param second An object that represents the player that moves second.
+	 * @param lobby An object that is told when the match is over.
+	 * @param config An object that describes the board and fleet of the match.
+	 */
+	public MatchSession(int id, PlayerConnection first, PlayerConnection second, Lobby lobby,
+			GameConfig config) {
+		this.id = id;
+		this.lobby = lobby;
+		this.config = config;
+		this.players = new PlayerConnection[] {first, second};
+		this.models = new BattleshipModel[2];
+		this.controllers = new BattleshipController[2];
+		for (int i = 0; i < 2; i++) {
+			models[i] = new BattleshipModel(config);
+			controllers[i] = new BattleshipController(models[i]);
+			players[i].setSession(this);
+		}
+		this.turn = 0;
+		this.revealed = new boolean[2];
+		this.referee = new MatchReferee(config);
+		this.finished = false;
+		this.shots = new int[2 * config.getMaxHits()];
+		this.turns = 0;
+		this.winner = -1;
+		this.tokens = new long[2];
+		this.logs = new MessageLog[] {new MessageLog(), new MessageLog()};
+		this.broadcast = new MatchBroadcast();
+		for (int i = 0; i < 2; i++) {
+			while (tokens[i] == 0 || tokens[i] == tokens[1 - i]) {
+				tokens[i] = TOKENS.nextLong();
+			}
+		}
+	}
+
+	/**
+	 * This method tells both players that the match has started and which
+	 * player makes the first move.
+	 *
+	 */
+	public synchronized void start() {
+		for (int i = 0; i < 2; i++) {
+			BattleshipMessage message = new BattleshipMessage();
+			message.setMatchStart(i == turn);
+			message.setSessionToken(tokens[i]);
+			sendTo(i, message);
+		}
+	}
+
+	/**
+	 * This method handles a message that one of the players sent. Nothing a
+	 * player says about its own grid is used: the referee decides every move as
+	 * soon as it can, and the fleets that are shown at the end are the ones the
+	 * players sent to the referee. Moves that are made out of turn, before the
+	 * player's fleet was sent, or on a position that was already attacked are
+	 * turned down, and the player is warned instead.
+	 *
+	 * @param from An object that represents the player that sent the message.
+	 * @param message An object that represents the message that was received.
+	 */
+	public synchronized void onMessage(PlayerConnection from, BattleshipMessage message) {
+		if (finished) {
+			return;
+		}
+		int seat = seatOf(from);
+		if (seat < 0) {
+			return;
+		}
+		int other = 1 - seat;
+
+		// A message that was already handled, or that came after one that is missing, is sent again in order.
+		if (!logs[seat].accept(message)) {
+			return;
+		}
+
+		// A fleet on its own is only for the referee until the match is won.
+		if (message.getFleetOrigins() != null && message.getShotCoord() == null && winner < 0) {
+			if (!referee.placeFleet(seat, message.getFleetOrigins(), message.getFleetDirections())) {
+				warn(seat, "That fleet can't be played in this match.");
+			} else if (pendingMove != null && seat != turn) {
+				resolve();
+			}
+			return;
+		}
+
+		if (message.getMove() != null) {
+			Point move = message.getMove();
+			if (seat != turn || pendingMove != null || winner >= 0) {
+				warn(seat, "It's not your turn.");
+				return;
+			}
+			if (!config.contains(move.y, move.x)) {
+				warn(seat, "That position is not on the board.");
+				return;
+			}
+			if (!referee.hasFleet(seat)) {
+				warn(seat, "Place your fleet before making a move.");
+				return;
+			}
+			if (referee.isShot(other, move)) {
+				warn(seat, "You already attacked this position.");
+				return;
+			}
+			if (turns == shots.length) {
+				shots = Arrays.copyOf(shots, 2 * shots.length);
+			}
+			shots[turns++] = move.y * config.getSize() + move.x;
+			pendingMove = move;
+
+			// The move waits for the fleet of the player being attacked, if it wasn't sent yet.
+			if (referee.hasFleet(other)) {
+				resolve();
+			}
+			return;
+		}
+
+		// The fleet of the player that won is shown to the other player, which ends the match.
+		// Anything else, like the answer to a move, was already decided by the referee.
+		if (message.getFleetOrigins() != null && seat == winner && !revealed[seat]) {
+			reveal(seat);
+			BattleshipMessage fleet = new BattleshipMessage();
+			referee.describeFleet(seat, fleet);
+			sendTo(other, fleet);
+			publish(seat, fleet);
+			finish();
+		}
+	}
+
+	/**
+	 * This method handles a player that disconnected. If the match wasn't
+	 * over yet, the player is given time to come back, and if it doesn't, the
+	 * other player is warned and disconnected as well.
+	 *
+	 * @param from An object that represents the player that disconnected.
+	 */
+	public synchronized void onDisconnect(PlayerConnection from) {
+		if (finished) {
+			return;
+		}
+		if (seatOf(from) < 0) {
+			broadcast.remove(from);
+			return;
+		}
+		if (lobby.getResumeMillis() > 0) {
+			lobby.schedule(() -> expire(from), lobby.getResumeMillis());
+		} else {
+			expire(from);
+		}
+	}
+
+	/**
+	 * This method gives a player that connected again its place in the match.
+	 * The player is told the last message the match got from it, and the other
+	 * player is asked to send again what the player missed.
+	 *
+	 * @param player An object that represents the new connection of the player.
+	 * @param hello An object that represents the request to resume the player sent.
+	 * @return A boolean value that is false if the match is already over.
+	 */
+	public synchronized boolean resume(PlayerConnection player, BattleshipMessage hello) {
+		if (finished) {
+			return false;
+		}
+		int seat = hello.getSessionToken() == tokens[0] ? 0 : 1;
+		PlayerConnection old = players[seat];
+		players[seat] = player;
+		player.setSession(this);
+		if (old != player) {
+			old.close();
+		}
+
+		BattleshipMessage reply = new BattleshipMessage();
+		reply.setSessionToken(tokens[seat]);
+		reply.setResume(logs[seat].getReceived());
+		tell(seat, reply);
+
+		// Every message the player didn't get is sent again, in order.
+		for (byte[] frame : logs[seat].since(hello.getResume())) {
+			write(seat, frame);
+		}
+		return true;
+	}
+
+	/**
+	 * This method adds a spectator to the match and sends it a snapshot of
+	 * both boards.
+	 *
+	 * @param spectator An object that represents the connection of the spectator.
+	 * @return A boolean value that is false if the match is already over.
+	 */
+	public synchronized boolean watch(PlayerConnection spectator) {
+		if (finished) {
+			return false;
+		}
+		spectator.setSession(this);
+		broadcast.add(spectator, snapshot());
+		return true;
+	}
+
+	/**
+	 * Returns the number of spectators watching the match.
+	 *
+	 * @return the number of spectators.
+	 */
+	public synchronized int getSpectators() {
+		return broadcast.size();
+	}
+
+	/**
+	 * Returns the session token of a player of the match.
+	 *
+	 * @param seat An integer that is 0 for the player that moved first and 1 for
+	 * the other player.
+	 * @return the session token of the player.
+	 */
+	public long getToken(int seat) {
+		return tokens[seat];
+	}
+
+	/**
+	 * Returns the model that holds what a player knows about the grid of the
+	 * other player.
+	 *
+	 * @param seat An integer that is 0 for the player that moved first and 1 for
+	 * the other player.
+	 * @return the model of the player.
+	 */
+	public BattleshipModel getModel(int seat) {
+		return models[seat];
+	}
+
+	/**
+	 * Returns the board and fleet of the match.
+	 *
+	 * @return the config of the match.
+	 */
+	public GameConfig getConfig() {
+		return this.config;
+	}
+
+	/**
+	 * Returns the integer that identifies the match on the game server.
+	 *
+	 * @return the integer that identifies the match.
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * Returns the positions of the moves of both players in order, as row * size + col.
+	 * Only the first getTurns() are moves of the match.
+	 *
+	 * @return the positions of the moves.
+	 */
+	public synchronized int[] getShots() {
+		return this.shots;
+	}
+
+	/**
+	 * Returns the number of moves both players made.
+	 *
+	 * @return the number of moves.
+	 */
+	public synchronized int getTurns() {
+		return this.turns;
+	}
+
+	/**
+	 * Returns the player that won the match.
+	 *
+	 * @return 0 if the player that moved first won, 1 if the other did, or -1 if
+	 * no fleet was destroyed.
+	 */
+	public synchronized int getWinner() {
+		return this.winner;
+	}
+
+	/**
+	 * Returns whether the match was played to the end and both fleets were revealed.
+	 *
+	 * @return A boolean value that determines if the match can be archived.
+	 */
+	public synchronized boolean isComplete() {
+		return winner >= 0 && revealed[0] && revealed[1];
+	}
+
+	/**
+	 * Returns whether the match is over.
+	 *
+	 * @return A boolean value that determines if the match is over.
+	 */
+	public synchronized boolean isFinished() {
+		return this.finished;
+	}
+
+	/**
+	 * This private method ends the match if a player that disconnected didn't
+	 * come back, and warns and disconnects the other player.
+	 *
+	 * @param from An object that represents the connection that was lost.
+	 */
+	private synchronized void expire(PlayerConnection from) {
+		int seat = seatOf(from);
+		if (finished || seat < 0) {
+			return;
+		}
+		int other = 1 - seat;
+		warn(other, "Your opponent left the match.");
+		finish();
+		players[other].close();
+	}
+
+	/**
+	 * This private method finds the seat of a connection.
+	 *
+	 * @param from An object that represents a connection of a player.
+	 * @return the seat of the player, or -1 if the connection was replaced.
+	 */
+	private int seatOf(PlayerConnection from) {
+		if (from == players[0]) {
+			return 0;
+		} else if (from == players[1]) {
+			return 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * This private method resolves the move that is waiting, once the fleet of
+	 * the player it attacks is known. The player that moved is sent the result,
+	 * along with the fleet it destroyed, and the other player is sent the move
+	 * and gets the turn.
+	 *
+	 */
+	private void resolve() {
+		int seat = turn;
+		int other = 1 - seat;
+		Point move = pendingMove;
+		pendingMove = null;
+		referee.resolve(other, move);
+		BattleshipMessage result = new BattleshipMessage();
+		referee.describe(other, move, result);
+		turn = other;
+		controllers[seat].applyShotResult(result.getShotCoord(), result.getShotResult());
+		if (result.getSunkShip() >= 0) {
+			controllers[seat].applyShipSunk(result.getSunkShip());
+		}
+		if (result.isFleetDestroyed()) {
+			winner = seat;
+			reveal(other);
+		}
+		sendTo(seat, result);
+
+		BattleshipMessage attacked = new BattleshipMessage();
+		attacked.setMove(move);
+		sendTo(other, attacked);
+		publish(other, result);
+	}
+
+	/**
+	 * This private method shows the fleet of a player to the other player's
+	 * model, once the game is over.
+	 *
+	 * @param seat An integer that represents the player whose fleet is shown.
+	 */
+	private void reveal(int seat) {
+		BattleshipMessage fleet = new BattleshipMessage();
+		referee.describeFleet(seat, fleet);
+		controllers[1 - seat].revealOpponentFleet(fleet);
+		revealed[seat] = true;
+	}
+
+	/**
+	 * This private method sends the spectators the result of a move or a fleet
+	 * that was shown, along with the board it is about.
+	 *
+	 * @param seat An integer that represents the player whose board it is.
+	 * @param message An object that holds what the referee decided.
+	 */
+	private void publish(int seat, BattleshipMessage message) {
+		BattleshipMessage update = new BattleshipMessage();
+		update.setBoard(seat);
+		if (message.getShotCoord() != null) {
+			update.setShotResult(message.getShotCoord(), message.getShotResult());
+			update.setSunkShip(message.getSunkShip());
+		}
+		if (message.isFleetDestroyed()) {
+			update.setFleetDestroyed();
+		}
+		if (message.getFleetOrigins() != null) {
+			update.setFleet(message.getFleetOrigins(), message.getFleetDirections());
+		}
+		broadcast.publish(update, this::snapshot);
+	}
+
+	/**
+	 * This private method warns a player about a message that was turned down.
+	 *
+	 * @param seat An integer that represents the player that sent the message.
+	 * @param text A string that says why the message was turned down.
+	 */
+	private void warn(int seat, String text) {
+		BattleshipMessage warning = new BattleshipMessage();
+		warning.setException(text);
+		tell(seat, warning);
+	}
+
+	/**
+	 * This private method ends the match and lets the lobby know.
+	 *
+	 */
+	private void finish() {
+		finished = true;
+		lobby.matchFinished(this);
+		broadcast.finish(this::snapshot);
+	}
+
+	/**
+	 * This private method makes a snapshot of the match for spectators, which is
+	 * the grid of each board as the player attacking it knows it. The first frame
+	 * also says which match it is.
+	 *
+	 * @return An object that holds the frames of the snapshot.
+	 */
+	private ByteBuffer snapshot() {
+		BattleshipMessage[] boards = new BattleshipMessage[2];
+		for (int seat = 0; seat < 2; seat++) {
+			boards[seat] = new BattleshipMessage();
+			boards[seat].setBoard(seat);
+			boards[seat].setUpdatedGrid(models[1 - seat].getOpponentGrid());
+		}
+		boards[0].setSpectate(id);
+		return MatchBroadcast.encode(boards);
+	}
+
+	/**
+	 * This private method numbers a message, keeps it in the player's log until
+	 * the player says it got it, and sends it to the player.
+	 *
+	 * @param seat An integer that represents the player receiving the message.
+	 * @param message An object that represents the message being sent.
+	 */
+	private void sendTo(int seat, BattleshipMessage message) {
+		try {
+			write(seat, logs[seat].record(message));
+		} catch (IOException e) {
+			players[seat].close();
+		}
+	}
+
+	/**
+	 * This private method sends a message to one of the players without numbering
+	 * it, so it is never sent again.
+	 *
+	 * @param seat An integer that represents the player receiving the message.
+	 * @param message An object that represents the message being sent.
+	 */
+	private void tell(int seat, BattleshipMessage message) {
+		try {
+			players[seat].send(message);
+		} catch (IOException e) {
+			players[seat].close();
+		}
+	}
+
+	/**
+	 * This private method sends a frame from a player's log to the player. The
+	 * frame isn't copied, since the log never changes it. If it can't be sent,
+	 * the player is disconnected, and the frame is sent again if it comes back.
+	 *
+	 * @param seat An integer that represents the player receiving the frame.
+	 * @param frame An array of bytes that holds the frame.
+	 */
+	private void write(int seat, byte[] frame) {
+		try {
+			players[seat].sendShared(ByteBuffer.wrap(frame));
+		} catch (IOException e) {
+			players[seat].close();
+		}
+	}
+
+}
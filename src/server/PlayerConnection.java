@@ -0,0 +1,160 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import utilities.BattleshipChannel;
+import utilities.BattleshipEventLoop;
+import utilities.BattleshipMessage;
+import utilities.MessageHandler;
+
+/**
+ * This class represents a single player that is connected to the game server.
+ * It is given the messages that the player sends by the event loop serving the
+ * player's channel and hands them to the match the player is in, and it is used
+ * by the match to send messages back to the player. The first message of a player
+ * is a request to resume. Without a session token, the player is new and joins the
+ * lobby to be paired, and with one, the player goes back to its match. A connection
+ * that asks to watch a match instead is a spectator, which is given to the match but
+ * never sends anything to it. Any other message that is sent before the player is in
+ * a match is ignored, since the player can't do anything that affects the other
+ * player until then.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class PlayerConnection implements MessageHandler {
+
+	private BattleshipChannel channel;
+
+	private Lobby lobby;
+
+	// The match the player is in, which is null while the player waits in the lobby.
+	private volatile MatchSession session;
+
+	// Determines if the player already asked to join or resume.
+	private boolean joined;
+
+	/**
+	 * PlayerConnection constructor.
+	 *
+	 * @param connection An object that represents the connection to the player.
+	 * @param lobby An object that pairs the player with an opponent.
+	 * @throws IOException when the connection could not be made non-blocking.
+	 */
+	public PlayerConnection(SocketChannel connection, Lobby lobby) throws IOException {
+		this.channel = new BattleshipChannel(connection, this);
+		this.lobby = lobby;
+	}
+
+	/**
+	 * This method gives the player's channel to an event loop, which reads
+	 * the player's messages from then on.
+	 *
+	 * @param loop An object that represents the loop serving the player.
+	 */
+	public void register(BattleshipEventLoop loop) {
+		loop.register(channel);
+	}
+
+	/**
+	 * This method is called by the event loop with every message the player
+	 * sends and gives it to the player's match, or to the lobby if it is the
+	 * player's first request to resume.
+	 *
+	 * @param channel An object that represents the player's channel.
+	 * @param message An object that represents the message that was received.
+	 */
+	@Override
+	public void onMessage(BattleshipChannel channel, BattleshipMessage message) {
+		MatchSession current = session;
+		if (current != null) {
+			current.onMessage(this, message);
+		} else if (!joined && message.isResume()) {
+			joined = true;
+			if (message.getSessionToken() != 0) {
+				lobby.resume(this, message);
+			} else {
+				lobby.join(this);
+			}
+		} else if (!joined && message.isSpectate()) {
+			joined = true;
+			lobby.spectate(this, message.getSpectate());
+		}
+	}
+
+	/**
+	 * This method is called once the player disconnected and takes the player
+	 * out of the lobby or the match.
+	 *
+	 * @param channel An object that represents the player's channel.
+	 */
+	@Override
+	public void onClose(BattleshipChannel channel) {
+		lobby.leave(this);
+		MatchSession current = session;
+		if (current != null) {
+			current.onDisconnect(this);
+		}
+	}
+
+	/**
+	 * This method sends a message to the player without blocking.
+	 *
+	 * @param message An object that represents the message being sent.
+	 * @throws IOException when the message could not be sent.
+	 */
+	public void send(BattleshipMessage message) throws IOException {
+		channel.send(message);
+	}
+
+	/**
+	 * This method sends frames that are shared with other connections without
+	 * copying them or blocking.
+	 *
+	 * @param frame An object that holds the frames.
+	 * @throws IOException when the connection is closed.
+	 */
+	public void sendShared(ByteBuffer frame) throws IOException {
+		channel.sendShared(frame);
+	}
+
+	/**
+	 * Returns the number of bytes that were sent to the player but not written yet.
+	 *
+	 * @return the number of bytes waiting to be written.
+	 */
+	public long getPendingBytes() {
+		return channel.getPendingBytes();
+	}
+
+	/**
+	 * This method sets the match that the player was put in by the lobby.
+	 *
+	 * @param session An object that represents the player's match.
+	 */
+	public void setSession(MatchSession session) {
+		this.session = session;
+	}
+
+	/**
+	 * This method closes the connection to the player.
+	 *
+	 */
+	public void close() {
+		channel.close();
+	}
+
+	/**
+	 * This method closes the connection to the player once everything that was
+	 * sent to it is written.
+	 *
+	 */
+	public void closeWhenFlushed() {
+		channel.closeWhenFlushed();
+	}
+
+}
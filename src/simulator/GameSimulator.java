@@ -0,0 +1,256 @@
+package simulator;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import archive.ArchiveWriter;
+import controller.BattleshipController;
+import metrics.MetricsExporter;
+import metrics.MetricsRegistry;
+import model.BattleshipModel;
+import utilities.GameConfig;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class plays many games between two strategies without a view or a network.
+ * The games are split between one worker per core, and each worker plays its games
+ * one after another with its own strategies, models and result, so the workers
+ * never wait on each other. The strategies take turns moving first.
+ *
+ * Every game gets its own seed worked out from the seed of the run and the number
+ * of the game, so a run plays the same games no matter how many workers it has.
+ *
+ * Here is the command line argument structure when starting the simulator: (number of
+ * games) (first strategy) (second strategy) (number of workers). The strategies are
+ * "random", "hunt" or "probability", and the number of workers is optional and defaults to the number
+ * of cores. The board and fleet are chosen the same way as for the game.
+ *
+ * When the "battleship.archive" property names a file, every game is also added to
+ * that game archive, in the order the workers finish them.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class GameSimulator {
+
+	// Mixes the number of a game into the seed of the run.
+	private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+	private GameConfig config;
+
+	private Supplier<Strategy> first;
+	private Supplier<Strategy> second;
+
+	// Archive that every game is added to, or null.
+	private ArchiveWriter archive;
+
+	/**
+	 * This is the main method that will run the simulator.
+	 *
+	 * @param args This array of strings represents the command line arguments.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 3 || args.length > 4) {
+			System.out.println("Command line argument invalid.");
+			return;
+		}
+		int workers = Runtime.getRuntime().availableProcessors();
+		if (args.length == 4) {
+			workers = Integer.valueOf(args[3]);
+		}
+		GameConfig config = GameConfig.fromProperties();
+		GameSimulator simulator = new GameSimulator(config, strategy(args[1]), strategy(args[2]));
+		String archiveFile = System.getProperty("battleship.archive");
+		MetricsExporter metrics = new MetricsExporter(MetricsRegistry.getDefault());
+		try (ArchiveWriter archive = archiveFile == null ? null
+				: ArchiveWriter.open(Paths.get(archiveFile), config)) {
+			metrics.start();
+			simulator.setArchive(archive);
+			SimulationResult result = simulator.run(Long.valueOf(args[0]), workers, System.nanoTime());
+			System.out.println(result);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			metrics.close();
+		}
+	}
+
+	/**
+	 * This method finds a strategy by its name.
+	 *
+	 * @param name A string that holds the name of the strategy.
+	 * @return An object that makes new instances of the strategy.
+	 * @throws IllegalArgumentException when there is no strategy with the name.
+	 */
+	public static Supplier<Strategy> strategy(String name) {
+		if (name.equals("random")) {
+			return RandomStrategy::new;
+		} else if (name.equals("hunt")) {
+			return HuntTargetStrategy::new;
+		} else if (name.equals("probability")) {
+			return ProbabilityStrategy::new;
+		}
+		throw new IllegalArgumentException("Unknown strategy " + name);
+	}
+
+	/**
+	 * GameSimulator constructor.
+	 *
+	 * @param config An object that describes the board and fleet of every game.
+	 * @param first An object that makes the first strategy for each worker.
+	 * @param second An object that makes the second strategy for each worker.
+	 */
+	public GameSimulator(GameConfig config, Supplier<Strategy> first, Supplier<Strategy> second) {
+		this.config = config;
+		this.first = first;
+		this.second = second;
+	}
+
+	/**
+	 * This method sets the archive that every game is added to. The archive is
+	 * not closed by the simulator.
+	 *
+	 * @param archive An object that writes the games, or null to not keep them.
+	 */
+	public void setArchive(ArchiveWriter archive) {
+		this.archive = archive;
+	}
+
+	/**
+	 * This method plays the games and waits until they are all done.
+	 *
+	 * @param games A long that represents the number of games to play.
+	 * @param workers An integer that represents the number of threads that play games.
+	 * @param seed A long that decides every random choice of the run.
+	 * @return An object that holds the results of all the games.
+	 */
+	public SimulationResult run(long games, int workers, long seed) {
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		long startTime = System.nanoTime();
+		try {
+			List<Future<SimulationResult>> futures = new ArrayList<Future<SimulationResult>>();
+			for (int i = 0; i < workers; i++) {
+				futures.add(pool.submit(worker(i, workers, games, seed)));
+			}
+
+			SimulationResult total = new SimulationResult(getMaxTurns());
+			for (Future<SimulationResult> future : futures) {
+				total.merge(future.get());
+			}
+			total.setElapsedNanos(System.nanoTime() - startTime);
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The simulation was interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A game could not be played.", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * This private method plays a single game. Each strategy attacks the other's model
+	 * through its controller, and the result and the ship it sank are given back to
+	 * the attacker the same way the network would.
+	 *
+	 * @param strategies An array that holds the two strategies, the first one moving first.
+	 * @param random An object that all random choices of the game come from.
+	 * @param result An object that the game is added to.
+	 * @param firstSeat An integer that is the seat of the strategy that moves first, so
+	 * the winner is recorded for the right strategy.
+	 * @param shots An array that the positions of the moves are kept in for the archive.
+	 * @throws IOException when the game could not be added to the archive.
+	 */
+	private void playGame(Strategy[] strategies, Random random, SimulationResult result, int firstSeat,
+			int[] shots) throws IOException {
+		BattleshipModel[] models = new BattleshipModel[2];
+		BattleshipController[] controllers = new BattleshipController[2];
+		for (int i = 0; i < 2; i++) {
+			models[i] = new BattleshipModel(config);
+			controllers[i] = new BattleshipController(models[i]);
+			strategies[i].start(config, random);
+			strategies[i].placeFleet(controllers[i]);
+		}
+
+		int maxTurns = getMaxTurns();
+		int turn = 0;
+		for (int turns = 1; turns <= maxTurns; turns++) {
+			int other = 1 - turn;
+			Point move = strategies[turn].nextMove();
+			shots[turns - 1] = move.y * config.getSize() + move.x;
+			controllers[other].moveResult(move);
+			if (controllers[other].isGameOver()) {
+				result.record(turns, turn == 0 ? firstSeat : 1 - firstSeat);
+				if (archive != null) {
+					archive.append(models[0].getPlayerAnswerGrid(), models[1].getPlayerAnswerGrid(),
+							shots, turns, turn);
+				}
+				return;
+			}
+			POSITION_RESULT shot = models[other].getLastResult();
+			controllers[turn].applyShotResult(move, shot);
+			strategies[turn].onResult(move, shot);
+			int ship = shot == POSITION_RESULT.HIT ? models[other].getShipAt(move.y, move.x) : -1;
+			if (ship >= 0 && models[other].isShipSunk(ship)) {
+				controllers[turn].applyShipSunk(ship);
+				strategies[turn].onShipSunk(move, ship);
+			}
+			turn = other;
+		}
+		throw new IllegalStateException("A game took more moves than the board has positions.");
+	}
+
+	/**
+	 * This private method makes the task of one worker, which plays every game
+	 * whose number leaves the worker's index when divided by the number of workers.
+	 *
+	 * @param index An integer that represents the worker.
+	 * @param workers An integer that represents the number of workers.
+	 * @param games A long that represents the number of games of the whole run.
+	 * @param seed A long that decides every random choice of the run.
+	 * @return A task that returns the results of the worker's games.
+	 */
+	private Callable<SimulationResult> worker(int index, int workers, long games, long seed) {
+		return () -> {
+			Strategy firstStrategy = first.get();
+			Strategy secondStrategy = second.get();
+			Strategy[] firstMoves = new Strategy[] {firstStrategy, secondStrategy};
+			Strategy[] secondMoves = new Strategy[] {secondStrategy, firstStrategy};
+			SimulationResult result = new SimulationResult(getMaxTurns());
+			int[] shots = new int[getMaxTurns()];
+			for (long game = index; game < games; game += workers) {
+				Random random = new Random(seed + game * SEED_STEP);
+				if (game % 2 == 0) {
+					playGame(firstMoves, random, result, 0, shots);
+				} else {
+					playGame(secondMoves, random, result, 1, shots);
+				}
+			}
+			return result;
+		};
+	}
+
+	/**
+	 * This private method returns the most moves a game can take, which is when
+	 * both players attack every position of the board.
+	 *
+	 * @return the most moves a game can take.
+	 */
+	private int getMaxTurns() {
+		return 2 * config.getSize() * config.getSize();
+	}
+
+}
@@ -0,0 +1,66 @@
+package simulator;
+
+import java.awt.Point;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import utilities.GameConfig;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class is the strategy most people play with. It attacks random positions
+ * until it hits a ship, then attacks the positions next to every hit until there
+ * are none left, and then goes back to attacking random positions.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class HuntTargetStrategy extends RandomStrategy {
+
+	// Positions next to a hit that haven't been attacked yet.
+	private ArrayDeque<Point> targets = new ArrayDeque<Point>();
+
+	@Override
+	public void start(GameConfig config, Random random) {
+		super.start(config, random);
+		targets.clear();
+	}
+
+	@Override
+	public Point nextMove() {
+		while (!targets.isEmpty()) {
+			Point target = targets.poll();
+			if (markAttacked(target.y, target.x)) {
+				return target;
+			}
+		}
+		return super.nextMove();
+	}
+
+	@Override
+	public void onResult(Point move, POSITION_RESULT result) {
+		if (result != POSITION_RESULT.HIT) {
+			return;
+		}
+		addTarget(move.x + 1, move.y);
+		addTarget(move.x - 1, move.y);
+		addTarget(move.x, move.y + 1);
+		addTarget(move.x, move.y - 1);
+	}
+
+	/**
+	 * This private method adds a position to the targets if it is on the board
+	 * and wasn't attacked yet.
+	 *
+	 * @param x An integer that represents the column of the position.
+	 * @param y An integer that represents the row of the position.
+	 */
+	private void addTarget(int x, int y) {
+		if (config.contains(y, x) && !isAttacked(y, x)) {
+			targets.add(new Point(x, y));
+		}
+	}
+
+}
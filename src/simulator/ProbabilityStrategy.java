@@ -0,0 +1,378 @@
+package simulator;
+
+import java.awt.Point;
+import java.util.Random;
+
+import model.PlacementIndex;
+import utilities.Constants;
+import utilities.GameConfig;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class is an AI opponent that attacks the position most likely to hold a
+ * ship. For every position it keeps a count of the ways the ships of the fleet
+ * could be placed over it without covering a miss, and a second count of those
+ * placements that also cover hits, which is weighted much higher so that the AI
+ * finishes off a ship once it found one.
+ *
+ * The counts are never worked out again from scratch. A result only changes the
+ * placements that go through the position that was attacked, so only the positions
+ * those placements cover are changed, which is a few dozen positions no matter how
+ * big the board is. The best position is kept at the top of a tree of maximums over
+ * the board, so picking a move and changing a position both take time that only grows
+ * with the logarithm of the number of positions.
+ *
+ * Once a ship is sunk, one ship of its size is taken out of the counts, and the
+ * positions it took are closed like misses, since no other ship can be there, so
+ * its hits stop pulling the AI toward the wreck. The positions are the run of hits
+ * of that size through the move that sank it; if more than one run fits, only the
+ * position of that move is closed.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class ProbabilityStrategy extends RandomStrategy {
+
+	// How many times more a placement counts for each hit it covers.
+	private static final long TARGET_WEIGHT = 4;
+
+	// Hits past this many don't make a placement count any more, so the weights can't overflow.
+	private static final int MAX_WEIGHTED_HITS = 4;
+
+	// Bits of the key of a position used to break ties at random.
+	private static final int TIE_BITS = 20;
+
+	private int size;
+
+	// Each different ship size in the fleet and how many ships have that size.
+	private int[] lengths;
+	private int[] counts;
+
+	// Open placements over each position, counted once per ship that could use them.
+	private int[] density;
+
+	// Open placements over each position, each weighted by the hits it covers.
+	private long[] weight;
+
+	// Positions that were hit and missed, so that a placement is checked with a few masks.
+	private PlacementIndex hits;
+	private PlacementIndex misses;
+
+	private int[] tieBreak;
+
+	// A tree where each node holds the largest key below it. The leaves start at leafStart.
+	private long[] tree;
+	private int leafStart;
+
+	@Override
+	public void start(GameConfig config, Random random) {
+		super.start(config, random);
+		int cells = config.getSize() * config.getSize();
+		if (density == null || size != config.getSize()) {
+			size = config.getSize();
+			density = new int[cells];
+			weight = new long[cells];
+			hits = new PlacementIndex(size);
+			misses = new PlacementIndex(size);
+			tieBreak = new int[cells];
+			leafStart = Integer.highestOneBit(Math.max(1, cells - 1)) << 1;
+			tree = new long[2 * leafStart];
+		}
+		countShips(config);
+		hits.clear();
+		misses.clear();
+
+		// Every placement is open at the start, so the counts can be worked out directly.
+		for (int row = 0; row < size; row++) {
+			for (int col = 0; col < size; col++) {
+				int total = 0;
+				for (int k = 0; k < lengths.length; k++) {
+					int open = covering(col, lengths[k]);
+					if (lengths[k] > 1) {
+						open += covering(row, lengths[k]);
+					}
+					total += counts[k] * open;
+				}
+				int cell = row * size + col;
+				density[cell] = total;
+				weight[cell] = total;
+				tieBreak[cell] = random.nextInt(1 << TIE_BITS);
+			}
+		}
+
+		for (int i = 0; i < leafStart; i++) {
+			tree[leafStart + i] = i < cells ? key(i) : -1;
+		}
+		for (int node = leafStart - 1; node > 0; node--) {
+			tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+		}
+	}
+
+	@Override
+	public Point nextMove() {
+		if (tree[1] < 0) {
+			throw new IllegalStateException("Every position was already attacked.");
+		}
+		int node = 1;
+		while (node < leafStart) {
+			node = tree[2 * node] == tree[node] ? 2 * node : 2 * node + 1;
+		}
+		int cell = node - leafStart;
+		markAttacked(cell / size, cell % size);
+		update(cell);
+		return new Point(cell % size, cell / size);
+	}
+
+	@Override
+	public void onResult(Point move, POSITION_RESULT result) {
+		changePosition(move.y, move.x, result);
+	}
+
+	@Override
+	public void onShipSunk(Point move, int ship) {
+		int length = config.getShipSize(ship);
+		int k = 0;
+		while (k < lengths.length && lengths[k] != length) {
+			k++;
+		}
+		if (k == lengths.length || counts[k] == 0) {
+			return;
+		}
+
+		// Looks for the runs of hits of the ship's size through the move.
+		int runs = 0;
+		int runRow = move.y;
+		int runCol = move.x;
+		int runDir = Constants.HORIZONTAL;
+		for (int dir : new int[] {Constants.HORIZONTAL, Constants.VERTICAL}) {
+			if (dir == Constants.VERTICAL && length == 1) {
+				break;
+			}
+			int along = dir == Constants.VERTICAL ? move.y : move.x;
+			for (int start = Math.max(0, along - length + 1); start <= Math.min(along, size - length); start++) {
+				int startRow = dir == Constants.VERTICAL ? start : move.y;
+				int startCol = dir == Constants.HORIZONTAL ? start : move.x;
+				if (misses.isFree(startRow, startCol, length, dir)
+						&& hits.countTaken(startRow, startCol, length, dir) == length) {
+					runs++;
+					runRow = startRow;
+					runCol = startCol;
+					runDir = dir;
+				}
+			}
+		}
+
+		if (runs == 1) {
+			for (int i = 0; i < length; i++) {
+				changePosition(runDir == Constants.VERTICAL ? runRow + i : runRow,
+						runDir == Constants.HORIZONTAL ? runCol + i : runCol, POSITION_RESULT.MISS);
+			}
+		} else {
+			changePosition(move.y, move.x, POSITION_RESULT.MISS);
+		}
+		removeShip(k);
+	}
+
+	/**
+	 * Returns the number of ways the fleet could be placed over a position
+	 * without covering a miss.
+	 *
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return the number of open placements over the position.
+	 */
+	public int getDensity(int row, int col) {
+		return density[row * size + col];
+	}
+
+	/**
+	 * This private method finds every different ship size in the fleet.
+	 *
+	 * @param config An object that describes the fleet.
+	 */
+	private void countShips(GameConfig config) {
+		int[] perLength = new int[size + 1];
+		int different = 0;
+		for (int i = 0; i < config.getShipCount(); i++) {
+			if (perLength[config.getShipSize(i)]++ == 0) {
+				different++;
+			}
+		}
+		lengths = new int[different];
+		counts = new int[different];
+		int k = 0;
+		for (int length = 1; length <= size; length++) {
+			if (perLength[length] > 0) {
+				lengths[k] = length;
+				counts[k] = perLength[length];
+				k++;
+			}
+		}
+	}
+
+	/**
+	 * This private method changes the counts of every open placement over a
+	 * position and marks the position. A position that is closed after it was
+	 * hit, because the ship there was sunk, is changed like a miss.
+	 *
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @param result A constant that determines if the position was a hit or is closed.
+	 */
+	private void changePosition(int row, int col, POSITION_RESULT result) {
+		for (int k = 0; k < lengths.length; k++) {
+			int length = lengths[k];
+			changePlacements(row, col, length, counts[k], Constants.HORIZONTAL, result);
+			if (length > 1) {
+				changePlacements(row, col, length, counts[k], Constants.VERTICAL, result);
+			}
+		}
+
+		// The position is only marked once every placement over it was changed.
+		if (result == POSITION_RESULT.HIT) {
+			hits.take(row, col);
+		} else {
+			misses.take(row, col);
+		}
+	}
+
+	/**
+	 * This private method takes one ship of a size out of the counts, by taking
+	 * what one ship adds out of every open placement of that size. This goes over
+	 * the whole board, but it only happens once for every ship of the fleet.
+	 *
+	 * @param k An integer that represents the index of the size in lengths.
+	 */
+	private void removeShip(int k) {
+		int length = lengths[k];
+		for (int dir : new int[] {Constants.HORIZONTAL, Constants.VERTICAL}) {
+			if (dir == Constants.VERTICAL && length == 1) {
+				break;
+			}
+			int rows = dir == Constants.VERTICAL ? size - length + 1 : size;
+			int cols = dir == Constants.HORIZONTAL ? size - length + 1 : size;
+			for (int startRow = 0; startRow < rows; startRow++) {
+				for (int startCol = 0; startCol < cols; startCol++) {
+					if (!misses.isFree(startRow, startCol, length, dir)) {
+						continue;
+					}
+					long placement = hitWeight(hits.countTaken(startRow, startCol, length, dir));
+					for (int i = 0; i < length; i++) {
+						int position = dir == Constants.VERTICAL ? (startRow + i) * size + startCol
+								: startRow * size + startCol + i;
+						density[position]--;
+						weight[position] -= placement;
+						update(position);
+					}
+				}
+			}
+		}
+		counts[k]--;
+	}
+
+	/**
+	 * This private method changes the counts of every open placement in one
+	 * direction that goes through the attacked position. A hit makes each of
+	 * those placements count more for every position it covers, and a miss closes
+	 * the placement, taking it out of both counts.
+	 *
+	 * @param row An integer that represents the row of the attacked position.
+	 * @param col An integer that represents the column of the attacked position.
+	 * @param length An integer that represents the size of the ships being placed.
+	 * @param ships An integer that represents how many ships have that size.
+	 * @param dir An integer that is Constants.HORIZONTAL or Constants.VERTICAL.
+	 * @param result A constant that determines if the attack was a hit or a miss.
+	 */
+	private void changePlacements(int row, int col, int length, int ships, int dir,
+			POSITION_RESULT result) {
+		int along = dir == Constants.VERTICAL ? row : col;
+		int first = Math.max(0, along - length + 1);
+		int last = Math.min(along, size - length);
+
+		for (int start = first; start <= last; start++) {
+			int startRow = dir == Constants.VERTICAL ? start : row;
+			int startCol = dir == Constants.HORIZONTAL ? start : col;
+
+			// A placement over another miss was already closed.
+			if (!misses.isFree(startRow, startCol, length, dir)) {
+				continue;
+			}
+			int covered = hits.countTaken(startRow, startCol, length, dir);
+
+			long before = ships * hitWeight(covered);
+			long after = result == POSITION_RESULT.HIT ? ships * hitWeight(covered + 1) : 0;
+			for (int i = 0; i < length; i++) {
+				int position = dir == Constants.VERTICAL ? (startRow + i) * size + startCol
+						: startRow * size + startCol + i;
+				if (result != POSITION_RESULT.HIT) {
+					density[position] -= ships;
+				}
+				weight[position] += after - before;
+				update(position);
+			}
+		}
+	}
+
+	/**
+	 * This private method returns how much one placement counts.
+	 *
+	 * @param covered An integer that represents the hits the placement covers.
+	 * @return the weight of the placement.
+	 */
+	private long hitWeight(int covered) {
+		long result = 1;
+		for (int i = 0; i < Math.min(covered, MAX_WEIGHTED_HITS); i++) {
+			result *= TARGET_WEIGHT;
+		}
+		return result;
+	}
+
+	/**
+	 * This private method returns how many placements of a ship along one line
+	 * cover a position of that line.
+	 *
+	 * @param along An integer that represents the position along the line.
+	 * @param length An integer that represents the size of the ship.
+	 * @return the number of placements that cover the position.
+	 */
+	private int covering(int along, int length) {
+		return Math.max(0, Math.min(along, size - length) - Math.max(0, along - length + 1) + 1);
+	}
+
+	/**
+	 * This private method returns the key of a position in the tree. Positions
+	 * that were attacked get a key below every other key.
+	 *
+	 * @param cell An integer that represents the position as row * size + col.
+	 * @return the key of the position.
+	 */
+	private long key(int cell) {
+		if (isAttacked(cell / size, cell % size)) {
+			return -1;
+		}
+		return (weight[cell] << TIE_BITS) | tieBreak[cell];
+	}
+
+	/**
+	 * This private method gives a position its new key and fixes every node
+	 * of the tree above it.
+	 *
+	 * @param cell An integer that represents the position as row * size + col.
+	 */
+	private void update(int cell) {
+		int node = leafStart + cell;
+		tree[node] = key(cell);
+		node /= 2;
+		while (node > 0) {
+			long max = Math.max(tree[2 * node], tree[2 * node + 1]);
+			if (tree[node] == max) {
+				break;
+			}
+			tree[node] = max;
+			node /= 2;
+		}
+	}
+
+}
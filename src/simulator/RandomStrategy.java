@@ -0,0 +1,117 @@
+package simulator;
+
+import java.awt.Point;
+import java.util.BitSet;
+import java.util.Random;
+
+import controller.BattleshipController;
+import model.FleetGenerator;
+import utilities.GameConfig;
+import utilities.IllegalPlacementException;
+import utilities.POSITION_RESULT;
+
+/**
+ * This class is the simplest strategy. It places the fleet with a random layout,
+ * where every legal layout is equally likely, and attacks the positions of the
+ * board in a random order, never the same one twice. Other strategies extend it
+ * to reuse the placement and the record of which positions were attacked.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class RandomStrategy implements Strategy {
+
+	protected GameConfig config;
+
+	protected Random random;
+
+	// Makes the random layouts of the fleet, kept between games.
+	private FleetGenerator generator;
+
+	// Positions that haven't been picked by the random order yet, as row * size + col.
+	private int[] pool;
+	private int remaining;
+
+	// Positions that were attacked in this game.
+	private BitSet attacked;
+
+	@Override
+	public void start(GameConfig config, Random random) {
+		this.random = random;
+		int cells = config.getSize() * config.getSize();
+		if (this.config == null || this.config.getSize() != config.getSize()) {
+			pool = new int[cells];
+			attacked = new BitSet(cells);
+		}
+		this.config = config;
+		for (int i = 0; i < cells; i++) {
+			pool[i] = i;
+		}
+		remaining = cells;
+		attacked.clear();
+	}
+
+	@Override
+	public void placeFleet(BattleshipController controller) {
+		if (generator == null || !generator.getConfig().equals(config)) {
+			generator = new FleetGenerator(config, 0);
+		}
+		generator.setSeed(random.nextLong());
+		try {
+			controller.placeRandomFleet(generator);
+		} catch (IllegalPlacementException e) {
+			throw new IllegalStateException("The fleet was placed on a board that already has ships.", e);
+		}
+	}
+
+	@Override
+	public Point nextMove() {
+		int size = config.getSize();
+		while (remaining > 0) {
+			int pick = random.nextInt(remaining);
+			int index = pool[pick];
+			remaining--;
+			pool[pick] = pool[remaining];
+			pool[remaining] = index;
+			if (markAttacked(index / size, index % size)) {
+				return new Point(index % size, index / size);
+			}
+		}
+		throw new IllegalStateException("Every position was already attacked.");
+	}
+
+	@Override
+	public void onResult(Point move, POSITION_RESULT result) {
+		return;
+	}
+
+	/**
+	 * This method records that a position is being attacked.
+	 *
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A boolean value that is false if the position was already attacked.
+	 */
+	protected boolean markAttacked(int row, int col) {
+		int index = row * config.getSize() + col;
+		if (attacked.get(index)) {
+			return false;
+		}
+		attacked.set(index);
+		return true;
+	}
+
+	/**
+	 * Determines if a position was attacked in this game.
+	 *
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A boolean value that determines if the position was attacked.
+	 */
+	protected boolean isAttacked(int row, int col) {
+		return attacked.get(row * config.getSize() + col);
+	}
+
+}
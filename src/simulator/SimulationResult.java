@@ -0,0 +1,153 @@
+package simulator;
+
+/**
+ * This class adds up the games played by the simulator. Each worker fills in its
+ * own result while it plays, and the results of the workers are merged once they
+ * are all done, so no counter is ever shared between threads.
+ *
+ * The number of moves each game took is kept as a histogram, where the count at
+ * an index is how many games took that many moves.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class SimulationResult {
+
+	private long games;
+
+	// Games won by the first and second strategy.
+	private long[] wins;
+
+	private long[] turnCounts;
+
+	private long elapsedNanos;
+
+	/**
+	 * SimulationResult constructor.
+	 *
+	 * @param maxTurns An integer that represents the most moves a game can take.
+	 */
+	public SimulationResult(int maxTurns) {
+		this.wins = new long[2];
+		this.turnCounts = new long[maxTurns + 1];
+	}
+
+	/**
+	 * This method adds one game to the result.
+	 *
+	 * @param turns An integer that represents the moves both players made.
+	 * @param winner An integer that is 0 if the first strategy won and 1 if the second did.
+	 */
+	public void record(int turns, int winner) {
+		games++;
+		wins[winner]++;
+		turnCounts[turns]++;
+	}
+
+	/**
+	 * This method adds the games of another result to this one.
+	 *
+	 * @param other An object that holds the games of another worker.
+	 */
+	public void merge(SimulationResult other) {
+		games += other.games;
+		wins[0] += other.wins[0];
+		wins[1] += other.wins[1];
+		for (int i = 0; i < turnCounts.length; i++) {
+			turnCounts[i] += other.turnCounts[i];
+		}
+	}
+
+	/**
+	 * This method sets how long it took to play all of the games.
+	 *
+	 * @param elapsedNanos A long that represents the time in nanoseconds.
+	 */
+	void setElapsedNanos(long elapsedNanos) {
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of games that were played.
+	 *
+	 * @return the number of games that were played.
+	 */
+	public long getGames() {
+		return this.games;
+	}
+
+	/**
+	 * Returns the number of games a strategy won.
+	 *
+	 * @param seat An integer that is 0 for the first strategy and 1 for the second.
+	 * @return the number of games the strategy won.
+	 */
+	public long getWins(int seat) {
+		return this.wins[seat];
+	}
+
+	/**
+	 * Returns how many games were played per second.
+	 *
+	 * @return the number of games played per second.
+	 */
+	public double getGamesPerSecond() {
+		if (elapsedNanos == 0) {
+			return 0;
+		}
+		return games * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Returns the average number of moves a game took.
+	 *
+	 * @return the average number of moves a game took.
+	 */
+	public double getAverageTurns() {
+		if (games == 0) {
+			return 0;
+		}
+		long total = 0;
+		for (int i = 0; i < turnCounts.length; i++) {
+			total += turnCounts[i] * i;
+		}
+		return (double) total / games;
+	}
+
+	/**
+	 * Returns the number of moves that a share of the games took at most.
+	 *
+	 * @param percentile A double between 0 and 100, for example 50 for the median.
+	 * @return the number of moves.
+	 */
+	public int getTurnPercentile(double percentile) {
+		long target = (long) Math.ceil(games * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < turnCounts.length; i++) {
+			seen += turnCounts[i];
+			if (seen >= target && seen > 0) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns how many games took each number of moves.
+	 *
+	 * @return A copy of the histogram of moves.
+	 */
+	public long[] getTurnCounts() {
+		return this.turnCounts.clone();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("games=%d wins=%d/%d games/sec=%.0f turns avg=%.1f p50=%d p90=%d p99=%d max=%d",
+				games, wins[0], wins[1], getGamesPerSecond(), getAverageTurns(),
+				getTurnPercentile(50), getTurnPercentile(90), getTurnPercentile(99), getTurnPercentile(100));
+	}
+
+}
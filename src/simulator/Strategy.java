@@ -0,0 +1,65 @@
+package simulator;
+
+import java.awt.Point;
+import java.util.Random;
+
+import controller.BattleshipController;
+import utilities.GameConfig;
+import utilities.POSITION_RESULT;
+
+/**
+ * This interface is implemented by anything that can play Battleship on its own,
+ * like the AI opponents. The simulator makes one strategy for each side of every
+ * worker and reuses it, so start is called before each game to forget the last one.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public interface Strategy {
+
+	/**
+	 * This method is called before every game.
+	 *
+	 * @param config An object that describes the board and fleet of the game.
+	 * @param random An object that the strategy uses for all of its random choices,
+	 * so a game can be played again with the same seed.
+	 */
+	void start(GameConfig config, Random random);
+
+	/**
+	 * This method places the whole fleet of the config with the controller.
+	 *
+	 * @param controller An object that the ships are placed with.
+	 */
+	void placeFleet(BattleshipController controller);
+
+	/**
+	 * This method picks the next position to attack. It must be a position the
+	 * strategy hasn't attacked yet in this game.
+	 *
+	 * @return A Point object that holds the x and y position of the move.
+	 */
+	Point nextMove();
+
+	/**
+	 * This method tells the strategy the result of its last move.
+	 *
+	 * @param move A Point object that holds the x and y position of the move.
+	 * @param result A constant that determines if the move was a hit or a miss.
+	 */
+	void onResult(Point move, POSITION_RESULT result);
+
+	/**
+	 * This method tells the strategy that its last move sank a ship. It is called
+	 * after onResult for the same move. Strategies that don't keep track of the
+	 * ships that are left can ignore it.
+	 *
+	 * @param move A Point object that holds the x and y position of the move.
+	 * @param ship An integer that represents the order the opponent placed the ship in.
+	 */
+	default void onShipSunk(Point move, int ship) {
+	}
+
+}
@@ -0,0 +1,404 @@
+package utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+/**
+ * This class represents a single non-blocking connection that is served by a
+ * BattleshipEventLoop. Messages are sent as the same frames the BattleshipCodec
+ * writes to a blocking stream, so a channel can talk to a player that uses a
+ * BattleshipNetwork thread. Every frame starts with its length, so the channel
+ * waits until all of its bytes have arrived and then decodes it once. A frame
+ * that is larger than the read buffer gets a buffer of its own size, which is
+ * dropped again once the frame was read.
+ *
+ * Each channel has its own read and write buffers. Messages can be sent from any
+ * thread, they are written to the socket right away when possible, and whatever
+ * doesn't fit is written by the event loop once the socket has room again. The
+ * bytes still waiting to be written after each message are measured, which shows
+ * how far behind a slow player falls.
+ *
+ * A frame that goes to many channels, like a move sent to every spectator of a
+ * match, is encoded once and given to each channel as a read-only view of the same
+ * buffer. The channel keeps the views in a queue after its own write buffer and
+ * writes them from there, so the frame is never copied.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class BattleshipChannel {
+
+	private static final int BUFFER_SIZE = 1024;
+
+	private static final LatencyHistogram PENDING_BYTES = MetricsRegistry.getDefault().histogram("channel.pending.bytes");
+
+	private SocketChannel channel;
+
+	private MessageHandler handler;
+
+	private BattleshipEventLoop loop;
+
+	private SelectionKey key;
+
+	// Bytes that were read but are not a whole frame yet.
+	private ByteBuffer readBuffer;
+
+	// Frames that were sent but not written to the socket yet.
+	private ByteBuffer writeBuffer;
+
+	// Shared frames that are written after the write buffer, and their bytes left.
+	private ArrayDeque<ByteBuffer> sharedFrames;
+	private long sharedBytes;
+
+	// Determines if the channel is closed once every waiting byte is written.
+	private boolean closing;
+
+	// Streams that let the codec read from and write to the buffers.
+	private DataInputStream frameInput;
+	private DataOutputStream frameOutput;
+
+	// Filled in by every frame that is read.
+	private BattleshipMessage message;
+
+	private volatile boolean closed;
+
+	/**
+	 * BattleshipChannel constructor. The channel is changed to non-blocking mode.
+	 *
+	 * @param channel An object that represents the connection to the other side.
+	 * @param handler An object that is given every message that is read.
+	 * @throws IOException when the channel could not be made non-blocking.
+	 */
+	public BattleshipChannel(SocketChannel channel, MessageHandler handler) throws IOException {
+		channel.configureBlocking(false);
+		this.channel = channel;
+		this.handler = handler;
+		this.readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.sharedFrames = new ArrayDeque<ByteBuffer>();
+		this.frameInput = new DataInputStream(new FrameInputStream());
+		this.frameOutput = new DataOutputStream(new FrameOutputStream());
+		this.message = new BattleshipMessage();
+		this.closed = false;
+	}
+
+	/**
+	 * This method sends a message to the other side. It can be called from
+	 * any thread and never blocks on the socket.
+	 *
+	 * @param message An object that represents the message being sent.
+	 * @throws IOException when the channel is closed.
+	 */
+	public synchronized void send(BattleshipMessage message) throws IOException {
+		if (closed) {
+			throw new IOException("Channel is closed.");
+		}
+		if (sharedFrames.isEmpty()) {
+			BattleshipCodec.write(frameOutput, message);
+		} else {
+			// The frame has to wait behind the shared frames.
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			BattleshipCodec.write(new DataOutputStream(bytes), message);
+			addShared(ByteBuffer.wrap(bytes.toByteArray()));
+		}
+
+		if (key != null) {
+			flush();
+		}
+		PENDING_BYTES.record(getPendingBytes());
+	}
+
+	/**
+	 * This method sends a frame that is shared with other channels. The frame
+	 * isn't copied and its position isn't changed, so the same buffer can be
+	 * given to any number of channels as long as no one changes its bytes.
+	 *
+	 * @param frame An object that holds one or more whole frames.
+	 * @throws IOException when the channel is closed.
+	 */
+	public synchronized void sendShared(ByteBuffer frame) throws IOException {
+		if (closed) {
+			throw new IOException("Channel is closed.");
+		}
+		addShared(frame.duplicate());
+
+		if (key != null) {
+			flush();
+		}
+		PENDING_BYTES.record(getPendingBytes());
+	}
+
+	/**
+	 * Returns the number of bytes that were sent but not written to the socket yet.
+	 *
+	 * @return the number of bytes waiting to be written.
+	 */
+	public synchronized long getPendingBytes() {
+		return writeBuffer.position() + sharedBytes;
+	}
+
+	/**
+	 * This method closes the channel once every waiting byte is written, or right
+	 * away if none are waiting.
+	 *
+	 */
+	public void closeWhenFlushed() {
+		synchronized (this) {
+			closing = true;
+			if (writeBuffer.position() > 0 || !sharedFrames.isEmpty()) {
+				return;
+			}
+		}
+		close();
+	}
+
+	/**
+	 * This method closes the channel and tells the handler. Calling it more
+	 * than once does nothing.
+	 *
+	 */
+	public void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (key != null) {
+				key.cancel();
+			}
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		handler.onClose(this);
+	}
+
+	/**
+	 * Returns whether the channel was closed.
+	 *
+	 * @return A boolean value that determines if the channel was closed.
+	 */
+	public synchronized boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * This method is called by the event loop's thread to register the
+	 * channel with its selector. Frames that were sent before this are
+	 * written once the socket is ready.
+	 *
+	 * @param loop An object that represents the loop serving the channel.
+	 * @param selector An object that waits for the channel to be ready.
+	 * @throws IOException when the channel could not be registered.
+	 */
+	synchronized void register(BattleshipEventLoop loop, Selector selector) throws IOException {
+		if (closed) {
+			return;
+		}
+		this.loop = loop;
+		int ops = SelectionKey.OP_READ;
+		if (writeBuffer.position() > 0 || !sharedFrames.isEmpty()) {
+			ops |= SelectionKey.OP_WRITE;
+		}
+		this.key = channel.register(selector, ops, this);
+	}
+
+	/**
+	 * This method is called by the event loop when there are bytes to read.
+	 * Every whole frame in the read buffer is decoded and given to the handler,
+	 * and the bytes of a frame that was cut off are kept until the rest arrives.
+	 *
+	 * @throws IOException when the socket could not be read or a frame is invalid
+	 * or too large.
+	 */
+	void handleRead() throws IOException {
+		if (channel.read(readBuffer) < 0) {
+			close();
+			return;
+		}
+		readBuffer.flip();
+
+		// The bytes the frame that was cut off needs, counting its length, or 0.
+		int needed = 0;
+		while (readBuffer.hasRemaining() && !closed) {
+			int start = readBuffer.position();
+			int length = BattleshipCodec.readLength(readBuffer);
+			if (length < 0 || readBuffer.remaining() < length) {
+				needed = (length < 0) ? 0 : readBuffer.position() - start + length;
+				readBuffer.position(start);
+				break;
+			}
+
+			// The codec only sees the bytes of this frame, which it must use up exactly.
+			int limit = readBuffer.limit();
+			readBuffer.limit(readBuffer.position() + length);
+			try {
+				BattleshipCodec.readBody(frameInput, message);
+			} catch (EOFException e) {
+				throw new IOException("A frame ended before its message did.", e);
+			}
+			if (readBuffer.hasRemaining()) {
+				throw new IOException("A frame has bytes after its message.");
+			}
+			readBuffer.limit(limit);
+			handler.onMessage(this, message);
+		}
+		readBuffer.compact();
+
+		if (needed > readBuffer.capacity()) {
+			ByteBuffer bigger = ByteBuffer.allocate(needed);
+			readBuffer.flip();
+			bigger.put(readBuffer);
+			readBuffer = bigger;
+		} else if (readBuffer.capacity() > BUFFER_SIZE && readBuffer.position() == 0) {
+			readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * This method is called by the event loop when the socket has room for
+	 * the frames that are still waiting to be written.
+	 *
+	 * @throws IOException when the socket could not be written to.
+	 */
+	void handleWrite() throws IOException {
+		synchronized (this) {
+			flush();
+			if (!closing || writeBuffer.position() > 0 || !sharedFrames.isEmpty()) {
+				return;
+			}
+		}
+		close();
+	}
+
+	/**
+	 * This private method writes as many waiting bytes as the socket takes.
+	 * The event loop only waits for the socket to have room while there are
+	 * bytes left.
+	 *
+	 * @throws IOException when the socket could not be written to.
+	 */
+	private void flush() throws IOException {
+		writeBuffer.flip();
+		channel.write(writeBuffer);
+		writeBuffer.compact();
+
+		// The shared frames are only written once the write buffer is empty.
+		while (writeBuffer.position() == 0 && !sharedFrames.isEmpty()) {
+			ByteBuffer frame = sharedFrames.peek();
+			sharedBytes -= channel.write(frame);
+			if (frame.hasRemaining()) {
+				break;
+			}
+			sharedFrames.poll();
+		}
+
+		if (!key.isValid()) {
+			return;
+		}
+		if (writeBuffer.position() > 0 || !sharedFrames.isEmpty()) {
+			if ((key.interestOps() & SelectionKey.OP_WRITE) == 0) {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				loop.wakeup();
+			}
+		} else if ((key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+			key.interestOps(SelectionKey.OP_READ);
+		}
+	}
+
+	/**
+	 * This private method puts a frame at the end of the queue of shared frames.
+	 *
+	 * @param frame An object that holds the frame, which the channel may change the position of.
+	 */
+	private void addShared(ByteBuffer frame) {
+		sharedFrames.add(frame);
+		sharedBytes += frame.remaining();
+	}
+
+	/**
+	 * This private method makes sure the write buffer has room for a number
+	 * of bytes, and replaces it with a bigger buffer if it doesn't.
+	 *
+	 * @param bytes An integer that represents the number of bytes being written.
+	 */
+	private void ensureWritable(int bytes) {
+		if (writeBuffer.remaining() < bytes) {
+			int capacity = writeBuffer.capacity() * 2;
+			while (capacity - writeBuffer.position() < bytes) {
+				capacity *= 2;
+			}
+			ByteBuffer bigger = ByteBuffer.allocate(capacity);
+			writeBuffer.flip();
+			bigger.put(writeBuffer);
+			writeBuffer = bigger;
+		}
+	}
+
+	/**
+	 * This private class lets the codec read the frame that is at the
+	 * position of the read buffer, up to the end of the frame. Reaching the
+	 * end of the frame makes the codec throw an EOFException.
+	 *
+	 */
+	private class FrameInputStream extends InputStream {
+
+		@Override
+		public int read() {
+			if (!readBuffer.hasRemaining()) {
+				return -1;
+			}
+			return readBuffer.get() & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!readBuffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, readBuffer.remaining());
+			readBuffer.get(bytes, offset, count);
+			return count;
+		}
+
+	}
+
+	/**
+	 * This private class lets the codec write a frame to the end of the
+	 * write buffer.
+	 *
+	 */
+	private class FrameOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) {
+			ensureWritable(1);
+			writeBuffer.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) {
+			ensureWritable(length);
+			writeBuffer.put(bytes, offset, length);
+		}
+
+	}
+
+}
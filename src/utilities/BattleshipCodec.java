@@ -0,0 +1,597 @@
+package utilities;
+
+import java.awt.Point;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+/**
+ * This class turns a BattleshipMessage into bytes and back so that the players
+ * can send messages to each other without using Java serialization. Every
+ * message is written as a frame that looks like this:
+ *
+ * 1. The number of bytes in the rest of the frame, as a varint.
+ *
+ * 2. A byte holding the version of the protocol.
+ *
+ * 3. A tag byte for every field of the message that is set, followed by the value
+ * of that field. Coordinates are written as varints, which only take one byte on
+ * a normal sized grid. Grids are either packed into two bits per position or, 
+ * when only a few positions are filled in like on a large board, written as a 
+ * list of the filled positions, whichever is smaller. A position is always written
+ * as its POSITION_RESULT code.
+ *
+ * 4. An end tag that marks the end of the message.
+ *
+ * The length lets a reader that isn't blocking, like a BattleshipChannel, wait
+ * until every byte of a frame has arrived and decode it once, and lets any reader
+ * turn down a frame that is larger than MAX_FRAME_SIZE before reading it.
+ *
+ * The number of a message and the last message its sender received are written
+ * together as one field, and a session token is written as a whole long.
+ *
+ * Since each field has its own tag, new kinds of messages can be added without
+ * changing how the older ones are written.
+ *
+ * The time it takes to write and read each frame is measured, and so is the size
+ * of each frame that is written. Reading is timed from the version byte on, so the
+ * time spent waiting for the frame to arrive isn't counted.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class BattleshipCodec {
+
+	public static final int VERSION = 5;
+
+	// The largest frame a player can send. A fleet of ships that each take one
+	// position costs five bytes per position, more than any grid does.
+	public static final int MAX_FRAME_SIZE = 8 * GameConfig.MAX_SIZE * GameConfig.MAX_SIZE;
+
+	// Tags that start each field of a message.
+	private static final int END = 0;
+	private static final int MOVE = 1;
+	private static final int UPDATED_GRID = 2;
+	private static final int EXCEPTION = 4;
+	private static final int SHOT_RESULT = 5;
+	private static final int MATCH_START = 6;
+	private static final int SUNK_SHIP = 7;
+	private static final int FLEET_DESTROYED = 8;
+	private static final int SEQUENCE = 9;
+	private static final int SESSION = 10;
+	private static final int RESUME = 11;
+	private static final int SPECTATE = 12;
+	private static final int BOARD = 13;
+	private static final int FLEET = 14;
+
+	// Number of bits used by one position of a packed grid.
+	private static final int CELL_BITS = 2;
+
+	// Ways a grid can be written.
+	private static final int PACKED_GRID = 0;
+	private static final int SPARSE_GRID = 1;
+
+	private static final LatencyHistogram ENCODE_TIME = MetricsRegistry.getDefault().histogram("codec.encode.nanos");
+	private static final LatencyHistogram DECODE_TIME = MetricsRegistry.getDefault().histogram("codec.decode.nanos");
+	private static final LatencyHistogram FRAME_BYTES = MetricsRegistry.getDefault().histogram("codec.frame.bytes");
+	private static final LongAdder ERRORS = MetricsRegistry.getDefault().counter("codec.errors");
+
+	/**
+	 * This method writes a message to the output as a single frame. The output
+	 * is not flushed, so the caller can decide when the bytes are sent.
+	 *
+	 * @param out An object that the frame is written to.
+	 * @param message An object that represents the message being sent.
+	 * @throws IOException when the output could not be written to.
+	 */
+	public static void write(DataOutput out, BattleshipMessage message) throws IOException {
+		long start = System.nanoTime();
+
+		// The body is written first, since the length in front of it depends on it.
+		FrameBody body = new FrameBody();
+		writeBody(new DataOutputStream(body), message);
+		writeVarint(out, body.size());
+		body.writeTo(out);
+		ENCODE_TIME.recordSince(start);
+		FRAME_BYTES.record(body.size());
+	}
+
+	/**
+	 * This private method writes everything in a frame after its length.
+	 *
+	 * @param out An object that the body of the frame is written to.
+	 * @param message An object that represents the message being sent.
+	 * @throws IOException when the output could not be written to.
+	 */
+	private static void writeBody(DataOutput out, BattleshipMessage message) throws IOException {
+		out.writeByte(VERSION);
+
+		if (message.getSequence() > 0) {
+			out.writeByte(SEQUENCE);
+			writeVarint(out, message.getSequence());
+			writeVarint(out, message.getAck());
+		}
+		if (message.getSessionToken() != 0) {
+			out.writeByte(SESSION);
+			out.writeLong(message.getSessionToken());
+		}
+		if (message.isResume()) {
+			out.writeByte(RESUME);
+			writeVarint(out, message.getResume());
+		}
+		if (message.isSpectate()) {
+			out.writeByte(SPECTATE);
+			writeVarint(out, message.getSpectate());
+		}
+		if (message.getBoard() >= 0) {
+			out.writeByte(BOARD);
+			writeVarint(out, message.getBoard());
+		}
+		if (message.getFleetOrigins() != null) {
+			out.writeByte(FLEET);
+			writeVarint(out, message.getFleetOrigins().length);
+			for (int i = 0; i < message.getFleetOrigins().length; i++) {
+				writePoint(out, message.getFleetOrigins()[i]);
+				out.writeByte(message.getFleetDirections()[i]);
+			}
+		}
+
+		if (message.getMove() != null) {
+			out.writeByte(MOVE);
+			writePoint(out, message.getMove());
+		}
+		if (message.getShotCoord() != null) {
+			out.writeByte(SHOT_RESULT);
+			writePoint(out, message.getShotCoord());
+			out.writeByte(message.getShotResult().getCode());
+		}
+		if (message.getSunkShip() >= 0) {
+			out.writeByte(SUNK_SHIP);
+			writeVarint(out, message.getSunkShip());
+		}
+		if (message.isFleetDestroyed()) {
+			out.writeByte(FLEET_DESTROYED);
+		}
+		if (message.getUpdateGrid() != null) {
+			out.writeByte(UPDATED_GRID);
+			writeGrid(out, message.getUpdateGrid());
+		}
+		if (message.isMatchStart()) {
+			out.writeByte(MATCH_START);
+			out.writeBoolean(message.isFirstTurn());
+		}
+		if (message.exceptionFound()) {
+			out.writeByte(EXCEPTION);
+			out.writeUTF(message.getMessage());
+		}
+
+		out.writeByte(END);
+	}
+
+	/**
+	 * This method reads a single frame from the input and returns it as a
+	 * new message.
+	 *
+	 * @param in An object that the frame is read from.
+	 * @return An object that represents the message that was received.
+	 * @throws IOException when the input could not be read from or the frame is invalid.
+	 */
+	public static BattleshipMessage read(DataInput in) throws IOException {
+		BattleshipMessage message = new BattleshipMessage();
+		read(in, message);
+		return message;
+	}
+
+	/**
+	 * This method reads a single frame from the input into a message that
+	 * already exists. The message is cleared first, which lets a reader use
+	 * the same message object for every frame it receives.
+	 *
+	 * @param in An object that the frame is read from.
+	 * @param message An object that will hold the message that was received.
+	 * @throws IOException when the input could not be read from or the frame is invalid
+	 * or too large.
+	 */
+	public static void read(DataInput in, BattleshipMessage message) throws IOException {
+		checkLength(readVarint(in));
+		readBody(in, message);
+	}
+
+	/**
+	 * This method reads the length at the start of a frame in a buffer. If the
+	 * whole length is in the buffer, the position is moved past it, and otherwise
+	 * the position is left where it was.
+	 *
+	 * @param buffer An object that holds the bytes that were received.
+	 * @return the number of bytes in the rest of the frame, or -1 if not every byte
+	 * of the length has arrived yet.
+	 * @throws IOException when the length is not valid or the frame is too large.
+	 */
+	public static int readLength(ByteBuffer buffer) throws IOException {
+		int start = buffer.position();
+		int length = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (!buffer.hasRemaining()) {
+				buffer.position(start);
+				return -1;
+			}
+			int b = buffer.get() & 0xFF;
+			length |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				checkLength(length);
+				return length;
+			}
+		}
+		throw new IOException("Varint is too long.");
+	}
+
+	/**
+	 * This method reads everything in a frame after its length into a message
+	 * that already exists, which is cleared first.
+	 *
+	 * @param in An object that the body of the frame is read from.
+	 * @param message An object that will hold the message that was received.
+	 * @throws IOException when the input could not be read from or the frame is invalid.
+	 */
+	public static void readBody(DataInput in, BattleshipMessage message) throws IOException {
+		int version = in.readUnsignedByte();
+		long start = System.nanoTime();
+		if (version != VERSION) {
+			ERRORS.increment();
+			throw new IOException("Unsupported protocol version " + version + ".");
+		}
+		message.clear();
+
+		int tag = in.readUnsignedByte();
+		while (tag != END) {
+			switch (tag) {
+			case SEQUENCE:
+				int sequence = readVarint(in);
+				message.setSequence(sequence, readVarint(in));
+				break;
+			case SESSION:
+				message.setSessionToken(in.readLong());
+				break;
+			case RESUME:
+				message.setResume(readVarint(in));
+				break;
+			case SPECTATE:
+				message.setSpectate(readVarint(in));
+				break;
+			case BOARD:
+				message.setBoard(readVarint(in));
+				break;
+			case FLEET:
+				readFleet(in, message);
+				break;
+			case MOVE:
+				message.setMove(readPoint(in));
+				break;
+			case SHOT_RESULT:
+				Point coord = readPoint(in);
+				message.setShotResult(coord, readResult(in));
+				break;
+			case SUNK_SHIP:
+				message.setSunkShip(readVarint(in));
+				break;
+			case FLEET_DESTROYED:
+				message.setFleetDestroyed();
+				break;
+			case UPDATED_GRID:
+				message.setUpdatedGrid(readGrid(in));
+				break;
+			case MATCH_START:
+				message.setMatchStart(in.readBoolean());
+				break;
+			case EXCEPTION:
+				message.setException(in.readUTF());
+				break;
+			default:
+				ERRORS.increment();
+				throw new IOException("Unknown message tag " + tag + ".");
+			}
+			tag = in.readUnsignedByte();
+		}
+		DECODE_TIME.recordSince(start);
+	}
+
+	/**
+	 * This private method checks the length of a frame before it is read. A frame
+	 * holds at least its version and its end tag.
+	 *
+	 * @param length An integer that represents the number of bytes after the length.
+	 * @throws IOException when the frame is too small or too large.
+	 */
+	private static void checkLength(int length) throws IOException {
+		if (length < 2 || length > MAX_FRAME_SIZE) {
+			ERRORS.increment();
+			throw new IOException("A frame of " + length + " bytes is not valid, the largest is "
+					+ MAX_FRAME_SIZE + " bytes.");
+		}
+	}
+
+	/**
+	 * This method writes a non-negative integer using seven bits per byte. The
+	 * highest bit of each byte determines if another byte follows.
+	 *
+	 * @param out An object that the integer is written to.
+	 * @param value An integer that will be written.
+	 * @throws IOException when the output could not be written to.
+	 */
+	public static void writeVarint(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * This method reads an integer that was written by writeVarint.
+	 *
+	 * @param in An object that the integer is read from.
+	 * @return the integer that was read, which is never negative.
+	 * @throws IOException when the input could not be read from or the integer is too long
+	 * or negative.
+	 */
+	public static int readVarint(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				// Every varint is a size, a count or a position, so a negative one isn't valid.
+				if (value < 0 || (shift == 28 && b > 0x07)) {
+					throw new IOException("Varint is negative or too large.");
+				}
+				return value;
+			}
+		}
+		throw new IOException("Varint is too long.");
+	}
+
+	/**
+	 * This private method writes a position on a grid as two varints.
+	 *
+	 * @param out An object that the position is written to.
+	 * @param coord A Point object that holds the x and y position.
+	 * @throws IOException when the output could not be written to.
+	 */
+	private static void writePoint(DataOutput out, Point coord) throws IOException {
+		writeVarint(out, coord.x);
+		writeVarint(out, coord.y);
+	}
+
+	/**
+	 * This private method reads the ships of a fleet into a message.
+	 *
+	 * @param in An object that the fleet is read from.
+	 * @param message An object that will hold the fleet.
+	 * @throws IOException when the input could not be read from or the fleet is too large.
+	 */
+	private static void readFleet(DataInput in, BattleshipMessage message) throws IOException {
+		int ships = readVarint(in);
+		if (ships > GameConfig.MAX_SIZE * GameConfig.MAX_SIZE) {
+			throw new IOException("A fleet of " + ships + " ships is too large.");
+		}
+		Point[] origins = new Point[ships];
+		int[] directions = new int[ships];
+		for (int i = 0; i < ships; i++) {
+			origins[i] = readPoint(in);
+			directions[i] = in.readUnsignedByte();
+		}
+		message.setFleet(origins, directions);
+	}
+	
+	/**
+	 * This private method reads a position on a grid that was written by writePoint.
+	 *
+	 * @param in An object that the position is read from.
+	 * @return A Point object that holds the x and y position.
+	 * @throws IOException when the input could not be read from.
+	 */
+	private static Point readPoint(DataInput in) throws IOException {
+		int x = readVarint(in);
+		int y = readVarint(in);
+		return new Point(x, y);
+	}
+
+	/**
+	 * This method writes a grid in whichever way takes fewer bytes. A packed
+	 * grid stores the code of each position in two bits. A sparse grid stores how
+	 * many positions are filled in, then each one as the distance from the previous
+	 * one followed by its code. Besides messages, it is used by the MatchJournal.
+	 *
+	 * @param out An object that the grid is written to.
+	 * @param grid A grid of constants that will be written.
+	 * @throws IOException when the output could not be written to.
+	 */
+	public static void writeGrid(DataOutput out, POSITION_RESULT[][] grid) throws IOException {
+		int size = grid.length;
+		writeVarint(out, size);
+
+		int filled = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (grid[i][j] != null) {
+					filled++;
+				}
+			}
+		}
+
+		// A filled position takes at least two bytes in a sparse grid.
+		long packedBytes = ((long) size * size * CELL_BITS + Byte.SIZE - 1) / Byte.SIZE;
+		if ((long) filled * 2 < packedBytes) {
+			out.writeByte(SPARSE_GRID);
+			writeSparseGrid(out, grid, filled);
+		} else {
+			out.writeByte(PACKED_GRID);
+			writePackedGrid(out, grid);
+		}
+	}
+
+	/**
+	 * This method reads a grid that was written by writeGrid.
+	 *
+	 * @param in An object that the grid is read from.
+	 * @return A new grid of constants.
+	 * @throws IOException when the input could not be read or the grid is not valid.
+	 */
+	public static POSITION_RESULT[][] readGrid(DataInput in) throws IOException {
+		int size = readVarint(in);
+		if (size > GameConfig.MAX_SIZE) {
+			throw new IOException("Grid of size " + size + " is too large.");
+		}
+		POSITION_RESULT[][] grid = new POSITION_RESULT[size][size];
+
+		int format = in.readUnsignedByte();
+		if (format == SPARSE_GRID) {
+			readSparseGrid(in, grid);
+		} else if (format == PACKED_GRID) {
+			readPackedGrid(in, grid);
+		} else {
+			throw new IOException("Unknown grid format " + format);
+		}
+		return grid;
+	}
+
+	/**
+	 * This private method writes every position of a grid in two bits.
+	 *
+	 * @param out An object that the grid is written to.
+	 * @param grid A grid of constants that will be written.
+	 * @throws IOException when the output could not be written to.
+	 */
+	private static void writePackedGrid(DataOutput out, POSITION_RESULT[][] grid) throws IOException {
+		int size = grid.length;
+		int packed = 0;
+		int bits = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				int cell = POSITION_RESULT.codeOf(grid[i][j]);
+				packed |= cell << bits;
+				bits += CELL_BITS;
+				if (bits == Byte.SIZE) {
+					out.writeByte(packed);
+					packed = 0;
+					bits = 0;
+				}
+			}
+		}
+		if (bits > 0) {
+			out.writeByte(packed);
+		}
+	}
+
+	/**
+	 * This private method reads a grid that was written by writePackedGrid.
+	 *
+	 * @param in An object that the grid is read from.
+	 * @param grid An empty grid of constants that is filled in.
+	 * @throws IOException when the input could not be read.
+	 */
+	private static void readPackedGrid(DataInput in, POSITION_RESULT[][] grid) throws IOException {
+		int size = grid.length;
+		int packed = 0;
+		int bits = Byte.SIZE;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (bits == Byte.SIZE) {
+					packed = in.readUnsignedByte();
+					bits = 0;
+				}
+				int cell = (packed >>> bits) & ((1 << CELL_BITS) - 1);
+				bits += CELL_BITS;
+				grid[i][j] = POSITION_RESULT.fromCode(cell);
+			}
+		}
+	}
+
+	/**
+	 * This private method writes only the filled in positions of a grid.
+	 *
+	 * @param out An object that the grid is written to.
+	 * @param grid A grid of constants that will be written.
+	 * @param filled An integer that represents how many positions are filled in.
+	 * @throws IOException when the output could not be written to.
+	 */
+	private static void writeSparseGrid(DataOutput out, POSITION_RESULT[][] grid, int filled) throws IOException {
+		int size = grid.length;
+		writeVarint(out, filled);
+		int previous = -1;
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (grid[i][j] != null) {
+					int index = i * size + j;
+					writeVarint(out, index - previous);
+					out.writeByte(grid[i][j].getCode());
+					previous = index;
+				}
+			}
+		}
+	}
+
+	/**
+	 * This private method reads a grid that was written by writeSparseGrid.
+	 *
+	 * @param in An object that the grid is read from.
+	 * @param grid An empty grid of constants that is filled in.
+	 * @throws IOException when the input could not be read or a position is off the grid.
+	 */
+	private static void readSparseGrid(DataInput in, POSITION_RESULT[][] grid) throws IOException {
+		int size = grid.length;
+		int filled = readVarint(in);
+		int index = -1;
+		for (int k = 0; k < filled; k++) {
+			index += readVarint(in);
+			if (index < 0 || index >= size * size) {
+				throw new IOException("Sparse grid position is not valid.");
+			}
+			grid[index / size][index % size] = readResult(in);
+		}
+	}
+
+	/**
+	 * This private method reads the code of a position that is filled in.
+	 *
+	 * @param in An object that the code is read from.
+	 * @return the constant with the code.
+	 * @throws IOException when the input could not be read or the code is not valid.
+	 */
+	private static POSITION_RESULT readResult(DataInput in) throws IOException {
+		int code = in.readUnsignedByte();
+		if (code == POSITION_RESULT.EMPTY_CODE || code >= POSITION_RESULT.CODES) {
+			throw new IOException("Position code " + code + " is not valid.");
+		}
+		return POSITION_RESULT.fromCode(code);
+	}
+
+	/**
+	 * This private class holds the body of a frame while it is written, and
+	 * writes it to the output without copying it.
+	 *
+	 */
+	private static final class FrameBody extends ByteArrayOutputStream {
+
+		/**
+		 * This method writes the body to the output.
+		 *
+		 * @param out An object that the body is written to.
+		 * @throws IOException when the output could not be written to.
+		 */
+		void writeTo(DataOutput out) throws IOException {
+			out.write(buf, 0, count);
+		}
+
+	}
+
+}
@@ -0,0 +1,147 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class is a non-blocking event loop that lets a single thread read and
+ * write the messages of many connections at once. Connections are given to the
+ * loop as BattleshipChannel objects, and the loop waits on a selector until one
+ * of them has bytes to read or room to write. Whole messages are handed to the
+ * MessageHandler of their channel.
+ *
+ * A server only needs a handful of these loops, usually one per core, to serve
+ * every connected player.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class BattleshipEventLoop implements Runnable {
+
+	private Selector selector;
+
+	// Channels that were given to the loop but not registered with the selector yet.
+	private ConcurrentLinkedQueue<BattleshipChannel> pending;
+
+	private volatile boolean running;
+
+	/**
+	 * BattleshipEventLoop constructor.
+	 *
+	 * @throws IOException when the selector could not be opened.
+	 */
+	public BattleshipEventLoop() throws IOException {
+		this.selector = Selector.open();
+		this.pending = new ConcurrentLinkedQueue<BattleshipChannel>();
+		this.running = true;
+	}
+
+	/**
+	 * This method gives a channel to the loop. It can be called from any
+	 * thread, and the channel is registered by the loop's own thread.
+	 *
+	 * @param channel An object that represents the connection being added.
+	 */
+	public void register(BattleshipChannel channel) {
+		pending.add(channel);
+		selector.wakeup();
+	}
+
+	/**
+	 * This method contains the loop that waits for the channels to be ready
+	 * and reads or writes them. It runs until the loop is stopped, and then
+	 * closes every channel that is still open.
+	 *
+	 */
+	@Override
+	public void run() {
+		try {
+			while (running) {
+				selector.select();
+				registerPending();
+
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					BattleshipChannel channel = (BattleshipChannel) key.attachment();
+					try {
+						if (key.isValid() && key.isReadable()) {
+							channel.handleRead();
+						}
+						if (key.isValid() && key.isWritable()) {
+							channel.handleWrite();
+						}
+					} catch (IOException e) {
+						channel.close();
+					} catch (RuntimeException e) {
+						// A frame the codec or the handler couldn't take only ends its own channel.
+						e.printStackTrace();
+						channel.close();
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				((BattleshipChannel) key.attachment()).close();
+			}
+			try {
+				selector.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * This method stops the loop after the selection it is currently waiting on.
+	 *
+	 */
+	public void stop() {
+		running = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Returns the number of channels that are registered with the loop.
+	 *
+	 * @return the number of channels that are registered with the loop.
+	 */
+	public int getChannelCount() {
+		return selector.keys().size();
+	}
+
+	/**
+	 * This method wakes up the loop so that a change to the interest of a
+	 * channel is used right away.
+	 *
+	 */
+	void wakeup() {
+		selector.wakeup();
+	}
+
+	/**
+	 * This private method registers every channel that was given to the loop
+	 * since the last selection.
+	 *
+	 */
+	private void registerPending() {
+		BattleshipChannel channel = pending.poll();
+		while (channel != null) {
+			try {
+				channel.register(this, selector);
+			} catch (IOException e) {
+				channel.close();
+			}
+			channel = pending.poll();
+		}
+	}
+
+}
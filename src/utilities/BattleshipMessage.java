@@ -12,14 +12,38 @@ import java.io.Serializable;
  * 
  * The object can either hold:
  * 
- * 1. An updated grid from one player that resulted from a move. 
+ * 1. An updated grid from one player. This is only used to send a whole grid again, 
+ * since the result of a single move is sent as a shot result.
  * 
- * 2. A pointer object that represents a move made by a player that contains 
+ * 2. A shot result, which is the position of a move and whether it was a hit or a miss.
+ * A shot result can also say which ship the move sank, and that the move destroyed 
+ * the whole fleet, which ends the game.
+ * 
+ * 3. A pointer object that represents a move made by a player that contains 
  * the position on a grid as to where the move was made.
  * 
- * 3. A boolean value and a string that determines if there was an exception that
- * occurred or invalid action occurred. A message will most likely have a boolean when 
- * one of the player's fleet has been destroyed. 
+ * 4. A notifier from the game server that a match has started, and whether the 
+ * player that gets it makes the first move.
+ * 
+ * 5. A boolean value and a string that determines if there was an exception that
+ * occurred or invalid action occurred. 
+ * 
+ * 6. A request to resume a match after the connection was lost, which holds the 
+ * last message the player received and the session token that proves which 
+ * player is asking. The token is also given to a player when a match starts.
+ * 
+ * 7. A request from a spectator to watch a match on the game server. The messages
+ * a spectator gets say which player's board they are about.
+ * 
+ * 8. The fleet of a player, as the position and direction of each ship in the order
+ * they were placed. A player sends it to the game server when the match starts, which
+ * resolves every move against it and never passes it on. Once the game is over, the
+ * fleet is what shows a player's ships to the other player, since the size of each
+ * ship is already known from the order it was placed in.
+ * 
+ * Messages between the players are numbered, and each one also says which is the
+ * last message its sender received, so a player that reconnects knows which
+ * messages to send again.
  * 
  * 
  * 
@@ -32,24 +56,72 @@ public class BattleshipMessage implements Serializable {
 	
 	private POSITION_RESULT[][] updatedGrid;
 	
-	private POSITION_RESULT[][] answerGrid;
-	
 	private Point move;
 	
+	private Point shotCoord;
+	
+	private POSITION_RESULT shotResult;
+	
+	private int sunkShip;
+	
+	private boolean fleetDestroyed;
+	
+	private boolean matchStart;
+	
+	private boolean firstTurn;
+	
 	private boolean exceptionFound;
 	
 	private String exceptionMessage;
 	
+	private int sequence;
+	
+	private int ack;
+	
+	private long sessionToken;
+	
+	private int resume;
+	
+	private int spectate;
+	
+	private int board;
+	
+	private Point[] fleetOrigins;
+	
+	private int[] fleetDirections;
+	
 	/**
 	 * BattleshipMessage constructor. 
 	 * 
 	 */
 	public BattleshipMessage() {
+		clear();
+	}
+	
+	/**
+	 * This method sets all fields back to null or empty so that the same 
+	 * message object can be used again for another message.
+	 * 
+	 */
+	public final void clear() {
 		updatedGrid = null;
-		answerGrid = null;
 		move = null;
+		shotCoord = null;
+		shotResult = null;
+		sunkShip = -1;
+		fleetDestroyed = false;
+		matchStart = false;
+		firstTurn = false;
 		exceptionFound = false;
 		exceptionMessage = "";
+		sequence = 0;
+		ack = 0;
+		sessionToken = 0;
+		resume = -1;
+		spectate = -1;
+		board = -1;
+		fleetOrigins = null;
+		fleetDirections = null;
 	}
 	
 	/**
@@ -71,27 +143,6 @@ public class BattleshipMessage implements Serializable {
 	public POSITION_RESULT[][] getUpdateGrid(){
 		return this.updatedGrid;
 	}
-	/**
-	 * This method is a setter that makes the message a notifier that
-	 * the player is giving the other player their ship locations since the 
-	 * other player has lost.
-	 * 
-	 * @param grid the other player's updated grid.
-	 */
-	public void setAnswerGrid(POSITION_RESULT[][] grid) {
-		this.answerGrid = grid;
-	}
-	
-	/**
-	 * This method is a getter that returns the original grid of one of the
-	 * players.
-	 * 
-	 * @return the other player's updated grid.
-	 */
-	public POSITION_RESULT[][] getAnswerGrid(){
-		return this.answerGrid;
-	}
-	
 	/**
 	 * This method is a setter that makes that makes a message a
 	 * notifier that a player had made a move.
@@ -112,6 +163,109 @@ public class BattleshipMessage implements Serializable {
 		return this.move;
 	}
 	
+	/**
+	 * This method is a setter that makes the message a notifier of what
+	 * happened to the move the other player made.
+	 * 
+	 * @param coord A point object that represents the move that was made.
+	 * @param result A constant that determines if the move was a hit or a miss.
+	 */
+	public void setShotResult(Point coord, POSITION_RESULT result) {
+		this.shotCoord = coord;
+		this.shotResult = result;
+	}
+	
+	/**
+	 * This method is a getter that returns the position of the move
+	 * that the shot result is about.
+	 * 
+	 * @return A point object that represents the move, or null if the message
+	 * is not a shot result.
+	 */
+	public Point getShotCoord() {
+		return this.shotCoord;
+	}
+	
+	/**
+	 * This method is a getter that returns whether the move was a hit
+	 * or a miss.
+	 * 
+	 * @return A constant that represents the result of the move.
+	 */
+	public POSITION_RESULT getShotResult() {
+		return this.shotResult;
+	}
+	
+	/**
+	 * This method is a setter that adds to a shot result the ship that the
+	 * move sank.
+	 * 
+	 * @param ship An integer that represents the order the ship was placed in.
+	 */
+	public void setSunkShip(int ship) {
+		this.sunkShip = ship;
+	}
+	
+	/**
+	 * This method is a getter that returns the ship that the move sank.
+	 * 
+	 * @return the order the ship was placed in, or -1 if no ship was sunk.
+	 */
+	public int getSunkShip() {
+		return this.sunkShip;
+	}
+	
+	/**
+	 * This method is a setter that makes the message a notifier that the 
+	 * player's whole fleet was destroyed, which means the other player won.
+	 * 
+	 */
+	public void setFleetDestroyed() {
+		this.fleetDestroyed = true;
+	}
+	
+	/**
+	 * This method is a getter that determines if the player's whole fleet 
+	 * was destroyed.
+	 * 
+	 * @return A boolean value that determines if the fleet was destroyed.
+	 */
+	public boolean isFleetDestroyed() {
+		return this.fleetDestroyed;
+	}
+	
+	/**
+	 * This method is a setter that makes the message a notifier that the 
+	 * game server paired the player with an opponent.
+	 * 
+	 * @param firstTurn A boolean value that determines if the player makes the
+	 * first move of the match.
+	 */
+	public void setMatchStart(boolean firstTurn) {
+		this.matchStart = true;
+		this.firstTurn = firstTurn;
+	}
+	
+	/**
+	 * This method is a getter that determines if the message is a notifier 
+	 * that a match has started.
+	 * 
+	 * @return A boolean value that determines if a match has started.
+	 */
+	public boolean isMatchStart() {
+		return this.matchStart;
+	}
+	
+	/**
+	 * This method is a getter that determines if the player makes the 
+	 * first move of the match that started.
+	 * 
+	 * @return A boolean value that determines if the player moves first.
+	 */
+	public boolean isFirstTurn() {
+		return this.firstTurn;
+	}
+	
 	/**
 	 * This method is a setter that makes the message a warning to 
 	 * another player
@@ -144,4 +298,168 @@ public class BattleshipMessage implements Serializable {
 		return this.exceptionFound;
 	}
 	
+	/**
+	 * This method is a setter that numbers the message and adds the number of
+	 * the last message the sender received.
+	 * 
+	 * @param sequence An integer that represents the number of the message, starting at 1.
+	 * @param ack An integer that represents the last message the sender received, or 0.
+	 */
+	public void setSequence(int sequence, int ack) {
+		this.sequence = sequence;
+		this.ack = ack;
+	}
+	
+	/**
+	 * This method is a getter that returns the number of the message.
+	 * 
+	 * @return the number of the message, or 0 if it isn't numbered.
+	 */
+	public int getSequence() {
+		return this.sequence;
+	}
+	
+	/**
+	 * This method is a getter that returns the last message the sender received.
+	 * 
+	 * @return the number of the last message the sender received, or 0.
+	 */
+	public int getAck() {
+		return this.ack;
+	}
+	
+	/**
+	 * This method is a setter that adds the session token of the player's match
+	 * to the message.
+	 * 
+	 * @param token A long that identifies the player in the match.
+	 */
+	public void setSessionToken(long token) {
+		this.sessionToken = token;
+	}
+	
+	/**
+	 * This method is a getter that returns the session token in the message.
+	 * 
+	 * @return the session token, or 0 if the message doesn't have one.
+	 */
+	public long getSessionToken() {
+		return this.sessionToken;
+	}
+	
+	/**
+	 * This method is a setter that makes the message a request to resume the 
+	 * match, so that the other side sends again every message after the last one
+	 * the player received.
+	 * 
+	 * @param lastReceived An integer that represents the last message the player received.
+	 */
+	public void setResume(int lastReceived) {
+		this.resume = lastReceived;
+	}
+	
+	/**
+	 * This method is a getter that returns the last message the player that 
+	 * wants to resume the match received.
+	 * 
+	 * @return the number of the last message received, or -1 if the message
+	 * isn't a request to resume.
+	 */
+	public int getResume() {
+		return this.resume;
+	}
+	
+	/**
+	 * This method is a getter that determines if the message is a request to 
+	 * resume the match.
+	 * 
+	 * @return A boolean value that determines if the message is a request to resume.
+	 */
+	public boolean isResume() {
+		return this.resume >= 0;
+	}
+	
+	/**
+	 * This method is a setter that makes the message a request to watch a match
+	 * on the game server. The game server answers with the match it picked.
+	 * 
+	 * @param matchId An integer that identifies the match, or 0 for the match that
+	 * started last.
+	 */
+	public void setSpectate(int matchId) {
+		this.spectate = matchId;
+	}
+	
+	/**
+	 * This method is a getter that returns the match a spectator wants to watch.
+	 * 
+	 * @return the integer that identifies the match, 0 for the match that started
+	 * last, or -1 if the message isn't a request to watch.
+	 */
+	public int getSpectate() {
+		return this.spectate;
+	}
+	
+	/**
+	 * This method is a getter that determines if the message is a request to 
+	 * watch a match.
+	 * 
+	 * @return A boolean value that determines if the message is a request to watch.
+	 */
+	public boolean isSpectate() {
+		return this.spectate >= 0;
+	}
+	
+	/**
+	 * This method is a setter that says which player's board the grid or shot 
+	 * result of a message sent to a spectator is about.
+	 * 
+	 * @param seat An integer that is 0 for the board of the player that moved first
+	 * and 1 for the board of the other player.
+	 */
+	public void setBoard(int seat) {
+		this.board = seat;
+	}
+	
+	/**
+	 * This method is a getter that returns which player's board the message is about.
+	 * 
+	 * @return 0 or 1 for the board of a player, or -1 if the message doesn't say.
+	 */
+	public int getBoard() {
+		return this.board;
+	}
+	
+	/**
+	 * This method is a setter that makes the message hold the fleet of the player
+	 * that sends it.
+	 * 
+	 * @param origins Point objects that hold the x and y position of the front of 
+	 * each ship, in the order the ships were placed.
+	 * @param directions Integers that determine the direction of each ship.
+	 */
+	public void setFleet(Point[] origins, int[] directions) {
+		this.fleetOrigins = origins;
+		this.fleetDirections = directions;
+	}
+	
+	/**
+	 * This method is a getter that returns the position of the front of each ship
+	 * of the fleet.
+	 * 
+	 * @return the positions of the ships, or null if the message doesn't hold a fleet.
+	 */
+	public Point[] getFleetOrigins() {
+		return this.fleetOrigins;
+	}
+	
+	/**
+	 * This method is a getter that returns the direction of each ship of the fleet.
+	 * 
+	 * @return the directions of the ships, or null if the message doesn't hold a fleet.
+	 */
+	public int[] getFleetDirections() {
+		return this.fleetDirections;
+	}
+	
 }
@@ -1,13 +1,27 @@
 package utilities;
 
 import java.awt.Point;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import controller.BattleshipController;
-import players.Battleship;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import model.MatchJournal;
+import model.ModelEvent;
 
 /**
  * This class is used by both players to constantly be ready to receive 
@@ -17,106 +31,558 @@ import players.Battleship;
  * a thread that constantly runs while the view is running and it stops once the 
  * Battleship game is over.  
  * 
+ * Instead of running on its own thread, the network can also be opened on a 
+ * SocketChannel and be served by a BattleshipEventLoop. The messages are then 
+ * numbered, sent and handled the same way, but a handful of loop threads can serve
+ * every connection of a headless host, like a ComputerPlayer hosting many games on
+ * the game server. A network on a loop can't get a lost connection back, so losing
+ * it before the game is over ends the game with an error.
+ * 
+ * A network on its own thread can also survive the connection being lost. Every
+ * message it sends is numbered and kept in a MessageLog until the other side says
+ * it received it. When the connection drops, the player that opened it connects
+ * again with its Reconnector, while the player that accepted it waits for the
+ * other player on the socket it listens to. The first message on the new
+ * connection is a request to resume, which holds the session token of the match
+ * and the last message received. Each side checks the token and sends again every
+ * message after that one, so a short drop only costs a round trip. A message
+ * that arrives out of order or a second time is skipped, since it is sent again
+ * in order. If the connection isn't back within the time set by the 
+ * "battleship.reconnect" property, in milliseconds, the game ends like before.
+ * 
+ * A turn takes a single round trip. The network answers a move of the other player
+ * itself, on the thread that read it, as soon as the model has resolved it. The
+ * answer is one message that holds the result of the move and the ship it sank,
+ * and also hands the turn over, since the player that sends a result moves next.
+ * If the move destroyed the fleet, the same message says so and holds the fleet
+ * of the player that lost, so the winner only has to send its own fleet back 
+ * before both sides close the connection. A fleet is the position and direction 
+ * of each ship, which is much smaller than the grid it stands for, and the model
+ * works out the positions of the ships from it. On the game server, the referee
+ * resolves each move and sends its result as soon as the move arrives, so the 
+ * network doesn't answer a move there and only gives it to the model.
+ * 
+ * A player that keeps a MatchJournal gives it to the network, which waits until
+ * every change to the model is on the disk before it sends a message, so the other
+ * player never sees a move or a result the journal could lose.
+ * 
+ * The network counts the messages it sends and receives, the connections that came
+ * back and the errors it runs into, and measures how long it takes from sending a
+ * move to getting its result.
+ * 
  * 
  * @author Luke Genova
  * @author Amimul Ehsan Zoha
  *
  */
-public class BattleshipNetwork implements Runnable {
+public class BattleshipNetwork implements Runnable, MessageHandler {
 
-	private Socket connection;
+	// The system property that sets how long a lost connection has to come back.
+	public static final String RECONNECT_PROPERTY = "battleship.reconnect";
+	
+	public static final long DEFAULT_RECONNECT_MILLIS = 30000;
+	
+	// Longest wait between two tries to connect again.
+	private static final long MAX_BACKOFF_MILLIS = 1000;
+	
+	// Time a new connection has to send its request to resume.
+	private static final int HELLO_TIMEOUT_MILLIS = 5000;
+	
+	private static final LongAdder MESSAGES_SENT = MetricsRegistry.getDefault().counter("network.messages.sent");
+	private static final LongAdder MESSAGES_RECEIVED = MetricsRegistry.getDefault().counter("network.messages.received");
+	private static final LongAdder RECONNECTS = MetricsRegistry.getDefault().counter("network.reconnects");
+	private static final LongAdder ERRORS = MetricsRegistry.getDefault().counter("network.errors");
+	private static final LatencyHistogram ROUND_TRIP = MetricsRegistry.getDefault().histogram("network.roundtrip.nanos");
+	
+	private volatile Socket connection;
+	
+	private BattleshipChannel channel;
 	
 	private BattleshipController controller;
 	
-	private ObjectOutputStream output;
+	private DataOutputStream output;
+	
+	// Guards the output, which is replaced when the connection comes back.
+	private final Object sendLock = new Object();
+	
+	private MessageLog log;
+	
+	// Identifies this player's side of the match, or 0 until it is known.
+	private volatile long sessionToken;
+	
+	private Reconnector reconnector;
+	
+	private ServerSocket listener;
+	
+	// Connections that came back to the listener and sent a valid request to resume.
+	private ArrayBlockingQueue<Handover> handovers;
+	
+	private long reconnectMillis;
+	
+	// When the last move was sent, or 0 once its result came back.
+	private volatile long moveSentAt;
+	
+	// Determines if a game server started the match, and if the fleet was sent to it.
+	private volatile boolean matchStarted;
+	
+	private boolean fleetDeclared;
+	
+	// Determines if the game was played to the end.
+	private volatile boolean over;
+	
+	// Counted down once the connection is closed for good.
+	private CountDownLatch closed;
+	
+	// Journal of the player's model that is synced before a message is sent, or null.
+	private volatile MatchJournal journal;
+	
+	/**
+	 * This private record holds a connection that came back, along with the 
+	 * request to resume that was read from it.
+	 * 
+	 * @param socket An object that represents the new connection.
+	 * @param input An object that reads the rest of the connection.
+	 * @param hello An object that represents the request to resume.
+	 */
+	private record Handover(Socket socket, DataInputStream input, BattleshipMessage hello) {
+	}
 	
 	
 	/**
-	 * BattleshipNetwork constructor.
+	 * BattleshipNetwork constructor. Networks are made with open, which adds
+	 * them to the model once they are fully constructed.
 	 * 
 	 * @param connection An object that represents the established connection between the server and the 
 	 * client. 
 	 * @param controller An object used by the view to pass data through which then determines if the 
 	 * data is valid.
-	 * @param output An object that is used to transfer data from one process to another. 
+	 * @param output An object that is used to transfer data from one process to another. Messages 
+	 * are written to it with the BattleshipCodec.
 	 */
-	public BattleshipNetwork(Socket connection, BattleshipController controller, ObjectOutputStream output) {
+	private BattleshipNetwork(Socket connection, BattleshipController controller, DataOutputStream output) {
 		this.connection = connection;
 		this.controller = controller;
 		this.output = output;
+		this.log = new MessageLog();
+		this.handovers = new ArrayBlockingQueue<Handover>(1);
+		this.reconnectMillis = Long.getLong(RECONNECT_PROPERTY, DEFAULT_RECONNECT_MILLIS);
+		this.closed = new CountDownLatch(1);
+	}
+	
+	/**
+	 * BattleshipNetwork constructor for a connection that is served by an event loop.
+	 * 
+	 * @param controller An object used by the view to pass data through which then determines if the 
+	 * data is valid.
+	 */
+	private BattleshipNetwork(BattleshipController controller) {
+		this.controller = controller;
+		this.log = new MessageLog();
+		this.closed = new CountDownLatch(1);
+	}
+	
+	/**
+	 * This method makes a network that reads the messages of a connection on a 
+	 * thread of its own. The network is added as a listener of the model before 
+	 * anything else, so it answers a move before a listener that makes the next one.
+	 * 
+	 * @param connection An object that represents the established connection between the server and the 
+	 * client. 
+	 * @param controller An object used by the view to pass data through which then determines if the 
+	 * data is valid.
+	 * @param output An object that is used to transfer data from one process to another. Messages 
+	 * are written to it with the BattleshipCodec.
+	 * @return A new network that is ready to run.
+	 */
+	public static BattleshipNetwork open(Socket connection, BattleshipController controller, DataOutputStream output) {
+		BattleshipNetwork network = new BattleshipNetwork(connection, controller, output);
+		network.listenToModel();
+		return network;
+	}
+	
+	/**
+	 * This method makes a network for a connection that is served by an event loop.
+	 * Nothing is sent or read until the network is registered with a loop, so other
+	 * listeners of the model can be added after the network first.
+	 * 
+	 * @param connection An object that represents the connection to the other player
+	 * or the game server.
+	 * @param controller An object used by the view to pass data through which then determines if the 
+	 * data is valid.
+	 * @return A new network that waits to be registered.
+	 * @throws IOException when the connection could not be made non-blocking.
+	 */
+	public static BattleshipNetwork open(SocketChannel connection, BattleshipController controller) 
+			throws IOException {
+		BattleshipNetwork network = new BattleshipNetwork(controller);
+		network.channel = new BattleshipChannel(connection, network);
+		network.listenToModel();
+		return network;
+	}
+	
+	/**
+	 * This private method adds the network as a listener of the model, which
+	 * answers moves and sends the fleet to the game server.
+	 * 
+	 */
+	private void listenToModel() {
+		controller.addListener(this::answerMoves);
+		controller.addListener(this::declareFleet);
+	}
+	
+	/**
+	 * This method starts a network that was opened on a channel. It sends the 
+	 * request to resume from the start, which a game server takes as the player
+	 * joining, and gives the channel to the loop, which reads every message from then on.
+	 * 
+	 * @param loop An object that represents the loop serving the connection.
+	 * @throws IOException when the request could not be sent.
+	 */
+	public void register(BattleshipEventLoop loop) throws IOException {
+		synchronized (sendLock) {
+			sendHello();
+		}
+		loop.register(channel);
+	}
+	
+	/**
+	 * This method waits until the connection of the network is closed, which
+	 * happens once the game is over or the connection is lost.
+	 * 
+	 * @param millis A long that represents how many milliseconds to wait at most.
+	 * @return A boolean value that is true if the game was played to the end.
+	 * @throws InterruptedException when the thread is interrupted while it waits.
+	 */
+	public boolean awaitClose(long millis) throws InterruptedException {
+		return closed.await(millis, TimeUnit.MILLISECONDS) && over;
+	}
+	
+	/**
+	 * This method sets how the player that opened the connection opens it again
+	 * if it is lost.
+	 * 
+	 * @param reconnector An object that opens a new connection to the other player.
+	 */
+	public void setReconnector(Reconnector reconnector) {
+		this.reconnector = reconnector;
+	}
+	
+	/**
+	 * This method is used by the player that accepted the connection. It makes a 
+	 * session token for the match and keeps accepting connections on a thread of
+	 * its own, so that the other player can come back if the connection is lost,
+	 * even before this side notices. The socket is closed once the game is over.
+	 * 
+	 * @param server An object that represents the socket the other player connected to.
+	 */
+	public void listen(ServerSocket server) {
+		if (sessionToken == 0) {
+			SecureRandom random = new SecureRandom();
+			long token = 0;
+			while (token == 0) {
+				token = random.nextLong();
+			}
+			sessionToken = token;
+		}
+		this.listener = server;
+		Thread thread = new Thread(this::acceptReconnects, "battleship-reconnect");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Returns the session token of the match, which the player that accepted the
+	 * connection or the game server sends when the match starts.
+	 * 
+	 * @return the session token, or 0 if it isn't known yet.
+	 */
+	public long getSessionToken() {
+		return this.sessionToken;
 	}
 	
 	/**
 	 * This method contains a loop that constantly checks for input from the 
 	 * other player. Once a message is acquired, it then checks what kind of message
 	 * it was given and do the necessary actions needed to continue the game. This method
-	 * is called by a thread object created in the view.  
+	 * is called by a thread object created in the view. It starts by sending a 
+	 * request to resume from the start, which a game server takes as the player
+	 * joining and which carries the session token of a player that is listening.
+	 * If the connection is lost while the game goes on, the loop waits for it to
+	 * come back and goes on with the new connection.
 	 *
 	 */
 	@Override
 	public void run() {
 		
 		try {
-			ObjectInputStream input = new ObjectInputStream(connection.getInputStream());
-			
-			BattleshipMessage message;
-			do {
-				message = (BattleshipMessage) input.readObject();
-				
-				isExceptionMessage(message);
-				
-				isMoveMessage(message);
-				
-				isUpdateGridMessage(message);
-				
-			} while (message.getAnswerGrid() == null);
+			// Each turn is a small message that must not wait for the one before it to be acknowledged.
+			connection.setTcpNoDelay(true);
+			connection.setKeepAlive(true);
+			DataInputStream input = new DataInputStream(
+					new BufferedInputStream(connection.getInputStream()));
+			synchronized (sendLock) {
+				sendHello();
+			}
 			
-			endGame(message);
+			// The same message object is filled in by every frame that is read.
+			BattleshipMessage message = new BattleshipMessage();
+			boolean playing = true;
+			while (playing) {
+				try {
+					BattleshipCodec.read(input, message);
+				} catch (IOException e) {
+					input = reconnect(e);
+					continue;
+				}
+				playing = handleMessage(message);
+			}
 			
 		} catch (IOException e) {
+			ERRORS.increment();
 			e.printStackTrace();
-		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
+		} finally {
+			closeListener();
+			closed.countDown();
 		}
 		
 	}
 	
 	/**
-	 * This private method determines if the message received is meant 
-	 * to notify the current player that an exception occurred with the other
-	 * player. The message also checks if the other player has no more ships 
-	 * left, meaning that the game has ended.
+	 * This method is called by the event loop when a message was read from
+	 * the channel. It does the same actions as the loop in the run method.
 	 * 
+	 * @param channel An object that represents the channel the message came from.
 	 * @param message An object that represents the message that was received.
+	 */
+	@Override
+	public void onMessage(BattleshipChannel channel, BattleshipMessage message) {
+		handleMessage(message);
+	}
+	
+	/**
+	 * This method is called by the event loop when the channel was closed. If
+	 * the game wasn't over, the connection was lost, which ends the game since a
+	 * channel can't connect again.
+	 * 
+	 * @param channel An object that represents the channel that was closed.
+	 */
+	@Override
+	public void onClose(BattleshipChannel channel) {
+		if (!over) {
+			ERRORS.increment();
+			System.err.println("The connection was lost before the game was over.");
+		}
+		closed.countDown();
+	}
+	
+	/**
+	 * This method sets the journal of the player's model. Every message is sent
+	 * only once the changes to the model before it are on the disk.
 	 * 
+	 * @param journal An object that records the model, or null.
 	 */
-	private void isExceptionMessage(BattleshipMessage message) {
+	public void setJournal(MatchJournal journal) {
+		this.journal = journal;
+	}
+	
+	/**
+	 * This method sends a message to the other player right away, either through
+	 * the output stream or through the channel. If the player keeps a journal,
+	 * the message waits for the journal to be synced first.
+	 * 
+	 * @param message An object that represents the message being sent.
+	 * @throws IOException when the journal could not be written or the message could not be sent.
+	 */
+	public void send(BattleshipMessage message) throws IOException {
+		MatchJournal journal = this.journal;
+		if (journal != null) {
+			journal.sync();
+		}
+		MESSAGES_SENT.increment();
+		if (message.getMove() != null) {
+			moveSentAt = System.nanoTime();
+		}
+		synchronized (sendLock) {
+			byte[] frame = log.record(message);
+			try {
+				write(frame);
+				flush();
+			} catch (IOException e) {
+				// The message is sent again once the connection is back.
+				if (!canReconnect()) {
+					throw e;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This private method is given the changes to the model right away and answers
+	 * every move of the other player that the model resolved with one message. The
+	 * network is added as a listener before anything else, so the answer is sent
+	 * before a listener that makes the next move. A match on the game server is
+	 * never answered, since the game server already sent the result.
+	 * 
+	 * @param events A list of the events in the order they happened.
+	 */
+	private void answerMoves(List<ModelEvent> events) {
+		if (matchStarted) {
+			return;
+		}
+		for (ModelEvent event : events) {
+			if (event instanceof ModelEvent.ShotResolved shot) {
+				BattleshipMessage answer = new BattleshipMessage();
+				answer.setShotResult(shot.cell(), shot.result());
+				answer.setSunkShip(shot.sunkShip());
+				if (controller.isGameOver()) {
+					answer.setFleetDestroyed();
+					controller.describeFleet(answer);
+				}
+				try {
+					send(answer);
+				} catch (IOException e) {
+					ERRORS.increment();
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This private method sends the fleet of the current player to the game 
+	 * server once the match started and every ship is placed, whichever comes
+	 * last. The game server decides the result of every move from it, so a move
+	 * of the other player isn't passed on until the fleet is sent. A match
+	 * between two players never sends the fleet, since it doesn't start this way.
+	 * 
+	 * @param events A list of the events in the order they happened.
+	 */
+	private void declareFleet(List<ModelEvent> events) {
+		for (ModelEvent event : events) {
+			if (!(event instanceof ModelEvent.MatchStarted) && !(event instanceof ModelEvent.ShipPlaced)) {
+				continue;
+			}
+			synchronized (sendLock) {
+				matchStarted |= event instanceof ModelEvent.MatchStarted;
+				BattleshipMessage fleet = new BattleshipMessage();
+				if (!matchStarted || fleetDeclared || !controller.describeFleet(fleet)) {
+					continue;
+				}
+				fleetDeclared = true;
+				try {
+					send(fleet);
+				} catch (IOException e) {
+					ERRORS.increment();
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This private method checks what kind of message it was given and does 
+	 * the necessary actions needed to continue the game. 
+	 * 
+	 * @param message An object that represents the message that was received.
+	 * @return A boolean value that determines if the game is still being played.
+	 */
+	private boolean handleMessage(BattleshipMessage message) {
+		if (!log.accept(message)) {
+			return true;
+		}
+		MESSAGES_RECEIVED.increment();
 		
-		try {
-			// Checks if the message was to notify the other player that the current player made an
-			// invalid move.
-			if (message.exceptionFound()) {
-				
-				// Alert player that they have won the game. 
-				if (message.getMessage().equals("Game over")){
-			
-					// Give the losing player the locations of all the current player's ship.
-					BattleshipMessage newMessage = new BattleshipMessage();
-					newMessage.setAnswerGrid(controller.getPlayerAnswerGrid());
-					output.writeObject(newMessage);
-				} 
+		isSessionMessage(message);
+		
+		isResumeMessage(message);
+		
+		isMatchStartMessage(message);
+		
+		isMoveMessage(message);
+		
+		isShotResultMessage(message);
+		
+		isFleetDestroyedMessage(message);
+		
+		isUpdateGridMessage(message);
+		
+		if (message.getFleetOrigins() != null) {
+			endGame(message);
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * This private method keeps the session token that the player that accepted 
+	 * the connection or the game server gave this player.
+	 * 
+	 * @param message An object that represents the message that was received.
+	 */
+	private void isSessionMessage(BattleshipMessage message) {
+		if (sessionToken == 0 && message.getSessionToken() != 0) {
+			sessionToken = message.getSessionToken();
+		}
+	}
+	
+	/**
+	 * This private method checks if the other side asked to resume the match 
+	 * and sends again every message after the last one it received.
+	 * 
+	 * @param message An object that represents the message that was received.
+	 */
+	private void isResumeMessage(BattleshipMessage message) {
+		if (message.isResume()) {
+			synchronized (sendLock) {
+				try {
+					for (byte[] frame : log.since(message.getResume())) {
+						write(frame);
+					}
+					flush();
+				} catch (IOException e) {
+					// The reading loop notices the lost connection as well.
+				}
 			}
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		} 
+		}
+	}
+	
+	/**
+	 * This private method determines if the message received is from the 
+	 * game server and notifies the current player that they were paired 
+	 * with an opponent.
+	 * 
+	 * @param message An object that represents the message that was received.
+	 */
+	private void isMatchStartMessage(BattleshipMessage message) {
+		if (message.isMatchStart()) {
+			controller.startMatch(message.isFirstTurn());
+		}
+	}
+	
+	/**
+	 * This private method checks if the other player has no more ships 
+	 * left, meaning that the game has ended and the current player won.
+	 * 
+	 * @param message An object that represents the message that was received.
+	 */
+	private void isFleetDestroyedMessage(BattleshipMessage message) {
+		if (message.isFleetDestroyed()) {
+			try {
+				// Give the losing player the locations of all the current player's ship.
+				BattleshipMessage newMessage = new BattleshipMessage();
+				controller.describeFleet(newMessage);
+				send(newMessage);
+			} catch (IOException e) {
+				ERRORS.increment();
+				e.printStackTrace();
+			}
+		}
 	}
 	
 	/**
 	 * This private method determines if the message received contains a move 
 	 * that the other player just made. It then calls the controller to register
-	 * the move and give it to the model. Handle the case where the other player
-	 * made a invalid move.
+	 * the move and give it to the model, which has the answer sent by answerMoves.
 	 * 
 	 * 
 	 * @param message An object that represents the message that was received.
@@ -130,15 +596,37 @@ public class BattleshipNetwork implements Runnable {
 	}
 	
 	
+	/**
+	 * This private method checks if the current message holds the result of 
+	 * the move the current player made, and gives that single position to 
+	 * the controller.
+	 * 
+	 * @param message An object that represents the message that was received.
+	 */
+	private void isShotResultMessage(BattleshipMessage message) {
+		if (message.getShotCoord() != null) {
+			long sentAt = moveSentAt;
+			if (sentAt != 0) {
+				ROUND_TRIP.recordSince(sentAt);
+				moveSentAt = 0;
+			}
+			controller.applyShotResult(message.getShotCoord(), message.getShotResult());
+		}
+		if (message.getSunkShip() >= 0) {
+			controller.applyShipSunk(message.getSunkShip());
+		}
+	}
+	
 	/**
 	 * This private method checks if the current message is meant to 
-	 * have the other player update their grid after they made a move.
+	 * have the other player replace their copy of the whole grid. Only used when
+	 * the whole grid is sent again, since moves are sent as shot results.
 	 * 
 	 * @param message An object that represents the message that was received.
 	 */
 	private void isUpdateGridMessage(BattleshipMessage message) {
 		
-		// When the current player made a move, the player gets an updated grid.
+		// The player gets the whole grid of the other player again.
 		if (message.getUpdateGrid() != null) {
 			POSITION_RESULT[][] updatedGrid = message.getUpdateGrid();
 			controller.updateOpponentGrid(updatedGrid, false);
@@ -148,28 +636,224 @@ public class BattleshipNetwork implements Runnable {
 	
 	/**
 	 * This private method determines what happens after the game ends. 
-	 * If the current player lost their fleet, then they would get alert 
-	 * that they lost the game and would get the locations of the opponents 
-	 * grid. If the current player won, then they would close the connection
-	 * between the two players.
+	 * The current player gets the fleet of the opponent. Both players already
+	 * sent their own fleet by then, so the connection between the two players
+	 * is closed once it is written.
 	 * 
 	 * @param message An object that represents the message that was received.
 	 * 
 	 */
 	private void endGame(BattleshipMessage message) {
-		controller.updateOpponentGrid(message.getAnswerGrid(), true);
+		over = true;
+		controller.revealOpponentFleet(message);
 		try {
-			if (controller.isGameOver()) {
-				BattleshipMessage newMessage = new BattleshipMessage();
-				newMessage.setAnswerGrid(controller.getPlayerAnswerGrid());
-				output.writeObject(newMessage);
-				
+			if (channel != null) {
+				channel.closeWhenFlushed();
 			} else {
+				closeListener();
 				connection.close();
 			}
 		} catch (IOException e) {
+			ERRORS.increment();
 			e.printStackTrace();
 		}
 	}
 	
-}
\ No newline at end of file
+	/**
+	 * This private method sends a request to resume with the session token and
+	 * the last message received. The caller must hold the send lock.
+	 * 
+	 * @throws IOException when the request could not be sent.
+	 */
+	private void sendHello() throws IOException {
+		BattleshipMessage hello = new BattleshipMessage();
+		hello.setSessionToken(sessionToken);
+		hello.setResume(log.getReceived());
+		if (channel != null) {
+			channel.send(hello);
+			return;
+		}
+		BattleshipCodec.write(output, hello);
+		output.flush();
+	}
+	
+	/**
+	 * This private method writes a frame from the log to the connection. A channel
+	 * is given the frame without a copy, since the log never changes it. The caller
+	 * must hold the send lock.
+	 * 
+	 * @param frame An array of bytes that holds the frame.
+	 * @throws IOException when the frame could not be written.
+	 */
+	private void write(byte[] frame) throws IOException {
+		if (channel != null) {
+			channel.sendShared(ByteBuffer.wrap(frame));
+		} else {
+			output.write(frame);
+		}
+	}
+	
+	/**
+	 * This private method sends the frames that were written to the output stream.
+	 * A channel sends its frames on its own. The caller must hold the send lock.
+	 * 
+	 * @throws IOException when the frames could not be sent.
+	 */
+	private void flush() throws IOException {
+		if (channel == null) {
+			output.flush();
+		}
+	}
+	
+	/**
+	 * This private method determines if a lost connection can come back.
+	 * 
+	 * @return A boolean value that determines if the network reconnects.
+	 */
+	private boolean canReconnect() {
+		return reconnectMillis > 0 && (reconnector != null || listener != null);
+	}
+	
+	/**
+	 * This private method gets the connection back after it was lost, either by 
+	 * opening it again or by waiting for the other player to come back to the 
+	 * listener. Both sides send a request to resume on the new connection, and 
+	 * the request of the other side is handled before anything else is read.
+	 * 
+	 * @param cause An exception that represents how the connection was lost.
+	 * @return An object that reads the new connection.
+	 * @throws IOException when the connection didn't come back in time.
+	 */
+	private DataInputStream reconnect(IOException cause) throws IOException {
+		if (!canReconnect() || sessionToken == 0) {
+			throw cause;
+		}
+		long deadline = System.currentTimeMillis() + reconnectMillis;
+		long backoff = 10;
+		while (true) {
+			try {
+				Handover next;
+				if (listener != null) {
+					next = handovers.poll(Math.max(0, deadline - System.currentTimeMillis()), 
+							TimeUnit.MILLISECONDS);
+					if (next == null) {
+						throw new IOException("The other player did not come back.", cause);
+					}
+					replaceConnection(next.socket());
+				} else {
+					Socket socket = reconnector.reconnect();
+					socket.setSoTimeout(HELLO_TIMEOUT_MILLIS);
+					replaceConnection(socket);
+					DataInputStream input = new DataInputStream(
+							new BufferedInputStream(socket.getInputStream()));
+					BattleshipMessage hello = BattleshipCodec.read(input);
+					if (!hello.isResume() || hello.getSessionToken() != sessionToken) {
+						socket.close();
+						throw new IOException("The other side did not resume the match.", cause);
+					}
+					socket.setSoTimeout(0);
+					next = new Handover(socket, input, hello);
+				}
+				handleMessage(next.hello());
+				RECONNECTS.increment();
+				return next.input();
+				
+			} catch (IOException e) {
+				if (System.currentTimeMillis() >= deadline) {
+					throw e;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw cause;
+			}
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw cause;
+			}
+			backoff = Math.min(2 * backoff, MAX_BACKOFF_MILLIS);
+		}
+	}
+	
+	/**
+	 * This private method closes the lost connection, sends from then on through
+	 * the new one, and sends this side's request to resume on it.
+	 * 
+	 * @param socket An object that represents the new connection.
+	 * @throws IOException when the new connection could not be used.
+	 */
+	private void replaceConnection(Socket socket) throws IOException {
+		synchronized (sendLock) {
+			Socket old = connection;
+			connection = socket;
+			try {
+				old.close();
+			} catch (IOException e) {
+				// The old connection is already gone.
+			}
+			socket.setTcpNoDelay(true);
+			socket.setKeepAlive(true);
+			output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			sendHello();
+		}
+	}
+	
+	/**
+	 * This private method accepts the connections that come back to the listener
+	 * until it is closed. A connection is only kept if its first message is a 
+	 * request to resume with the session token of the match, and then the current
+	 * connection is closed, so the reading loop moves on to the new one even if 
+	 * it didn't notice that the old one was lost.
+	 * 
+	 */
+	private void acceptReconnects() {
+		while (!listener.isClosed()) {
+			Socket socket;
+			try {
+				socket = listener.accept();
+			} catch (IOException e) {
+				return;
+			}
+			try {
+				socket.setSoTimeout(HELLO_TIMEOUT_MILLIS);
+				DataInputStream input = new DataInputStream(
+						new BufferedInputStream(socket.getInputStream()));
+				BattleshipMessage hello = BattleshipCodec.read(input);
+				if (!hello.isResume() || hello.getSessionToken() != sessionToken) {
+					socket.close();
+					continue;
+				}
+				socket.setSoTimeout(0);
+				Socket current = connection;
+				Handover stale = handovers.poll();
+				if (stale != null) {
+					stale.socket().close();
+				}
+				handovers.offer(new Handover(socket, input, hello));
+				current.close();
+			} catch (IOException e) {
+				try {
+					socket.close();
+				} catch (IOException closeFailed) {
+					// Nothing else can be done with the connection.
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This private method stops accepting connections once the game is over.
+	 * 
+	 */
+	private void closeListener() {
+		if (listener != null) {
+			try {
+				listener.close();
+			} catch (IOException e) {
+				// The listener is already closed.
+			}
+		}
+	}
+	
+}
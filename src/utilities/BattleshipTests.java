@@ -5,10 +5,53 @@ package utilities;
 import static org.junit.jupiter.api.Assertions.*;
 
 import org.junit.jupiter.api.Test;
+import archive.ArchiveReader;
+import archive.ArchiveWriter;
+import archive.ArchivedGame;
 import controller.BattleshipController;
+import metrics.LatencyHistogram;
+import metrics.MetricsExporter;
+import metrics.MetricsRegistry;
 import model.BattleshipModel;
+import model.Bitboard;
+import model.FleetGenerator;
+import model.MatchJournal;
+import model.ModelEvent;
+import model.ModelSnapshot;
+import model.PlacementIndex;
+import players.ComputerPlayer;
+import server.BattleshipServer;
+import simulator.GameSimulator;
+import simulator.HuntTargetStrategy;
+import simulator.ProbabilityStrategy;
+import simulator.RandomStrategy;
+import simulator.SimulationResult;
 import utilities.POSITION_RESULT;
 import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -259,4 +302,1451 @@ class BattleshipTests {
 		System.out.println(controller2.isGameOver());	
 	}
 	
+	/**
+	 * This method tests the bitboard that backs the model's grids, especially 
+	 * the positions that are stored on both sides of the boundary between two longs.
+	 */
+	@Test
+	void bitboardTest() {
+		Bitboard board = new Bitboard(10, 2);
+		board.set(0, 6, 3);
+		board.set(0, 6, 4);
+		board.set(1, 9, 9);
+		assertTrue(board.get(0, 6, 3));
+		assertTrue(board.get(0, 6, 4));
+		assertFalse(board.get(1, 6, 3));
+		assertEquals(2, board.count(0));
+		assertEquals(1, board.count(1));
+		board.clear(0, 6, 3);
+		assertFalse(board.get(0, 6, 3));
+		board.clearLayer(1);
+		assertEquals(0, board.count(1));
+		assertEquals(1, board.count(0));
+	}
+	
+	/**
+	 * This method tests that messages written by the BattleshipCodec are read 
+	 * back the same way, that a move only takes a few bytes on the wire, and that
+	 * negative sizes and positions are turned down.
+	 * @throws IOException when the message could not be written or read.
+	 */
+	@Test
+	void codecTest() throws IOException {
+		BattleshipModel model = new BattleshipModel();
+		model.addShip(new Point(2,3), 4, Constants.HORIZONTAL);
+		model.moveResult(new Point(3,3));
+		model.moveResult(new Point(9,9));
+		
+		BattleshipMessage move = new BattleshipMessage();
+		move.setMove(new Point(7,4));
+		BattleshipMessage grid = new BattleshipMessage();
+		grid.setUpdatedGrid(model.getPlayerProgressGrid());
+		grid.setException("Game over");
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		BattleshipCodec.write(output, move);
+		assertEquals(6, bytes.size());
+		BattleshipCodec.write(output, grid);
+		
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		BattleshipMessage message = new BattleshipMessage();
+		BattleshipCodec.read(input, message);
+		assertEquals(new Point(7,4), message.getMove());
+		assertNull(message.getUpdateGrid());
+		BattleshipCodec.read(input, message);
+		assertNull(message.getMove());
+		assertEquals("Game over", message.getMessage());
+		assertArrayEquals(model.getPlayerProgressGrid(), message.getUpdateGrid());
+		
+		// A grid of a negative size and a move at a negative position are not valid frames.
+		byte[] negativeGrid = {7, BattleshipCodec.VERSION, 2, -1, -1, -1, -1, 15};
+		assertThrows(IOException.class, () -> BattleshipCodec.read(new DataInputStream(new ByteArrayInputStream(negativeGrid))));
+		byte[] negativeMove = {9, BattleshipCodec.VERSION, 1, -1, -1, -1, -1, 15, 0, 0};
+		assertThrows(IOException.class, () -> BattleshipCodec.read(new DataInputStream(new ByteArrayInputStream(negativeMove))));
+		
+		// A frame that is too large is turned down from its length, before anything else is read.
+		ByteArrayOutputStream large = new ByteArrayOutputStream();
+		BattleshipCodec.writeVarint(new DataOutputStream(large), BattleshipCodec.MAX_FRAME_SIZE + 1);
+		assertThrows(IOException.class, () -> BattleshipCodec.read(new DataInputStream(new ByteArrayInputStream(large.toByteArray()))));
+		ByteBuffer partial = ByteBuffer.wrap(new byte[] {(byte) 0x80});
+		assertEquals(-1, BattleshipCodec.readLength(partial));
+		assertEquals(0, partial.position());
+	}
+	
+	/**
+	 * This method tests that the result of a move is sent as a single position 
+	 * and gives the other player the same opponent grid as sending the whole grid.
+	 * @throws IllegalPlacementException when a user places a ship at the wrong place 
+	 * or makes an illegal move.
+	 * @throws IOException when the message could not be written or read.
+	 */
+	@Test
+	void shotResultTest() throws IllegalPlacementException, IOException {
+		BattleshipModel model1 = new BattleshipModel();
+		BattleshipController controller1 = new BattleshipController(model1);
+		BattleshipModel model2 = new BattleshipModel();
+		BattleshipController controller2 = new BattleshipController(model2);
+		controller1.addShip(new Point(0,0), 5, 0);
+		
+		controller1.moveResult(new Point(0,2));
+		assertEquals(new Point(0,2), model1.getLastMove());
+		assertEquals(POSITION_RESULT.HIT, model1.getLastResult());
+		
+		BattleshipMessage message = new BattleshipMessage();
+		message.setShotResult(model1.getLastMove(), model1.getLastResult());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BattleshipCodec.write(new DataOutputStream(bytes), message);
+		message = BattleshipCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		controller2.applyShotResult(message.getShotCoord(), message.getShotResult());
+		
+		controller1.moveResult(new Point(5,5));
+		assertEquals(POSITION_RESULT.MISS, model1.getLastResult());
+		controller2.applyShotResult(model1.getLastMove(), model1.getLastResult());
+		
+		BattleshipModel model3 = new BattleshipModel();
+		model3.updateOpponentGrid(model1.getPlayerProgressGrid(), false);
+		assertArrayEquals(model3.getOpponentGrid(), model2.getOpponentGrid());
+		assertEquals(POSITION_RESULT.HIT, model2.getOpponentGrid()[2][0]);
+		assertEquals(POSITION_RESULT.MISS, model2.getOpponentGrid()[5][5]);
+	}
+	
+	/**
+	 * This method is a stress test of the model being changed and read by several 
+	 * threads at once, in the style of a jcstress test. Ships are placed and moves 
+	 * are made by writer threads while reader threads keep taking snapshots, and 
+	 * every snapshot must agree with itself: ships are never half placed, and the 
+	 * hit count always matches the hits on the grid. At the end every ship position 
+	 * must be counted as a hit exactly once, even though each one was shot by 
+	 * every writer.
+	 * @throws InterruptedException when the test is interrupted while waiting.
+	 */
+	@Test
+	void concurrentModelTest() throws InterruptedException {
+		final int shooters = 4;
+		final int shipSize = 5;
+		final int shipRows = 8;
+		
+		for (int round = 0; round < 50; round++) {
+			BattleshipModel model = new BattleshipModel();
+			AtomicBoolean running = new AtomicBoolean(true);
+			AtomicReference<String> failure = new AtomicReference<String>();
+			
+			Thread[] readers = new Thread[2];
+			for (int r = 0; r < readers.length; r++) {
+				readers[r] = new Thread(() -> {
+					int lastHits = 0;
+					while (running.get()) {
+						ModelSnapshot snapshot = model.getSnapshot();
+						POSITION_RESULT[][] answer = snapshot.getPlayerAnswerGrid();
+						POSITION_RESULT[][] progress = snapshot.getPlayerProgressGrid();
+						int ships = 0;
+						int hits = 0;
+						for (int i = 0; i < Constants.GRID_SIZE; i++) {
+							for (int j = 0; j < Constants.GRID_SIZE; j++) {
+								if (answer[i][j] == POSITION_RESULT.SHIP) {
+									ships++;
+								}
+								if (progress[i][j] == POSITION_RESULT.HIT) {
+									hits++;
+									if (answer[i][j] != POSITION_RESULT.SHIP) {
+										failure.set("Hit without a ship at " + i + "," + j);
+									}
+								}
+							}
+						}
+						if (ships % shipSize != 0) {
+							failure.set("Torn ship placement: " + ships + " positions");
+						}
+						if (hits != snapshot.getTotalHits()) {
+							failure.set("Torn hit count: " + hits + " != " + snapshot.getTotalHits());
+						}
+						if (hits < lastHits) {
+							failure.set("Hit count went backwards");
+						}
+						lastHits = hits;
+					}
+				});
+				readers[r].start();
+			}
+			
+			for (int i = 0; i < shipRows; i++) {
+				model.addShip(new Point(0, i), shipSize, Constants.HORIZONTAL);
+				model.addShip(new Point(shipSize, i), shipSize, Constants.HORIZONTAL);
+			}
+			
+			Thread[] writers = new Thread[shooters];
+			for (int w = 0; w < shooters; w++) {
+				final int offset = w * 37;
+				writers[w] = new Thread(() -> {
+					int cells = Constants.GRID_SIZE * Constants.GRID_SIZE;
+					for (int k = 0; k < cells; k++) {
+						int cell = (k * 7 + offset) % cells;
+						model.moveResult(new Point(cell % Constants.GRID_SIZE, cell / Constants.GRID_SIZE));
+					}
+				});
+				writers[w].start();
+			}
+			for (Thread writer : writers) {
+				writer.join();
+			}
+			running.set(false);
+			for (Thread reader : readers) {
+				reader.join();
+			}
+			
+			assertNull(failure.get());
+			assertEquals(shipRows * Constants.GRID_SIZE, model.getTotalHits());
+		}
+	}
+	
+	/**
+	 * This method tests that a listener with an executor gets the changes of one
+	 * tick as a single batch, where only the events of the same kind next to each
+	 * other are merged, and that a listener without an executor is called right away
+	 * by the thread that changed the model.
+	 * @throws IllegalPlacementException when a user places a ship at the wrong place 
+	 * or makes an illegal move.
+	 */
+	@Test
+	void eventBusTest() throws IllegalPlacementException {
+		BattleshipModel model = new BattleshipModel();
+		BattleshipController controller = new BattleshipController(model);
+		
+		// Deliveries are held back so several changes land in one batch.
+		List<Runnable> pending = new ArrayList<Runnable>();
+		List<List<ModelEvent>> batches = new ArrayList<List<ModelEvent>>();
+		model.addListener((List<ModelEvent> events) -> batches.add(events), pending::add);
+		List<ModelEvent> direct = new ArrayList<ModelEvent>();
+		model.addListener((List<ModelEvent> events) -> direct.addAll(events));
+		
+		controller.addShip(new Point(0, 0), 5, Constants.HORIZONTAL);
+		controller.addShip(new Point(0, 1), 4, Constants.HORIZONTAL);
+		controller.moveResult(new Point(2, 1));
+		controller.addShip(new Point(0, 5), 3, Constants.HORIZONTAL);
+		controller.applyShotResult(new Point(3, 3), POSITION_RESULT.MISS);
+		controller.applyShotResult(new Point(4, 4), POSITION_RESULT.HIT);
+		
+		assertEquals(1, pending.size());
+		assertEquals(6, direct.size());
+		pending.remove(0).run();
+		assertEquals(1, batches.size());
+		
+		// Only events of the same kind that are next to each other are merged.
+		List<ModelEvent> batch = batches.get(0);
+		assertEquals(4, batch.size());
+		ModelEvent.ShipPlaced placed = (ModelEvent.ShipPlaced) batch.get(0);
+		assertEquals(9, placed.cells().size());
+		assertTrue(placed.cells().contains(new Point(3, 1)));
+		ModelEvent.ShotResolved shot = (ModelEvent.ShotResolved) batch.get(1);
+		assertEquals(new Point(2, 1), shot.cell());
+		assertEquals(POSITION_RESULT.HIT, shot.result());
+		assertEquals(1, shot.totalHits());
+		assertEquals(3, ((ModelEvent.ShipPlaced) batch.get(2)).cells().size());
+		ModelEvent.OpponentGridChanged changed = (ModelEvent.OpponentGridChanged) batch.get(3);
+		assertEquals(List.of(new Point(3, 3), new Point(4, 4)), changed.cells());
+		
+		// Revealing the opponent's fleet only reports the new positions and ends the game.
+		POSITION_RESULT[][] answer = new POSITION_RESULT[Constants.GRID_SIZE][Constants.GRID_SIZE];
+		answer[4][4] = POSITION_RESULT.SHIP;
+		answer[4][5] = POSITION_RESULT.SHIP;
+		direct.clear();
+		controller.updateOpponentGrid(answer, true);
+		assertEquals(2, direct.size());
+		assertEquals(2, ((ModelEvent.OpponentGridChanged) direct.get(0)).cells().size());
+		assertEquals(new ModelEvent.GameEnded(true), direct.get(1));
+		assertEquals(1, pending.size());
+		
+		// A listener without an executor is called by the thread that changed the model,
+		// even while it is still handling an event from another thread.
+		BattleshipModel shared = new BattleshipModel();
+		BattleshipController sharedController = new BattleshipController(shared);
+		List<Thread> callers = new ArrayList<Thread>();
+		Thread other = new Thread(() -> sharedController.applyShotResult(new Point(1, 1), POSITION_RESULT.MISS));
+		shared.addListener((List<ModelEvent> events) -> {
+			callers.add(Thread.currentThread());
+			if (callers.size() == 1) {
+				other.start();
+				try {
+					other.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		sharedController.applyShotResult(new Point(0, 0), POSITION_RESULT.MISS);
+		assertEquals(List.of(Thread.currentThread(), other), callers);
+	}
+	
+	/**
+	 * This method tests that reading one position of a ModelSnapshot gives the
+	 * same result as reading it from the whole grid, for both players' grids.
+	 * @throws IllegalPlacementException when a user places a ship at the wrong place 
+	 * or makes an illegal move.
+	 */
+	@Test
+	void snapshotPositionTest() throws IllegalPlacementException {
+		BattleshipModel model = new BattleshipModel();
+		BattleshipController controller = new BattleshipController(model);
+		controller.addShip(new Point(1, 1), 3, Constants.VERTICAL);
+		controller.moveResult(new Point(1, 2));
+		controller.moveResult(new Point(5, 5));
+		controller.applyShotResult(new Point(7, 0), POSITION_RESULT.HIT);
+		POSITION_RESULT[][] reveal = new POSITION_RESULT[Constants.GRID_SIZE][Constants.GRID_SIZE];
+		reveal[0][7] = POSITION_RESULT.SHIP;
+		reveal[0][8] = POSITION_RESULT.SHIP;
+		controller.updateOpponentGrid(reveal, true);
+		
+		// Each position read on its own matches the whole grid.
+		ModelSnapshot snapshot = model.getSnapshot();
+		POSITION_RESULT[][] player = snapshot.getPlayerProgressGrid();
+		POSITION_RESULT[][] opponent = snapshot.getOpponentGrid();
+		for (int i = 0; i < Constants.GRID_SIZE; i++) {
+			for (int j = 0; j < Constants.GRID_SIZE; j++) {
+				assertEquals(player[i][j], snapshot.getPlayerPosition(i, j));
+				assertEquals(opponent[i][j], snapshot.getOpponentPosition(i, j));
+			}
+		}
+		assertEquals(POSITION_RESULT.HIT, snapshot.getPlayerPosition(2, 1));
+		assertEquals(POSITION_RESULT.MISS, snapshot.getPlayerPosition(5, 5));
+		assertEquals(POSITION_RESULT.SHIP, snapshot.getOpponentPosition(0, 7));
+		assertNull(snapshot.getOpponentPosition(3, 3));
+	}
+	
+	/**
+	 * This method tests a GameConfig for the largest board: ships are only placed
+	 * inside it, the game ends when its fleet is destroyed, and its grid is still
+	 * sent as a small message.
+	 * @throws IllegalPlacementException when a user places a ship at the wrong place 
+	 * or makes an illegal move.
+	 * @throws IOException when the message could not be written or read.
+	 */
+	@Test
+	void gameConfigTest() throws IllegalPlacementException, IOException {
+		assertEquals(Constants.MAX_HITS, GameConfig.STANDARD.getMaxHits());
+		assertThrows(IllegalArgumentException.class, () -> new GameConfig(GameConfig.MAX_SIZE + 1, new int[] {2}));
+		assertThrows(IllegalArgumentException.class, () -> new GameConfig(3, new int[] {4}));
+		
+		GameConfig config = new GameConfig(GameConfig.MAX_SIZE, new int[] {3, 2});
+		assertEquals(5, config.getMaxHits());
+		BattleshipModel model = new BattleshipModel(config);
+		BattleshipController controller = new BattleshipController(model);
+		controller.addShip(new Point(997, 999), 3, Constants.HORIZONTAL);
+		controller.addShip(new Point(0, 500), 2, Constants.VERTICAL);
+		assertThrows(IllegalPlacementException.class, () -> controller.addShip(new Point(998, 0), 3, Constants.HORIZONTAL));
+		assertThrows(IllegalPlacementException.class, () -> controller.addShip(new Point(1, 999), 2, Constants.VERTICAL));
+		
+		controller.moveResult(new Point(997, 999));
+		controller.moveResult(new Point(998, 999));
+		controller.moveResult(new Point(999, 999));
+		controller.moveResult(new Point(0, 500));
+		assertFalse(controller.isGameOver());
+		controller.moveResult(new Point(0, 501));
+		assertTrue(controller.isGameOver());
+		
+		// A grid of a large board is sent as a list of its ships.
+		BattleshipMessage message = new BattleshipMessage();
+		message.setUpdatedGrid(controller.getPlayerAnswerGrid());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BattleshipCodec.write(new DataOutputStream(bytes), message);
+		assertTrue(bytes.size() < 32);
+		BattleshipMessage decoded = BattleshipCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		POSITION_RESULT[][] answer = decoded.getUpdateGrid();
+		assertEquals(GameConfig.MAX_SIZE, answer.length);
+		assertEquals(POSITION_RESULT.SHIP, answer[999][998]);
+		assertEquals(POSITION_RESULT.SHIP, answer[501][0]);
+		assertNull(answer[500][1]);
+	}
+	
+	/**
+	 * This method tests that the GameSimulator plays every game it is asked for,
+	 * that the better strategy wins more often, and that the same seed plays the
+	 * same games with any number of workers.
+	 */
+	@Test
+	void simulatorTest() {
+		GameSimulator simulator = new GameSimulator(GameConfig.STANDARD,
+				GameSimulator.strategy("hunt"), GameSimulator.strategy("random"));
+		SimulationResult result = simulator.run(400, 4, 7);
+		assertEquals(400, result.getGames());
+		assertEquals(400, result.getWins(0) + result.getWins(1));
+		assertTrue(result.getWins(0) > result.getWins(1));
+		assertTrue(result.getTurnPercentile(0) >= Constants.MAX_HITS);
+		assertTrue(result.getTurnPercentile(100) <= 2 * Constants.GRID_SIZE * Constants.GRID_SIZE);
+		
+		// The same seed plays the same games with any number of workers.
+		SimulationResult again = simulator.run(400, 1, 7);
+		assertEquals(result.getWins(0), again.getWins(0));
+		assertArrayEquals(result.getTurnCounts(), again.getTurnCounts());
+		assertThrows(IllegalArgumentException.class, () -> GameSimulator.strategy("cheat"));
+	}
+	
+	/**
+	 * This method tests that the ProbabilityStrategy keeps the same counts after
+	 * every result as counting every placement again, that it drops a ship it sank
+	 * from the counts, and that it can finish a whole game against another computer
+	 * player.
+	 * @throws Exception when the connection between the players fails.
+	 */
+	@Test
+	void probabilityStrategyTest() throws Exception {
+		GameConfig config = new GameConfig(12, new int[] {5, 4, 3, 3, 2});
+		ProbabilityStrategy strategy = new ProbabilityStrategy();
+		strategy.start(config, new Random(3));
+		BattleshipModel target = new BattleshipModel(config);
+		BattleshipController targetController = new BattleshipController(target);
+		RandomStrategy placer = new RandomStrategy();
+		placer.start(config, new Random(4));
+		placer.placeFleet(targetController);
+		
+		// The counts that were changed after every result match counting every placement again.
+		boolean[][] misses = new boolean[12][12];
+		for (int move = 0; move < 60 && !targetController.isGameOver(); move++) {
+			Point coord = strategy.nextMove();
+			targetController.moveResult(coord);
+			strategy.onResult(coord, target.getLastResult());
+			misses[coord.y][coord.x] = target.getLastResult() == POSITION_RESULT.MISS;
+			
+			for (int row = 0; row < 12; row++) {
+				for (int col = 0; col < 12; col++) {
+					int expected = 0;
+					for (int i = 0; i < config.getShipCount(); i++) {
+						int length = config.getShipSize(i);
+						for (int start = Math.max(0, col - length + 1); start <= Math.min(col, 12 - length); start++) {
+							boolean open = true;
+							for (int k = 0; k < length; k++) {
+								open &= !misses[row][start + k];
+							}
+							expected += open ? 1 : 0;
+						}
+						for (int start = Math.max(0, row - length + 1); start <= Math.min(row, 12 - length); start++) {
+							boolean open = true;
+							for (int k = 0; k < length; k++) {
+								open &= !misses[start + k][col];
+							}
+							expected += open ? 1 : 0;
+						}
+					}
+					assertEquals(expected, strategy.getDensity(row, col));
+				}
+			}
+		}
+		
+		// A sunk ship is taken out of the counts, and the positions it took are closed like
+		// misses, so its hits no longer pull the next move next to them.
+		GameConfig small = new GameConfig(6, new int[] {3, 2});
+		ProbabilityStrategy sinker = new ProbabilityStrategy();
+		sinker.start(small, new Random(5));
+		for (int col = 0; col < 3; col++) {
+			sinker.onResult(new Point(col, 0), POSITION_RESULT.HIT);
+		}
+		sinker.onShipSunk(new Point(2, 0), 0);
+		int best = 0;
+		for (int row = 0; row < 6; row++) {
+			for (int col = 0; col < 6; col++) {
+				int expected = 0;
+				for (int start = Math.max(0, col - 1); start <= Math.min(col, 4); start++) {
+					expected += row == 0 && start < 3 ? 0 : 1;
+				}
+				for (int start = Math.max(0, row - 1); start <= Math.min(row, 4); start++) {
+					expected += start == 0 && col < 3 ? 0 : 1;
+				}
+				assertEquals(expected, sinker.getDensity(row, col));
+				best = Math.max(best, expected);
+			}
+		}
+		Point next = sinker.nextMove();
+		assertEquals(best, sinker.getDensity(next.y, next.x));
+		
+		// Two computer players finish a whole game over a connection.
+		ServerSocket server = new ServerSocket(0);
+		ComputerPlayer first = new ComputerPlayer(GameConfig.STANDARD, new ProbabilityStrategy(), new Random(5));
+		ComputerPlayer second = new ComputerPlayer(GameConfig.STANDARD, new HuntTargetStrategy(), new Random(6));
+		Thread host = new Thread(() -> {
+			try {
+				first.play(server.accept(), true);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		host.start();
+		second.play(new Socket("localhost", server.getLocalPort()), false);
+		host.join(10000);
+		server.close();
+		int firstHits = first.getModel().getTotalHits();
+		int secondHits = second.getModel().getTotalHits();
+		assertTrue(firstHits == Constants.MAX_HITS ^ secondHits == Constants.MAX_HITS);
+	}
+	
+	/**
+	 * This method tests that every placement in a PlacementIndex agrees with
+	 * checking its positions one at a time, on boards of a few sizes, and that
+	 * placements leaving the board are turned down.
+	 */
+	@Test
+	void placementIndexTest() {
+		Random random = new Random(11);
+		for (int size : new int[] {10, 13, 100}) {
+			PlacementIndex index = new PlacementIndex(size);
+			boolean[][] taken = new boolean[size][size];
+			for (int i = 0; i < size * size / 5; i++) {
+				int row = random.nextInt(size);
+				int col = random.nextInt(size);
+				index.take(row, col);
+				taken[row][col] = true;
+			}
+			
+			// Every placement agrees with checking its positions one at a time.
+			for (int length : new int[] {1, 2, 5, Math.min(size, 70)}) {
+				assertEquals(length == 1 ? size * size : 2 * size * (size - length + 1), index.getPlacementCount(length));
+				for (int number = 0; number < index.getPlacementCount(length); number++) {
+					Point origin = index.getPlacementOrigin(length, number);
+					int dir = index.getPlacementDirection(length, number);
+					assertTrue(index.fits(origin.y, origin.x, length, dir));
+					int expected = 0;
+					for (int k = 0; k < length; k++) {
+						if (dir == Constants.HORIZONTAL ? taken[origin.y][origin.x + k] : taken[origin.y + k][origin.x]) {
+							expected++;
+						}
+					}
+					assertEquals(expected, index.countTaken(origin.y, origin.x, length, dir));
+					assertEquals(expected == 0, index.isFree(origin.y, origin.x, length, dir));
+				}
+			}
+			assertFalse(index.fits(0, size - 1, 2, Constants.HORIZONTAL));
+			assertFalse(index.fits(size - 1, 0, 2, Constants.VERTICAL));
+			assertFalse(index.fits(-1, 0, 1, Constants.VERTICAL));
+		}
+	}
+	
+	/**
+	 * This method tests that the FleetGenerator always places a whole fleet, that
+	 * the same seed gives the same fleets, and that every layout of a small board
+	 * comes up about as often as the others.
+	 * @throws IllegalPlacementException when a user places a ship at the wrong place 
+	 * or makes an illegal move.
+	 */
+	@Test
+	void fleetGeneratorTest() throws IllegalPlacementException {
+		FleetGenerator generator = new FleetGenerator(GameConfig.STANDARD, 5);
+		FleetGenerator same = new FleetGenerator(GameConfig.STANDARD, 5);
+		for (int i = 0; i < 1000; i++) {
+			BattleshipModel model = new BattleshipModel();
+			new BattleshipController(model).placeRandomFleet(generator);
+			int ships = 0;
+			for (POSITION_RESULT[] row : model.getPlayerProgressGrid()) {
+				for (POSITION_RESULT position : row) {
+					if (position == POSITION_RESULT.SHIP) {
+						ships++;
+					}
+				}
+			}
+			assertEquals(Constants.MAX_HITS, ships);
+			same.generate();
+			for (int ship = 0; ship < GameConfig.STANDARD.getShipCount(); ship++) {
+				assertEquals(generator.getOrigin(ship), same.getOrigin(ship));
+				assertEquals(generator.getDirection(ship), same.getDirection(ship));
+			}
+		}
+		
+		// A ship of two and a ship of one fit on a 2x2 board in 8 ways, which should come up equally often.
+		FleetGenerator small = new FleetGenerator(new GameConfig(2, new int[] {2, 1}), 7);
+		int[] layouts = new int[16];
+		for (int i = 0; i < 80000; i++) {
+			small.generate();
+			int two = small.getDirection(0) == Constants.HORIZONTAL ? small.getRow(0) : 2 + small.getCol(0);
+			layouts[two * 4 + small.getRow(1) * 2 + small.getCol(1)]++;
+		}
+		int seen = 0;
+		for (int count : layouts) {
+			if (count > 0) {
+				seen++;
+				assertTrue(Math.abs(count - 10000) < 500, "A layout came up " + count + " times.");
+			}
+		}
+		assertEquals(8, seen);
+	}
+	
+	/**
+	 * This method tests that every position result has its own code, that the grids
+	 * are read correctly through the codes, and that a shot result with a code that
+	 * isn't a position is turned down by the codec.
+	 * @throws IOException when the message could not be written or read.
+	 */
+	@Test
+	void positionCodeTest() throws IOException {
+		assertEquals(POSITION_RESULT.EMPTY_CODE, POSITION_RESULT.codeOf(null));
+		assertNull(POSITION_RESULT.fromCode(POSITION_RESULT.EMPTY_CODE));
+		for (POSITION_RESULT result : POSITION_RESULT.values()) {
+			assertSame(result, POSITION_RESULT.fromCode(result.getCode()));
+		}
+		assertThrows(IllegalArgumentException.class, () -> POSITION_RESULT.fromCode(POSITION_RESULT.CODES));
+		
+		// The opponent's grid shows a revealed ship over a hit, and the player's grid shows the hit.
+		BattleshipModel model = new BattleshipModel();
+		model.addShip(new Point(0,0), 2, Constants.HORIZONTAL);
+		model.moveResult(new Point(0,0));
+		model.applyShotResult(new Point(1,1), POSITION_RESULT.HIT);
+		model.applyShotResult(new Point(2,2), POSITION_RESULT.MISS);
+		POSITION_RESULT[][] answer = new POSITION_RESULT[Constants.GRID_SIZE][Constants.GRID_SIZE];
+		answer[1][1] = POSITION_RESULT.SHIP;
+		answer[3][3] = POSITION_RESULT.HIT;
+		model.updateOpponentGrid(answer, true);
+		assertEquals(POSITION_RESULT.HIT, model.getPlayerProgressGrid()[0][0]);
+		assertEquals(POSITION_RESULT.SHIP, model.getPlayerProgressGrid()[0][1]);
+		assertEquals(POSITION_RESULT.SHIP, model.getOpponentPosition(1, 1));
+		assertEquals(POSITION_RESULT.MISS, model.getOpponentPosition(2, 2));
+		assertNull(model.getOpponentPosition(3, 3));
+		
+		// A shot result with a code that isn't a position is rejected.
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BattleshipMessage shot = new BattleshipMessage();
+		shot.setShotResult(new Point(1,2), POSITION_RESULT.MISS);
+		BattleshipCodec.write(new DataOutputStream(bytes), shot);
+		byte[] frame = bytes.toByteArray();
+		frame[frame.length - 2] = POSITION_RESULT.EMPTY_CODE;
+		assertThrows(IOException.class, () -> BattleshipCodec.read(new DataInputStream(new ByteArrayInputStream(frame))));
+	}
+	
+	/**
+	 * This method tests that a ship is counted as sunk once all of its positions
+	 * were hit, that each shot says which ship it sank, that the sunk ship and
+	 * the destroyed fleet are sent to the other player, that hits are kept
+	 * when a model makes room for more ships, and that the fleet's sunk ships
+	 * decide the end of the game on both sides.
+	 * @throws IllegalPlacementException when a user places a ship at the wrong place 
+	 * or makes an illegal move.
+	 * @throws IOException when the message could not be written or read.
+	 */
+	@Test
+	void sunkShipTest() throws IllegalPlacementException, IOException {
+		BattleshipModel model = new BattleshipModel(new GameConfig(6, new int[] {3, 1}));
+		BattleshipController controller = new BattleshipController(model);
+		List<ModelEvent> events = new ArrayList<ModelEvent>();
+		model.addListener(batch -> events.addAll(batch));
+		controller.addShip(new Point(1,1), 3, Constants.VERTICAL);
+		controller.addShip(new Point(4,4), 1, Constants.HORIZONTAL);
+		
+		controller.moveResult(new Point(1,1));
+		controller.moveResult(new Point(1,2));
+		controller.moveResult(new Point(1,2));
+		assertFalse(model.isShipSunk(0));
+		controller.moveResult(new Point(1,3));
+		assertTrue(model.isShipSunk(0));
+		assertEquals(1, model.getShipsSunk());
+		assertFalse(controller.isGameOver());
+		controller.moveResult(new Point(4,4));
+		assertTrue(controller.isGameOver());
+		
+		List<Integer> sunk = new ArrayList<Integer>();
+		int ended = 0;
+		for (ModelEvent event : events) {
+			if (event instanceof ModelEvent.ShotResolved shot) {
+				sunk.add(shot.sunkShip());
+			} else if (event instanceof ModelEvent.GameEnded) {
+				ended++;
+			}
+		}
+		assertEquals(List.of(-1, -1, -1, 0, 1), sunk);
+		assertEquals(1, ended);
+		
+		// The sunk ship and the destroyed fleet go through the codec and reach the other player's model.
+		BattleshipMessage message = new BattleshipMessage();
+		message.setShotResult(new Point(4,4), POSITION_RESULT.HIT);
+		message.setSunkShip(1);
+		message.setFleetDestroyed();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BattleshipCodec.write(new DataOutputStream(bytes), message);
+		BattleshipMessage received = BattleshipCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		assertEquals(1, received.getSunkShip());
+		assertTrue(received.isFleetDestroyed());
+		BattleshipModel other = new BattleshipModel(model.getConfig());
+		new BattleshipController(other).applyShipSunk(received.getSunkShip());
+		assertEquals(1, other.getOpponentShipsSunk());
+		received.clear();
+		assertEquals(-1, received.getSunkShip());
+		assertFalse(received.isFleetDestroyed());
+		
+		// A model that makes room for more ships than the fleet has keeps the hits it counted.
+		BattleshipModel extra = new BattleshipModel(new GameConfig(6, new int[] {2}));
+		extra.addShip(new Point(0,0), 2, Constants.HORIZONTAL);
+		extra.moveResult(new Point(0,0));
+		extra.addShip(new Point(5,2), 2, Constants.VERTICAL);
+		extra.moveResult(new Point(1,0));
+		extra.moveResult(new Point(5,3));
+		assertTrue(extra.isShipSunk(0));
+		assertFalse(extra.isShipSunk(1));
+		
+		// Seeing the opponent's fleet ends the game as a win unless every ship was sunk,
+		// even when as many positions were hit as the fleet has.
+		BattleshipModel split = new BattleshipModel(new GameConfig(6, new int[] {2}));
+		List<ModelEvent> ends = new ArrayList<ModelEvent>();
+		split.addListener(batch -> batch.stream().filter(event -> event instanceof ModelEvent.GameEnded).forEach(ends::add));
+		split.addShip(new Point(0,0), 2, Constants.HORIZONTAL);
+		split.addShip(new Point(5,2), 2, Constants.VERTICAL);
+		split.moveResult(new Point(0,0));
+		split.moveResult(new Point(5,2));
+		split.revealOpponentFleet(new Point[] {new Point(3,3)}, new int[] {Constants.HORIZONTAL});
+		assertEquals(List.of(new ModelEvent.GameEnded(true)), ends);
+	}
+	
+	/**
+	 * This method tests that a match is recovered from its MatchJournal after the
+	 * last batch was cut off, that the recovered match goes on being recorded, and
+	 * that a computer player recovered from the journal of a game it played has the
+	 * same fleet and knows the same results.
+	 * @throws IllegalPlacementException when a user places a ship at the wrong place 
+	 * or makes an illegal move.
+	 * @throws IOException when the journal could not be written or read.
+	 * @throws InterruptedException when the test is interrupted while it waits.
+	 */
+	@Test
+	void matchJournalTest() throws IllegalPlacementException, IOException, InterruptedException {
+		Path file = Files.createTempFile("match", ".journal");
+		try {
+			GameConfig config = new GameConfig(8, new int[] {3, 2});
+			BattleshipModel model = new BattleshipModel(config);
+			MatchJournal journal = MatchJournal.open(file, model, 5);
+			model.startMatch(true);
+			model.addShip(new Point(1,1), 3, Constants.HORIZONTAL);
+			model.addShip(new Point(5,5), 2, Constants.VERTICAL);
+			model.moveResult(new Point(1,1));
+			model.moveResult(new Point(7,7));
+			model.applyShotResult(new Point(2,3), POSITION_RESULT.HIT);
+			model.applyShotResult(new Point(4,4), POSITION_RESULT.MISS);
+			model.applyShipSunk(1);
+			
+			// The first ship of the opponent's fleet would leave the board, so only the second one is shown.
+			model.revealOpponentFleet(new Point[] {new Point(6,0), new Point(0,6)},
+					new int[] {Constants.HORIZONTAL, Constants.HORIZONTAL});
+			assertNull(model.getOpponentPosition(0, 6));
+			assertEquals(POSITION_RESULT.SHIP, model.getOpponentPosition(6, 1));
+			journal.sync();
+			
+			// The process dies in the middle of writing the next batch.
+			Files.write(file, new byte[] {0, 0, 0, 9, 1, 2}, StandardOpenOption.APPEND);
+			
+			BattleshipModel recovered = new BattleshipModel(MatchJournal.readConfig(file));
+			MatchJournal reopened = MatchJournal.open(file, recovered, 5);
+			assertEquals(config, recovered.getConfig());
+			assertTrue(recovered.isFirstTurn());
+			assertArrayEquals(model.getPlayerProgressGrid(), recovered.getPlayerProgressGrid());
+			assertArrayEquals(model.getOpponentGrid(), recovered.getOpponentGrid());
+			assertEquals(1, recovered.getTotalHits());
+			assertEquals(1, recovered.getOpponentShipsSunk());
+			
+			// The recovered match keeps being recorded after the cut off batch was dropped.
+			recovered.moveResult(new Point(2,1));
+			recovered.moveResult(new Point(3,1));
+			reopened.close();
+			journal.close();
+			recovered.moveResult(new Point(5,5));
+			BattleshipModel again = new BattleshipModel(config);
+			MatchJournal.open(file, again, 5).close();
+			assertTrue(again.isShipSunk(0));
+			assertFalse(again.isShipSunk(1));
+			
+			assertThrows(IOException.class, () -> MatchJournal.open(file, new BattleshipModel()));
+		} finally {
+			Files.delete(file);
+		}
+		
+		Path played = Files.createTempFile("match", ".journal");
+		Files.delete(played);
+		try {
+			ServerSocket server = new ServerSocket(0);
+			ComputerPlayer first = new ComputerPlayer(GameConfig.STANDARD, new RandomStrategy(), new Random(12));
+			ComputerPlayer second = ComputerPlayer.recover(played, new HuntTargetStrategy(), new Random(13));
+			Thread host = new Thread(() -> {
+				try {
+					first.play(server.accept(), true);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			});
+			host.start();
+			second.play(new Socket("localhost", server.getLocalPort()), false);
+			host.join(10000);
+			server.close();
+			
+			// The fleet comes from the journal instead of being placed again.
+			BattleshipModel model = second.getModel();
+			BattleshipModel recovered = ComputerPlayer.recover(played, new HuntTargetStrategy(), new Random(14)).getModel();
+			assertArrayEquals(model.getShipOrigins(), recovered.getShipOrigins());
+			assertArrayEquals(model.getPlayerProgressGrid(), recovered.getPlayerProgressGrid());
+			assertArrayEquals(model.getOpponentGrid(), recovered.getOpponentGrid());
+			assertEquals(model.getTotalHits(), recovered.getTotalHits());
+		} finally {
+			Files.delete(played);
+		}
+	}
+	
+	/**
+	 * This method tests that the games written to an archive by the simulator and
+	 * by hand are read back as they were played, and that an archive for another
+	 * board is turned down.
+	 * @throws IOException when the archive could not be written or read.
+	 */
+	@Test
+	void gameArchiveTest() throws IOException {
+		Path file = Files.createTempFile("battleship", ".archive");
+		Files.delete(file);
+		GameSimulator simulator = new GameSimulator(GameConfig.STANDARD,
+				GameSimulator.strategy("hunt"), GameSimulator.strategy("random"));
+		try (ArchiveWriter archive = ArchiveWriter.open(file, GameConfig.STANDARD, 12)) {
+			simulator.setArchive(archive);
+			simulator.run(300, 4, 7);
+		}
+
+		// Games added later get the next ids, and another fleet is turned down.
+		POSITION_RESULT[][] fleet = new POSITION_RESULT[10][10];
+		fleet[3][4] = POSITION_RESULT.SHIP;
+		fleet[9][9] = POSITION_RESULT.HIT;
+		try (ArchiveWriter archive = ArchiveWriter.open(file, GameConfig.STANDARD, 12)) {
+			assertEquals(300, archive.append(fleet, fleet, new int[] {99, 34}, 2, 1));
+		}
+		assertThrows(IOException.class, () -> ArchiveWriter.open(file, new GameConfig(8, new int[] {3})));
+
+		try (ArchiveReader reader = new ArchiveReader(file)) {
+			assertEquals(301, reader.getGameCount());
+			reader.scan(game -> {
+				if (game.getId() == 300) {
+					return;
+				}
+				int last = game.getTurns() - 1;
+				assertTrue(game.getTurns() >= 2 * GameConfig.STANDARD.getMaxHits() - 1);
+				assertEquals(last % 2, game.getWinner());
+				assertTrue(game.isShip(1 - game.getWinner(), game.getShotRow(last), game.getShotCol(last)));
+				for (int player = 0; player < 2; player++) {
+					int ships = 0;
+					for (int word = 0; word < game.getFleetWords(); word++) {
+						ships += Long.bitCount(game.getFleetWord(player, word));
+					}
+					assertEquals(GameConfig.STANDARD.getMaxHits(), ships);
+				}
+			});
+
+			ArchivedGame game = reader.get(300);
+			assertEquals(2, game.getTurns());
+			assertEquals(1, game.getWinner());
+			assertEquals(99, game.getShot(0));
+			assertEquals(3, game.getShotRow(1));
+			assertTrue(game.isShip(0, 3, 4));
+			assertTrue(game.isShip(1, 9, 9));
+			assertFalse(game.isShip(1, 0, 0));
+			assertThrows(IndexOutOfBoundsException.class, () -> game.getShot(2));
+			assertThrows(IndexOutOfBoundsException.class, () -> reader.get(301));
+		} finally {
+			Files.delete(file);
+			Files.delete(file.resolveSibling(file.getFileName() + ".index"));
+		}
+	}
+	
+	/**
+	 * This method tests that two computer players finish their game after the
+	 * connection between them is cut, by connecting to each other again once.
+	 * @throws Exception when the players could not connect.
+	 */
+	@Test
+	void reconnectTest() throws Exception {
+		// The connection between two computer players is cut in the middle of the
+		// game by a relay, and the game is finished over the connection that the
+		// second player opens again to the first player's listener.
+		ServerSocket server = new ServerSocket(0);
+		ServerSocket relay = new ServerSocket(0);
+		AtomicInteger reconnects = new AtomicInteger();
+		Thread relaying = new Thread(() -> {
+			try (Socket client = relay.accept(); Socket host = new Socket("localhost", server.getLocalPort())) {
+				Thread back = new Thread(() -> {
+					try {
+						host.getInputStream().transferTo(client.getOutputStream());
+					} catch (IOException e) {
+						// The relay was cut.
+					}
+				});
+				back.start();
+				// Only the first bytes the second player sends get through.
+				byte[] bytes = new byte[100];
+				int passed = 0;
+				int read = 0;
+				while (passed < bytes.length && read >= 0) {
+					read = client.getInputStream().read(bytes, 0, bytes.length - passed);
+					if (read > 0) {
+						host.getOutputStream().write(bytes, 0, read);
+						passed += read;
+					}
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		relaying.start();
+		
+		ComputerPlayer first = new ComputerPlayer(GameConfig.STANDARD, new ProbabilityStrategy(), new Random(7));
+		ComputerPlayer second = new ComputerPlayer(GameConfig.STANDARD, new HuntTargetStrategy(), new Random(8));
+		second.setReconnector(() -> {
+			reconnects.incrementAndGet();
+			return new Socket("localhost", server.getLocalPort());
+		});
+		Thread hosting = new Thread(() -> {
+			try {
+				Socket connection = server.accept();
+				first.listen(server);
+				first.play(connection, true);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+		hosting.start();
+		second.play(new Socket("localhost", relay.getLocalPort()), false);
+		hosting.join(10000);
+		relaying.join(10000);
+		relay.close();
+		
+		assertEquals(1, reconnects.get());
+		int firstHits = first.getModel().getTotalHits();
+		int secondHits = second.getModel().getTotalHits();
+		assertTrue(firstHits == Constants.MAX_HITS ^ secondHits == Constants.MAX_HITS);
+		assertTrue(server.isClosed());
+	}
+	
+	/**
+	 * This method tests the percentiles of a LatencyHistogram, the text and JSON
+	 * written by the MetricsRegistry, the measuring of the codec and the endpoint
+	 * of the MetricsExporter.
+	 * @throws Exception when the metrics could not be read from the endpoint.
+	 */
+	@Test
+	void metricsTest() throws Exception {
+		// Percentiles are known to within a few percent across the whole range.
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100000; value++) {
+			histogram.record(value);
+		}
+		assertEquals(100000, histogram.getCount());
+		assertEquals(50000.5, histogram.getMean(), 0.001);
+		assertEquals(100000, histogram.getMax());
+		assertEquals(100000, histogram.getPercentile(100));
+		assertEquals(1, histogram.getPercentile(0));
+		for (double percentile : new double[] { 1, 10, 50, 90, 99, 99.9 }) {
+			double expected = percentile * 1000;
+			assertEquals(expected, histogram.getPercentile(percentile), expected * 0.035);
+		}
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+		
+		// The registry writes counters, gauges and histograms as text and as JSON.
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("test.messages").add(3);
+		registry.gauge("test.matches", () -> 7);
+		registry.histogram("test.nanos").record(40);
+		assertEquals("test.matches 7\ntest.messages 3\n"
+				+ "test.nanos count=1 mean=40 p50=40 p90=40 p99=40 p999=40 max=40\n", registry.toText());
+		assertEquals("{\"values\":{\"test.matches\":7,\"test.messages\":3},\"histograms\":{\"test.nanos\":"
+				+ "{\"count\":1,\"mean\":40,\"p50\":40,\"p90\":40,\"p99\":40,\"p999\":40,\"max\":40}}}", registry.toJson());
+		
+		// Writing a message measures the size of its frame.
+		LatencyHistogram frames = MetricsRegistry.getDefault().histogram("codec.frame.bytes");
+		long before = frames.getCount();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BattleshipMessage message = new BattleshipMessage();
+		message.setMove(new Point(3, 4));
+		BattleshipCodec.write(new DataOutputStream(bytes), message);
+		assertEquals(before + 1, frames.getCount());
+		assertTrue(MetricsRegistry.getDefault().toText().contains("codec.encode.nanos count="));
+		
+		// The endpoint serves the same text and JSON.
+		try (MetricsExporter exporter = new MetricsExporter(registry)) {
+			int port = exporter.serve(0);
+			URL text = URI.create("http://localhost:" + port + "/metrics").toURL();
+			URL json = URI.create("http://localhost:" + port + "/metrics.json").toURL();
+			try (InputStream in = text.openStream()) {
+				assertEquals(registry.toText(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+			try (InputStream in = json.openStream()) {
+				assertEquals(registry.toJson(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+	}
+	
+	/**
+	 * This method tests that a spectator of a match on the game server gets a
+	 * snapshot of both boards, then every move as it happens, and then both fleets
+	 * before the broadcast ends.
+	 * @throws Exception when the server could not be reached or a message could not be read.
+	 */
+	@Test
+	void spectatorTest() throws Exception {
+		ServerSocket free = new ServerSocket(0);
+		int port = free.getLocalPort();
+		free.close();
+		GameConfig config = new GameConfig(Constants.GRID_SIZE, new int[] {2});
+		BattleshipServer server = new BattleshipServer(port, 1, config);
+		Thread serving = new Thread(() -> {
+			try {
+				server.run();
+			} catch (IOException e) {
+				// The server was stopped.
+			}
+		});
+		serving.setDaemon(true);
+		serving.start();
+		
+		// Nothing is being played yet, so there is nothing to watch.
+		Socket early = null;
+		for (int tries = 0; early == null; tries++) {
+			try {
+				early = new Socket("localhost", port);
+			} catch (IOException e) {
+				assertTrue(tries < 100);
+				Thread.sleep(20);
+			}
+		}
+		BattleshipMessage watch = new BattleshipMessage();
+		watch.setSpectate(0);
+		BattleshipCodec.write(new DataOutputStream(early.getOutputStream()), watch);
+		DataInputStream earlyInput = new DataInputStream(early.getInputStream());
+		assertEquals("There is no match to watch.", BattleshipCodec.read(earlyInput).getMessage());
+		assertEquals(-1, earlyInput.read());
+		early.close();
+		
+		Socket[] players = { new Socket("localhost", port), new Socket("localhost", port) };
+		DataOutputStream[] outputs = new DataOutputStream[2];
+		DataInputStream[] inputs = new DataInputStream[2];
+		BattleshipMessage hello = new BattleshipMessage();
+		hello.setResume(0);
+		for (int i = 0; i < 2; i++) {
+			outputs[i] = new DataOutputStream(players[i].getOutputStream());
+			inputs[i] = new DataInputStream(players[i].getInputStream());
+			BattleshipCodec.write(outputs[i], hello);
+		}
+		int first = BattleshipCodec.read(inputs[0]).isFirstTurn() ? 0 : 1;
+		BattleshipCodec.read(inputs[1]);
+		
+		// Both players place their ship at (2, 3) and (3, 3).
+		BattleshipMessage fleet = new BattleshipMessage();
+		fleet.setFleet(new Point[] {new Point(2, 3)}, new int[] {Constants.HORIZONTAL});
+		for (int i = 0; i < 2; i++) {
+			BattleshipCodec.write(outputs[i], fleet);
+		}
+		
+		// The first move is made before the spectator comes, so it is in the snapshot.
+		BattleshipMessage move = new BattleshipMessage();
+		move.setMove(new Point(2, 3));
+		BattleshipCodec.write(outputs[first], move);
+		assertEquals(POSITION_RESULT.HIT, BattleshipCodec.read(inputs[first]).getShotResult());
+		assertEquals(new Point(2, 3), BattleshipCodec.read(inputs[1 - first]).getMove());
+		
+		Socket spectator = new Socket("localhost", port);
+		BattleshipCodec.write(new DataOutputStream(spectator.getOutputStream()), watch);
+		DataInputStream view = new DataInputStream(spectator.getInputStream());
+		BattleshipMessage snapshot = BattleshipCodec.read(view);
+		assertEquals(1, snapshot.getSpectate());
+		assertEquals(0, snapshot.getBoard());
+		BattleshipMessage other = BattleshipCodec.read(view);
+		assertEquals(1, other.getBoard());
+		
+		// Boards are numbered by seat, and the player that moves first sits at 0.
+		assertEquals(POSITION_RESULT.HIT, other.getUpdateGrid()[3][2]);
+		assertNull(snapshot.getUpdateGrid()[3][2]);
+		assertEquals(1, server.getLobby().getActiveMatches());
+		
+		// Every move after that is sent as it happens, and the fleets end the broadcast.
+		move.setMove(new Point(5, 6));
+		BattleshipCodec.write(outputs[1 - first], move);
+		BattleshipCodec.read(inputs[1 - first]);
+		BattleshipCodec.read(inputs[first]);
+		BattleshipMessage update = BattleshipCodec.read(view);
+		assertEquals(0, update.getBoard());
+		assertEquals(new Point(5, 6), update.getShotCoord());
+		assertEquals(POSITION_RESULT.MISS, update.getShotResult());
+		assertFalse(update.isFleetDestroyed());
+		
+		move.setMove(new Point(3, 3));
+		BattleshipCodec.write(outputs[first], move);
+		BattleshipMessage last = BattleshipCodec.read(inputs[first]);
+		assertTrue(last.isFleetDestroyed());
+		assertEquals(new Point(2, 3), last.getFleetOrigins()[0]);
+		BattleshipCodec.read(inputs[1 - first]);
+		update = BattleshipCodec.read(view);
+		assertEquals(1, update.getBoard());
+		assertEquals(0, update.getSunkShip());
+		assertTrue(update.isFleetDestroyed());
+		assertEquals(new Point(2, 3), update.getFleetOrigins()[0]);
+		
+		// The fleet of the player that won is shown once it sends its own, as the referee knows it.
+		BattleshipMessage answer = new BattleshipMessage();
+		answer.setFleet(new Point[] {new Point(0, 0)}, new int[] {Constants.VERTICAL});
+		BattleshipCodec.write(outputs[first], answer);
+		BattleshipMessage revealed = BattleshipCodec.read(view);
+		assertEquals(0, revealed.getBoard());
+		assertEquals(new Point(2, 3), revealed.getFleetOrigins()[0]);
+		assertEquals(Constants.HORIZONTAL, revealed.getFleetDirections()[0]);
+		assertEquals(-1, view.read());
+		assertEquals(0, server.getLobby().getActiveMatches());
+		
+		spectator.close();
+		players[0].close();
+		players[1].close();
+		server.stop();
+	}
+	
+	/**
+	 * This method tests that the network answers each move with a single message
+	 * holding its result, and the fleet with the move that destroyed it.
+	 * @throws Exception when the connection fails or a message could not be read.
+	 */
+	@Test
+	void turnPipeliningTest() throws Exception {
+		BattleshipModel model = new BattleshipModel(new GameConfig(6, new int[] {2}));
+		BattleshipController controller = new BattleshipController(model);
+		controller.addShip(new Point(1,1), 2, Constants.HORIZONTAL);
+		ServerSocket server = new ServerSocket(0);
+		Socket attacker = new Socket("localhost", server.getLocalPort());
+		Socket defender = server.accept();
+		server.close();
+		BattleshipNetwork network = BattleshipNetwork.open(defender, controller, new DataOutputStream(defender.getOutputStream()));
+		Thread reading = new Thread(network);
+		reading.start();
+		DataOutputStream output = new DataOutputStream(attacker.getOutputStream());
+		DataInputStream input = new DataInputStream(attacker.getInputStream());
+		assertTrue(BattleshipCodec.read(input).isResume());
+		
+		// Every move is answered with one message that holds its result.
+		BattleshipMessage move = new BattleshipMessage();
+		move.setMove(new Point(4,4));
+		BattleshipCodec.write(output, move);
+		BattleshipMessage answer = BattleshipCodec.read(input);
+		assertEquals(new Point(4,4), answer.getShotCoord());
+		assertEquals(POSITION_RESULT.MISS, answer.getShotResult());
+		assertFalse(answer.isFleetDestroyed());
+		assertNull(answer.getFleetOrigins());
+		
+		move.setMove(new Point(1,1));
+		BattleshipCodec.write(output, move);
+		answer = BattleshipCodec.read(input);
+		assertEquals(POSITION_RESULT.HIT, answer.getShotResult());
+		assertEquals(-1, answer.getSunkShip());
+		
+		// The move that destroys the fleet is answered with the fleet in the same message.
+		move.setMove(new Point(2,1));
+		BattleshipCodec.write(output, move);
+		answer = BattleshipCodec.read(input);
+		assertEquals(POSITION_RESULT.HIT, answer.getShotResult());
+		assertEquals(0, answer.getSunkShip());
+		assertTrue(answer.isFleetDestroyed());
+		assertEquals(new Point(1,1), answer.getFleetOrigins()[0]);
+		assertEquals(Constants.HORIZONTAL, answer.getFleetDirections()[0]);
+		
+		// The winner's fleet is the last message, and then the connection is closed.
+		BattleshipMessage reveal = new BattleshipMessage();
+		reveal.setFleet(new Point[] {new Point(0,0)}, new int[] {Constants.VERTICAL});
+		BattleshipCodec.write(output, reveal);
+		assertEquals(-1, input.read());
+		reading.join(5000);
+		assertFalse(reading.isAlive());
+		assertEquals(POSITION_RESULT.SHIP, model.getOpponentPosition(0, 0));
+		assertEquals(POSITION_RESULT.SHIP, model.getOpponentPosition(1, 0));
+		assertNull(model.getOpponentPosition(0, 1));
+		attacker.close();
+	}
+	
+	/**
+	 * This method tests that the game server only takes a fleet that fits the match
+	 * and a move in turn once both fleets are placed, and that it decides every move
+	 * itself as soon as it can, without waiting for the player that was attacked.
+	 * @throws Exception when the server could not be reached or a message could not be read.
+	 */
+	@Test
+	void refereeTest() throws Exception {
+		ServerSocket free = new ServerSocket(0);
+		int port = free.getLocalPort();
+		free.close();
+		BattleshipServer server = new BattleshipServer(port, 1, new GameConfig(6, new int[] {2}));
+		Thread serving = new Thread(() -> {
+			try {
+				server.run();
+			} catch (IOException e) {
+				// The server was stopped.
+			}
+		});
+		serving.setDaemon(true);
+		serving.start();
+		
+		Socket[] players = new Socket[2];
+		for (int i = 0, tries = 0; i < 2; tries++) {
+			try {
+				players[i] = new Socket("localhost", port);
+				players[i].setSoTimeout(5000);
+				i++;
+			} catch (IOException e) {
+				assertTrue(tries < 100);
+				Thread.sleep(20);
+			}
+		}
+		DataOutputStream[] outputs = new DataOutputStream[2];
+		DataInputStream[] inputs = new DataInputStream[2];
+		BattleshipMessage hello = new BattleshipMessage();
+		hello.setResume(0);
+		for (int i = 0; i < 2; i++) {
+			outputs[i] = new DataOutputStream(players[i].getOutputStream());
+			inputs[i] = new DataInputStream(players[i].getInputStream());
+			BattleshipCodec.write(outputs[i], hello);
+		}
+		BattleshipMessage[] starts = { BattleshipCodec.read(inputs[0]), BattleshipCodec.read(inputs[1]) };
+		int first = starts[0].isFirstTurn() ? 0 : 1;
+		DataOutputStream attacker = outputs[first];
+		DataInputStream attackerInput = inputs[first];
+		
+		// A ship that leaves the board is turned down, and no move is taken before the fleet.
+		BattleshipMessage fleet = new BattleshipMessage();
+		fleet.setFleet(new Point[] {new Point(5, 1)}, new int[] {Constants.HORIZONTAL});
+		BattleshipCodec.write(attacker, fleet);
+		assertEquals("That fleet can't be played in this match.", BattleshipCodec.read(attackerInput).getMessage());
+		BattleshipMessage move = new BattleshipMessage();
+		move.setMove(new Point(0, 0));
+		BattleshipCodec.write(attacker, move);
+		assertEquals("Place your fleet before making a move.", BattleshipCodec.read(attackerInput).getMessage());
+		fleet.setFleet(new Point[] {new Point(1, 1)}, new int[] {Constants.HORIZONTAL});
+		BattleshipCodec.write(attacker, fleet);
+		
+		// The move waits for the fleet of the other player, which places its ship at (0, 0) and (0, 1),
+		// and is decided as soon as the fleet arrives.
+		BattleshipCodec.write(attacker, move);
+		fleet.setFleet(new Point[] {new Point(0, 0)}, new int[] {Constants.VERTICAL});
+		BattleshipCodec.write(outputs[1 - first], fleet);
+		BattleshipMessage ruled = BattleshipCodec.read(attackerInput);
+		assertEquals(new Point(0, 0), ruled.getShotCoord());
+		assertEquals(POSITION_RESULT.HIT, ruled.getShotResult());
+		assertEquals(-1, ruled.getSunkShip());
+		assertEquals(new Point(0, 0), BattleshipCodec.read(inputs[1 - first]).getMove());
+		
+		// An answer to the move is dropped, so the next message the attacker gets is the other player's move.
+		BattleshipMessage result = new BattleshipMessage();
+		result.setShotResult(new Point(0, 0), POSITION_RESULT.MISS);
+		BattleshipCodec.write(outputs[1 - first], result);
+		move.setMove(new Point(4, 4));
+		BattleshipCodec.write(outputs[1 - first], move);
+		BattleshipMessage next = BattleshipCodec.read(attackerInput);
+		assertEquals(new Point(4, 4), next.getMove());
+		assertNull(next.getShotCoord());
+		assertEquals(POSITION_RESULT.MISS, BattleshipCodec.read(inputs[1 - first]).getShotResult());
+		BattleshipCodec.write(outputs[1 - first], move);
+		assertEquals("It's not your turn.", BattleshipCodec.read(inputs[1 - first]).getMessage());
+		
+		// A position can only be attacked once.
+		move.setMove(new Point(0, 0));
+		BattleshipCodec.write(attacker, move);
+		assertEquals("You already attacked this position.", BattleshipCodec.read(attackerInput).getMessage());
+		
+		// The player that was attacked comes back after the last message it got was the
+		// move, and the match sends again the result of its own move, under the same number.
+		int defender = 1 - first;
+		players[defender].close();
+		Socket back = new Socket("localhost", port);
+		back.setSoTimeout(5000);
+		BattleshipMessage resume = new BattleshipMessage();
+		resume.setSessionToken(starts[defender].getSessionToken());
+		resume.setResume(2);
+		BattleshipCodec.write(new DataOutputStream(back.getOutputStream()), resume);
+		DataInputStream backInput = new DataInputStream(back.getInputStream());
+		assertTrue(BattleshipCodec.read(backInput).isResume());
+		BattleshipMessage again = BattleshipCodec.read(backInput);
+		assertEquals(3, again.getSequence());
+		assertEquals(POSITION_RESULT.MISS, again.getShotResult());
+		
+		back.close();
+		players[0].close();
+		players[1].close();
+		server.stop();
+	}
+	
+	/**
+	 * This method tests that a player that sends a frame the game server can't
+	 * read, or a frame that is too large, only loses its own connection, that a
+	 * frame which arrives in pieces is read once it is whole, and that the server
+	 * goes on pairing players afterwards.
+	 * @throws Exception when the server could not be reached or a message could not be read.
+	 */
+	@Test
+	void badFrameTest() throws Exception {
+		ServerSocket free = new ServerSocket(0);
+		int port = free.getLocalPort();
+		free.close();
+		BattleshipServer server = new BattleshipServer(port, 1);
+		Thread serving = new Thread(() -> {
+			try {
+				server.run();
+			} catch (IOException e) {
+				// The server was stopped.
+			}
+		});
+		serving.setDaemon(true);
+		serving.start();
+		
+		// A fleet with a negative number of ships.
+		Socket broken = null;
+		for (int tries = 0; broken == null; tries++) {
+			try {
+				broken = new Socket("localhost", port);
+			} catch (IOException e) {
+				assertTrue(tries < 100);
+				Thread.sleep(20);
+			}
+		}
+		broken.setSoTimeout(5000);
+		broken.getOutputStream().write(new byte[] {7, BattleshipCodec.VERSION, 14, -1, -1, -1, -1, 15});
+		assertEquals(-1, broken.getInputStream().read());
+		broken.close();
+		
+		// A frame that says it is too large is cut off before any of it is sent.
+		Socket endless = new Socket("localhost", port);
+		endless.setSoTimeout(5000);
+		DataOutputStream flood = new DataOutputStream(endless.getOutputStream());
+		BattleshipCodec.writeVarint(flood, BattleshipCodec.MAX_FRAME_SIZE + 1);
+		flood.flush();
+		assertEquals(-1, endless.getInputStream().read());
+		endless.close();
+		
+		// A frame that arrives a byte at a time is only read once all of it is there.
+		Socket[] players = { new Socket("localhost", port), new Socket("localhost", port) };
+		BattleshipMessage hello = new BattleshipMessage();
+		hello.setResume(0);
+		ByteArrayOutputStream frame = new ByteArrayOutputStream();
+		BattleshipCodec.write(new DataOutputStream(frame), hello);
+		for (Socket player : players) {
+			player.setSoTimeout(5000);
+			player.setTcpNoDelay(true);
+			for (byte b : frame.toByteArray()) {
+				player.getOutputStream().write(b);
+				player.getOutputStream().flush();
+				Thread.sleep(5);
+			}
+		}
+		assertTrue(BattleshipCodec.read(new DataInputStream(players[0].getInputStream())).isMatchStart());
+		assertEquals(1, server.getLobby().getActiveMatches());
+		
+		players[0].close();
+		players[1].close();
+		server.stop();
+	}
+	
+	/**
+	 * This method tests that every mode of the NetworkExecutor runs its sessions
+	 * on daemon threads and counts them in the metrics, that a pool of one thread
+	 * still runs two blocking sessions at once, and that an unknown mode falls back
+	 * to platform threads.
+	 * @throws InterruptedException when the test is interrupted while it waits.
+	 */
+	@Test
+	void networkExecutorTest() throws InterruptedException {
+		for (EXECUTION_MODE mode : EXECUTION_MODE.values()) {
+			NetworkExecutor executor = new NetworkExecutor(mode, 1, 0);
+			CountDownLatch release = new CountDownLatch(1);
+			AtomicInteger daemons = new AtomicInteger();
+			for (int i = 0; i < 2; i++) {
+				executor.execute(() -> {
+					if (Thread.currentThread().isDaemon()) {
+						daemons.incrementAndGet();
+					}
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+			for (int tries = 0; executor.getActiveSessions() < 2; tries++) {
+				assertTrue(tries < 500);
+				Thread.sleep(10);
+			}
+			assertTrue(MetricsRegistry.getDefault().toText().contains("network.sessions.active 2\n"));
+			release.countDown();
+			for (int tries = 0; executor.getCompletedSessions() < 2; tries++) {
+				assertTrue(tries < 500);
+				Thread.sleep(10);
+			}
+			executor.shutdown();
+			assertEquals(2, daemons.get());
+			assertEquals(2, executor.getPeakSessions());
+			assertTrue(MetricsRegistry.getDefault().toText().contains("network.sessions.completed 2\n"));
+		}
+		
+		System.setProperty(NetworkExecutor.MODE_PROPERTY, "virtaul");
+		try {
+			NetworkExecutor executor = NetworkExecutor.fromProperty();
+			assertEquals(EXECUTION_MODE.PLATFORM, executor.getMode());
+			executor.shutdown();
+		} finally {
+			System.clearProperty(NetworkExecutor.MODE_PROPERTY);
+		}
+	}
+	
+	/**
+	 * This method tests that computer players whose networks are served by a single
+	 * event loop play whole games on the game server, that the archive thread adds
+	 * every one of them to the archive, and that a network on a loop whose connection
+	 * is lost before the game is over says so.
+	 * @throws Exception when the server could not be reached.
+	 */
+	@Test
+	void channelNetworkTest() throws Exception {
+		ServerSocket free = new ServerSocket(0);
+		int port = free.getLocalPort();
+		free.close();
+		BattleshipServer server = new BattleshipServer(port, 1);
+		Thread serving = new Thread(() -> {
+			try {
+				server.run();
+			} catch (IOException e) {
+				// The server was stopped.
+			}
+		});
+		serving.setDaemon(true);
+		serving.start();
+		Path file = Files.createTempFile("battleship", ".archive");
+		Files.delete(file);
+		ArchiveWriter archive = ArchiveWriter.open(file, GameConfig.STANDARD, 12);
+		server.getLobby().setArchive(archive);
+		InetSocketAddress address = new InetSocketAddress("localhost", port);
+		for (int tries = 0; ; tries++) {
+			try {
+				new Socket("localhost", port).close();
+				break;
+			} catch (IOException e) {
+				assertTrue(tries < 100);
+				Thread.sleep(20);
+			}
+		}
+		
+		assertEquals(6, ComputerPlayer.host(address, 6, HuntTargetStrategy::new));
+		assertEquals(0, server.getLobby().getActiveMatches());
+		
+		// Six players play three matches, and setting another archive writes the ones still queued.
+		server.getLobby().setArchive(null);
+		archive.close();
+		try (ArchiveReader reader = new ArchiveReader(file)) {
+			assertEquals(3, reader.getGameCount());
+			reader.scan(game -> assertTrue(game.getTurns() >= 2 * GameConfig.STANDARD.getMaxHits() - 1));
+		} finally {
+			Files.delete(file);
+			Files.delete(file.resolveSibling(file.getFileName() + ".index"));
+		}
+		
+		// A player that is still waiting for an opponent when the server stops never finishes its game.
+		BattleshipEventLoop loop = new BattleshipEventLoop();
+		Thread looping = new Thread(loop);
+		looping.setDaemon(true);
+		looping.start();
+		ComputerPlayer alone = new ComputerPlayer(GameConfig.STANDARD, new RandomStrategy(), new Random(9));
+		BattleshipNetwork network = alone.join(SocketChannel.open(address), loop);
+		for (int tries = 0; server.getLobby().getWaitingPlayers() == 0; tries++) {
+			assertTrue(tries < 100);
+			Thread.sleep(20);
+		}
+		server.stop();
+		assertFalse(network.awaitClose(5000));
+		loop.stop();
+	}
+	
 }
@@ -2,7 +2,8 @@ package utilities;
 
 /**
  * This class just contains only a few constants that several other
- * classes in the program uses.
+ * classes in the program uses. The grid size, fleet and max hits describe 
+ * the standard game, which is GameConfig.STANDARD.
  * 
  * @author Luke Genova 
  * @author Amimul Ehsan Zoha
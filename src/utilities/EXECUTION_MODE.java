@@ -0,0 +1,42 @@
+package utilities;
+
+/**
+ * This enumeration holds the different ways a NetworkExecutor can run the 
+ * sessions it is given. A session is the blocking loop of a BattleshipNetwork 
+ * that reads the messages of one connection. The user of the class may use 
+ * 'getDescription' to get a printable description of each enum.
+ * 
+ * 
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ * 
+ */
+public enum EXECUTION_MODE {
+	
+	PLATFORM("A new platform thread for every session"),
+	POOLED("A pool of platform threads that grows so no session waits"),
+	VIRTUAL("A new virtual thread for every session");
+	
+	private String description;
+	
+	
+	/**
+	 * EXECUTION_MODE constructor
+	 * 
+	 * @param description A string that represents the description of one of the constants.
+	 */
+	private EXECUTION_MODE(String description) {
+		this.description = description;
+	}
+	
+	/**
+	 * Returns a description of the enum value.
+	 * 
+	 * @return A string containing the description of the enum value.
+	 * 
+	 */
+	public String getDescription() {
+		return this.description;
+	}
+	
+}
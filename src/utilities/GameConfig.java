@@ -0,0 +1,177 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ * This class describes the board and the fleet of a single match. Every model,
+ * controller and match on the game server is given one, so two matches can be
+ * played on different boards at the same time. The number of hits it takes to
+ * destroy a fleet is worked out from the sizes of its ships.
+ *
+ * The board is always square and can be up to MAX_SIZE positions on each side.
+ * The standard game from Constants is used when nothing else is chosen.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class GameConfig {
+
+	// The largest number of positions on each side of the board.
+	public static final int MAX_SIZE = 1000;
+
+	// The board and fleet that is played when nothing else is chosen.
+	public static final GameConfig STANDARD = new GameConfig(Constants.GRID_SIZE, Constants.SHIP_SIZES);
+
+	private int size;
+
+	private int[] shipSizes;
+
+	private int maxHits;
+
+	/**
+	 * GameConfig constructor.
+	 *
+	 * @param size An integer that represents the number of positions on each side
+	 * of the board.
+	 * @param shipSizes An array that holds the size of every ship, in the order the
+	 * ships are placed.
+	 * @throws IllegalArgumentException when the board is too small or too big, or
+	 * when the fleet doesn't fit on the board.
+	 */
+	public GameConfig(int size, int[] shipSizes) {
+		if (size < 1 || size > MAX_SIZE) {
+			throw new IllegalArgumentException("The board must have between 1 and "
+					+ MAX_SIZE + " positions on each side.");
+		}
+		if (shipSizes.length == 0) {
+			throw new IllegalArgumentException("The fleet must have at least one ship.");
+		}
+
+		long total = 0;
+		for (int shipSize : shipSizes) {
+			if (shipSize < 1 || shipSize > size) {
+				throw new IllegalArgumentException("A ship of size " + shipSize
+						+ " doesn't fit on the board.");
+			}
+			total += shipSize;
+		}
+		if (total > (long) size * size) {
+			throw new IllegalArgumentException("The fleet has more positions than the board.");
+		}
+
+		this.size = size;
+		this.shipSizes = shipSizes.clone();
+		this.maxHits = (int) total;
+	}
+
+	/**
+	 * This method makes the config chosen by the "battleship.size" and
+	 * "battleship.fleet" system properties. The fleet is a list of ship sizes
+	 * separated by commas, for example "5,4,3". The standard board and fleet is
+	 * used for any property that isn't set.
+	 *
+	 * @return A new config for the chosen board and fleet.
+	 * @throws IllegalArgumentException when a property can't be read or describes
+	 * a board that can't be played.
+	 */
+	public static GameConfig fromProperties() {
+		String size = System.getProperty("battleship.size");
+		String fleet = System.getProperty("battleship.fleet");
+		if (size == null && fleet == null) {
+			return STANDARD;
+		}
+
+		int boardSize = Constants.GRID_SIZE;
+		if (size != null) {
+			boardSize = Integer.parseInt(size.trim());
+		}
+		int[] shipSizes = Constants.SHIP_SIZES;
+		if (fleet != null) {
+			String[] parts = fleet.split(",");
+			shipSizes = new int[parts.length];
+			for (int i = 0; i < parts.length; i++) {
+				shipSizes[i] = Integer.parseInt(parts[i].trim());
+			}
+		}
+		return new GameConfig(boardSize, shipSizes);
+	}
+
+	/**
+	 * Returns the number of positions on each side of the board.
+	 *
+	 * @return the number of positions on each side of the board.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the number of ships in the fleet.
+	 *
+	 * @return the number of ships in the fleet.
+	 */
+	public int getShipCount() {
+		return this.shipSizes.length;
+	}
+
+	/**
+	 * Returns the size of one ship of the fleet.
+	 *
+	 * @param index An integer that represents the order the ship is placed in.
+	 * @return the size of the ship.
+	 */
+	public int getShipSize(int index) {
+		return this.shipSizes[index];
+	}
+
+	/**
+	 * Returns the size of every ship of the fleet.
+	 *
+	 * @return A copy of the array that holds the size of every ship.
+	 */
+	public int[] getShipSizes() {
+		return this.shipSizes.clone();
+	}
+
+	/**
+	 * Returns the number of hits it takes to destroy the whole fleet.
+	 *
+	 * @return the number of hits it takes to destroy the whole fleet.
+	 */
+	public int getMaxHits() {
+		return this.maxHits;
+	}
+
+	/**
+	 * Determines if a position is on the board.
+	 *
+	 * @param row An integer that represents the row of the position.
+	 * @param col An integer that represents the column of the position.
+	 * @return A boolean value that determines if the position is on the board.
+	 */
+	public boolean contains(int row, int col) {
+		return row >= 0 && row < size && col >= 0 && col < size;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof GameConfig)) {
+			return false;
+		}
+		GameConfig other = (GameConfig) o;
+		return size == other.size && Arrays.equals(shipSizes, other.shipSizes);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * size + Arrays.hashCode(shipSizes);
+	}
+
+	@Override
+	public String toString() {
+		return size + "x" + size + " " + Arrays.toString(shipSizes);
+	}
+
+}
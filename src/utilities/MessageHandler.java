@@ -0,0 +1,32 @@
+package utilities;
+
+/**
+ * This interface is implemented by anything that wants to receive the messages
+ * of a BattleshipChannel. The methods are called by the thread of the event loop
+ * the channel is registered with, so they should return quickly and never block.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public interface MessageHandler {
+
+	/**
+	 * This method is called every time a whole message was read from the channel.
+	 * The message object is used again for the next message, so it shouldn't be
+	 * kept after this method returns.
+	 *
+	 * @param channel An object that represents the channel the message came from.
+	 * @param message An object that represents the message that was received.
+	 */
+	void onMessage(BattleshipChannel channel, BattleshipMessage message);
+
+	/**
+	 * This method is called once when the channel is closed by either side.
+	 *
+	 * @param channel An object that represents the channel that was closed.
+	 */
+	void onClose(BattleshipChannel channel);
+
+}
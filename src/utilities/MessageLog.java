@@ -0,0 +1,127 @@
+package utilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class numbers the messages a player sends and keeps every message until
+ * the other player says it was received, so the messages can be sent again if
+ * the connection is lost. Each message is kept as the frame it was written as,
+ * which is only a few bytes, and since every message says which is the last
+ * message its sender received, the log only holds the messages of the last turn
+ * or two. It also keeps the number of the last message that was received, so
+ * messages are handled once each and in order even when some are sent again
+ * after reconnecting. The game server keeps one for each player of a match, so
+ * it numbers and sends again its own messages the same way.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public final class MessageLog {
+
+	// Number of the last message that was sent.
+	private int sent;
+
+	// Number of the last message that was received.
+	private int received;
+
+	// Frames that the other player hasn't said it received, oldest first.
+	private ArrayDeque<byte[]> frames;
+
+	// Number of the oldest frame in the log.
+	private int first;
+
+	/**
+	 * MessageLog constructor.
+	 */
+	public MessageLog() {
+		this.frames = new ArrayDeque<byte[]>();
+		this.first = 1;
+	}
+
+	/**
+	 * This method numbers a message, adds the last message that was received to it,
+	 * and keeps the frame it is written as.
+	 *
+	 * @param message An object that represents the message being sent.
+	 * @return the frame of the message.
+	 * @throws IOException when the message could not be written.
+	 */
+	public synchronized byte[] record(BattleshipMessage message) throws IOException {
+		message.setSequence(++sent, received);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BattleshipCodec.write(new DataOutputStream(bytes), message);
+		byte[] frame = bytes.toByteArray();
+		frames.add(frame);
+		return frame;
+	}
+
+	/**
+	 * This method goes over a message that was received. The messages it says the
+	 * other player received are dropped from the log.
+	 *
+	 * @param message An object that represents the message that was received.
+	 * @return A boolean value that is false if the message was received before or
+	 * came after a message that is missing, since it is sent again in order.
+	 */
+	public synchronized boolean accept(BattleshipMessage message) {
+		acknowledge(message.getAck());
+		if (message.getSequence() == 0) {
+			return true;
+		}
+		if (message.getSequence() != received + 1) {
+			return false;
+		}
+		received = message.getSequence();
+		return true;
+	}
+
+	/**
+	 * This method returns the frames of every message after the last one the
+	 * other player received, in the order they were sent.
+	 *
+	 * @param lastReceived An integer that represents the last message the other player received.
+	 * @return A list of the frames to send again.
+	 */
+	public synchronized List<byte[]> since(int lastReceived) {
+		acknowledge(lastReceived);
+		return new ArrayList<byte[]>(frames);
+	}
+
+	/**
+	 * Returns the number of the last message that was received.
+	 *
+	 * @return the number of the last message received, or 0.
+	 */
+	public synchronized int getReceived() {
+		return this.received;
+	}
+
+	/**
+	 * Returns the number of messages that were sent but not acknowledged yet.
+	 *
+	 * @return the number of messages in the log.
+	 */
+	synchronized int size() {
+		return frames.size();
+	}
+
+	/**
+	 * This private method drops the frames of the messages the other player received.
+	 *
+	 * @param lastReceived An integer that represents the last message the other player received.
+	 */
+	private void acknowledge(int lastReceived) {
+		while (first <= lastReceived && !frames.isEmpty()) {
+			frames.poll();
+			first++;
+		}
+	}
+
+}
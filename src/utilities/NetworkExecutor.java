@@ -0,0 +1,292 @@
+package utilities;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+
+/**
+ * This class runs the sessions of BattleshipNetwork objects, which are the
+ * blocking loops that read the messages of one connection each. How the
+ * sessions are run depends on the EXECUTION_MODE it is given:
+ *
+ * 1. PLATFORM starts a new platform thread for each session, which is what the
+ * view always did.
+ *
+ * 2. POOLED keeps a number of platform threads and gives each session one of
+ * them. A session blocks its thread until its connection closes, so a session
+ * never waits in a queue: when every thread is busy another one is started, and
+ * threads beyond the pool size stop once they were idle for POOL_IDLE_SECONDS.
+ *
+ * 3. VIRTUAL starts a new virtual thread for each session, which keeps the simple
+ * blocking reads while letting a host run tens of thousands of sessions.
+ *
+ * The executor also keeps track of how many sessions are running, how long they
+ * ran, and how many platform threads the process has, so the modes can be compared.
+ * These are given to the MetricsRegistry, so they are exported with the rest of the
+ * metrics of the game. The threads of every mode are daemon threads, so a session
+ * that is still reading doesn't keep the program running once the window is closed.
+ *
+ * The executor uses the thread APIs of Java 21 in every mode, like LatencyHistogram
+ * does, so the game needs Java 21 or newer.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public class NetworkExecutor {
+
+	// The system property that chooses the mode of the default executor.
+	public static final String MODE_PROPERTY = "battleship.executor";
+
+	// Time a pooled thread beyond the pool size waits for another session before it stops.
+	static final long POOL_IDLE_SECONDS = 60;
+
+	private static final LatencyHistogram SESSION_TIME = MetricsRegistry.getDefault().histogram("network.session.nanos");
+
+	private EXECUTION_MODE mode;
+
+	private ExecutorService executor;
+
+	// Stack size of the platform threads, where zero uses the default of the JVM.
+	private long stackSize;
+
+	private AtomicInteger activeSessions;
+	private AtomicInteger peakSessions;
+	private AtomicLong startedSessions;
+	private AtomicLong completedSessions;
+	private AtomicLong totalSessionNanos;
+
+	private ThreadMXBean threads;
+
+	/**
+	 * NetworkExecutor constructor.
+	 *
+	 * @param mode A constant that determines how the sessions are run.
+	 * @param poolSize An integer that represents the number of threads the POOLED mode
+	 * keeps when they are idle. It is ignored by the other modes.
+	 * @param stackSize A long that represents the stack size in bytes of each platform
+	 * thread, or zero to use the default of the JVM. Virtual threads grow their stacks
+	 * as needed, so it is ignored by the VIRTUAL mode.
+	 */
+	public NetworkExecutor(EXECUTION_MODE mode, int poolSize, long stackSize) {
+		this.mode = mode;
+		this.stackSize = stackSize;
+		this.activeSessions = new AtomicInteger();
+		this.peakSessions = new AtomicInteger();
+		this.startedSessions = new AtomicLong();
+		this.completedSessions = new AtomicLong();
+		this.totalSessionNanos = new AtomicLong();
+		this.threads = ManagementFactory.getThreadMXBean();
+		register(MetricsRegistry.getDefault());
+
+		if (mode == EXECUTION_MODE.VIRTUAL) {
+			ThreadFactory factory = Thread.ofVirtual().name("battleship-session-", 0).factory();
+			executor = Executors.newThreadPerTaskExecutor(factory);
+		} else if (mode == EXECUTION_MODE.POOLED) {
+			executor = new ThreadPoolExecutor(poolSize, Integer.MAX_VALUE, POOL_IDLE_SECONDS, TimeUnit.SECONDS,
+					new SynchronousQueue<Runnable>(), platformFactory());
+		} else {
+			executor = Executors.newThreadPerTaskExecutor(platformFactory());
+		}
+	}
+
+	/**
+	 * NetworkExecutor constructor that uses one pooled thread per core and the
+	 * default stack size.
+	 *
+	 * @param mode A constant that determines how the sessions are run.
+	 */
+	public NetworkExecutor(EXECUTION_MODE mode) {
+		this(mode, Runtime.getRuntime().availableProcessors(), 0);
+	}
+
+	/**
+	 * This method creates an executor whose mode is chosen by the
+	 * "battleship.executor" system property, which can be platform, pooled
+	 * or virtual. The PLATFORM mode is used when the property isn't set or
+	 * names a mode that doesn't exist.
+	 *
+	 * @return A new executor using the chosen mode.
+	 */
+	public static NetworkExecutor fromProperty() {
+		String name = System.getProperty(MODE_PROPERTY, EXECUTION_MODE.PLATFORM.name());
+		EXECUTION_MODE mode = EXECUTION_MODE.PLATFORM;
+		try {
+			mode = EXECUTION_MODE.valueOf(name.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			System.err.println("Unknown " + MODE_PROPERTY + " \"" + name + "\", using platform.");
+		}
+		return new NetworkExecutor(mode);
+	}
+
+	/**
+	 * This method runs a session, usually a BattleshipNetwork, using the
+	 * mode of the executor.
+	 *
+	 * @param session An object that represents the session being run.
+	 */
+	public void execute(Runnable session) {
+		executor.execute(() -> runSession(session));
+	}
+
+	/**
+	 * This method stops the executor from taking new sessions. Sessions that
+	 * are still running are not interrupted.
+	 *
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns the mode that the executor runs its sessions with.
+	 *
+	 * @return the mode of the executor.
+	 */
+	public EXECUTION_MODE getMode() {
+		return this.mode;
+	}
+
+	/**
+	 * Returns the number of sessions that are running right now.
+	 *
+	 * @return the number of sessions that are running.
+	 */
+	public int getActiveSessions() {
+		return activeSessions.get();
+	}
+
+	/**
+	 * Returns the highest number of sessions that were running at the same time.
+	 *
+	 * @return the highest number of sessions that were running at once.
+	 */
+	public int getPeakSessions() {
+		return peakSessions.get();
+	}
+
+	/**
+	 * Returns the number of sessions that have finished.
+	 *
+	 * @return the number of sessions that have finished.
+	 */
+	public long getCompletedSessions() {
+		return completedSessions.get();
+	}
+
+	/**
+	 * Returns the average time a finished session ran for.
+	 *
+	 * @return the average time in milliseconds, or zero if no session has finished.
+	 */
+	public double getAverageSessionMillis() {
+		long completed = completedSessions.get();
+		if (completed == 0) {
+			return 0;
+		}
+		return totalSessionNanos.get() / 1e6 / completed;
+	}
+
+	/**
+	 * Returns the number of live platform threads of the process. Virtual
+	 * threads are not counted.
+	 *
+	 * @return the number of live platform threads.
+	 */
+	public int getPlatformThreads() {
+		return threads.getThreadCount();
+	}
+
+	/**
+	 * Returns the highest number of live platform threads the process had.
+	 *
+	 * @return the highest number of live platform threads.
+	 */
+	public int getPeakPlatformThreads() {
+		return threads.getPeakThreadCount();
+	}
+
+	/**
+	 * Returns a single line that describes the session and thread metrics of
+	 * the executor.
+	 *
+	 * @return A string containing the metrics of the executor.
+	 */
+	public String getMetrics() {
+		String stack = (mode == EXECUTION_MODE.VIRTUAL || stackSize == 0) ? "default" : stackSize + " bytes";
+		return String.format("mode=%s sessions(active=%d peak=%d started=%d completed=%d avg=%.1fms) "
+				+ "platformThreads(live=%d peak=%d) stack=%s",
+				mode, getActiveSessions(), getPeakSessions(), startedSessions.get(), getCompletedSessions(),
+				getAverageSessionMillis(), getPlatformThreads(), getPeakPlatformThreads(), stack);
+	}
+
+	/**
+	 * This private method runs a session and updates the metrics before and
+	 * after it runs.
+	 *
+	 * @param session An object that represents the session being run.
+	 */
+	private void runSession(Runnable session) {
+		startedSessions.incrementAndGet();
+		peakSessions.accumulateAndGet(activeSessions.incrementAndGet(), Math::max);
+		long start = System.nanoTime();
+		try {
+			session.run();
+		} finally {
+			SESSION_TIME.recordSince(start);
+			totalSessionNanos.addAndGet(System.nanoTime() - start);
+			activeSessions.decrementAndGet();
+			completedSessions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * This private method gives the session and thread metrics of the executor to
+	 * a registry. The gauges read the counters of the executor, and the newest 
+	 * executor replaces the gauges of the one before it.
+	 *
+	 * @param registry An object that the metrics are given to.
+	 */
+	private void register(MetricsRegistry registry) {
+		AtomicInteger active = activeSessions;
+		AtomicInteger peak = peakSessions;
+		AtomicLong started = startedSessions;
+		AtomicLong completed = completedSessions;
+		ThreadMXBean bean = threads;
+		registry.gauge("network.sessions.active", active::get);
+		registry.gauge("network.sessions.peak", peak::get);
+		registry.gauge("network.sessions.started", started::get);
+		registry.gauge("network.sessions.completed", completed::get);
+		registry.gauge("network.threads.platform", bean::getThreadCount);
+		registry.gauge("network.threads.platform.peak", bean::getPeakThreadCount);
+	}
+
+	/**
+	 * This private method creates the factory of the platform threads, which
+	 * gives each thread a name and the stack size of the executor, and makes it
+	 * a daemon thread like a virtual thread.
+	 *
+	 * @return A factory that creates platform threads.
+	 */
+	private ThreadFactory platformFactory() {
+		AtomicInteger count = new AtomicInteger();
+		long size = stackSize;
+		return (Runnable r) -> {
+			Thread thread = new Thread(null, r, "battleship-session-" + count.getAndIncrement(), size);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+}
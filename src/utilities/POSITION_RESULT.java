@@ -7,6 +7,11 @@ package utilities;
  * that has been hit, or an empty spot that was attacked. The user of the 
  * class may use 'getDescription' to get a printable description of each enum.
  * 
+ * Each constant also has a small code, with EMPTY_CODE for a position that has 
+ * none, which is what the network sends and what tables of positions are indexed 
+ * by. Positions are always compared by their constant or code, and the description 
+ * is only used for showing to the user.
+ * 
  * 
  * @author Luke Genova
  * @author Amimul Ehsan Zoha
@@ -18,6 +23,15 @@ public enum POSITION_RESULT {
 	HIT("A Ship has been hit"),
 	MISS("A missile missed");
 	
+	// Code of a position that has no constant.
+	public static final int EMPTY_CODE = 0;
+	
+	// Number of different codes, including EMPTY_CODE.
+	public static final int CODES = 4;
+	
+	// Constants by their code.
+	private static final POSITION_RESULT[] BY_CODE = {null, SHIP, HIT, MISS};
+	
 	private String description;
 	
 	
@@ -40,4 +54,38 @@ public enum POSITION_RESULT {
 		return this.description;
 	}
 	
+	/**
+	 * Returns the code of the enum value.
+	 * 
+	 * @return An integer from 1 to CODES - 1.
+	 */
+	public int getCode() {
+		return ordinal() + 1;
+	}
+	
+	/**
+	 * Returns the code of a position, which is EMPTY_CODE when the position 
+	 * has no constant.
+	 * 
+	 * @param result A constant that describes the position, or null if it is empty.
+	 * @return An integer from 0 to CODES - 1.
+	 */
+	public static int codeOf(POSITION_RESULT result) {
+		return result == null ? EMPTY_CODE : result.getCode();
+	}
+	
+	/**
+	 * Returns the constant with a code.
+	 * 
+	 * @param code An integer from 0 to CODES - 1.
+	 * @return the constant with the code, or null for EMPTY_CODE.
+	 * @throws IllegalArgumentException when no constant has the code.
+	 */
+	public static POSITION_RESULT fromCode(int code) {
+		if (code < 0 || code >= CODES) {
+			throw new IllegalArgumentException("There is no position with the code " + code);
+		}
+		return BY_CODE[code];
+	}
+	
 }
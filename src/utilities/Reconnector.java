@@ -0,0 +1,27 @@
+package utilities;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * This interface is given to a BattleshipNetwork by the player that opened the
+ * connection, so the network can open it again if it is lost. It is called on the
+ * network's thread as many times as it takes until the connection is back or the
+ * network gives up.
+ *
+ *
+ * @author Luke Genova
+ * @author Amimul Ehsan Zoha
+ *
+ */
+public interface Reconnector {
+
+	/**
+	 * This method opens a new connection to the same other player or game server.
+	 *
+	 * @return An object that represents the new connection.
+	 * @throws IOException when the connection could not be opened this time.
+	 */
+	Socket reconnect() throws IOException;
+
+}